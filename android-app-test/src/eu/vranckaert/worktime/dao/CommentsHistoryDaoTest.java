@@ -20,6 +20,7 @@ import eu.vranckaert.worktime.dao.impl.CommentHistoryDaoImpl;
 import eu.vranckaert.worktime.model.CommentHistory;
 import eu.vranckaert.worktime.test.cases.DaoTestCase;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -64,4 +65,50 @@ public class CommentsHistoryDaoTest extends DaoTestCase<CommentHistoryDao, Comme
         assertNotNull("The history list should not be null", histories);
         assertEquals("No items should be in the list", 0, histories.size());
     }
+
+    private void saveComment(String comment, long lastUsed) {
+        CommentHistory history = new CommentHistory(comment);
+        history.setLastUsed(new Date(lastUsed));
+        getDao().save(history);
+    }
+
+    public void testFindByComment() {
+        saveComment("Comment 1", 1000L);
+        saveComment("Comment 2", 2000L);
+
+        CommentHistory history = getDao().findByComment("Comment 2");
+        assertNotNull("The comment should be found", history);
+        assertEquals("Comment 2", history.getComment());
+        assertNull("The comment should not be found", getDao().findByComment("Comment"));
+    }
+
+    public void testFindMostRecentlyUsed() {
+        saveComment("Comment 1", 3000L);
+        saveComment("Comment 2", 1000L);
+        saveComment("Comment 3", 2000L);
+
+        List<CommentHistory> histories = getDao().findMostRecentlyUsed(2);
+        assertEquals("Two items should be in the list", 2, histories.size());
+        assertEquals("Comment 1", histories.get(0).getComment());
+        assertEquals("Comment 3", histories.get(1).getComment());
+    }
+
+    public void testDeleteLeastRecentlyUsed() {
+        saveComment("Comment 1", 3000L);
+        saveComment("Comment 2", 1000L);
+        saveComment("Comment 3", 4000L);
+        saveComment("Comment 4", 2000L);
+
+        assertTrue("Nothing should be deleted", getDao().deleteLeastRecentlyUsed(4).isEmpty());
+
+        List<CommentHistory> evicted = getDao().deleteLeastRecentlyUsed(2);
+        assertEquals("Two items should be deleted", 2, evicted.size());
+        assertEquals("Comment 2", evicted.get(0).getComment());
+        assertEquals("Comment 4", evicted.get(1).getComment());
+
+        List<CommentHistory> histories = getDao().findMostRecentlyUsed(10);
+        assertEquals("Two items should be in the list", 2, histories.size());
+        assertEquals("Comment 3", histories.get(0).getComment());
+        assertEquals("Comment 1", histories.get(1).getComment());
+    }
 }
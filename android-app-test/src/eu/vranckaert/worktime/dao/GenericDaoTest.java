@@ -18,9 +18,12 @@ package eu.vranckaert.worktime.dao;
 
 import eu.vranckaert.worktime.dao.generic.GenericDao;
 import eu.vranckaert.worktime.dao.impl.CommentHistoryDaoImpl;
+import eu.vranckaert.worktime.dao.utils.DatabaseChangeTracker;
 import eu.vranckaert.worktime.model.CommentHistory;
 import eu.vranckaert.worktime.test.cases.DaoTestCase;
+import eu.vranckaert.worktime.utils.preferences.Preferences;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -165,6 +168,34 @@ public class GenericDaoTest extends DaoTestCase<CommentHistoryDao, CommentHistor
         assertEquals("No items should be found", 0, list.size());
     }
 
+    public void testSaveAllUpdateAllAndDeleteAll() {
+        int numberOfEntities = 1200;
+
+        List<CommentHistory> entities = new ArrayList<CommentHistory>();
+        for (int i=0; i<numberOfEntities; i++) {
+            CommentHistory o = new CommentHistory("TEST" + i);
+            o.setEntranceDate(new Date());
+            entities.add(o);
+        }
+        getGenericDao().saveAll(entities);
+
+        assertEquals("All items should be found", numberOfEntities, getGenericDao().count().intValue());
+        for (CommentHistory o : entities) {
+            assertNotNull(o.getId());
+        }
+
+        for (CommentHistory o : entities) {
+            o.setComment("updated!");
+        }
+        getGenericDao().updateAll(entities);
+
+        CommentHistory result = getGenericDao().findById(entities.get(numberOfEntities - 1).getId());
+        assertEquals("updated!", result.getComment());
+
+        getGenericDao().deleteAll(entities.subList(0, numberOfEntities - 1));
+        assertEquals("One item should be found", 1, getGenericDao().count().intValue());
+    }
+
     public void testCount() {
         List list = getGenericDao().findAll();
         assertEquals("No items should be found", 0, list.size());
@@ -224,4 +255,18 @@ public class GenericDaoTest extends DaoTestCase<CommentHistoryDao, CommentHistor
         assertEquals(o.getComment(), r.getComment());
         assertEquals(o.getEntranceDate(), r.getEntranceDate());
     }
+
+    public void testWriteMarksDatabaseChangedSinceLastBackup() {
+        DatabaseChangeTracker.markBackedUp(ctx, null);
+        assertFalse(DatabaseChangeTracker.isChanged(ctx));
+
+        getGenericDao().findAll();
+        assertFalse("Reading should not mark the database as changed", DatabaseChangeTracker.isChanged(ctx));
+
+        CommentHistory o = new CommentHistory("TEST");
+        o.setEntranceDate(new Date());
+        getGenericDao().save(o);
+        assertTrue("Writing should mark the database as changed", DatabaseChangeTracker.isChanged(ctx));
+        assertTrue(Preferences.Backup.isDatabaseChangedSinceLastBackup(ctx));
+    }
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.dao.backup;
+
+import com.j256.ormlite.android.apptools.OpenHelperManager;
+import eu.vranckaert.worktime.dao.GeofenceDao;
+import eu.vranckaert.worktime.dao.ProjectDao;
+import eu.vranckaert.worktime.dao.TaskDao;
+import eu.vranckaert.worktime.dao.TimeRegistrationDao;
+import eu.vranckaert.worktime.dao.cache.ProjectTaskRepository;
+import eu.vranckaert.worktime.dao.impl.GeofenceDaoImpl;
+import eu.vranckaert.worktime.dao.impl.ProjectDaoImpl;
+import eu.vranckaert.worktime.dao.impl.TaskDaoImpl;
+import eu.vranckaert.worktime.dao.impl.TimeRegistrationDaoImpl;
+import eu.vranckaert.worktime.dao.utils.DatabaseHelper;
+import eu.vranckaert.worktime.exceptions.backup.CorruptBackupException;
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.trigger.GeofenceTrigger;
+import eu.vranckaert.worktime.test.cases.DaoTestCase;
+import eu.vranckaert.worktime.test.utils.TestUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a backup in the {@link PortableBackupFormat}, validates it and restores it in an empty database.
+ */
+public class PortableBackupTest extends DaoTestCase<ProjectDao, ProjectDaoImpl> {
+    public PortableBackupTest() {
+        super(ProjectDaoImpl.class);
+    }
+
+    private DatabaseHelper getHelper() {
+        return OpenHelperManager.getHelper(ctx, DatabaseHelper.class);
+    }
+
+    private byte[] setupBackup() throws Exception {
+        TaskDao taskDao = getDaoForClass(TaskDao.class, TaskDaoImpl.class);
+        TimeRegistrationDao timeRegistrationDao = getDaoForClass(TimeRegistrationDao.class, TimeRegistrationDaoImpl.class);
+
+        Project project = new Project();
+        project.setName("BACKUP TEST");
+        project.setFinished(false);
+        project.setDefaultValue(false);
+        project = getDao().save(project);
+
+        Task task = new Task();
+        task.setName("BACKUP TEST TASK");
+        task.setFinished(false);
+        task.setProject(project);
+        task = taskDao.save(task);
+
+        TimeRegistration timeRegistration = new TimeRegistration();
+        timeRegistration.setStartTime(new Date(1356994800000L));
+        timeRegistration.setEndTime(new Date(1357002000000L));
+        timeRegistration.setComment("Comment with \"quotes\" and a\nnew line");
+        timeRegistration.setTask(task);
+        timeRegistrationDao.save(timeRegistration);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PortableBackupWriter(getHelper()).write(out);
+        return out.toByteArray();
+    }
+
+    public void testBackupAndRestore() throws Exception {
+        byte[] backup = setupBackup();
+        Long projects = getDao().count();
+
+        PortableBackupReader reader = new PortableBackupReader(getHelper());
+        Map<String, Integer> records = reader.validate(new ByteArrayInputStream(backup));
+        assertEquals(projects.intValue(), records.get(Project.class.getSimpleName()).intValue());
+        assertEquals(1, records.get(Task.class.getSimpleName()).intValue());
+        assertEquals(1, records.get(TimeRegistration.class.getSimpleName()).intValue());
+
+        TestUtil.cleanUpDatabase(ctx);
+        reader.restore(new ByteArrayInputStream(backup));
+        ProjectTaskRepository.getInstance().invalidate();
+
+        assertEquals(projects, getDao().count());
+
+        List<TimeRegistration> timeRegistrations = getDaoForClass(TimeRegistrationDao.class, TimeRegistrationDaoImpl.class).findAll();
+        assertEquals(1, timeRegistrations.size());
+        TimeRegistration timeRegistration = timeRegistrations.get(0);
+        assertEquals(1356994800000L, timeRegistration.getStartTime().getTime());
+        assertEquals("Comment with \"quotes\" and a\nnew line", timeRegistration.getComment());
+
+        // The references must point to the restored records, whatever ids they got in the database
+        Task task = getDaoForClass(TaskDao.class, TaskDaoImpl.class).findById(timeRegistration.getTask().getId());
+        assertEquals("BACKUP TEST TASK", task.getName());
+        Project project = getDao().findById(task.getProject().getId());
+        assertEquals("BACKUP TEST", project.getName());
+    }
+
+    public void testRestoreRemovesGeofenceTriggers() throws Exception {
+        byte[] backup = setupBackup();
+
+        // The trigger refers to a task that is replaced by the restore
+        GeofenceDao geofenceDao = getDaoForClass(GeofenceDao.class, GeofenceDaoImpl.class);
+        GeofenceTrigger geofenceTrigger = new GeofenceTrigger();
+        geofenceTrigger.setGeofenceRequestId("BACKUP TEST GEOFENCE");
+        geofenceTrigger.setName("BACKUP TEST GEOFENCE");
+        geofenceTrigger.setLatitude(50.85);
+        geofenceTrigger.setLongitude(4.35);
+        geofenceTrigger.setRadius(100);
+        geofenceTrigger.setTask(getDaoForClass(TaskDao.class, TaskDaoImpl.class).findAll().get(0));
+        geofenceDao.save(geofenceTrigger);
+        assertEquals(Long.valueOf(1L), geofenceDao.count());
+
+        List<String> removedGeofences = new PortableBackupReader(getHelper()).restore(new ByteArrayInputStream(backup));
+        ProjectTaskRepository.getInstance().invalidate();
+
+        assertEquals(1, removedGeofences.size());
+        assertEquals("BACKUP TEST GEOFENCE", removedGeofences.get(0));
+        assertEquals(Long.valueOf(0L), geofenceDao.count());
+    }
+
+    public void testIncompleteBackupIsRejected() throws Exception {
+        byte[] backup = setupBackup();
+        String content = new String(backup, PortableBackupFormat.CHARSET);
+        // Drop the footer, as if the backup was interrupted
+        String incomplete = content.substring(0, content.lastIndexOf('\n', content.length() - 2) + 1);
+
+        try {
+            new PortableBackupReader(getHelper()).validate(new ByteArrayInputStream(incomplete.getBytes(PortableBackupFormat.CHARSET)));
+            fail("An incomplete backup should not be valid");
+        } catch (CorruptBackupException e) {
+            // Expected
+        }
+    }
+}
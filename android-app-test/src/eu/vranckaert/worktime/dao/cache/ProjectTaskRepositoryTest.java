@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.dao.cache;
+
+import android.test.AndroidTestCase;
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ProjectTaskRepositoryTest extends AndroidTestCase {
+    private ProjectTaskRepository repository;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        repository = ProjectTaskRepository.getInstance();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        // Other tests work on the database, make sure they start from a fresh repository
+        repository.invalidate();
+        super.tearDown();
+    }
+
+    private Project createProject(int id, String name) {
+        Project project = new Project();
+        project.setId(id);
+        project.setName(name);
+        return project;
+    }
+
+    private Task createTask(int id, String name, int projectId) {
+        Project project = new Project();
+        project.setId(projectId);
+
+        Task task = new Task();
+        task.setId(id);
+        task.setName(name);
+        task.setProject(project);
+        return task;
+    }
+
+    public void testIdentityMappedGraph() {
+        Project project = createProject(1, "project");
+        Task task = createTask(10, "task", 1);
+        repository.load(new ArrayList<Project>(Arrays.asList(project)), new ArrayList<Task>(Arrays.asList(task)));
+
+        assertTrue(repository.isLoaded());
+        assertEquals("project", repository.findProject(1).getName());
+        assertEquals("project", repository.findTask(10).getProject().getName());
+        assertEquals(1, repository.findTasksForProject(1).size());
+
+        // A new instance of the same project updates the project in the whole graph
+        repository.putProject(createProject(1, "updated project"));
+        assertEquals("updated project", repository.findProject(1).getName());
+        assertEquals("updated project", repository.findTask(10).getProject().getName());
+
+        // Moving a task to another project
+        repository.putProject(createProject(2, "other project"));
+        repository.putTask(createTask(10, "task", 2));
+        assertTrue(repository.findTasksForProject(1).isEmpty());
+        assertEquals(1, repository.findTasksForProject(2).size());
+        assertEquals("other project", repository.findTask(10).getProject().getName());
+    }
+
+    public void testReadersGetCopies() {
+        Project project = createProject(1, "project");
+        repository.load(new ArrayList<Project>(Arrays.asList(project)), new ArrayList<Task>(Arrays.asList(createTask(10, "task", 1), createTask(11, "other task", 1))));
+
+        // Changing what was loaded, stored or read does not change the repository
+        project.setName("changed");
+        Project read = repository.findProject(1);
+        assertNotSame(read, repository.findProject(1));
+        read.setName("unsaved");
+        assertEquals("project", repository.findProject(1).getName());
+
+        // The tasks of one read share the copy of their project
+        List<Task> tasks = repository.findAllTasks();
+        assertSame(tasks.get(0).getProject(), tasks.get(1).getProject());
+        assertNotSame(tasks.get(0).getProject(), repository.findTask(10).getProject());
+
+        // Refreshing an edited instance reverts the unsaved changes
+        assertTrue(repository.refresh(read));
+        assertEquals("project", read.getName());
+        Task task = repository.findTask(10);
+        task.setName("unsaved");
+        assertTrue(repository.refresh(task));
+        assertEquals("task", task.getName());
+    }
+
+    public void testRefreshForeignInstances() {
+        Project project = createProject(1, "project");
+        project.setSyncKey("p1");
+        Task task = createTask(10, "task", 1);
+        task.setFinished(true);
+        repository.load(new ArrayList<Project>(Arrays.asList(project)), new ArrayList<Task>(Arrays.asList(task)));
+
+        // Foreign instances only have their id set
+        Task foreignTask = new Task();
+        foreignTask.setId(10);
+        assertTrue(repository.refresh(foreignTask));
+        assertEquals("task", foreignTask.getName());
+        assertTrue(foreignTask.isFinished());
+        assertEquals("project", foreignTask.getProject().getName());
+
+        Project foreignProject = new Project();
+        foreignProject.setId(1);
+        assertTrue(repository.refresh(foreignProject));
+        assertEquals("project", foreignProject.getName());
+        assertEquals("p1", foreignProject.getSyncKey());
+
+        Project unknownProject = new Project();
+        unknownProject.setId(99);
+        assertFalse(repository.refresh(unknownProject));
+    }
+
+    public void testReturnedListsAreCopies() {
+        repository.load(new ArrayList<Project>(Arrays.asList(createProject(1, "a"), createProject(2, "b"))), new ArrayList<Task>());
+
+        List<Project> projects = repository.findAllProjects();
+        projects.remove(0);
+        assertEquals(2, repository.findAllProjects().size());
+
+        repository.removeProject(1);
+        assertEquals(1, repository.findAllProjects().size());
+        assertNull(repository.findProject(1));
+
+        repository.invalidate();
+        assertFalse(repository.isLoaded());
+        assertTrue(repository.findAllProjects().isEmpty());
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.dao.utils;
+
+import android.test.AndroidTestCase;
+
+import java.util.List;
+
+public class QueryStatisticsTest extends AndroidTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        QueryStatistics.reset();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        QueryStatistics.reset();
+        super.tearDown();
+    }
+
+    public void testStatisticsPerCallSite() {
+        assertFalse(QueryStatistics.queryExecuted("Project.findAll <- ProjectServiceImpl.findAll", 5, 1000000L, false));
+        assertFalse(QueryStatistics.queryExecuted("Project.findAll <- ProjectServiceImpl.findAll", 7, 3000000L, false));
+        assertTrue("The first query on the main thread should be reported", QueryStatistics.queryExecuted("Task.refresh <- TaskServiceImpl.refresh", 1, 500000L, true));
+        assertFalse("Only the first query on the main thread should be reported", QueryStatistics.queryExecuted("Task.refresh <- TaskServiceImpl.refresh", 1, 500000L, true));
+
+        assertEquals(4L, QueryStatistics.getQueries());
+        assertEquals(2L, QueryStatistics.getMainThreadQueries());
+
+        List<QueryStatistics.Entry> entries = QueryStatistics.getEntries();
+        assertEquals(2, entries.size());
+
+        QueryStatistics.Entry slowest = entries.get(0);
+        assertEquals("The call site with the highest total latency should be first", "Project.findAll <- ProjectServiceImpl.findAll", slowest.getCallSite());
+        assertEquals(2L, slowest.getQueries());
+        assertEquals(12L, slowest.getRows());
+        assertEquals(4000000L, slowest.getTotalLatency());
+        assertEquals(3000000L, slowest.getMaxLatency());
+        assertEquals(0L, slowest.getMainThreadQueries());
+
+        assertTrue(QueryStatistics.dump().startsWith("queries=4, mainThreadQueries=2, callSites=2"));
+
+        QueryStatistics.reset();
+        assertEquals(0L, QueryStatistics.getQueries());
+        assertTrue(QueryStatistics.getEntries().isEmpty());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.model.dto.sync;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+import eu.vranckaert.worktime.dao.web.model.response.sync.*;
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+
+import java.util.*;
+
+public class SyncApplyPlanTest extends AndroidTestCase {
+    private static final String LOG_TAG = SyncApplyPlanTest.class.getSimpleName();
+
+    private int nextId = 1;
+
+    private Project createProject(String name, String syncKey, boolean local) {
+        Project project = new Project();
+        if (local)
+            project.setId(nextId++);
+        project.setName(name);
+        project.setSyncKey(syncKey);
+        return project;
+    }
+
+    private Task createTask(String name, String syncKey, Project project, boolean local) {
+        Task task = new Task();
+        if (local)
+            task.setId(nextId++);
+        task.setName(name);
+        task.setSyncKey(syncKey);
+        task.setProject(project);
+        return task;
+    }
+
+    private TimeRegistration createTimeRegistration(long start, String syncKey, Task task, boolean local) {
+        TimeRegistration timeRegistration = new TimeRegistration();
+        if (local)
+            timeRegistration.setId(nextId++);
+        timeRegistration.setStartTime(new Date(start));
+        timeRegistration.setEndTime(new Date(start + 3600000L));
+        timeRegistration.setSyncKey(syncKey);
+        timeRegistration.setTask(task);
+        return timeRegistration;
+    }
+
+    private EntitySyncResult createEmptySyncResult() {
+        EntitySyncResult entitySyncResult = new EntitySyncResult();
+        entitySyncResult.setProjectSyncResults(new ArrayList<ProjectSyncResult>());
+        entitySyncResult.setTaskSyncResults(new ArrayList<TaskSyncResult>());
+        entitySyncResult.setTimeRegistrationSyncResults(new ArrayList<TimeRegistrationSyncResult>());
+        return entitySyncResult;
+    }
+
+    public void testCheckServerEntities() {
+        Project localProject = createProject("project", "p1", true);
+        Task localTask = createTask("task", "t1", localProject, true);
+        TimeRegistration localTr = createTimeRegistration(0L, null, localTask, true);
+
+        SyncApplyPlan plan = new SyncApplyPlan(
+                new ArrayList<Project>(Arrays.asList(localProject)),
+                new ArrayList<Task>(Arrays.asList(localTask)),
+                new ArrayList<TimeRegistration>(Arrays.asList(localTr))
+        );
+        plan.applySyncResult(createEmptySyncResult());
+
+        // The server returns the same time registration (matched on dates) and a new one for a new task
+        Project serverProject = createProject("project", "p1", false);
+        Task serverTask = createTask("task", "t1", serverProject, false);
+        Task serverNewTask = createTask("new task", "t2", serverProject, false);
+        TimeRegistration serverTr = createTimeRegistration(0L, "tr1", serverTask, false);
+        TimeRegistration serverNewTr = createTimeRegistration(7200000L, "tr2", serverNewTask, false);
+
+        List<Project> projects = new ArrayList<Project>();
+        List<Task> tasks = new ArrayList<Task>();
+        List<TimeRegistration> timeRegistrations = new ArrayList<TimeRegistration>(Arrays.asList(serverTr, serverNewTr));
+        plan.checkServerEntities(projects, tasks, timeRegistrations);
+
+        assertEquals(1, projects.size());
+        assertEquals(2, tasks.size());
+        assertTrue(plan.getProjectsToSave().isEmpty());
+        assertEquals(1, plan.getTasksToSave().size());
+        assertSame(localProject, plan.getTasksToSave().iterator().next().getProject());
+        assertEquals(1, plan.getTimeRegistrationsToSave().size());
+        assertSame(serverNewTr, plan.getTimeRegistrationsToSave().iterator().next());
+        assertTrue(plan.getTimeRegistrationsToUpdate().contains(localTr));
+        assertEquals("tr1", localTr.getSyncKey());
+
+        Map<String, String> removals = new HashMap<String, String>();
+        removals.put("tr2", TimeRegistration.class.getSimpleName());
+        removals.put("tr1", TimeRegistration.class.getSimpleName());
+        plan.removeEntities(removals);
+
+        // A new entity that is removed again should never reach the database
+        assertTrue(plan.getTimeRegistrationsToSave().isEmpty());
+        assertFalse(plan.getTimeRegistrationsToUpdate().contains(localTr));
+        assertTrue(plan.getTimeRegistrationsToDelete().contains(localTr));
+    }
+
+    public void testBenchmark10kEntities() {
+        int projectCount = 50;
+        int tasksPerProject = 4;
+        int timeRegistrationCount = 10000;
+
+        List<Project> localProjects = new ArrayList<Project>();
+        List<Task> localTasks = new ArrayList<Task>();
+        List<TimeRegistration> localTrs = new ArrayList<TimeRegistration>();
+        List<Project> serverProjects = new ArrayList<Project>();
+        List<Task> serverTasks = new ArrayList<Task>();
+        List<TimeRegistration> serverTrs = new ArrayList<TimeRegistration>();
+
+        for (int i=0; i<projectCount; i++) {
+            Project localProject = createProject("project" + i, "p" + i, true);
+            Project serverProject = createProject("project" + i, "p" + i, false);
+            localProjects.add(localProject);
+            serverProjects.add(serverProject);
+            for (int j=0; j<tasksPerProject; j++) {
+                localTasks.add(createTask("task" + j, "p" + i + "t" + j, localProject, true));
+                serverTasks.add(createTask("task" + j, "p" + i + "t" + j, serverProject, false));
+            }
+        }
+        for (int i=0; i<timeRegistrationCount; i++) {
+            long start = i * 7200000L;
+            // Half of the incoming time registrations already exist locally, the other half is new
+            if (i % 2 == 0) {
+                localTrs.add(createTimeRegistration(start, "tr" + i, localTasks.get(i % localTasks.size()), true));
+            }
+            serverTrs.add(createTimeRegistration(start, "tr" + i, serverTasks.get(i % serverTasks.size()), false));
+        }
+        Map<String, String> removals = new HashMap<String, String>();
+        for (int i=0; i<timeRegistrationCount; i+=10) {
+            removals.put("tr" + i, TimeRegistration.class.getSimpleName());
+        }
+
+        long start = System.currentTimeMillis();
+        SyncApplyPlan plan = new SyncApplyPlan(localProjects, localTasks, localTrs);
+        plan.applySyncResult(createEmptySyncResult());
+        plan.checkServerEntities(serverProjects, serverTasks, serverTrs);
+        plan.removeEntities(removals);
+        long duration = System.currentTimeMillis() - start;
+        Log.i(LOG_TAG, "Sync apply plan for " + timeRegistrationCount + " time registrations computed in " + duration + "ms");
+
+        assertTrue(plan.getProjectsToSave().isEmpty());
+        assertTrue(plan.getTasksToSave().isEmpty());
+        assertEquals(timeRegistrationCount / 2, plan.getTimeRegistrationsToSave().size());
+        assertEquals(timeRegistrationCount / 2 - removals.size(), plan.getTimeRegistrationsToUpdate().size());
+        assertEquals(removals.size(), plan.getTimeRegistrationsToDelete().size());
+    }
+}
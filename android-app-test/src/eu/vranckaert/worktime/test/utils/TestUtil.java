@@ -24,6 +24,9 @@ import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 import com.j256.ormlite.support.ConnectionSource;
 import eu.vranckaert.worktime.constants.Constants;
+import eu.vranckaert.worktime.dao.cache.CommentHistoryIndex;
+import eu.vranckaert.worktime.dao.cache.LatestTimeRegistrationCache;
+import eu.vranckaert.worktime.dao.cache.ProjectTaskRepository;
 import eu.vranckaert.worktime.dao.generic.GenericDao;
 import eu.vranckaert.worktime.dao.generic.GenericDaoImpl;
 import eu.vranckaert.worktime.dao.utils.DatabaseHelper;
@@ -86,6 +89,11 @@ public class TestUtil {
 
         Log.i(LOG_TAG, "The database has been cleaned!");
         dbHelper.close();
+
+        // The projects, tasks, time registrations and comments in memory are no longer in the database
+        ProjectTaskRepository.getInstance().invalidate();
+        LatestTimeRegistrationCache.getInstance().invalidate();
+        CommentHistoryIndex.getInstance().invalidate();
     }
 
     /**
@@ -121,6 +129,7 @@ public class TestUtil {
             editor.putString(key, value.toString());
         }
         editor.commit();
+        Preferences.invalidateSnapshot();
     }
 
     /**
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.utils.date;
+
+import android.test.AndroidTestCase;
+import eu.vranckaert.worktime.model.trigger.RecurrenceTrigger;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Tests the occurrences calculated by the {@link RecurrenceCalculator}.
+ */
+public class RecurrenceCalculatorTest extends AndroidTestCase {
+    private Date getDate(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTime();
+    }
+
+    /**
+     * A trigger from 9:00 until 17:00 on weekdays, starting on Monday 3 June 2013.
+     */
+    private RecurrenceTrigger getWeekdaysTrigger() {
+        RecurrenceTrigger trigger = new RecurrenceTrigger();
+        trigger.setTimeRegistrationStartTime(getDate(2013, Calendar.JANUARY, 1, 9, 0));
+        trigger.setTimeRegistrationEndTime(getDate(2013, Calendar.JANUARY, 1, 17, 0));
+        trigger.setTriggerStartDate(getDate(2013, Calendar.JUNE, 3, 0, 0));
+        trigger.setMonday(true);
+        trigger.setTuesday(true);
+        trigger.setWednesday(true);
+        trigger.setThursday(true);
+        trigger.setFriday(true);
+        trigger.setActive(true);
+        return trigger;
+    }
+
+    public void testOccurrencesOnWeekdaysOnly() {
+        RecurrenceTrigger trigger = getWeekdaysTrigger();
+
+        List<RecurrenceCalculator.Occurrence> occurrences = RecurrenceCalculator.getOccurrences(trigger, null, getDate(2013, Calendar.JUNE, 16, 23, 0));
+
+        assertEquals(10, occurrences.size());
+        assertEquals(getDate(2013, Calendar.JUNE, 3, 9, 0), occurrences.get(0).getStartTime());
+        assertEquals(getDate(2013, Calendar.JUNE, 3, 17, 0), occurrences.get(0).getEndTime());
+        assertEquals(getDate(2013, Calendar.JUNE, 14, 9, 0), occurrences.get(9).getStartTime());
+    }
+
+    public void testOccurrencesOnlyAfterLastTriggered() {
+        RecurrenceTrigger trigger = getWeekdaysTrigger();
+        trigger.setLastTriggered(getDate(2013, Calendar.JUNE, 5, 17, 0));
+
+        List<RecurrenceCalculator.Occurrence> occurrences = RecurrenceCalculator.getOccurrences(trigger, trigger.getLastTriggered(), getDate(2013, Calendar.JUNE, 7, 12, 0));
+
+        // Thursday 6 June, Friday has not ended yet
+        assertEquals(1, occurrences.size());
+        assertEquals(getDate(2013, Calendar.JUNE, 6, 9, 0), occurrences.get(0).getStartTime());
+    }
+
+    public void testOccurrencesLimitedByTimes() {
+        RecurrenceTrigger trigger = getWeekdaysTrigger();
+        trigger.setTriggerEndTimes(3);
+        trigger.setTimesTriggered(1);
+
+        List<RecurrenceCalculator.Occurrence> occurrences = RecurrenceCalculator.getOccurrences(trigger, null, getDate(2013, Calendar.JUNE, 30, 0, 0));
+
+        assertEquals(2, occurrences.size());
+    }
+
+    public void testNextOccurrence() {
+        RecurrenceTrigger trigger = getWeekdaysTrigger();
+
+        // Friday evening, the next occurrence is on Monday
+        RecurrenceCalculator.Occurrence occurrence = RecurrenceCalculator.getNextOccurrence(trigger, getDate(2013, Calendar.JUNE, 7, 18, 0));
+
+        assertNotNull(occurrence);
+        assertEquals(getDate(2013, Calendar.JUNE, 10, 9, 0), occurrence.getStartTime());
+        assertEquals(getDate(2013, Calendar.JUNE, 10, 17, 0), occurrence.getEndTime());
+    }
+
+    public void testNoNextOccurrenceAfterEndDate() {
+        RecurrenceTrigger trigger = getWeekdaysTrigger();
+        trigger.setTriggerEndDate(DateUtils.Various.setMaxTimeValueOfDay(getDate(2013, Calendar.JUNE, 7, 0, 0)));
+
+        assertNotNull(RecurrenceCalculator.getNextOccurrence(trigger, getDate(2013, Calendar.JUNE, 7, 8, 0)));
+        assertNull(RecurrenceCalculator.getNextOccurrence(trigger, getDate(2013, Calendar.JUNE, 7, 18, 0)));
+    }
+
+    public void testOccurrenceEndingOnNextDay() {
+        RecurrenceTrigger trigger = getWeekdaysTrigger();
+        trigger.setTimeRegistrationStartTime(getDate(2013, Calendar.JANUARY, 1, 22, 0));
+        trigger.setTimeRegistrationEndTime(getDate(2013, Calendar.JANUARY, 1, 6, 0));
+
+        RecurrenceCalculator.Occurrence occurrence = RecurrenceCalculator.getNextOccurrence(trigger, null);
+
+        assertEquals(getDate(2013, Calendar.JUNE, 3, 22, 0), occurrence.getStartTime());
+        assertEquals(getDate(2013, Calendar.JUNE, 4, 6, 0), occurrence.getEndTime());
+        assertTrue(occurrence.overlaps(getDate(2013, Calendar.JUNE, 4, 5, 0), null));
+        assertFalse(occurrence.overlaps(getDate(2013, Calendar.JUNE, 4, 6, 0), getDate(2013, Calendar.JUNE, 4, 8, 0)));
+    }
+}
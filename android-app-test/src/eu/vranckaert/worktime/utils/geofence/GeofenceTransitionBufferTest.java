@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.utils.geofence;
+
+import android.test.AndroidTestCase;
+
+import java.util.List;
+
+/**
+ * Replays recorded streams of geofence transitions through a {@link GeofenceTransitionBuffer}.
+ */
+public class GeofenceTransitionBufferTest extends AndroidTestCase {
+    private static final long WINDOW = 60000L;
+    private static final int ENTER = 1;
+    private static final int EXIT = 2;
+
+    private GeofenceTransitionBuffer replay(GeofenceTransition... transitions) {
+        GeofenceTransitionBuffer buffer = new GeofenceTransitionBuffer(WINDOW);
+        for (GeofenceTransition transition : transitions) {
+            buffer.add(transition);
+        }
+        return buffer;
+    }
+
+    public void testJitterIsCollapsedIntoFirstTransition() {
+        GeofenceTransitionBuffer buffer = replay(
+                new GeofenceTransition("office", ENTER, 1000L),
+                new GeofenceTransition("office", EXIT, 6000L),
+                new GeofenceTransition("office", ENTER, 9000L),
+                new GeofenceTransition("office", EXIT, 30000L),
+                new GeofenceTransition("office", ENTER, 41000L)
+        );
+
+        List<GeofenceTransition> settled = buffer.drainSettled(41000L + WINDOW);
+
+        assertEquals(1, settled.size());
+        assertEquals(ENTER, settled.get(0).getTransition());
+        assertEquals(1000L, settled.get(0).getTime());
+        assertTrue(buffer.isEmpty());
+    }
+
+    public void testEnterAndLeaveWithinWindowIsDropped() {
+        GeofenceTransitionBuffer buffer = replay(
+                new GeofenceTransition("office", ENTER, 1000L),
+                new GeofenceTransition("office", EXIT, 20000L)
+        );
+
+        assertTrue(buffer.drainSettled(20000L + WINDOW).isEmpty());
+        assertTrue(buffer.isEmpty());
+    }
+
+    public void testSeparateBurstsAreKept() {
+        GeofenceTransitionBuffer buffer = replay(
+                new GeofenceTransition("office", ENTER, 1000L),
+                new GeofenceTransition("office", EXIT, 2000L),
+                new GeofenceTransition("office", ENTER, 3000L),
+                // Eight hours later
+                new GeofenceTransition("office", EXIT, 28803000L),
+                new GeofenceTransition("office", ENTER, 28804000L),
+                new GeofenceTransition("office", EXIT, 28805000L)
+        );
+
+        List<GeofenceTransition> settled = buffer.drainSettled(28805000L + WINDOW);
+
+        assertEquals(2, settled.size());
+        assertEquals(ENTER, settled.get(0).getTransition());
+        assertEquals(1000L, settled.get(0).getTime());
+        assertEquals(EXIT, settled.get(1).getTransition());
+        assertEquals(28803000L, settled.get(1).getTime());
+    }
+
+    public void testGeofencesAreDebouncedSeparately() {
+        GeofenceTransitionBuffer buffer = replay(
+                new GeofenceTransition("home", EXIT, 1000L),
+                new GeofenceTransition("office", ENTER, 5000L),
+                new GeofenceTransition("home", ENTER, 7000L),
+                new GeofenceTransition("office", EXIT, 8000L),
+                new GeofenceTransition("office", ENTER, 12000L),
+                new GeofenceTransition("home", EXIT, 15000L)
+        );
+
+        List<GeofenceTransition> settled = buffer.drainSettled(15000L + WINDOW);
+
+        assertEquals(2, settled.size());
+        assertEquals("home", settled.get(0).getRequestId());
+        assertEquals(EXIT, settled.get(0).getTransition());
+        assertEquals("office", settled.get(1).getRequestId());
+        assertEquals(ENTER, settled.get(1).getTransition());
+    }
+
+    public void testUnsettledBurstStaysPending() {
+        GeofenceTransitionBuffer buffer = replay(
+                new GeofenceTransition("home", EXIT, 1000L),
+                new GeofenceTransition("office", ENTER, 50000L)
+        );
+
+        assertEquals(Long.valueOf(1000L + WINDOW), buffer.getNextSettleTime());
+
+        List<GeofenceTransition> settled = buffer.drainSettled(1000L + WINDOW);
+        assertEquals(1, settled.size());
+        assertEquals("home", settled.get(0).getRequestId());
+        assertFalse(buffer.isEmpty());
+        assertEquals(Long.valueOf(50000L + WINDOW), buffer.getNextSettleTime());
+
+        // A transition within the window extends the pending burst
+        buffer.add(new GeofenceTransition("office", EXIT, 90000L));
+        assertTrue(buffer.drainSettled(50000L + WINDOW).isEmpty());
+        assertTrue(buffer.drainSettled(90000L + WINDOW).isEmpty());
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.getNextSettleTime());
+    }
+
+    public void testSerializedBufferIsRestored() {
+        GeofenceTransitionBuffer buffer = replay(
+                new GeofenceTransition("office", ENTER, 1000L),
+                new GeofenceTransition("office", EXIT, 2000L),
+                new GeofenceTransition("office", ENTER, 3000L)
+        );
+
+        GeofenceTransitionBuffer restored = GeofenceTransitionBuffer.deserialize(WINDOW, buffer.serialize());
+
+        assertEquals(buffer.getNextSettleTime(), restored.getNextSettleTime());
+        List<GeofenceTransition> settled = restored.drainSettled(3000L + WINDOW);
+        assertEquals(1, settled.size());
+        assertEquals("office", settled.get(0).getRequestId());
+        assertTrue(GeofenceTransitionBuffer.deserialize(WINDOW, null).isEmpty());
+    }
+}
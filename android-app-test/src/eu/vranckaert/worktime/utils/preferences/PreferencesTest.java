@@ -176,6 +176,8 @@ public class PreferencesTest extends AndroidTestCase {
         SharedPreferences.Editor editor = getSharedPreferences(ctx).edit();
         editor.putString(Constants.Preferences.Keys.WEEK_STARTS_ON, invalidPreference);
         editor.commit();
+        // Written directly (not on the main thread), so the snapshot has to be dropped
+        Preferences.invalidateSnapshot();
         Integer result = Preferences.getWeekStartsOn(ctx);
         assertEquals("No preference should be found (" + invalidPreference + ")", null, result);
 
@@ -364,4 +366,22 @@ public class PreferencesTest extends AndroidTestCase {
         int valueDeleted = Preferences.getTimeRegistrationSplitDefaultGap(ctx);
         assertEquals("No value should be found (result should be 30)", Constants.Preferences.TIME_REGISTRATION_SPLIT_DEFAULT_GAP_DEFAULT_VALUE, valueDeleted);
     }
+
+    public void testSnapshot() {
+        Preferences.setTimePrecision(ctx, TimePrecisionPreference.SECOND);
+        Preferences.setImmediatePunchOut(ctx, true);
+        PreferencesSnapshot snapshot = Preferences.getSnapshot(ctx);
+        assertSame("The snapshot should be reused", snapshot, Preferences.getSnapshot(ctx));
+        assertEquals(TimePrecisionPreference.SECOND, snapshot.getTimePrecision());
+        assertTrue(snapshot.isImmediatePunchOut());
+
+        Preferences.setTimePrecision(ctx, TimePrecisionPreference.MINUTE);
+        PreferencesSnapshot updatedSnapshot = Preferences.getSnapshot(ctx);
+        assertNotSame("A change should create a new snapshot", snapshot, updatedSnapshot);
+        assertEquals(TimePrecisionPreference.MINUTE, updatedSnapshot.getTimePrecision());
+        assertEquals("An old snapshot should not change", TimePrecisionPreference.SECOND, snapshot.getTimePrecision());
+
+        Preferences.removePreference(ctx, Constants.Preferences.Keys.TIME_PRECISION);
+        Preferences.removePreference(ctx, Constants.Preferences.Keys.IMMEDIATE_PUNCH_OUT);
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.utils.string;
+
+import android.test.AndroidTestCase;
+
+import java.util.List;
+
+/**
+ * Tests the prefix matching and ranking of the {@link PrefixTrie}.
+ */
+public class PrefixTrieTest extends AndroidTestCase {
+    private PrefixTrie getTrie() {
+        PrefixTrie trie = new PrefixTrie();
+        trie.put("Meeting with customer", 1L);
+        trie.put("Meeting", 5L);
+        trie.put("meeting notes", 3L);
+        trie.put("Code review", 4L);
+        trie.put("Coding", 2L);
+        return trie;
+    }
+
+    public void testFindByPrefixIsCaseInsensitiveAndRanked() {
+        List<String> result = getTrie().findByPrefix("MEET", 10);
+
+        assertEquals(3, result.size());
+        assertEquals("Meeting", result.get(0));
+        assertEquals("meeting notes", result.get(1));
+        assertEquals("Meeting with customer", result.get(2));
+    }
+
+    public void testFindByPrefixLimitsResults() {
+        PrefixTrie trie = getTrie();
+
+        List<String> result = trie.findByPrefix("", 2);
+        assertEquals(2, result.size());
+        assertEquals("Meeting", result.get(0));
+        assertEquals("Code review", result.get(1));
+
+        assertTrue(trie.findByPrefix("Cod", 0).isEmpty());
+        assertTrue(trie.findByPrefix("Lunch", 10).isEmpty());
+    }
+
+    public void testPutUpdatesRank() {
+        PrefixTrie trie = getTrie();
+        trie.put("Coding", 10L);
+
+        assertEquals(5, trie.size());
+        assertEquals("Coding", trie.findByPrefix("co", 1).get(0));
+    }
+
+    public void testTextsOnlyDifferingInCaseAreKept() {
+        PrefixTrie trie = getTrie();
+        trie.put("MEETING", 6L);
+
+        assertEquals(6, trie.size());
+        List<String> result = trie.findByPrefix("meeting", 2);
+        assertEquals("MEETING", result.get(0));
+        assertEquals("Meeting", result.get(1));
+    }
+
+    public void testRemove() {
+        PrefixTrie trie = getTrie();
+
+        assertTrue(trie.remove("Meeting"));
+        assertFalse(trie.remove("Meeting"));
+        assertFalse(trie.remove("Meet"));
+        assertEquals(4, trie.size());
+
+        List<String> result = trie.findByPrefix("meeting", 10);
+        assertEquals(2, result.size());
+        assertFalse(result.contains("Meeting"));
+
+        assertTrue(trie.remove("Meeting with customer"));
+        assertTrue(trie.remove("meeting notes"));
+        assertTrue(trie.findByPrefix("m", 10).isEmpty());
+    }
+
+    public void testManyTexts() {
+        PrefixTrie trie = new PrefixTrie();
+        for (int i = 0; i < 5000; i++) {
+            trie.put("Comment " + i, i);
+        }
+
+        assertEquals(5000, trie.size());
+        List<String> result = trie.findByPrefix("comment 12", 3);
+        assertEquals(3, result.size());
+        assertEquals("Comment 1299", result.get(0));
+        assertEquals("Comment 1298", result.get(1));
+        assertEquals("Comment 1297", result.get(2));
+    }
+}
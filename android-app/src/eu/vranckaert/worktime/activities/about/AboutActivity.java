@@ -27,6 +27,8 @@ import eu.vranckaert.worktime.R;
 import eu.vranckaert.worktime.activities.about.listadapter.AboutListAdapter;
 import eu.vranckaert.worktime.constants.TrackerConstants;
 import eu.vranckaert.worktime.dao.utils.DaoConstants;
+import eu.vranckaert.worktime.dao.utils.QueryProfiler;
+import eu.vranckaert.worktime.dao.utils.QueryStatistics;
 import eu.vranckaert.worktime.utils.context.ContextUtils;
 import eu.vranckaert.worktime.utils.context.IntentUtil;
 import eu.vranckaert.worktime.utils.context.Log;
@@ -126,6 +128,13 @@ public class AboutActivity extends RoboSherlockListActivity {
         AboutListElement bugTrackingWebsiteElement = new AboutListElement(R.string.lbl_about_bug_tracking_website, bugTrackingWebsite, bugTrackingIntent);
         aboutListElements.add(bugTrackingWebsiteElement);
 
+        if (QueryProfiler.isEnabled(AboutActivity.this)) {
+            String queryStatistics = getString(R.string.lbl_about_query_statistics_summary, QueryStatistics.getQueries(), QueryStatistics.getMainThreadQueries());
+            Intent queryStatisticsIntent = new Intent(this, QueryStatisticsActivity.class);
+            AboutListElement queryStatisticsElement = new AboutListElement(R.string.lbl_about_query_statistics, queryStatistics, queryStatisticsIntent);
+            aboutListElements.add(queryStatisticsElement);
+        }
+
         return aboutListElements;
     }
 
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.activities.about;
+
+import android.os.Bundle;
+import android.widget.TextView;
+import com.actionbarsherlock.view.Menu;
+import com.actionbarsherlock.view.MenuItem;
+import eu.vranckaert.worktime.R;
+import eu.vranckaert.worktime.dao.utils.QueryStatistics;
+import eu.vranckaert.worktime.utils.context.IntentUtil;
+import eu.vranckaert.worktime.utils.context.Log;
+import eu.vranckaert.worktime.utils.context.StartupTimings;
+import eu.vranckaert.worktime.utils.view.actionbar.RoboSherlockActivity;
+import roboguice.inject.InjectView;
+
+/**
+ * Debug screen (only available for non-stable builds) that shows the {@link QueryStatistics}: the number of queries,
+ * rows and the latency per call site, and the queries that are executed on the main thread. The
+ * {@link StartupTimings} of the process are shown as well.
+ */
+public class QueryStatisticsActivity extends RoboSherlockActivity {
+    private static final String LOG_TAG = QueryStatisticsActivity.class.getSimpleName();
+
+    @InjectView(R.id.query_statistics)
+    private TextView queryStatistics;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_query_statistics);
+
+        setTitle(R.string.lbl_query_statistics_title);
+        getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+
+        refresh();
+    }
+
+    private void refresh() {
+        queryStatistics.setText(QueryStatistics.dump() + "\n\n" + StartupTimings.dump());
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getSupportMenuInflater().inflate(R.menu.ab_activity_query_statistics, menu);
+
+        return super.onCreateOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        switch (item.getItemId()) {
+            case android.R.id.home:
+                IntentUtil.goBack(this);
+                break;
+            case R.id.menu_query_statistics_activity_refresh:
+                refresh();
+                break;
+            case R.id.menu_query_statistics_activity_log:
+                Log.d(getApplicationContext(), LOG_TAG, "Query statistics: " + QueryStatistics.dump());
+                Log.d(getApplicationContext(), LOG_TAG, "Startup timings: " + StartupTimings.dump());
+                break;
+            case R.id.menu_query_statistics_activity_reset:
+                QueryStatistics.reset();
+                refresh();
+                break;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
@@ -29,7 +29,7 @@ import eu.vranckaert.worktime.exceptions.worktime.sync.SynchronizationFailedExce
 import eu.vranckaert.worktime.service.AccountService;
 import eu.vranckaert.worktime.service.GCMService;
 import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
+import eu.vranckaert.worktime.service.ui.refresh.UiRefreshBus;
 import eu.vranckaert.worktime.utils.alarm.AlarmUtil;
 import eu.vranckaert.worktime.utils.preferences.Preferences;
 import eu.vranckaert.worktime.web.json.exception.GeneralWebException;
@@ -42,7 +42,6 @@ import roboguice.service.RoboIntentService;
  */
 public class AccountSyncService extends RoboIntentService {
     @Inject private AccountService accountService;
-    @Inject private WidgetService widgetService;
     @Inject private StatusBarNotificationService notificationService;
     @Inject private GCMService gcmService;
 
@@ -65,6 +64,8 @@ public class AccountSyncService extends RoboIntentService {
             // Should not be handled here...
         }
         startSync();
+        // The service is stopped right away, so the widgets and notification can not wait for the delayed refresh
+        UiRefreshBus.getInstance().flush();
     }
 
     public void startSync() {
@@ -106,8 +107,6 @@ public class AccountSyncService extends RoboIntentService {
     private void handleResult(Exception e) {
         if (e == null) {
             showMessageSuccess(R.string.lbl_sync_service_successful_title, R.string.lbl_sync_service_successful_message, R.string.lbl_sync_service_successful_message);
-            widgetService.updateAllWidgets();
-            notificationService.addOrUpdateNotification(null);
         } else {
             if (e instanceof UserNotLoggedInException) {
                 showMessageError(R.string.lbl_sync_service_error_title, R.string.lbl_sync_service_error_message, R.string.lbl_sync_service_error_user_not_logged_in, e);
@@ -31,9 +31,10 @@ import eu.vranckaert.worktime.comparators.preferences.DatabaseBackupFileComparat
 import eu.vranckaert.worktime.constants.Constants;
 import eu.vranckaert.worktime.exceptions.SDCardUnavailableException;
 import eu.vranckaert.worktime.exceptions.backup.BackupFileCouldNotBeWritten;
+import eu.vranckaert.worktime.exceptions.backup.CorruptBackupException;
 import eu.vranckaert.worktime.service.BackupService;
 import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
+import eu.vranckaert.worktime.service.ui.refresh.UiRefreshBus;
 import eu.vranckaert.worktime.utils.context.AsyncHelper;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.string.StringUtils;
@@ -54,9 +55,6 @@ public class RestoreFromSDActivity extends RoboSherlockActivity {
     @Inject
     private BackupService backupService;
 
-    @Inject
-    private WidgetService widgetService;
-
     @Inject
     private StatusBarNotificationService statusBarNotificationService;
 
@@ -235,10 +233,12 @@ public class RestoreFromSDActivity extends RoboSherlockActivity {
                 } catch (BackupFileCouldNotBeWritten backupFileCouldNotBeWritten) {
                     error = getString(R.string.msg_backup_restore_writing_backup_file_not_written);
                     statusBarNotificationService.addStatusBarNotificationForRestore(false, null, null);
+                } catch (CorruptBackupException corruptBackupException) {
+                    error = getString(R.string.msg_backup_restore_corrupt_backup_file);
+                    statusBarNotificationService.addStatusBarNotificationForRestore(false, null, null);
                 }
-                widgetService.updateAllWidgets();
-                statusBarNotificationService.removeOngoingTimeRegistrationNotification();
-                statusBarNotificationService.addOrUpdateNotification(null);
+                // The database is restored without passing by the DAO's, so the change is published here
+                UiRefreshBus.getInstance().publish(getApplicationContext());
 
                 return null;
             }
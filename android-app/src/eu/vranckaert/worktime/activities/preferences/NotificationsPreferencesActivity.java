@@ -20,11 +20,10 @@ import android.os.Bundle;
 import android.preference.CheckBoxPreference;
 import android.preference.Preference;
 import android.widget.Toast;
-import com.google.inject.Inject;
 import eu.vranckaert.worktime.R;
 import eu.vranckaert.worktime.constants.Constants;
 import eu.vranckaert.worktime.constants.TrackerConstants;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
+import eu.vranckaert.worktime.service.ui.refresh.UiRefreshBus;
 import eu.vranckaert.worktime.utils.activity.GenericPreferencesActivity;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.preferences.Preferences;
@@ -38,9 +37,6 @@ import eu.vranckaert.worktime.utils.view.MultiSelectListPreference;
 public class NotificationsPreferencesActivity extends GenericPreferencesActivity {
     private static final String LOG_TAG = NotificationsPreferencesActivity.class.getSimpleName();
 
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -56,12 +52,8 @@ public class NotificationsPreferencesActivity extends GenericPreferencesActivity
                 Preferences.setShowStatusBarNotificationsPreference(getApplicationContext(), result);
                 Log.d(getApplicationContext(), LOG_TAG, "Show status bar notifications checkbox to be updated");
                 chPreference.setChecked(result);
-                Log.d(getApplicationContext(), LOG_TAG, "Delegate the change of the notifications to the notification bar service");
-                if (result) {
-                    statusBarNotificationService.addOrUpdateNotification(null);
-                } else {
-                    statusBarNotificationService.removeOngoingTimeRegistrationNotification();
-                }
+                Log.d(getApplicationContext(), LOG_TAG, "Publish the change so the notification is refreshed");
+                UiRefreshBus.getInstance().publish(NotificationsPreferencesActivity.this);
 
                 return false;
             }
@@ -72,7 +64,7 @@ public class NotificationsPreferencesActivity extends GenericPreferencesActivity
             @Override
             public boolean onPreferenceChange(Preference preference, Object newValue) {
                 Preferences.Notifications.setDefaultTimeRegistrationNotificationActions(NotificationsPreferencesActivity.this, (String) newValue);
-                statusBarNotificationService.addOrUpdateNotification(null);
+                UiRefreshBus.getInstance().publish(NotificationsPreferencesActivity.this);
 
                 String[] actions = ((String) newValue).split("\\|");
                 if (actions.length > 3) {
@@ -32,7 +32,6 @@ import eu.vranckaert.worktime.service.ProjectService;
 import eu.vranckaert.worktime.service.TaskService;
 import eu.vranckaert.worktime.service.TimeRegistrationService;
 import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.context.AsyncHelper;
 import eu.vranckaert.worktime.utils.view.actionbar.RoboSherlockActivity;
 
@@ -40,9 +39,6 @@ public class ResetApplicationPreferencesActivity extends RoboSherlockActivity {
     @Inject
     private StatusBarNotificationService notificationService;
 
-    @Inject
-    private WidgetService widgetService;
-
     @Inject
     private TimeRegistrationService timeRegistrationService;
 
@@ -130,8 +126,6 @@ public class ResetApplicationPreferencesActivity extends RoboSherlockActivity {
         protected void onPostExecute(Void aVoid) {
             removeDialog(Constants.Dialog.LOADING_RESET_APPLICATION);
 
-            widgetService.updateAllWidgets();
-            notificationService.removeOngoingTimeRegistrationNotification();
             notificationService.removeSyncNotifications();
 
             setResult(RESULT_OK);
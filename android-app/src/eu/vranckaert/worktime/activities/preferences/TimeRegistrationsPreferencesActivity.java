@@ -19,11 +19,10 @@ package eu.vranckaert.worktime.activities.preferences;
 import android.os.Bundle;
 import android.preference.CheckBoxPreference;
 import android.preference.Preference;
-import com.google.inject.Inject;
 import eu.vranckaert.worktime.R;
 import eu.vranckaert.worktime.constants.Constants;
 import eu.vranckaert.worktime.constants.TrackerConstants;
-import eu.vranckaert.worktime.service.ui.WidgetService;
+import eu.vranckaert.worktime.service.ui.refresh.UiRefreshBus;
 import eu.vranckaert.worktime.utils.activity.GenericPreferencesActivity;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.preferences.Preferences;
@@ -36,9 +35,6 @@ import eu.vranckaert.worktime.utils.preferences.Preferences;
 public class TimeRegistrationsPreferencesActivity extends GenericPreferencesActivity {
     private static final String LOG_TAG = TimeRegistrationsPreferencesActivity.class.getSimpleName();
 
-    @Inject
-    private WidgetService widgetService;
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -53,8 +49,8 @@ public class TimeRegistrationsPreferencesActivity extends GenericPreferencesActi
                 Log.d(getApplicationContext(), LOG_TAG, "The newly selected value for 'Show status bar notification' is " + result);
                 Preferences.setImmediatePunchOut(getApplicationContext(), result);
                 immediatePunchOutCB.setChecked(result);
-                Log.d(getApplicationContext(), LOG_TAG, "Delegate the change of the notifications to the notification bar service and widget service");
-                widgetService.updateAllWidgets();
+                Log.d(getApplicationContext(), LOG_TAG, "Publish the change so the widgets are refreshed");
+                UiRefreshBus.getInstance().publish(TimeRegistrationsPreferencesActivity.this);
 
                 return false;
             }
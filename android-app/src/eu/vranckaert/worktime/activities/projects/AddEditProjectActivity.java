@@ -33,12 +33,7 @@ import eu.vranckaert.worktime.R;
 import eu.vranckaert.worktime.constants.Constants;
 import eu.vranckaert.worktime.constants.TrackerConstants;
 import eu.vranckaert.worktime.model.Project;
-import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.service.ProjectService;
-import eu.vranckaert.worktime.service.TaskService;
-import eu.vranckaert.worktime.service.TimeRegistrationService;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.context.AsyncHelper;
 import eu.vranckaert.worktime.utils.context.ContextUtils;
 import eu.vranckaert.worktime.utils.context.IntentUtil;
@@ -65,18 +60,6 @@ public class AddEditProjectActivity extends RoboSherlockActivity implements Sync
     @Inject
     private ProjectService projectService;
 
-    @Inject
-    private TaskService taskService;
-
-    @Inject
-    private TimeRegistrationService timeRegistrationService;
-
-    @Inject
-    private WidgetService widgetService;
-
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
     @InjectExtra(value = Constants.Extras.PROJECT, optional = true)
     private Project editProject;
 
@@ -156,19 +139,6 @@ public class AddEditProjectActivity extends RoboSherlockActivity implements Sync
 
                     @Override
                     protected void onPostExecute(Project project) {
-                        if (inUpdateMode()) {
-                            TimeRegistration latestTimeRegistration = timeRegistrationService.getLatestTimeRegistration();
-                            timeRegistrationService.fullyInitialize(latestTimeRegistration);
-                            if (latestTimeRegistration != null && latestTimeRegistration.getTask().getProject().getId().equals(project.getId())) {
-                                Log.d(getApplicationContext(), LOG_TAG, "About to update the widget and notifications");
-
-                                taskService.refresh(latestTimeRegistration.getTask());
-                                projectService.refresh(latestTimeRegistration.getTask().getProject());
-                                widgetService.updateAllWidgets();
-                                statusBarNotificationService.addOrUpdateNotification(latestTimeRegistration);
-                            }
-                        }
-
                         setSupportProgressBarIndeterminateVisibility(false);
                         Intent intentData = new Intent();
                         intentData.putExtra(Constants.Extras.PROJECT, project);
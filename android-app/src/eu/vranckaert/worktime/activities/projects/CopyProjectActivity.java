@@ -225,12 +225,14 @@ public class CopyProjectActivity extends RoboWizardActivity {
         newProject = projectService.save(newProject);
         Log.d(getApplicationContext(), LOG_TAG, "A new project has been created with id " + newProject.getId() + ". The id of the original project is " + originalProject.getId());
         if (tasksForNewProject != null) {
+            List<Task> newTasks = new ArrayList<Task>();
             for (Task task : tasksForNewProject) {
                 Task newTask = (Task) task.clone();
                 newTask.setProject(newProject);
-                newTask = taskService.save(newTask);
-                Log.d(getApplicationContext(), LOG_TAG, "A new task has been created with id " + newTask.getId() + " for project with id " + newProject.getId() + ". The id of the original task is " + task.getId());
+                newTasks.add(newTask);
             }
+            taskService.saveAll(newTasks);
+            Log.d(getApplicationContext(), LOG_TAG, newTasks.size() + " new tasks have been created for project with id " + newProject.getId());
         }
         setResult(RESULT_OK);
         return true;
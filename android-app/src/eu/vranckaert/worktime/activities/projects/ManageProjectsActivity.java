@@ -46,7 +46,6 @@ import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.service.ProjectService;
 import eu.vranckaert.worktime.service.TaskService;
 import eu.vranckaert.worktime.service.TimeRegistrationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.context.IntentUtil;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.preferences.Preferences;
@@ -77,8 +76,6 @@ public class ManageProjectsActivity extends RoboSherlockListActivity implements
     @Inject
     private ProjectService projectService;
 
-    @Inject
-    private WidgetService widgetService;
     
     @Inject
     private TaskService taskService;
@@ -168,8 +165,6 @@ public class ManageProjectsActivity extends RoboSherlockListActivity implements
                 Log.d(getApplicationContext(), LOG_TAG, "Project removed, ready to reload projects");
                 loadProjects();
                 projectToRemove = null;
-
-                widgetService.updateAllWidgets();
             } catch (ProjectStillHasTasks e) {
                 if (e.hasTimeRegistrations()) {
                     showDialog(Constants.Dialog.DELETE_ALL_TASKS_AND_TIME_REGISTRATIONS_OF_PROJECT_YES_NO);
@@ -218,15 +213,12 @@ public class ManageProjectsActivity extends RoboSherlockListActivity implements
                 Project defaultProject = projectService.changeDefaultProjectUponProjectMarkedFinished(project);
 
                 List<Integer> widgetIds = WidgetUtil.getAllWidgetIds(ManageProjectsActivity.this);
-                List<Integer> widgetIdsForUpdate = new ArrayList<Integer>();
                 for (int widgetId : widgetIds) {
                     Project selectedWidgetProject = projectService.getSelectedProject(widgetId);
                     if (selectedWidgetProject.getId().equals(project.getId())) {
                         projectService.setSelectedProject(widgetId, defaultProject);
-                        widgetIdsForUpdate.add(widgetId);
                     }
                 }
-                widgetService.updateWidgets(widgetIdsForUpdate);
             }
             
             loadProjects();
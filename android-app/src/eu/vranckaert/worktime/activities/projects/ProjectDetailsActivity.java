@@ -52,7 +52,6 @@ import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.service.ProjectService;
 import eu.vranckaert.worktime.service.TaskService;
 import eu.vranckaert.worktime.service.TimeRegistrationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.context.AsyncHelper;
 import eu.vranckaert.worktime.utils.context.IntentUtil;
 import eu.vranckaert.worktime.utils.context.Log;
@@ -93,9 +92,6 @@ public class ProjectDetailsActivity extends RoboSherlockListActivity implements
     @Inject
     private TaskService taskService;
 
-    @Inject
-    private WidgetService widgetService;
-
     @Inject
     private ProjectService projectService;
 
@@ -322,8 +318,6 @@ public class ProjectDetailsActivity extends RoboSherlockListActivity implements
                 );
                 Log.d(getApplicationContext(), LOG_TAG, "Task removed, ready to reload tasks");
                 loadProjectTasks(project);
-
-                widgetService.updateAllWidgets();
             } catch (TaskStillInUseException e) {
                 if (force) {
                     Log.d(getApplicationContext(), LOG_TAG, "Something is wrong. Forcing the time registrations to be deleted should not result"
@@ -697,8 +691,6 @@ public class ProjectDetailsActivity extends RoboSherlockListActivity implements
                 projectUpdated = true;
                 projectToRemove = null;
 
-                widgetService.updateAllWidgets();
-
                 finish();
             } catch (ProjectStillHasTasks e) {
                 if (e.hasTimeRegistrations()) {
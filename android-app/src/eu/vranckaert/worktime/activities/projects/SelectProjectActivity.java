@@ -30,7 +30,6 @@ import eu.vranckaert.worktime.comparators.project.ProjectByNameComparator;
 import eu.vranckaert.worktime.constants.Constants;
 import eu.vranckaert.worktime.model.Project;
 import eu.vranckaert.worktime.service.ProjectService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.preferences.Preferences;
 import eu.vranckaert.worktime.utils.string.StringUtils;
 import eu.vranckaert.worktime.utils.view.actionbar.RoboSherlockActivity;
@@ -50,9 +49,6 @@ public class SelectProjectActivity extends RoboSherlockActivity implements SyncD
     @Inject
     private ProjectService projectService;
 
-    @Inject
-    private WidgetService widgetService;
-
     @InjectExtra(value = Constants.Extras.WIDGET_ID, optional = true)
     @Nullable
     private Integer widgetId;
@@ -61,10 +57,6 @@ public class SelectProjectActivity extends RoboSherlockActivity implements SyncD
     @Nullable
     private boolean onlySelect = false;
 
-    @InjectExtra(value = Constants.Extras.UPDATE_WIDGET, optional = true)
-    @Nullable
-    private boolean updateWidget = false;
-
     private Dialog dialog;
 
     @Override
@@ -115,9 +107,6 @@ public class SelectProjectActivity extends RoboSherlockActivity implements SyncD
                                 if (!onlySelect && widgetId != null)
                                     projectService.setSelectedProject(widgetId, newSelectedProject);
 
-                                if (widgetId != null && updateWidget)
-                                    widgetService.updateWidget(widgetId);
-
                                 Intent resultValue = new Intent();
                                 resultValue.putExtra(Constants.Extras.PROJECT, newSelectedProject);
                                 setResult(RESULT_OK, resultValue);
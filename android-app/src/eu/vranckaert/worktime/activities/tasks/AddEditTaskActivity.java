@@ -34,11 +34,7 @@ import eu.vranckaert.worktime.constants.TextConstants;
 import eu.vranckaert.worktime.constants.TrackerConstants;
 import eu.vranckaert.worktime.model.Project;
 import eu.vranckaert.worktime.model.Task;
-import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.service.TaskService;
-import eu.vranckaert.worktime.service.TimeRegistrationService;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.context.AsyncHelper;
 import eu.vranckaert.worktime.utils.context.IntentUtil;
 import eu.vranckaert.worktime.utils.context.Log;
@@ -74,15 +70,6 @@ public class AddEditTaskActivity extends RoboSherlockActivity implements SyncDel
     @Inject
     private TaskService taskService;
 
-    @Inject
-    private WidgetService widgetService;
-
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
-    @Inject
-    private TimeRegistrationService timeRegistrationService;
-
     private AnalyticsTracker tracker;
 
     @Override
@@ -167,15 +154,6 @@ public class AddEditTaskActivity extends RoboSherlockActivity implements SyncDel
 
             @Override
             protected void onPostExecute(Task task) {
-                if (inUpdateMode()) {
-                    Log.d(getApplicationContext(), LOG_TAG, "About to update the wiget and notifications");
-                    TimeRegistration tr = timeRegistrationService.getLatestTimeRegistration();
-                    if (tr != null && tr.getTask().getId().equals(task.getId())) {
-                        widgetService.updateAllWidgets();
-                        statusBarNotificationService.addOrUpdateNotification(tr);
-                    }
-                }
-
                 setSupportProgressBarIndeterminateVisibility(false);
 
                 setResult(RESULT_OK);
@@ -32,7 +32,6 @@ import eu.vranckaert.worktime.model.Project;
 import eu.vranckaert.worktime.model.Task;
 import eu.vranckaert.worktime.service.ProjectService;
 import eu.vranckaert.worktime.service.TaskService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.preferences.Preferences;
 import eu.vranckaert.worktime.utils.string.StringUtils;
 import eu.vranckaert.worktime.utils.view.actionbar.RoboSherlockActivity;
@@ -55,9 +54,6 @@ public class SelectTaskActivity extends RoboSherlockActivity implements SyncDele
     @Inject
     private TaskService taskService;
 
-    @Inject
-    private WidgetService widgetService;
-
     @InjectExtra(value = Constants.Extras.WIDGET_ID, optional = true)
     @Nullable
     private Integer widgetId;
@@ -72,9 +68,6 @@ public class SelectTaskActivity extends RoboSherlockActivity implements SyncDele
     @InjectExtra(value = Constants.Extras.ENABLE_SELECT_NONE_OPTION, optional = true)
     private boolean enableSelectNoneOption = false;
 
-    @InjectExtra(value = Constants.Extras.UPDATE_WIDGET, optional = true)
-    private boolean updateWidget = false;
-
     private Dialog dialog;
 
     @Override
@@ -145,9 +138,6 @@ public class SelectTaskActivity extends RoboSherlockActivity implements SyncDele
                                     if (!onlySelect && widgetId != null)
                                         taskService.setSelectedTask(widgetId, newSelectedTask);
 
-                                    if (widgetId != null && updateWidget)
-                                        widgetService.updateWidget(widgetId);
-
                                     Intent resultValue = new Intent();
                                     resultValue.putExtra(Constants.Extras.TASK, newSelectedTask);
                                     setResult(RESULT_OK, resultValue);
@@ -31,6 +31,7 @@ import android.widget.*;
 import com.google.inject.Inject;
 
 import eu.vranckaert.worktime.R;
+import eu.vranckaert.worktime.activities.timeregistrations.listadapter.CommentSuggestionsAdapter;
 import eu.vranckaert.worktime.activities.timeregistrations.listadapter.TimeRegistrationActionListAdapter;
 import eu.vranckaert.worktime.constants.Constants;
 import eu.vranckaert.worktime.constants.TrackerConstants;
@@ -155,7 +156,9 @@ public class TimeRegistrationActionActivity extends RoboSherlockActivity {
 
                 final View layout = inflater.inflate(R.layout.dialog_time_registration_actions,
                         (ViewGroup) findViewById(R.id.dialog_layout_root));
-                commentEditText = (EditText) layout.findViewById(R.id.tr_comment);
+                AutoCompleteTextView commentAutoComplete = (AutoCompleteTextView) layout.findViewById(R.id.tr_comment);
+                commentAutoComplete.setAdapter(new CommentSuggestionsAdapter(this, commentHistoryService));
+                commentEditText = commentAutoComplete;
 
                 if (timeRegistration.getComment() != null) {
                     commentEditText.setText(timeRegistration.getComment());
@@ -79,9 +79,6 @@ public class TimeRegistrationAddActivity extends RoboWizardActivity implements V
     @Inject
     private WidgetService widgetService;
 
-    @Inject
-    private StatusBarNotificationService notificationService;
-
     @Inject
     private StatusBarNotificationService statusBarNotificationService;
 
@@ -677,11 +674,6 @@ public class TimeRegistrationAddActivity extends RoboWizardActivity implements V
         TimeRegistration timeRegistration = constructTimeRegistration();
         trService.create(timeRegistration);
 
-        if (timeRegistration.isOngoingTimeRegistration()) {
-            notificationService.removeOngoingTimeRegistrationNotification();
-            notificationService.addOrUpdateNotification(null);
-        }
-
         return true;
     }
 
@@ -31,8 +31,6 @@ import eu.vranckaert.worktime.constants.Constants;
 import eu.vranckaert.worktime.constants.TrackerConstants;
 import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.service.TimeRegistrationService;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.context.AsyncHelper;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.date.DateUtils;
@@ -66,12 +64,6 @@ public class TimeRegistrationDeleteActivity extends RoboSherlockActivity {
     @Inject
     private TimeRegistrationService timeRegistrationService;
 
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
-    @Inject
-    private WidgetService widgetService;
-
     @InjectExtra(value = Constants.Extras.TIME_REGISTRATION, optional = true)
     private TimeRegistration timeRegistration;
 
@@ -162,12 +154,6 @@ public class TimeRegistrationDeleteActivity extends RoboSherlockActivity {
 
                 timeRegistrationService.remove(timeRegistration);
 
-                widgetService.updateAllWidgets();
-
-                if (timeRegistration.isOngoingTimeRegistration()) {
-                    statusBarNotificationService.removeOngoingTimeRegistrationNotification();
-                }
-
                 tracker.trackEvent(
                         TrackerConstants.EventSources.TIME_REGISTRATION_ACTION_ACTIVITY,
                         TrackerConstants.EventActions.DELETE_TIME_REGISTRATION
@@ -215,15 +201,6 @@ public class TimeRegistrationDeleteActivity extends RoboSherlockActivity {
 
                 long count = timeRegistrationService.removeAllInRange(minBoundary, maxBoundary);
 
-                widgetService.updateAllWidgets();
-
-                TimeRegistration latestTimeRegistration = timeRegistrationService.getLatestTimeRegistration();
-                if (latestTimeRegistration != null && latestTimeRegistration.isOngoingTimeRegistration()) {
-                    statusBarNotificationService.addOrUpdateNotification(latestTimeRegistration);
-                } else {
-                    statusBarNotificationService.removeOngoingTimeRegistrationNotification();
-                }
-
                 tracker.trackEvent(
                         TrackerConstants.EventSources.TIME_REGISTRATION_ACTION_ACTIVITY,
                         TrackerConstants.EventActions.DELETE_TIME_REGISTRATIONS_IN_RANGE
@@ -34,8 +34,6 @@ import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.service.ProjectService;
 import eu.vranckaert.worktime.service.TaskService;
 import eu.vranckaert.worktime.service.TimeRegistrationService;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.preferences.Preferences;
 import eu.vranckaert.worktime.utils.string.StringUtils;
@@ -64,12 +62,6 @@ public class TimeRegistrationEditProjectAndTaskActivity extends RoboSherlockActi
     @Inject
     private ProjectService projectService;
 
-    @Inject
-    private WidgetService widgetService;
-
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
     @Inject
     private TaskService taskService;
 
@@ -242,12 +234,10 @@ public class TimeRegistrationEditProjectAndTaskActivity extends RoboSherlockActi
         timeRegistration.setTask(newSelectedTask);
         timeRegistrationService.update(timeRegistration);
 
-        // If the time registration is currently ongoing we have to update
-        // the selected project and the notifications
+        // If the time registration is currently ongoing we have to update the selected project (the widgets and
+        // notifications are refreshed as soon as the changes are written)
         if (timeRegistration.isOngoingTimeRegistration()) {
-            List<Integer> widgetIds = projectService.changeSelectedProject(originalProject, newSelectedProject);
-            widgetService.updateWidgets(widgetIds);
-            statusBarNotificationService.addOrUpdateNotification(timeRegistration);
+            projectService.changeSelectedProject(originalProject, newSelectedProject);
         }
 
         setResult(RESULT_OK);
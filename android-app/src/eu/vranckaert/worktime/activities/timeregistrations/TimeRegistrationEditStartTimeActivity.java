@@ -32,7 +32,6 @@ import eu.vranckaert.worktime.R;
 import eu.vranckaert.worktime.constants.Constants;
 import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.service.TimeRegistrationService;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.date.DateFormat;
 import eu.vranckaert.worktime.utils.date.DateUtils;
@@ -57,9 +56,6 @@ public class TimeRegistrationEditStartTimeActivity extends RoboSherlockActivity
     @Inject
     private TimeRegistrationService timeRegistrationService;
 
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
     @InjectExtra(Constants.Extras.TIME_REGISTRATION)
     private TimeRegistration timeRegistration;
 
@@ -332,7 +328,6 @@ public class TimeRegistrationEditStartTimeActivity extends RoboSherlockActivity
     private void updateTimeRegistration() {
         timeRegistration.setStartTime(newStartTime.getTime());
         timeRegistrationService.update(timeRegistration);
-        statusBarNotificationService.addOrUpdateNotification(timeRegistration);
         setResult(RESULT_OK);
         finish();
     }
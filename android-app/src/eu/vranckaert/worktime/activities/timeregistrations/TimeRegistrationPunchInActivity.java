@@ -41,7 +41,6 @@ import eu.vranckaert.worktime.service.BackupService;
 import eu.vranckaert.worktime.service.ProjectService;
 import eu.vranckaert.worktime.service.TaskService;
 import eu.vranckaert.worktime.service.TimeRegistrationService;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
 import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.context.AsyncHelper;
 import eu.vranckaert.worktime.utils.context.Log;
@@ -63,9 +62,6 @@ public class TimeRegistrationPunchInActivity extends RoboSherlockActivity {
     @Inject
     private WidgetService widgetService;
 
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
     @Inject
     private TimeRegistrationService timeRegistrationService;
 
@@ -82,9 +78,6 @@ public class TimeRegistrationPunchInActivity extends RoboSherlockActivity {
     @Nullable
     private Integer widgetId;
 
-    @InjectExtra(value = Constants.Extras.UPDATE_WIDGET, optional = true)
-    private boolean updateWidget = false;
-
     private List<Task> availableTasks;
 
     private AnalyticsTracker tracker;
@@ -151,18 +144,13 @@ public class TimeRegistrationPunchInActivity extends RoboSherlockActivity {
 
                 Date startTime = new Date();
 
-                TimeRegistration newTr = timeRegistrationService.create(startTime, selectedTask);
-                statusBarNotificationService.addOrUpdateNotification(newTr);
+                timeRegistrationService.create(startTime, selectedTask);
 
                 tracker.trackEvent(
                         TrackerConstants.EventSources.START_TIME_REGISTRATION_ACTIVITY,
                         TrackerConstants.EventActions.START_TIME_REGISTRATION
                 );
 
-                projectService.refresh(selectedTask.getProject());
-                if (updateWidget)
-                    widgetService.updateWidgetsForTask(newTr.getTask());
-
                 return null;
             }
 
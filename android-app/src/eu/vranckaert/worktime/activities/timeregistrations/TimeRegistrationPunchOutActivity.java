@@ -36,8 +36,6 @@ import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.service.CommentHistoryService;
 import eu.vranckaert.worktime.service.TaskService;
 import eu.vranckaert.worktime.service.TimeRegistrationService;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.context.AsyncHelper;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.preferences.Preferences;
@@ -79,12 +77,6 @@ public class TimeRegistrationPunchOutActivity extends RoboSherlockActivity {
     @Inject
     private CommentHistoryService commentHistoryService;
 
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
-    @Inject
-    private WidgetService widgetService;
-
     @InjectExtra(value = Constants.Extras.TIME_REGISTRATION)
     private TimeRegistration timeRegistration;
 
@@ -125,10 +117,6 @@ public class TimeRegistrationPunchOutActivity extends RoboSherlockActivity {
                             TrackerConstants.EventSources.TIME_REGISTRATION_ACTION_ACTIVITY,
                             TrackerConstants.EventActions.END_TIME_REGISTRATION
                     );
-
-                    statusBarNotificationService.removeOngoingTimeRegistrationNotification();
-
-                    widgetService.updateAllWidgets();
                 }
 
                 if (StringUtils.isNotBlank(timeRegistration.getComment())) {
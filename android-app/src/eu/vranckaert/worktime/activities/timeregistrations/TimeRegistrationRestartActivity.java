@@ -25,8 +25,6 @@ import eu.vranckaert.worktime.R;
 import eu.vranckaert.worktime.constants.Constants;
 import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.service.TimeRegistrationService;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.context.AsyncHelper;
 import eu.vranckaert.worktime.utils.context.Log;
 import roboguice.activity.RoboActivity;
@@ -45,12 +43,6 @@ public class TimeRegistrationRestartActivity extends RoboActivity {
     @Inject
     private TimeRegistrationService timeRegistrationService;
 
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
-    @Inject
-    private WidgetService widgetService;
-
     @InjectExtra(Constants.Extras.TIME_REGISTRATION)
     private TimeRegistration timeRegistration;
 
@@ -75,10 +67,6 @@ public class TimeRegistrationRestartActivity extends RoboActivity {
                     timeRegistration.setEndTime(null);
                     timeRegistrationService.update(timeRegistration);
 
-                    widgetService.updateAllWidgets();
-
-                    statusBarNotificationService.addOrUpdateNotification(timeRegistration);
-
                     return null;
                 } else {
                     return -1;
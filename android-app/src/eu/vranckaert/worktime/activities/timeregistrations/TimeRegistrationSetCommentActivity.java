@@ -28,8 +28,6 @@ import eu.vranckaert.worktime.constants.TrackerConstants;
 import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.service.CommentHistoryService;
 import eu.vranckaert.worktime.service.TimeRegistrationService;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.context.AsyncHelper;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.string.StringUtils;
@@ -57,12 +55,6 @@ public class TimeRegistrationSetCommentActivity extends RoboActivity {
     @Inject
     private CommentHistoryService commentHistoryService;
 
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
-    @Inject
-    private WidgetService widgetService;
-
     @InjectExtra(value = Constants.Extras.TIME_REGISTRATION)
     private TimeRegistration timeRegistration;
 
@@ -93,8 +85,6 @@ public class TimeRegistrationSetCommentActivity extends RoboActivity {
                         TrackerConstants.EventActions.ADD_TR_COMMENT
                 );
                 timeRegistrationService.update(timeRegistration);
-                widgetService.updateWidgetsForTask(timeRegistration.getTask());
-                statusBarNotificationService.addOrUpdateNotification(timeRegistration);
 
                 if (StringUtils.isNotBlank(comment)) {
                     commentHistoryService.updateLastComment(comment);
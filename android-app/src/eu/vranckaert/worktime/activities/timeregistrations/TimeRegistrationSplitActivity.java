@@ -30,8 +30,6 @@ import eu.vranckaert.worktime.constants.Constants;
 import eu.vranckaert.worktime.constants.OSContants;
 import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.service.TimeRegistrationService;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.utils.context.ContextUtils;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.date.DateFormat;
@@ -58,12 +56,6 @@ public class TimeRegistrationSplitActivity extends RoboWizardActivity {
     @Inject
     private TimeRegistrationService trService;
 
-    @Inject
-    private WidgetService widgetService;
-
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
     private TimeRegistration originalTimeRegistration;
     private int defaultSplitGap;
 
@@ -555,9 +547,6 @@ public class TimeRegistrationSplitActivity extends RoboWizardActivity {
         trService.update(part1);
         trService.create(part2);
 
-        widgetService.updateAllWidgets();
-        statusBarNotificationService.addOrUpdateNotification(part2);
-
         return true;
     }
 
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.activities.timeregistrations.listadapter;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+import eu.vranckaert.worktime.service.CommentHistoryService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Suggests the comments of the comment history that start with the text typed in an
+ * {@link android.widget.AutoCompleteTextView}, the most recently used comments first.
+ */
+public class CommentSuggestionsAdapter extends ArrayAdapter<String> {
+    /**
+     * The maximum number of comments suggested at once.
+     */
+    private static final int MAX_SUGGESTIONS = 10;
+
+    private final CommentHistoryService commentHistoryService;
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            // Runs in a background thread, the first time the comment history is loaded in memory
+            List<String> suggestions = constraint == null ?
+                    new ArrayList<String>() :
+                    commentHistoryService.findCommentSuggestions(constraint.toString(), MAX_SUGGESTIONS);
+
+            FilterResults results = new FilterResults();
+            results.values = suggestions;
+            results.count = suggestions.size();
+            return results;
+        }
+
+        @Override
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            setNotifyOnChange(false);
+            clear();
+            if (results.values != null) {
+                for (String suggestion : (List<String>) results.values) {
+                    add(suggestion);
+                }
+            }
+
+            if (results.count > 0) {
+                notifyDataSetChanged();
+            } else {
+                notifyDataSetInvalidated();
+            }
+        }
+    };
+
+    public CommentSuggestionsAdapter(Context ctx, CommentHistoryService commentHistoryService) {
+        super(ctx, android.R.layout.simple_dropdown_item_1line, new ArrayList<String>());
+        this.commentHistoryService = commentHistoryService;
+    }
+
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.activities.triggers;
+
+import android.content.Intent;
+import com.google.inject.Inject;
+import eu.vranckaert.worktime.service.GeofenceService;
+import eu.vranckaert.worktime.service.ui.refresh.UiRefreshBus;
+import eu.vranckaert.worktime.utils.context.Log;
+import roboguice.service.RoboIntentService;
+
+/**
+ * Started by the geofence transitions alarm (see
+ * {@link eu.vranckaert.worktime.utils.alarm.AlarmUtil#setGeofenceTransitionsAlarm}): processes the buffered geofence
+ * transitions of which the debounce window has passed.
+ */
+public class TriggerGeofenceService extends RoboIntentService {
+    private static final String LOG_TAG = TriggerGeofenceService.class.getSimpleName();
+
+    @Inject private GeofenceService geofenceService;
+
+    public TriggerGeofenceService() {
+        super(TriggerGeofenceService.class.getSimpleName());
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        int processed = geofenceService.processSettledTransitions();
+        Log.d(getApplicationContext(), LOG_TAG, processed + " settled geofence transition(s) processed");
+        // The service is stopped right away, so the widgets and notification can not wait for the delayed refresh
+        UiRefreshBus.getInstance().flush();
+    }
+}
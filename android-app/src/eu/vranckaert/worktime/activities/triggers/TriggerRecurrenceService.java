@@ -0,0 +1,51 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.vranckaert.worktime.activities.triggers;
+
+import android.content.Intent;
+import com.google.inject.Inject;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.service.RecurrenceService;
+import eu.vranckaert.worktime.service.ui.refresh.UiRefreshBus;
+import eu.vranckaert.worktime.utils.context.Log;
+import roboguice.service.RoboIntentService;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Started by the recurrence alarm (see {@link eu.vranckaert.worktime.utils.alarm.AlarmUtil#setRecurrenceAlarm}): creates
+ * the time registrations for all occurrences of the recurrence triggers that have ended and schedules the alarm for
+ * the next occurrence.
+ */
+public class TriggerRecurrenceService extends RoboIntentService {
+    private static final String LOG_TAG = TriggerRecurrenceService.class.getSimpleName();
+
+    @Inject private RecurrenceService recurrenceService;
+
+    public TriggerRecurrenceService() {
+        super(TriggerRecurrenceService.class.getSimpleName());
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        List<TimeRegistration> timeRegistrations = recurrenceService.materializeOccurrences();
+        Date nextAlarm = recurrenceService.scheduleNextOccurrence();
+        Log.d(getApplicationContext(), LOG_TAG, timeRegistrations.size() + " time registration(s) created, next recurrence alarm at " + nextAlarm);
+        // The service is stopped right away, so the widgets and notification can not wait for the delayed refresh
+        UiRefreshBus.getInstance().flush();
+    }
+}
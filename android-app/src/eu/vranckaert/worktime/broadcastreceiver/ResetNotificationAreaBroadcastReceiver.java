@@ -18,8 +18,7 @@ package eu.vranckaert.worktime.broadcastreceiver;
 
 import android.content.Context;
 import android.content.Intent;
-import com.google.inject.Inject;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
+import eu.vranckaert.worktime.service.ui.refresh.UiRefreshBus;
 import roboguice.receiver.RoboBroadcastReceiver;
 
 /**
@@ -29,11 +28,9 @@ import roboguice.receiver.RoboBroadcastReceiver;
  * @author Dirk Vranckaert
  */
 public class ResetNotificationAreaBroadcastReceiver extends RoboBroadcastReceiver {
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
     @Override
     protected void handleReceive(Context context, Intent intent) {
-        statusBarNotificationService.addOrUpdateNotification(null);
+        UiRefreshBus.getInstance().publish(context);
+        UiRefreshBus.getInstance().flush();
     }
 }
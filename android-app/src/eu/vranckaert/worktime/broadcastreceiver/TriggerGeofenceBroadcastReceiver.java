@@ -22,13 +22,12 @@ import android.util.Log;
 import com.google.android.gms.location.Geofence;
 import com.google.android.gms.location.LocationClient;
 import com.google.inject.Inject;
-import eu.vranckaert.worktime.R;
-import eu.vranckaert.worktime.model.trigger.GeofenceTrigger;
 import eu.vranckaert.worktime.service.GeofenceService;
 import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
-import eu.vranckaert.worktime.service.ui.WidgetService;
+import eu.vranckaert.worktime.utils.geofence.GeofenceTransition;
 import roboguice.receiver.RoboBroadcastReceiver;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -40,7 +39,6 @@ public class TriggerGeofenceBroadcastReceiver extends RoboBroadcastReceiver {
     private static final String LOG_TAG = TriggerGeofenceBroadcastReceiver.class.getSimpleName();
 
     @Inject private StatusBarNotificationService statusBarNotificationService;
-    @Inject private WidgetService widgetService;
     @Inject private GeofenceService geofenceService;
 
     @Override
@@ -57,39 +55,12 @@ public class TriggerGeofenceBroadcastReceiver extends RoboBroadcastReceiver {
             statusBarNotificationService.addDebugNotification("WorkTime - GeoFence", "Left geofence, " + crossedGeofences.size() + " geofence(s) crossed!", null);
         }
 
-        String geofenceNames = "";
-        Boolean result = null;
+        // The transitions are buffered to filter out the bursts caused by GPS jitter and processed later on as one batch
+        long now = System.currentTimeMillis();
+        List<GeofenceTransition> transitions = new ArrayList<GeofenceTransition>();
         for (Geofence geofence : crossedGeofences) {
-            GeofenceTrigger geofenceTrigger = geofenceService.findGeofenceTriggerByGeofenceRequestId(geofence.getRequestId());
-            if (geofenceTrigger == null) {
-                geofenceService.deleteGeofence(geofence.getRequestId());
-            } else {
-                if (geofenceNames.length() > 0)
-                    geofenceNames += ", ";
-                geofenceNames += geofenceTrigger.getName();
-                result = geofenceService.geofenceTriggered(geofence, geofenceTrigger, transition);
-                if (result == null || result) {
-                    break;
-                }
-            }
-        }
-
-        if (result != null && !result) {
-            String action = "";
-            if (transition == Geofence.GEOFENCE_TRANSITION_ENTER) {
-                action = context.getString(R.string.lbl_trigger_geo_fencing_entering);
-            } else if (transition == Geofence.GEOFENCE_TRANSITION_EXIT) {
-                action = context.getString(R.string.lbl_trigger_geo_fencing_leaving);
-            }
-
-            statusBarNotificationService.addNotificationForGeofence(
-                    context.getString(R.string.lbl_trigger_geo_fencing_broadcast_notification_error_not_handled_geofence_title),
-                    context.getString(R.string.lbl_trigger_geo_fencing_broadcast_notification_error_not_handled_geofence_message_short, action, geofenceNames),
-                    context.getString(R.string.lbl_trigger_geo_fencing_broadcast_notification_error_not_handled_geofence_message_short, action, geofenceNames)
-            );
-        } else {
-            widgetService.updateAllWidgets();
-            statusBarNotificationService.addOrUpdateNotification(null);
+            transitions.add(new GeofenceTransition(geofence.getRequestId(), transition, now));
         }
+        geofenceService.bufferTransitions(transitions);
     }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.vranckaert.worktime.broadcastreceiver;
+
+import android.content.Context;
+import android.content.Intent;
+import eu.vranckaert.worktime.activities.triggers.TriggerRecurrenceService;
+import roboguice.receiver.RoboBroadcastReceiver;
+
+/**
+ * Alarms do not survive a reboot and go off at the wrong time when the clock or time zone changes. In those cases the
+ * {@link TriggerRecurrenceService} is started, which catches up with the missed occurrences and schedules the
+ * recurrence alarm again.
+ */
+public class TriggerRecurrenceInitBroadcastReceiver extends RoboBroadcastReceiver {
+    @Override
+    protected void handleReceive(Context context, Intent intent) {
+        context.startService(new Intent(context, TriggerRecurrenceService.class));
+    }
+}
@@ -101,6 +101,8 @@ public class Constants {
 
         public static final int ALARM_SYNC_REPEAT = 9000;
         public static final int ALARM_SYNC_RETRY = 9001;
+        public static final int ALARM_RECURRENCE = 9002;
+        public static final int ALARM_GEOFENCE_TRANSITIONS = 9003;
 
         public static final int INSTALL_PLAY_SERVICES = 9999;
     }
@@ -129,6 +131,7 @@ public class Constants {
         public static final boolean TIME_REGISTRATION_PUNCH_BAR_ENABLED_ON_ALL_SCREENS_DEFAULT_VALUE = false;
         public static final int TIME_REGISTRATION_SPLIT_DEFAULT_GAP_DEFAULT_VALUE = 30;
         public static final boolean IMMEDIATE_PUNCH_OUT_DEFAULT_VALUE = false;
+        public static final int COMMENT_HISTORY_SIZE_DEFAULT_VALUE = 500;
         public static final String ACCOUNT_SYNC_INTERVAL_DEFAULT_VALUE = "2";
         public static final String ACCOUNT_SYNC_CONFLICT_HANDLING_DEFAULT_VALUE = "SERVER";
         public static final boolean ACCOUNT_SYNC_ON_WIFI_ONLY_DEFAULT_VALUE = false;
@@ -142,8 +145,10 @@ public class Constants {
         public static final String DEFAULT_NOTIFICATION_ACTIONS_DEFAULT_VALUE = "PUNCH_OUT|SPLIT|OTHER_ACTIONS";
         public static final boolean DO_NOT_PUNCH_OUT_ON_LEAVING_GEOFENCE_DEFAULT_VALUE = true;
         public static final boolean SHOW_NOTIFICATION_WHEN_NOT_PUNCHED_OUT_DEFAULT_VALUE = false;
+        public static final int GEOFENCE_TRANSITION_DEBOUNCE_WINDOW_DEFAULT_VALUE = 60;
         public static final boolean GCM_CAN_SHOW_UPDATE_DIALOG_DEFAULT_VALUE = true;
         public static final int GCM_PREVIOUS_APP_VERSION_DEFAULT_VALUE = -1;
+        public static final boolean BACKUP_DATABASE_CHANGED_DEFAULT_VALUE = true;
 
         public class Keys {
             public static final String WIDGET_ASK_FOR_TASK_SELECTION_IF_ONLY_ONE = "askForTaskSelectionIfOnlyOne";
@@ -169,6 +174,7 @@ public class Constants {
             public static final String TIME_REGISTRATION_DEFAULT_ACTION_ONGOING_TR = "timeRegistrationDefaultActionOngoingTr";
             public static final String TIME_REGISTRATION_DEFAULT_ACTION_FINISHED_TR = "timeRegistrationDefaultActionFinishedTr";
             public static final String IMMEDIATE_PUNCH_OUT = "immediatePunchOut";
+            public static final String COMMENT_HISTORY_SIZE = "commentHistorySize";
             public static final String ACCOUNT_SYNC_INTERVAL = "accountSyncInterval";
             public static final String ACCOUNT_SYNC_INTERVAL_FIXED_TIME = "accountSyncIntervalFixedTime";
             public static final String ACCOUNT_SYNC_RETRY_ON_ERROR = "accountSyncRetryOnError";
@@ -183,9 +189,13 @@ public class Constants {
             public static final String DEFAULT_NOTIFICATION_ACTIONS = "defaultNotificationActionsPreference";
             public static final String DO_NOT_PUNCH_OUT_ON_LEAVING_GEOFENCE = "doNotPunchOutOnLeavingGeoFence";
             public static final String SHOW_NOTIFICATION_WHEN_NOT_PUNCHED_OUT = "showNotificationWhenNotPunchedOut";
+            public static final String GEOFENCE_TRANSITION_DEBOUNCE_WINDOW = "geofenceTransitionDebounceWindow";
+            public static final String GEOFENCE_PENDING_TRANSITIONS = "geofencePendingTransitions";
             public static final String GCM_CAN_SHOW_UPDATE_DIALOG = "gcmCanShowUpdateDialog";
             public static final String GCM_REGISTRATION_ID = "gcmRegistrationId";
             public static final String GCM_PREVIOUS_APP_VERSION = "gcmPreviousAppVersion";
+            public static final String BACKUP_DATABASE_CHANGED = "backupDatabaseChanged";
+            public static final String BACKUP_LAST_FILE = "backupLastFile";
         }
     }
     public class Disk {
@@ -244,6 +254,35 @@ public class Constants {
         public static final int GEO_FENCE = 5;
     }
 
+    public class Network {
+        /* The time (in milliseconds) to wait for a connection to the server to be established */
+        public static final int CONNECTION_TIMEOUT = 15000;
+        /* The time (in milliseconds) to wait for data once a connection is established */
+        public static final int SOCKET_TIMEOUT = 60000;
+        /* The time (in milliseconds) to wait for a free connection in the connection pool */
+        public static final long CONNECTION_POOL_TIMEOUT = 10000L;
+        /* The maximum number of pooled connections towards one host */
+        public static final int MAX_CONNECTIONS_PER_HOST = 4;
+        /* The time (in milliseconds) an idle connection is kept alive if the server does not specify it */
+        public static final long KEEP_ALIVE_DURATION = 30000L;
+    }
+
+    public class UiRefresh {
+        /* The time (in milliseconds) to wait for more changes before the widgets and notification are refreshed */
+        public static final long DEBOUNCE_DELAY = 300L;
+        /* The maximum time (in milliseconds) a refresh can be postponed by a continuous burst of changes */
+        public static final long MAX_DELAY = 2000L;
+    }
+
+    public class Backup {
+        /* The maximum number of backup files that are kept in the backup directory, older backups are removed */
+        public static final int MAX_BACKUP_FILES = 10;
+        /* The size (in bytes) of the buffer used to compress and decompress backups */
+        public static final int BUFFER_SIZE = 8192;
+        /* The number of records of a backup that are restored in one transaction */
+        public static final int RESTORE_BATCH_SIZE = 500;
+    }
+
     public class Others {
         /* The default id for the punch-bar */
         public static final int PUNCH_BAR_WIDGET_ID = -100;
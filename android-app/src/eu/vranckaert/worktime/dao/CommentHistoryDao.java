@@ -19,6 +19,8 @@ package eu.vranckaert.worktime.dao;
 import eu.vranckaert.worktime.dao.generic.GenericDao;
 import eu.vranckaert.worktime.model.CommentHistory;
 
+import java.util.List;
+
 /**
  * User: DIRK VRANCKAERT
  * Date: 26/04/11
@@ -35,4 +37,25 @@ public interface CommentHistoryDao extends GenericDao<CommentHistory, Integer> {
      * Delete the entire comment history.
      */
     void deleteAll();
+
+    /**
+     * Find the comment history for a comment.
+     * @param comment The exact comment.
+     * @return The {@link CommentHistory} or null if the comment is not in the comment history.
+     */
+    CommentHistory findByComment(String comment);
+
+    /**
+     * Find the most recently used comments.
+     * @param max The maximum number of comments to return.
+     * @return The comments, the most recently used first.
+     */
+    List<CommentHistory> findMostRecentlyUsed(int max);
+
+    /**
+     * Deletes the least recently used comments so that only a maximum number of comments remains.
+     * @param keep The number of comments to keep.
+     * @return The deleted comments.
+     */
+    List<CommentHistory> deleteLeastRecentlyUsed(int keep);
 }
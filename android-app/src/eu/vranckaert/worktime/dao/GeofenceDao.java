@@ -48,6 +48,14 @@ public interface GeofenceDao extends GenericDao<GeofenceTrigger, Integer> {
      */
     GeofenceTrigger findGeofenceTriggerByGeofenceRequestId(String requestId);
 
+    /**
+     * Find the {@link GeofenceTrigger}s for a number of request ids at once.
+     * @param requestIds The request ids.
+     * @return The {@link GeofenceTrigger}s that are found. Request ids for which no {@link GeofenceTrigger} exists are
+     * ignored.
+     */
+    List<GeofenceTrigger> findGeofenceTriggersByGeofenceRequestIds(List<String> requestIds);
+
     /**
      * Find all {@link GeofenceTrigger}s linked to a certain {@ink Task}.
      * @param task The {@link Task} to look for.
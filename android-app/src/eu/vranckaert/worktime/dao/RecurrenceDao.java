@@ -19,10 +19,17 @@ package eu.vranckaert.worktime.dao;
 import eu.vranckaert.worktime.dao.generic.GenericDao;
 import eu.vranckaert.worktime.model.trigger.RecurrenceTrigger;
 
+import java.util.List;
+
 /**
  * User: DIRK VRANCKAERT
  * Date: 30/05/13
  * Time: 11:11
  */
 public interface RecurrenceDao extends GenericDao<RecurrenceTrigger, Integer> {
+    /**
+     * Find all recurrence triggers that are still active.
+     * @return The active triggers.
+     */
+    List<RecurrenceTrigger> findAllActive();
 }
@@ -19,6 +19,7 @@ package eu.vranckaert.worktime.dao;
 import eu.vranckaert.worktime.dao.generic.GenericDao;
 import eu.vranckaert.worktime.model.SyncRemovalCache;
 
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -28,4 +29,12 @@ import java.util.Map;
  */
 public interface SyncRemovalCacheDao extends GenericDao<SyncRemovalCache, String> {
     Map<String, String> findAllSyncKeys();
+
+    /**
+     * Stores the removal of a collection of synchronized entities of one type, so they can be removed on the server
+     * during the next synchronization. Sync keys that are already known to be removed are skipped.
+     * @param syncKeys The sync keys of the removed entities.
+     * @param entityName The simple class name of the removed entities.
+     */
+    void saveRemovals(Collection<String> syncKeys, String entityName);
 }
@@ -35,6 +35,13 @@ public interface TimeRegistrationDao extends GenericDao<TimeRegistration, Intege
      */
     TimeRegistration getLatestTimeRegistration();
 
+    /**
+     * Find the ongoing time registration. Whether a time registration is ongoing is cached, so if none is ongoing the
+     * database is not queried at all.
+     * @return The ongoing time registration or null if none is ongoing.
+     */
+    TimeRegistration findOngoingTimeRegistration();
+
     /**
      * Find all time registrations bound to one specific task.
      * @param task The {@link Task}.
@@ -105,6 +112,16 @@ public interface TimeRegistrationDao extends GenericDao<TimeRegistration, Intege
      */
     boolean doesInterfereWithTimeRegistration(Date time);
 
+    /**
+     * Find all time registrations that overlap with a certain period: they start before the end of the period and end
+     * (or are still ongoing) after the start of the period. Both the start and the end time are indexed, so this can
+     * be used to check a whole batch of new time registrations at once.
+     * @param startTime The start of the period.
+     * @param endTime The end of the period.
+     * @return The overlapping time registrations, sorted by start time.
+     */
+    List<TimeRegistration> findOverlapping(Date startTime, Date endTime);
+
     /**
      * Find a time registration that starts and ends on a specific time.
      * @param startDate The starting time of the time registration to look for.
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.dao.backup;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.j256.ormlite.field.DatabaseField;
+import eu.vranckaert.worktime.model.CommentHistory;
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.WidgetConfiguration;
+import eu.vranckaert.worktime.model.trigger.RecurrenceTrigger;
+import eu.vranckaert.worktime.web.json.model.DateTimeDeserializer;
+import eu.vranckaert.worktime.web.json.model.DateTimeSerializer;
+
+import java.util.Date;
+
+/**
+ * Describes the portable backup format. Unlike a copy of the SQLite file this format does not depend on the database
+ * schema: every record is written as one line of JSON (newline delimited JSON) that only contains the database fields
+ * of the entity, so the backup can be streamed with constant memory and restored in any later version of the
+ * application.<br/>
+ * A backup consists of:
+ * <li>A header line: <i>{"type":"header","format":"worktime-backup","formatVersion":1,"databaseVersion":35,"created":...}</i></li>
+ * <li>One line per record: <i>{"type":"Project","data":{...}}</i>, the entities are written in the order of
+ * {@link Entity} so that a record is always written after the records it refers to. References to other records
+ * (the project of a task, the task of a time registration,...) only contain the id: <i>"task":{"id":12}</i></li>
+ * <li>A footer line with the number of records per entity: <i>{"type":"footer","records":{"Project":3,...}}</i>. A
+ * backup without footer is incomplete.</li>
+ */
+public final class PortableBackupFormat {
+    public static final String FORMAT = "worktime-backup";
+    public static final int FORMAT_VERSION = 1;
+    public static final String CHARSET = "UTF-8";
+
+    static final String TYPE = "type";
+    static final String TYPE_HEADER = "header";
+    static final String TYPE_FOOTER = "footer";
+    static final String HEADER_FORMAT = "format";
+    static final String HEADER_FORMAT_VERSION = "formatVersion";
+    static final String HEADER_DATABASE_VERSION = "databaseVersion";
+    static final String HEADER_CREATED = "created";
+    static final String FOOTER_RECORDS = "records";
+    static final String DATA = "data";
+    static final String ID = "id";
+    static final String REFERENCE_PROJECT = "project";
+    static final String REFERENCE_TASK = "task";
+
+    /**
+     * The entities that are part of a backup, in the order in which they are written and restored. Geofence triggers
+     * are not part of a backup as they need to be registered with the location services of the device (they are
+     * removed when a backup is restored), neither are the account and synchronization data.
+     */
+    public enum Entity {
+        PROJECT(Project.class, false),
+        TASK(Task.class, false),
+        TIME_REGISTRATION(TimeRegistration.class, false),
+        COMMENT_HISTORY(CommentHistory.class, false),
+        WIDGET_CONFIGURATION(WidgetConfiguration.class, true),
+        RECURRENCE_TRIGGER(RecurrenceTrigger.class, false);
+
+        private final Class<?> entityClass;
+        private final boolean keepsId;
+
+        Entity(Class<?> entityClass, boolean keepsId) {
+            this.entityClass = entityClass;
+            this.keepsId = keepsId;
+        }
+
+        public Class<?> getEntityClass() {
+            return entityClass;
+        }
+
+        /**
+         * @return True if the id of the entity is not generated by the database (the id of a widget configuration is
+         * the id of the widget) and must be restored as is. Generated ids are assigned again when restoring.
+         */
+        public boolean isKeepsId() {
+            return keepsId;
+        }
+
+        /**
+         * @return The type of the records of this entity in the backup.
+         */
+        public String getType() {
+            return entityClass.getSimpleName();
+        }
+
+        public static Entity findByType(String type) {
+            for (Entity entity : values()) {
+                if (entity.getType().equals(type)) {
+                    return entity;
+                }
+            }
+            return null;
+        }
+    }
+
+    private PortableBackupFormat() {}
+
+    /**
+     * Creates the {@link Gson} instance to (de)serialize the records of a backup. Only the fields that are stored in
+     * the database are serialized and dates are serialized as milliseconds so the format does not depend on the locale
+     * of the device.
+     * @return The {@link Gson} instance.
+     */
+    static Gson createGson() {
+        return new GsonBuilder()
+                .registerTypeAdapter(Date.class, new DateTimeSerializer())
+                .registerTypeAdapter(Date.class, new DateTimeDeserializer())
+                .disableHtmlEscaping()
+                .setExclusionStrategies(new ExclusionStrategy() {
+                    @Override
+                    public boolean shouldSkipField(FieldAttributes field) {
+                        return field.getAnnotation(DatabaseField.class) == null;
+                    }
+
+                    @Override
+                    public boolean shouldSkipClass(Class<?> clazz) {
+                        return false;
+                    }
+                })
+                .create();
+    }
+}
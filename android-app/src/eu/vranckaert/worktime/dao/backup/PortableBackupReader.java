@@ -0,0 +1,357 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.dao.backup;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.j256.ormlite.android.apptools.OrmLiteSqliteOpenHelper;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.misc.TransactionManager;
+import eu.vranckaert.worktime.constants.Constants;
+import eu.vranckaert.worktime.exceptions.backup.CorruptBackupException;
+import eu.vranckaert.worktime.model.trigger.GeofenceTrigger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Reads a backup in the {@link PortableBackupFormat}. A backup should always be validated (which reads the complete
+ * backup once without touching the database) before it's restored. Both operations read the backup line by line, so
+ * the memory used does not depend on the size of the backup. The only thing kept in memory are the ids of the projects
+ * and tasks, needed to check and restore the references of the other records.
+ */
+public class PortableBackupReader {
+    private final OrmLiteSqliteOpenHelper helper;
+    private final Gson gson = PortableBackupFormat.createGson();
+    private final JsonParser parser = new JsonParser();
+
+    public PortableBackupReader(OrmLiteSqliteOpenHelper helper) {
+        this.helper = helper;
+    }
+
+    /**
+     * Validates a complete backup: the header and the footer must be present, every record must be readable, the
+     * number of records must match the footer and every reference must point to a record that is in the backup.
+     * @param in The backup. The stream is not closed.
+     * @return The number of records per entity type.
+     * @throws IOException If the backup cannot be read.
+     * @throws CorruptBackupException If the backup is not valid.
+     */
+    public Map<String, Integer> validate(InputStream in) throws IOException, CorruptBackupException {
+        BufferedReader reader = createReader(in);
+        readHeader(reader);
+
+        Map<String, Integer> records = new LinkedHashMap<String, Integer>();
+        Set<Integer> projectIds = new HashSet<Integer>();
+        Set<Integer> taskIds = new HashSet<Integer>();
+        JsonObject footer = null;
+        int lastEntity = -1;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (footer != null) {
+                throw new CorruptBackupException("Unexpected data after the footer of the backup");
+            }
+
+            JsonObject record = parseLine(line);
+            String type = getString(record, PortableBackupFormat.TYPE);
+            if (PortableBackupFormat.TYPE_FOOTER.equals(type)) {
+                footer = record;
+                continue;
+            }
+
+            PortableBackupFormat.Entity entity = PortableBackupFormat.Entity.findByType(type);
+            if (entity == null) {
+                throw new CorruptBackupException("Unknown record type in backup: " + type);
+            }
+            if (entity.ordinal() < lastEntity) {
+                throw new CorruptBackupException("Records of type " + type + " are not in the expected order");
+            }
+            lastEntity = entity.ordinal();
+
+            JsonObject data = getData(record);
+            checkReference(data, PortableBackupFormat.REFERENCE_PROJECT, projectIds);
+            checkReference(data, PortableBackupFormat.REFERENCE_TASK, taskIds);
+            toEntity(entity, data);
+
+            if (entity == PortableBackupFormat.Entity.PROJECT) {
+                projectIds.add(getId(data));
+            } else if (entity == PortableBackupFormat.Entity.TASK) {
+                taskIds.add(getId(data));
+            }
+
+            Integer count = records.get(type);
+            records.put(type, count == null ? 1 : count + 1);
+        }
+
+        if (footer == null) {
+            throw new CorruptBackupException("The backup is incomplete, no footer found");
+        }
+        checkFooter(footer, records);
+        return records;
+    }
+
+    /**
+     * Restores a backup that has been validated with {@link #validate(java.io.InputStream)}: {@link #clear()} followed
+     * by {@link #restoreRecords(java.io.InputStream)}.
+     * @param in The backup. The stream is not closed.
+     * @return The request ids of the geofences of the removed geofence triggers.
+     * @throws SQLException If the backup cannot be restored, the failing transaction is rolled back.
+     */
+    public List<String> restore(InputStream in) throws SQLException {
+        List<String> geofenceRequestIds = clear();
+        restoreRecords(in);
+        return geofenceRequestIds;
+    }
+
+    /**
+     * Removes all entities of the {@link PortableBackupFormat.Entity} types from the database, in one transaction.<br/>
+     * The geofence triggers are not part of a backup but refer to the tasks that are replaced, so they are removed in
+     * the same transaction. Their geofences are still registered with the location services, the caller should
+     * remove them once the backup is restored.
+     * @return The request ids of the geofences of the removed geofence triggers.
+     * @throws SQLException If the entities cannot be removed, the transaction is rolled back.
+     */
+    public List<String> clear() throws SQLException {
+        return TransactionManager.callInTransaction(helper.getConnectionSource(), new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws Exception {
+                List<String> geofenceRequestIds = clearGeofenceTriggers();
+                clearDatabase();
+                return geofenceRequestIds;
+            }
+        });
+    }
+
+    /**
+     * Restores the records of a backup that has been validated with {@link #validate(java.io.InputStream)} in a
+     * database that has been cleared with {@link #clear()}. The records are restored in transactions of
+     * {@link Constants.Backup#RESTORE_BATCH_SIZE} records, so the database is not locked during the whole restore. If
+     * a batch fails only that batch is rolled back and the database contains a part of the backup, the caller should
+     * keep a backup of the database to restore in that case.
+     * @param in The backup. The stream is not closed.
+     * @throws SQLException If a batch cannot be restored, the transaction of the batch is rolled back.
+     */
+    public void restoreRecords(InputStream in) throws SQLException {
+        final RecordRestorer restorer = new RecordRestorer(createReader(in));
+        boolean done;
+        do {
+            done = TransactionManager.callInTransaction(helper.getConnectionSource(), new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return restorer.restoreBatch(Constants.Backup.RESTORE_BATCH_SIZE);
+                }
+            });
+        } while (!done);
+    }
+
+    private List<String> clearGeofenceTriggers() throws SQLException {
+        Dao<GeofenceTrigger, Integer> dao = helper.getDao(GeofenceTrigger.class);
+        List<String> geofenceRequestIds = new ArrayList<String>();
+        for (GeofenceTrigger geofenceTrigger : dao.queryForAll()) {
+            geofenceRequestIds.add(geofenceTrigger.getGeofenceRequestId());
+        }
+        dao.delete(dao.deleteBuilder().prepare());
+        return geofenceRequestIds;
+    }
+
+    private void clearDatabase() throws SQLException {
+        PortableBackupFormat.Entity[] entities = PortableBackupFormat.Entity.values();
+        for (int i = entities.length - 1; i >= 0; i--) {
+            Dao<Object, Object> dao = getDao(entities[i]);
+            dao.delete(dao.deleteBuilder().prepare());
+        }
+    }
+
+    /**
+     * Restores the records of a backup batch by batch, the batches share the ids of the restored projects and tasks.
+     */
+    private class RecordRestorer {
+        private final BufferedReader reader;
+        private boolean headerRead = false;
+        // The ids of the projects and tasks in the backup mapped on the ids they get in the database
+        private final Map<Integer, Integer> projectIds = new HashMap<Integer, Integer>();
+        private final Map<Integer, Integer> taskIds = new HashMap<Integer, Integer>();
+
+        private RecordRestorer(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Restores the next records of the backup.
+         * @param batchSize The maximum number of records to restore.
+         * @return True if all records have been restored, false if there are more.
+         */
+        private boolean restoreBatch(int batchSize) throws IOException, SQLException, CorruptBackupException {
+            if (!headerRead) {
+                readHeader(reader);
+                headerRead = true;
+            }
+
+            int restoredRecords = 0;
+            String line;
+            while (restoredRecords < batchSize && (line = reader.readLine()) != null) {
+                JsonObject record = parseLine(line);
+                PortableBackupFormat.Entity entity = PortableBackupFormat.Entity.findByType(getString(record, PortableBackupFormat.TYPE));
+                if (entity == null) {
+                    // The footer
+                    return true;
+                }
+
+                JsonObject data = getData(record);
+                Integer id = getId(data);
+                if (!entity.isKeepsId()) {
+                    data.remove(PortableBackupFormat.ID);
+                }
+                replaceReference(data, PortableBackupFormat.REFERENCE_PROJECT, projectIds);
+                replaceReference(data, PortableBackupFormat.REFERENCE_TASK, taskIds);
+
+                Dao<Object, Object> dao = getDao(entity);
+                Object restored = toEntity(entity, data);
+                dao.create(restored);
+                restoredRecords++;
+
+                if (entity == PortableBackupFormat.Entity.PROJECT) {
+                    projectIds.put(id, (Integer) dao.extractId(restored));
+                } else if (entity == PortableBackupFormat.Entity.TASK) {
+                    taskIds.put(id, (Integer) dao.extractId(restored));
+                }
+            }
+            return restoredRecords < batchSize;
+        }
+    }
+
+    private Dao<Object, Object> getDao(PortableBackupFormat.Entity entity) throws SQLException {
+        return helper.getDao((Class<Object>) entity.getEntityClass());
+    }
+
+    private BufferedReader createReader(InputStream in) throws IOException {
+        return new BufferedReader(new InputStreamReader(in, PortableBackupFormat.CHARSET));
+    }
+
+    private void readHeader(BufferedReader reader) throws IOException, CorruptBackupException {
+        String line = reader.readLine();
+        if (line == null) {
+            throw new CorruptBackupException("The backup is empty");
+        }
+
+        JsonObject header = parseLine(line);
+        if (!PortableBackupFormat.TYPE_HEADER.equals(getString(header, PortableBackupFormat.TYPE))
+                || !PortableBackupFormat.FORMAT.equals(getString(header, PortableBackupFormat.HEADER_FORMAT))) {
+            throw new CorruptBackupException("The file is not a WorkTime backup");
+        }
+
+        JsonElement formatVersion = header.get(PortableBackupFormat.HEADER_FORMAT_VERSION);
+        if (formatVersion == null || !formatVersion.isJsonPrimitive() || formatVersion.getAsInt() > PortableBackupFormat.FORMAT_VERSION) {
+            throw new CorruptBackupException("The backup format version " + formatVersion + " is not supported");
+        }
+    }
+
+    private void checkFooter(JsonObject footer, Map<String, Integer> records) throws CorruptBackupException {
+        JsonElement footerRecords = footer.get(PortableBackupFormat.FOOTER_RECORDS);
+        if (footerRecords == null || !footerRecords.isJsonObject()) {
+            throw new CorruptBackupException("The footer of the backup does not contain the number of records");
+        }
+
+        for (PortableBackupFormat.Entity entity : PortableBackupFormat.Entity.values()) {
+            JsonElement expected = footerRecords.getAsJsonObject().get(entity.getType());
+            Integer actual = records.get(entity.getType());
+            int expectedCount = expected == null ? 0 : expected.getAsInt();
+            int actualCount = actual == null ? 0 : actual;
+            if (expectedCount != actualCount) {
+                throw new CorruptBackupException("Expected " + expectedCount + " records of type " + entity.getType() + " but found " + actualCount);
+            }
+        }
+    }
+
+    private JsonObject parseLine(String line) throws CorruptBackupException {
+        try {
+            JsonElement json = parser.parse(line);
+            if (!json.isJsonObject()) {
+                throw new CorruptBackupException("Invalid record in backup: " + line);
+            }
+            return json.getAsJsonObject();
+        } catch (JsonParseException e) {
+            throw new CorruptBackupException("Invalid record in backup: " + line, e);
+        }
+    }
+
+    private String getString(JsonObject json, String member) {
+        JsonElement element = json.get(member);
+        return element == null || !element.isJsonPrimitive() ? null : element.getAsString();
+    }
+
+    private JsonObject getData(JsonObject record) throws CorruptBackupException {
+        JsonElement data = record.get(PortableBackupFormat.DATA);
+        if (data == null || !data.isJsonObject()) {
+            throw new CorruptBackupException("Record without data in backup: " + record);
+        }
+        return data.getAsJsonObject();
+    }
+
+    private Integer getId(JsonObject data) throws CorruptBackupException {
+        JsonElement id = data.get(PortableBackupFormat.ID);
+        if (id == null || !id.isJsonPrimitive()) {
+            throw new CorruptBackupException("Record without id in backup: " + data);
+        }
+        return id.getAsInt();
+    }
+
+    private Object toEntity(PortableBackupFormat.Entity entity, JsonObject data) throws CorruptBackupException {
+        try {
+            return gson.fromJson(data, entity.getEntityClass());
+        } catch (RuntimeException e) {
+            // Not only a JsonParseException, invalid numbers and enum values end up in other runtime exceptions
+            throw new CorruptBackupException("Invalid " + entity.getType() + " record in backup: " + data, e);
+        }
+    }
+
+    private void checkReference(JsonObject data, String reference, Set<Integer> ids) throws CorruptBackupException {
+        JsonElement element = data.get(reference);
+        if (element != null && element.isJsonObject()) {
+            Integer id = getId(element.getAsJsonObject());
+            if (!ids.contains(id)) {
+                throw new CorruptBackupException("Record refers to a missing " + reference + " (" + id + "): " + data);
+            }
+        }
+    }
+
+    private void replaceReference(JsonObject data, String reference, Map<Integer, Integer> ids) throws CorruptBackupException {
+        JsonElement element = data.get(reference);
+        if (element != null && element.isJsonObject()) {
+            Integer newId = ids.get(getId(element.getAsJsonObject()));
+            if (newId == null) {
+                throw new CorruptBackupException("Record refers to a missing " + reference + ": " + data);
+            }
+            element.getAsJsonObject().addProperty(PortableBackupFormat.ID, newId);
+        }
+    }
+}
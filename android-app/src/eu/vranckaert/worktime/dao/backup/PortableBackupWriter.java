@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.dao.backup;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.j256.ormlite.android.apptools.OrmLiteSqliteOpenHelper;
+import com.j256.ormlite.dao.CloseableIterator;
+import com.j256.ormlite.dao.Dao;
+import eu.vranckaert.worktime.dao.utils.DaoConstants;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes all entities of the database to a stream in the {@link PortableBackupFormat}. The records are read with an
+ * iterator and written one by one, so the memory used does not depend on the size of the database.
+ */
+public class PortableBackupWriter {
+    private final OrmLiteSqliteOpenHelper helper;
+    private final Gson gson = PortableBackupFormat.createGson();
+
+    public PortableBackupWriter(OrmLiteSqliteOpenHelper helper) {
+        this.helper = helper;
+    }
+
+    /**
+     * Writes the backup. The stream is flushed but not closed.
+     * @param out The stream to write the backup to.
+     * @return The number of records written per entity type.
+     * @throws IOException If the backup cannot be written to the stream.
+     * @throws SQLException If the entities cannot be read from the database.
+     */
+    public Map<String, Integer> write(OutputStream out) throws IOException, SQLException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, PortableBackupFormat.CHARSET));
+
+        JsonObject header = new JsonObject();
+        header.addProperty(PortableBackupFormat.TYPE, PortableBackupFormat.TYPE_HEADER);
+        header.addProperty(PortableBackupFormat.HEADER_FORMAT, PortableBackupFormat.FORMAT);
+        header.addProperty(PortableBackupFormat.HEADER_FORMAT_VERSION, PortableBackupFormat.FORMAT_VERSION);
+        header.addProperty(PortableBackupFormat.HEADER_DATABASE_VERSION, DaoConstants.VERSION);
+        header.addProperty(PortableBackupFormat.HEADER_CREATED, new Date().getTime());
+        writeLine(writer, header);
+
+        Map<String, Integer> records = new LinkedHashMap<String, Integer>();
+        for (PortableBackupFormat.Entity entity : PortableBackupFormat.Entity.values()) {
+            records.put(entity.getType(), writeEntity(writer, entity));
+        }
+
+        JsonObject footer = new JsonObject();
+        footer.addProperty(PortableBackupFormat.TYPE, PortableBackupFormat.TYPE_FOOTER);
+        footer.add(PortableBackupFormat.FOOTER_RECORDS, gson.toJsonTree(records));
+        writeLine(writer, footer);
+
+        writer.flush();
+        return records;
+    }
+
+    private int writeEntity(Writer writer, PortableBackupFormat.Entity entity) throws IOException, SQLException {
+        Dao<Object, ?> dao = helper.getDao((Class<Object>) entity.getEntityClass());
+
+        int count = 0;
+        CloseableIterator<Object> iterator = dao.iterator();
+        try {
+            while (iterator.hasNext()) {
+                JsonObject data = gson.toJsonTree(iterator.next()).getAsJsonObject();
+                replaceReferencesByIds(data);
+
+                JsonObject record = new JsonObject();
+                record.addProperty(PortableBackupFormat.TYPE, entity.getType());
+                record.add(PortableBackupFormat.DATA, data);
+                writeLine(writer, record);
+                count++;
+            }
+        } finally {
+            iterator.close();
+        }
+        return count;
+    }
+
+    /**
+     * A reference to another entity (a foreign field) is serialized as the complete entity, only the id of it is
+     * needed in the backup.
+     * @param data The serialized entity.
+     */
+    private void replaceReferencesByIds(JsonObject data) {
+        for (Map.Entry<String, JsonElement> field : data.entrySet()) {
+            if (field.getValue().isJsonObject()) {
+                JsonObject reference = new JsonObject();
+                reference.add(PortableBackupFormat.ID, field.getValue().getAsJsonObject().get(PortableBackupFormat.ID));
+                field.setValue(reference);
+            }
+        }
+    }
+
+    private void writeLine(Writer writer, JsonObject json) throws IOException {
+        writer.write(gson.toJson(json));
+        writer.write('\n');
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.dao.cache;
+
+import eu.vranckaert.worktime.model.CommentHistory;
+import eu.vranckaert.worktime.utils.string.PrefixTrie;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Application wide in-memory index of the comment history, to suggest comments while the user is typing without
+ * querying the database on every key stroke. The index is loaded once with the complete (bounded) comment history and
+ * is then kept up to date by the {@link eu.vranckaert.worktime.service.CommentHistoryService}. It should be
+ * invalidated whenever the comment history is changed without passing by that service.
+ */
+public class CommentHistoryIndex {
+    private static final CommentHistoryIndex INSTANCE = new CommentHistoryIndex();
+
+    private final PrefixTrie trie = new PrefixTrie();
+    private boolean loaded = false;
+    /**
+     * Incremented on every change while the index is not loaded, so that comments queried before the change are never
+     * loaded.
+     */
+    private long generation = 0L;
+
+    private CommentHistoryIndex() {}
+
+    public static CommentHistoryIndex getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return The generation to pass to {@link #load(long, java.util.Collection)}, to be taken before querying the
+     * database.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Loads the index with the complete comment history, unless the comment history has been changed since the
+     * generation was taken.
+     * @param generation The generation taken before querying the database.
+     * @param comments All comments in the comment history.
+     */
+    public synchronized void load(long generation, Collection<CommentHistory> comments) {
+        if (this.generation != generation) {
+            return;
+        }
+        trie.clear();
+        for (CommentHistory comment : comments) {
+            trie.put(comment.getComment(), getRank(comment));
+        }
+        loaded = true;
+    }
+
+    /**
+     * Adds a comment to the index or updates the time it was last used.
+     * @param comment The comment.
+     */
+    public synchronized void put(CommentHistory comment) {
+        if (!loaded) {
+            generation++;
+            return;
+        }
+        trie.put(comment.getComment(), getRank(comment));
+    }
+
+    /**
+     * Removes a comment from the index.
+     * @param comment The comment.
+     */
+    public synchronized void remove(CommentHistory comment) {
+        if (!loaded) {
+            generation++;
+            return;
+        }
+        trie.remove(comment.getComment());
+    }
+
+    /**
+     * Finds the comments that start with a prefix (case insensitive).
+     * @param prefix The prefix.
+     * @param max The maximum number of comments to return.
+     * @return The comments, the most recently used first. Empty if the index is not loaded.
+     */
+    public synchronized List<String> findByPrefix(String prefix, int max) {
+        if (!loaded) {
+            return new ArrayList<String>();
+        }
+        return trie.findByPrefix(prefix, max);
+    }
+
+    private long getRank(CommentHistory comment) {
+        return comment.getLastUsed() == null ? 0L : comment.getLastUsed().getTime();
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        loaded = false;
+        trie.clear();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.vranckaert.worktime.dao.cache;
+
+import eu.vranckaert.worktime.model.TimeRegistration;
+
+/**
+ * Application wide cache of the state of the latest time registration: which one it is and whether it's ongoing. The
+ * latest time registration is needed all the time (widgets, notifications, geofences,...) and most of the time the
+ * only thing that matters is whether a time registration is ongoing or not, so that state is kept in memory.<br/>
+ * Only the id is cached, not the time registration itself, so callers always get their own instance to change. The
+ * cache is invalidated by the {@link eu.vranckaert.worktime.dao.TimeRegistrationDao} implementation on every write to
+ * the time registrations and should be invalidated whenever the database is changed without passing by the DAO.
+ */
+public class LatestTimeRegistrationCache {
+    private static final LatestTimeRegistrationCache INSTANCE = new LatestTimeRegistrationCache();
+
+    private boolean loaded = false;
+    private Integer latestId = null;
+    private boolean ongoing = false;
+    /**
+     * Incremented on every invalidation, so that a state queried before an invalidation is never cached.
+     */
+    private long generation = 0L;
+
+    private LatestTimeRegistrationCache() {}
+
+    public static LatestTimeRegistrationCache getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return The id of the latest time registration or null if there is none (or if the cache is not loaded).
+     */
+    public synchronized Integer getLatestId() {
+        return latestId;
+    }
+
+    /**
+     * @return True if the latest time registration is ongoing (false if the cache is not loaded).
+     */
+    public synchronized boolean isOngoing() {
+        return ongoing;
+    }
+
+    /**
+     * @return The generation to pass to {@link #load(long, TimeRegistration)}, to be taken before querying the
+     * database.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Caches the state of the latest time registration, unless the cache has been invalidated since the generation was
+     * taken (the time registration might not be the latest anymore).
+     * @param generation The generation taken before querying the database.
+     * @param latest The latest time registration, null if there is none.
+     */
+    public synchronized void load(long generation, TimeRegistration latest) {
+        if (this.generation != generation) {
+            return;
+        }
+        loaded = true;
+        latestId = latest == null ? null : latest.getId();
+        ongoing = latest != null && latest.isOngoingTimeRegistration();
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        loaded = false;
+        latestId = null;
+        ongoing = false;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.dao.cache;
+
+import com.j256.ormlite.android.apptools.OrmLiteSqliteOpenHelper;
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Application wide in-memory copy of all projects and tasks. Projects and tasks are small data sets that are read all
+ * the time (widgets, notifications, task and project selection,...) so instead of querying the database every time all
+ * of them are loaded once and kept in memory.<br/>
+ * The projects and tasks are kept as one identity mapped graph: there is only one instance per project and per task
+ * id, and every task refers to the single instance of it's project. These instances never leave the repository, every
+ * write stores a copy and every read returns new copies, so a caller can modify (and refresh) what it has read without
+ * affecting any other reader.<br/>
+ * The repository is kept up to date by the {@link eu.vranckaert.worktime.dao.ProjectDao} and
+ * {@link eu.vranckaert.worktime.dao.TaskDao} implementations, every write to the database is written through to the
+ * repository. Whenever the repository cannot be kept in sync (a failed transaction, a restored database,...) it should
+ * be invalidated so it's reloaded from the database on the next access.
+ */
+public class ProjectTaskRepository {
+    private static final ProjectTaskRepository INSTANCE = new ProjectTaskRepository();
+
+    private boolean loaded = false;
+    private final Map<Integer, Project> projects = new LinkedHashMap<Integer, Project>();
+    private final Map<Integer, Task> tasks = new LinkedHashMap<Integer, Task>();
+
+    private ProjectTaskRepository() {}
+
+    public static ProjectTaskRepository getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Loads all projects and tasks from the database if they are not yet loaded.
+     * @param helper The database helper.
+     * @throws SQLException If the projects or tasks cannot be queried.
+     */
+    public synchronized void ensureLoaded(OrmLiteSqliteOpenHelper helper) throws SQLException {
+        if (!loaded) {
+            List<Project> allProjects = helper.getDao(Project.class).queryForAll();
+            List<Task> allTasks = helper.getDao(Task.class).queryForAll();
+            load(allProjects, allTasks);
+        }
+    }
+
+    /**
+     * Replaces the content of the repository with the specified projects and tasks.
+     * @param allProjects All projects.
+     * @param allTasks All tasks.
+     */
+    public synchronized void load(List<Project> allProjects, List<Task> allTasks) {
+        projects.clear();
+        tasks.clear();
+        for (Project project : allProjects) {
+            projects.put(project.getId(), copy(project));
+        }
+        for (Task task : allTasks) {
+            Task copy = copy(task, null);
+            linkProject(copy);
+            tasks.put(copy.getId(), copy);
+        }
+        loaded = true;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Removes everything from the repository. The next access will reload all projects and tasks from the database.
+     */
+    public synchronized void invalidate() {
+        projects.clear();
+        tasks.clear();
+        loaded = false;
+    }
+
+    public synchronized List<Project> findAllProjects() {
+        List<Project> result = new ArrayList<Project>();
+        for (Project project : projects.values()) {
+            result.add(copy(project));
+        }
+        return result;
+    }
+
+    public synchronized int countProjects() {
+        return projects.size();
+    }
+
+    public synchronized Project findProject(Integer id) {
+        Project project = id == null ? null : projects.get(id);
+        return project == null ? null : copy(project);
+    }
+
+    public synchronized List<Task> findAllTasks() {
+        return copy(tasks.values());
+    }
+
+    public synchronized int countTasks() {
+        return tasks.size();
+    }
+
+    public synchronized Task findTask(Integer id) {
+        Task task = id == null ? null : tasks.get(id);
+        return task == null ? null : copy(task, null);
+    }
+
+    /**
+     * Find all tasks for a certain project.
+     * @param projectId The id of the project.
+     * @return The tasks linked to the project, an empty list if none.
+     */
+    public synchronized List<Task> findTasksForProject(Integer projectId) {
+        List<Task> result = new ArrayList<Task>();
+        for (Task task : tasks.values()) {
+            if (task.getProject() != null && task.getProject().getId() != null && task.getProject().getId().equals(projectId)) {
+                result.add(task);
+            }
+        }
+        return copy(result);
+    }
+
+    /**
+     * Puts a copy of a saved or updated project in the repository. If the project was already in the repository it's
+     * instance is updated, so the tasks of the project stay linked to it.
+     * @param project The project.
+     */
+    public synchronized void putProject(Project project) {
+        if (!loaded || project.getId() == null)
+            return;
+
+        Project cached = projects.get(project.getId());
+        if (cached == null) {
+            projects.put(project.getId(), copy(project));
+        } else {
+            copy(project, cached);
+        }
+    }
+
+    /**
+     * Puts a copy of a saved or updated task in the repository. The copy will be linked to the instance of it's
+     * project that is in the repository.
+     * @param task The task.
+     */
+    public synchronized void putTask(Task task) {
+        if (!loaded || task.getId() == null)
+            return;
+
+        Task copy = copy(task, null);
+        linkProject(copy);
+        tasks.put(copy.getId(), copy);
+    }
+
+    public synchronized void removeProject(Integer id) {
+        projects.remove(id);
+    }
+
+    public synchronized void removeTask(Integer id) {
+        tasks.remove(id);
+    }
+
+    /**
+     * Refreshes a project instance (for example one that only has it's id set, as loaded by a foreign relation, or one
+     * with unsaved changes) with the values of the project in the repository.
+     * @param project The project to refresh.
+     * @return True if the project was found in the repository and is refreshed, false if not.
+     */
+    public synchronized boolean refresh(Project project) {
+        Project cached = project.getId() == null ? null : projects.get(project.getId());
+        if (cached == null) {
+            return false;
+        }
+        copy(cached, project);
+        return true;
+    }
+
+    /**
+     * Refreshes a task instance (for example one that only has it's id set, as loaded by a foreign relation, or one
+     * with unsaved changes) with the values of the task in the repository. The project of the task will be a copy of
+     * the project in the repository.
+     * @param task The task to refresh.
+     * @return True if the task was found in the repository and is refreshed, false if not.
+     */
+    public synchronized boolean refresh(Task task) {
+        Task cached = task.getId() == null ? null : tasks.get(task.getId());
+        if (cached == null) {
+            return false;
+        }
+        copy(cached, task, null);
+        return true;
+    }
+
+    /**
+     * Copies tasks, the tasks of the same project share one copy of the project.
+     */
+    private List<Task> copy(Iterable<Task> source) {
+        Map<Integer, Project> projectCopies = new HashMap<Integer, Project>();
+        List<Task> result = new ArrayList<Task>();
+        for (Task task : source) {
+            result.add(copy(task, projectCopies));
+        }
+        return result;
+    }
+
+    private Project copy(Project source) {
+        Project copy = new Project();
+        copy(source, copy);
+        return copy;
+    }
+
+    private void copy(Project source, Project target) {
+        target.setId(source.getId());
+        target.setName(source.getName());
+        target.setComment(source.getComment());
+        target.setOrder(source.getOrder());
+        target.setDefaultValue(source.isDefaultValue());
+        target.setExternalId(source.getExternalId());
+        target.setExternalSystem(source.getExternalSystem());
+        target.setFlags(source.getFlags());
+        target.setFinished(source.isFinished());
+        target.setLastUpdated(copy(source.getLastUpdated()));
+        target.setSyncKey(source.getSyncKey());
+    }
+
+    /**
+     * @param projectCopies The projects that are already copied, by id, or null to copy the project of the task.
+     */
+    private Task copy(Task source, Map<Integer, Project> projectCopies) {
+        Task copy = new Task();
+        copy(source, copy, projectCopies);
+        return copy;
+    }
+
+    private void copy(Task source, Task target, Map<Integer, Project> projectCopies) {
+        Project project = source.getProject();
+        if (project != null) {
+            Project projectCopy = projectCopies == null ? null : projectCopies.get(project.getId());
+            if (projectCopy == null) {
+                projectCopy = copy(project);
+                if (projectCopies != null) {
+                    projectCopies.put(project.getId(), projectCopy);
+                }
+            }
+            project = projectCopy;
+        }
+
+        target.setId(source.getId());
+        target.setName(source.getName());
+        target.setComment(source.getComment());
+        target.setProject(project);
+        target.setOrder(source.getOrder());
+        target.setExternalId(source.getExternalId());
+        target.setExternalSystem(source.getExternalSystem());
+        target.setFlags(source.getFlags());
+        target.setFinished(source.isFinished());
+        target.setLastUpdated(copy(source.getLastUpdated()));
+        target.setSyncKey(source.getSyncKey());
+    }
+
+    private Date copy(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+
+    private void linkProject(Task task) {
+        if (task.getProject() != null) {
+            Project project = projects.get(task.getProject().getId());
+            if (project != null) {
+                task.setProject(project);
+            }
+        }
+    }
+}
@@ -16,7 +16,9 @@
 
 package eu.vranckaert.worktime.dao.generic;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 public interface GenericDao<T, ID> {
     /**
@@ -73,4 +75,31 @@ public interface GenericDao<T, ID> {
     Long count();
 
     void deleteAll();
+
+    /**
+     * Persists a collection of new entities in one single transaction.
+     * @param entities The entities to store.
+     */
+    void saveAll(Collection<T> entities);
+
+    /**
+     * Updates a collection of already existing entities in one single transaction.
+     * @param entities The entities to update.
+     */
+    void updateAll(Collection<T> entities);
+
+    /**
+     * Removes a collection of entities in one single transaction.
+     * @param entities The entities to remove.
+     */
+    void deleteAll(Collection<T> entities);
+
+    /**
+     * Executes a piece of code within one single database transaction. As all DAO's share the same database, the
+     * callable can use any other DAO and all of the changes will be committed (or rolled back) at once.
+     * @param callable The code to execute within the transaction.
+     * @param <R> The type of the result of the callable.
+     * @return The result of the callable.
+     */
+    <R> R callInTransaction(Callable<R> callable);
 }
@@ -18,14 +18,22 @@ package eu.vranckaert.worktime.dao.generic;
 
 import android.content.Context;
 import com.j256.ormlite.android.apptools.OpenHelperManager;
-import com.j256.ormlite.android.apptools.OrmLiteSqliteOpenHelper;
 import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.misc.TransactionManager;
 import com.j256.ormlite.stmt.DeleteBuilder;
+import eu.vranckaert.worktime.dao.utils.DatabaseChangeTracker;
 import eu.vranckaert.worktime.dao.utils.DatabaseHelper;
+import eu.vranckaert.worktime.dao.utils.LazyDao;
+import eu.vranckaert.worktime.dao.utils.QueryProfiler;
 import eu.vranckaert.worktime.utils.context.Log;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * generic DAO implementation to retrieve a DAO object and retrieving certain data from the DB.
@@ -41,7 +49,21 @@ public abstract class GenericDaoImpl<T, ID> implements GenericDao<T, ID> {
     private static final String LOG_TAG = GenericDaoImpl.class.getSimpleName();
 
     /**
-     * The doa to access all of your entities.
+     * The maximum number of entities to delete with one single statement. SQLite limits the number of arguments in one
+     * statement to 999.
+     */
+    private static final int MAX_DELETE_BATCH_SIZE = 500;
+
+    /**
+     * The transaction running on the current thread, null if there is none. All DAO's share the same database, so
+     * a transaction started by one DAO covers the writes of the other DAO's as well.
+     */
+    private static final ThreadLocal<TransactionState> transaction = new ThreadLocal<TransactionState>();
+
+    /**
+     * The doa to access all of your entities. The ORMLite DAO behind it is created the first time it's used, see
+     * {@link LazyDao}. For non-stable builds every query executed through this DAO is profiled, see
+     * {@link QueryProfiler}.
      */
     public Dao<T, ID> dao;
 
@@ -54,14 +76,8 @@ public abstract class GenericDaoImpl<T, ID> implements GenericDao<T, ID> {
     public GenericDaoImpl(final java.lang.Class<T> clazz, final Context context) {
         Log.d(context, LOG_TAG, "Creating DAO for " + clazz.getSimpleName() + " from " + getClass().getSimpleName());
 
-        OrmLiteSqliteOpenHelper helper = OpenHelperManager.getHelper(context, DatabaseHelper.class);
-        try {
-            dao = helper.getDao(clazz);
-        } catch (SQLException e) {
-            throw new RuntimeException("Could not instantiate a DAO for class " + clazz.getName(), e);
-        }
-        //helper.close();
-        //OpenHelperManager.releaseHelper();
+        // The ORMLite DAO (and the database helper) are only created when the DAO is used for the first time
+        dao = QueryProfiler.wrap(context, LazyDao.<T, ID>create(context, clazz));
         this.context = context;
     }
 
@@ -143,6 +159,7 @@ public abstract class GenericDaoImpl<T, ID> implements GenericDao<T, ID> {
         } catch (SQLException e) {
             throwFatalException(e);
         }
+        dataChanged();
         return entity;
     }
 
@@ -156,6 +173,7 @@ public abstract class GenericDaoImpl<T, ID> implements GenericDao<T, ID> {
         } catch (SQLException e) {
             throwFatalException(e);
         }
+        dataChanged();
         return entity;
     }
 
@@ -171,6 +189,7 @@ public abstract class GenericDaoImpl<T, ID> implements GenericDao<T, ID> {
             throwFatalException(e);
         }
         Log.d(context, LOG_TAG, result + " records are deleted!");
+        dataChanged();
     }
 
     /**
@@ -209,5 +228,147 @@ public abstract class GenericDaoImpl<T, ID> implements GenericDao<T, ID> {
         } catch (SQLException e) {
             throwFatalException(e);
         }
+        dataChanged();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveAll(final Collection<T> entities) {
+        if (entities == null || entities.isEmpty())
+            return;
+
+        callInTransaction(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                for (T entity : entities) {
+                    save(entity);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateAll(final Collection<T> entities) {
+        if (entities == null || entities.isEmpty())
+            return;
+
+        callInTransaction(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                for (T entity : entities) {
+                    update(entity);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteAll(final Collection<T> entities) {
+        if (entities == null || entities.isEmpty())
+            return;
+
+        int result = callInTransaction(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                int deleted = 0;
+                List<T> batch = new ArrayList<T>(Math.min(entities.size(), MAX_DELETE_BATCH_SIZE));
+                for (T entity : entities) {
+                    batch.add(entity);
+                    if (batch.size() == MAX_DELETE_BATCH_SIZE) {
+                        deleted += dao.delete(batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    deleted += dao.delete(batch);
+                }
+                return deleted;
+            }
+        });
+        Log.d(context, LOG_TAG, result + " records are deleted!");
+        dataChanged();
+    }
+
+    /**
+     * Should be called after every write (save, update or delete) executed by this DAO. Marks the database as changed
+     * for the next backup (see {@link DatabaseChangeTracker}) and calls {@link #onDataChanged()}.
+     */
+    protected final void dataChanged() {
+        if (isTrackedForBackup()) {
+            DatabaseChangeTracker.markChanged(context);
+        }
+
+        TransactionState state = transaction.get();
+        if (state != null) {
+            // Nobody should be notified of changes that can still be rolled back
+            state.changedDaos.add(this);
+        } else {
+            onDataChanged();
+        }
+    }
+
+    /**
+     * Called after every write (save, update or delete) executed by this DAO. Writes executed in a transaction are
+     * only notified once the transaction is committed, once per DAO. By default nothing happens, DAO's for which
+     * other parts of the application should be notified of changes can override this method.
+     */
+    protected void onDataChanged() {}
+
+    /**
+     * Specifies if writes executed by this DAO mark the database as changed since the last backup. By default all
+     * writes do, DAO's for data that is not worth a new backup can override this method.
+     * @return True if writes of this DAO should trigger a new backup.
+     */
+    protected boolean isTrackedForBackup() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R> R callInTransaction(Callable<R> callable) {
+        TransactionState state = transaction.get();
+        boolean outermost = state == null;
+        if (outermost) {
+            state = new TransactionState();
+            transaction.set(state);
+        }
+
+        R result = null;
+        boolean committed = false;
+        try {
+            result = TransactionManager.callInTransaction(getDatabaseHelper().getConnectionSource(), callable);
+            committed = true;
+        } catch (SQLException e) {
+            throwFatalException(e);
+        } finally {
+            if (outermost) {
+                transaction.remove();
+                if (committed) {
+                    for (GenericDaoImpl<?, ?> changedDao : state.changedDaos) {
+                        changedDao.onDataChanged();
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The DAO's that wrote in the transaction of the current thread.
+     */
+    private static class TransactionState {
+        private final Set<GenericDaoImpl<?, ?>> changedDaos = new LinkedHashSet<GenericDaoImpl<?, ?>>();
     }
 }
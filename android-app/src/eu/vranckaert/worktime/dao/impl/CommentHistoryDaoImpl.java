@@ -18,7 +18,9 @@ package eu.vranckaert.worktime.dao.impl;
 
 import android.content.Context;
 import com.google.inject.Inject;
+import com.j256.ormlite.stmt.QueryBuilder;
 import eu.vranckaert.worktime.dao.CommentHistoryDao;
+import eu.vranckaert.worktime.dao.cache.CommentHistoryIndex;
 import eu.vranckaert.worktime.dao.generic.GenericDaoImpl;
 import eu.vranckaert.worktime.model.CommentHistory;
 import eu.vranckaert.worktime.utils.context.Log;
@@ -67,6 +69,8 @@ public class CommentHistoryDaoImpl extends GenericDaoImpl<CommentHistory, Intege
             }
             if (ids.size() > 0) {
                 dao.deleteIds(ids);
+                dataChanged();
+                CommentHistoryIndex.getInstance().invalidate();
             }
         } catch (SQLException e) {
             Log.d(getContext(), LOG_TAG, "Could not start the query... Returning false");
@@ -74,4 +78,63 @@ public class CommentHistoryDaoImpl extends GenericDaoImpl<CommentHistory, Intege
         }
         Log.d(getContext(), LOG_TAG, "All comments are deleted!");
     }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    public CommentHistory findByComment(String comment) {
+        QueryBuilder<CommentHistory, Integer> qb = dao.queryBuilder();
+        try {
+            qb.where().eq("comment", comment);
+            return dao.queryForFirst(qb.prepare());
+        } catch (SQLException e) {
+            Log.e(getContext(), LOG_TAG, "Could not start the query... Returning null.", e);
+            return null;
+        }
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    public List<CommentHistory> findMostRecentlyUsed(int max) {
+        QueryBuilder<CommentHistory, Integer> qb = dao.queryBuilder();
+        try {
+            qb.orderBy("lastUsed", false);
+            qb.orderBy("id", false);
+            qb.limit(Long.valueOf(max));
+            return dao.query(qb.prepare());
+        } catch (SQLException e) {
+            Log.e(getContext(), LOG_TAG, "Could not start the query... Returning an empty list.", e);
+            return new ArrayList<CommentHistory>();
+        }
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    public List<CommentHistory> deleteLeastRecentlyUsed(int keep) {
+        List<CommentHistory> evicted = new ArrayList<CommentHistory>();
+        try {
+            long excess = dao.countOf() - Math.max(keep, 0);
+            if (excess <= 0) {
+                return evicted;
+            }
+
+            // The last used time is indexed, so only the rows to delete are read
+            QueryBuilder<CommentHistory, Integer> qb = dao.queryBuilder();
+            qb.orderBy("lastUsed", true);
+            qb.orderBy("id", true);
+            qb.limit(excess);
+            evicted = dao.query(qb.prepare());
+            dao.delete(evicted);
+            dataChanged();
+        } catch (SQLException e) {
+            throwFatalException(e);
+        }
+        Log.d(getContext(), LOG_TAG, evicted.size() + " least recently used comment(s) removed from the history");
+        return evicted;
+    }
 }
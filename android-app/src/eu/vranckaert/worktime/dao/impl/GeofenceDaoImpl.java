@@ -98,6 +98,25 @@ public class GeofenceDaoImpl extends GenericDaoImpl<GeofenceTrigger, Integer> im
         return null;
     }
 
+    @Override
+    public List<GeofenceTrigger> findGeofenceTriggersByGeofenceRequestIds(List<String> requestIds) {
+        if (requestIds.isEmpty()) {
+            return new ArrayList<GeofenceTrigger>();
+        }
+
+        QueryBuilder<GeofenceTrigger,Integer> qb = dao.queryBuilder();
+        try {
+            qb.where().in("geofenceRequestId", requestIds);
+            PreparedQuery<GeofenceTrigger> pq = qb.prepare();
+            return dao.query(pq);
+        } catch (SQLException e) {
+            Log.e(getContext(), LOG_TAG, "Could not start the query...");
+            throwFatalException(e);
+        }
+
+        return null;
+    }
+
     @Override
     public List<GeofenceTrigger> findGeoFencesForTask(Task task) {
         QueryBuilder<GeofenceTrigger,Integer> qb = dao.queryBuilder();
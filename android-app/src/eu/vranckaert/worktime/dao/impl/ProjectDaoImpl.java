@@ -21,15 +21,20 @@ import com.google.inject.Inject;
 import com.j256.ormlite.stmt.*;
 import eu.vranckaert.worktime.dao.ProjectDao;
 import eu.vranckaert.worktime.dao.SyncRemovalCacheDao;
+import eu.vranckaert.worktime.dao.cache.ProjectTaskRepository;
 import eu.vranckaert.worktime.dao.generic.GenericDaoImpl;
 import eu.vranckaert.worktime.exceptions.CorruptProjectDataException;
 import eu.vranckaert.worktime.model.Project;
 import eu.vranckaert.worktime.model.SyncRemovalCache;
+import eu.vranckaert.worktime.service.ui.refresh.UiRefreshBus;
 import eu.vranckaert.worktime.utils.context.Log;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 
 public class ProjectDaoImpl extends GenericDaoImpl<Project, Integer> implements ProjectDao {
@@ -43,6 +48,48 @@ public class ProjectDaoImpl extends GenericDaoImpl<Project, Integer> implements
         this.syncRemovalCache = syncRemovalCache;
     }
 
+    /**
+     * Get the in-memory repository of projects and tasks, loading it if needed.
+     * @return The {@link ProjectTaskRepository}.
+     */
+    private ProjectTaskRepository getRepository() {
+        ProjectTaskRepository repository = ProjectTaskRepository.getInstance();
+        try {
+            repository.ensureLoaded(getDatabaseHelper());
+        } catch (SQLException e) {
+            throwFatalException(e);
+        }
+        return repository;
+    }
+
+    @Override
+    public Project findById(Integer id) {
+        return getRepository().findProject(id);
+    }
+
+    @Override
+    public boolean contains(Integer id) {
+        return getRepository().findProject(id) != null;
+    }
+
+    @Override
+    public List<Project> findAll() {
+        return getRepository().findAllProjects();
+    }
+
+    @Override
+    public Long count() {
+        return (long) getRepository().countProjects();
+    }
+
+    @Override
+    public int refresh(Project entity) {
+        if (getRepository().refresh(entity)) {
+            return 1;
+        }
+        return super.refresh(entity);
+    }
+
     @Override
     public Project save(Project entity) {
         entity.setLastUpdated(new Date());
@@ -50,13 +97,17 @@ public class ProjectDaoImpl extends GenericDaoImpl<Project, Integer> implements
         if (defaultProject == null) {
             entity.setDefaultValue(true);
         }
-        return super.save(entity);
+        super.save(entity);
+        getRepository().putProject(entity);
+        return entity;
     }
 
     @Override
     public Project update(Project entity) {
         entity.setLastUpdated(new Date());
-        return super.update(entity);
+        super.update(entity);
+        getRepository().putProject(entity);
+        return entity;
     }
 
     @Override
@@ -68,20 +119,50 @@ public class ProjectDaoImpl extends GenericDaoImpl<Project, Integer> implements
             }
         }
         super.delete(entity);
+        getRepository().removeProject(entity.getId());
     }
 
     @Override
     public void deleteAll() {
-        List<Project> entities = findAll();
+        syncRemovalCache.saveRemovals(getSyncKeys(findAll()), Project.class.getSimpleName());
+        super.deleteAll();
+        ProjectTaskRepository.getInstance().invalidate();
+    }
+
+    @Override
+    public void deleteAll(Collection<Project> entities) {
+        syncRemovalCache.saveRemovals(getSyncKeys(entities), Project.class.getSimpleName());
+        super.deleteAll(entities);
+        ProjectTaskRepository repository = getRepository();
+        for (Project entity : entities) {
+            repository.removeProject(entity.getId());
+        }
+    }
+
+    @Override
+    public <R> R callInTransaction(Callable<R> callable) {
+        try {
+            return super.callInTransaction(callable);
+        } catch (RuntimeException e) {
+            // The transaction is rolled back, so the changes written through to the repository are no longer valid
+            ProjectTaskRepository.getInstance().invalidate();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void onDataChanged() {
+        UiRefreshBus.getInstance().publish(getContext());
+    }
+
+    private List<String> getSyncKeys(Collection<Project> entities) {
+        List<String> syncKeys = new ArrayList<String>();
         for (Project entity : entities) {
             if (entity.getSyncKey() != null) {
-                if (syncRemovalCache.findById(entity.getSyncKey()) == null) {
-                    SyncRemovalCache cache = new SyncRemovalCache(entity.getSyncKey(), entity.getClass().getSimpleName());
-                    syncRemovalCache.save(cache);
-                }
+                syncKeys.add(entity.getSyncKey());
             }
         }
-        super.deleteAll();
+        return syncKeys;
     }
 
     @Override
@@ -91,106 +172,66 @@ public class ProjectDaoImpl extends GenericDaoImpl<Project, Integer> implements
      * {@inheritDoc}
      */
     public boolean isNameAlreadyUsed(String projectName) {
-        List<Project> projects = null;
-        QueryBuilder<Project, Integer> qb = dao.queryBuilder();
-        try {
-            qb.where().eq("name", new SelectArg(projectName));
-            PreparedQuery<Project> pq = qb.prepare();
-            projects = dao.query(pq);
-        } catch (SQLException e) {
-            Log.d(getContext(), LOG_TAG, "Could not start the query... Returning false");
-            return false;
-        }
-
-        if(projects == null || projects.size() == 0) {
-            Log.d(getContext(), LOG_TAG, "The name is not yet used!");
-            return false;
+        for (Project project : getRepository().findAllProjects()) {
+            if (project.getName() != null && project.getName().equals(projectName)) {
+                Log.d(getContext(), LOG_TAG, "The name is already in use!");
+                return true;
+            }
         }
-        Log.d(getContext(), LOG_TAG, "The name is already in use!");
-        return true;
+        Log.d(getContext(), LOG_TAG, "The name is not yet used!");
+        return false;
     }
 
     public Project findDefaultProject() {
-        Project project = null;
-
-        QueryBuilder<Project, Integer> qb = dao.queryBuilder();
-        try {
-            qb.where().eq("defaultValue", true);
-            PreparedQuery<Project> pq = qb.prepare();
-            project = dao.queryForFirst(pq);
-        } catch (SQLException e) {
-            Log.e(getContext(), LOG_TAG, "Could not start the query... Returning null.", e);
-            return null;
+        for (Project project : getRepository().findAllProjects()) {
+            if (project.isDefaultValue()) {
+                return project;
+            }
         }
-
-        return project;
+        return null;
     }
 
     @Override
     public List<Project> findProjectsOnFinishedFlag(boolean finished) {
-        QueryBuilder<Project, Integer> qb = dao.queryBuilder();
-        try {
-            qb.where().eq("finished", finished);
-            PreparedQuery<Project> pq = qb.prepare();
-            return dao.query(pq);
-        } catch (SQLException e) {
-            Log.e(getContext(), LOG_TAG, "Could not start the query... Returning null.", e);
-            return null;
+        List<Project> projects = new ArrayList<Project>();
+        for (Project project : getRepository().findAllProjects()) {
+            if (project.isFinished() == finished) {
+                projects.add(project);
+            }
         }
+        return projects;
     }
 
     @Override
     public Project findByName(String name) {
-        List<Project> projects = null;
-
-        QueryBuilder<Project, Integer> qb = dao.queryBuilder();
-        try {
-            qb.where().eq("name", new SelectArg(name));
-            PreparedQuery<Project> pq = qb.prepare();
-            projects = dao.query(pq);
-        } catch (SQLException e) {
-            Log.e(getContext(), LOG_TAG, "Could not start the query... Returning null.", e);
-            return null;
-        }
-
-        if(projects == null || projects.size() == 0 || projects.size() > 1) {
-            if (projects == null || projects.size() == 0) {
-                return null;
-            } else {
-                String message = "The task data is corrupt. More than one task with the same name (" + name + ") is found in the database!";
-                Log.e(getContext(), LOG_TAG, message);
-                throw new CorruptProjectDataException(message);
+        Project result = null;
+        for (Project project : getRepository().findAllProjects()) {
+            if (project.getName() != null && project.getName().equals(name)) {
+                if (result != null) {
+                    String message = "The task data is corrupt. More than one task with the same name (" + name + ") is found in the database!";
+                    Log.e(getContext(), LOG_TAG, message);
+                    throw new CorruptProjectDataException(message);
+                }
+                result = project;
             }
-        } else {
-            return projects.get(0);
         }
+        return result;
     }
 
     @Override
     public Project findBySyncKey(String syncKey) {
-        List<Project> projects = null;
-
-        QueryBuilder<Project, Integer> qb = dao.queryBuilder();
-        try {
-            qb.where().eq("syncKey", syncKey);
-            PreparedQuery<Project> pq = qb.prepare();
-            projects = dao.query(pq);
-        } catch (SQLException e) {
-            Log.e(getContext(), LOG_TAG, "Could not start the query... Returning null.", e);
-            return null;
-        }
-
-        if(projects == null || projects.size() == 0 || projects.size() > 1) {
-            if (projects == null || projects.size() == 0) {
-                return null;
-            } else {
-                String message = "The task data is corrupt. More than one task with the same syncKey (" + syncKey + ") is found in the database!";
-                Log.e(getContext(), LOG_TAG, message);
-                throw new CorruptProjectDataException(message);
+        Project result = null;
+        for (Project project : getRepository().findAllProjects()) {
+            if (project.getSyncKey() != null && project.getSyncKey().equals(syncKey)) {
+                if (result != null) {
+                    String message = "The task data is corrupt. More than one task with the same syncKey (" + syncKey + ") is found in the database!";
+                    Log.e(getContext(), LOG_TAG, message);
+                    throw new CorruptProjectDataException(message);
+                }
+                result = project;
             }
-        } else {
-            return projects.get(0);
         }
+        return result;
     }
 
     @Override
@@ -217,6 +258,13 @@ public class ProjectDaoImpl extends GenericDaoImpl<Project, Integer> implements
             qb.where().in("name", projectNames);
             PreparedUpdate<Project> pu = qb.prepare();
             dao.update(pu);
+            dataChanged();
+
+            for (Project project : getRepository().findAllProjects()) {
+                if (projectNames.contains(project.getName())) {
+                    project.setLastUpdated(date);
+                }
+            }
         } catch (SQLException e) {
             Log.e(getContext(), LOG_TAG, "Could not start the query... Returning null.", e);
         }
@@ -18,9 +18,15 @@ package eu.vranckaert.worktime.dao.impl;
 
 import android.content.Context;
 import com.google.inject.Inject;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.QueryBuilder;
 import eu.vranckaert.worktime.dao.RecurrenceDao;
 import eu.vranckaert.worktime.dao.generic.GenericDaoImpl;
 import eu.vranckaert.worktime.model.trigger.RecurrenceTrigger;
+import eu.vranckaert.worktime.utils.context.Log;
+
+import java.sql.SQLException;
+import java.util.List;
 
 /**
  * User: DIRK VRANCKAERT
@@ -28,8 +34,25 @@ import eu.vranckaert.worktime.model.trigger.RecurrenceTrigger;
  * Time: 11:11
  */
 public class RecurrenceDaoImpl extends GenericDaoImpl<RecurrenceTrigger, Integer> implements RecurrenceDao {
+    private static final String LOG_TAG = RecurrenceDaoImpl.class.getSimpleName();
+
     @Inject
     public RecurrenceDaoImpl(final Context context) {
         super(RecurrenceTrigger.class, context);
     }
+
+    @Override
+    public List<RecurrenceTrigger> findAllActive() {
+        QueryBuilder<RecurrenceTrigger,Integer> qb = dao.queryBuilder();
+        try {
+            qb.where().eq("active", true);
+            PreparedQuery<RecurrenceTrigger> pq = qb.prepare();
+            return dao.query(pq);
+        } catch (SQLException e) {
+            Log.e(getContext(), LOG_TAG, "Could not start the query...");
+            throwFatalException(e);
+        }
+
+        return null;
+    }
 }
@@ -44,6 +44,15 @@ public class SyncHistoryDaoImpl extends GenericDaoImpl<SyncHistory, Integer> imp
         super(SyncHistory.class, context);
     }
 
+    /**
+     * The sync history is written during every synchronization (even before the backup that is taken before the
+     * synchronization) so it should not cause a new backup on it's own.
+     */
+    @Override
+    protected boolean isTrackedForBackup() {
+        return false;
+    }
+
     @Override
     public SyncHistory getOngoingSyncHistory() {
         List<SyncHistory> syncHistories;
@@ -22,9 +22,7 @@ import eu.vranckaert.worktime.dao.SyncRemovalCacheDao;
 import eu.vranckaert.worktime.dao.generic.GenericDaoImpl;
 import eu.vranckaert.worktime.model.SyncRemovalCache;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * User: Dirk Vranckaert
@@ -48,4 +46,19 @@ public class SyncRemovalCacheDaoImpl extends GenericDaoImpl<SyncRemovalCache, St
 
         return removalMap;
     }
+
+    @Override
+    public void saveRemovals(Collection<String> syncKeys, String entityName) {
+        if (syncKeys == null || syncKeys.isEmpty())
+            return;
+
+        Set<String> knownSyncKeys = new HashSet<String>(findAllSyncKeys().keySet());
+        List<SyncRemovalCache> removals = new ArrayList<SyncRemovalCache>();
+        for (String syncKey : syncKeys) {
+            if (syncKey != null && knownSyncKeys.add(syncKey)) {
+                removals.add(new SyncRemovalCache(syncKey, entityName));
+            }
+        }
+        saveAll(removals);
+    }
 }
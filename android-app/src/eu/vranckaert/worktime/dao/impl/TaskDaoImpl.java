@@ -18,23 +18,26 @@ package eu.vranckaert.worktime.dao.impl;
 
 import android.content.Context;
 import com.google.inject.Inject;
-import com.j256.ormlite.dao.GenericRawResults;
 import com.j256.ormlite.stmt.PreparedQuery;
 import com.j256.ormlite.stmt.QueryBuilder;
-import com.j256.ormlite.stmt.SelectArg;
 import com.j256.ormlite.stmt.Where;
 import eu.vranckaert.worktime.dao.SyncRemovalCacheDao;
 import eu.vranckaert.worktime.dao.TaskDao;
+import eu.vranckaert.worktime.dao.cache.ProjectTaskRepository;
 import eu.vranckaert.worktime.dao.generic.GenericDaoImpl;
 import eu.vranckaert.worktime.exceptions.CorruptTaskDataException;
 import eu.vranckaert.worktime.model.Project;
 import eu.vranckaert.worktime.model.SyncRemovalCache;
 import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.service.ui.refresh.UiRefreshBus;
 import eu.vranckaert.worktime.utils.context.Log;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 public class TaskDaoImpl extends GenericDaoImpl<Task, Integer> implements TaskDao {
     private static final String LOG_TAG = TaskDaoImpl.class.getSimpleName();
@@ -47,16 +50,62 @@ public class TaskDaoImpl extends GenericDaoImpl<Task, Integer> implements TaskDa
         this.syncRemovalCache = syncRemovalCache;
     }
 
+    /**
+     * Get the in-memory repository of projects and tasks, loading it if needed.
+     * @return The {@link ProjectTaskRepository}.
+     */
+    private ProjectTaskRepository getRepository() {
+        ProjectTaskRepository repository = ProjectTaskRepository.getInstance();
+        try {
+            repository.ensureLoaded(getDatabaseHelper());
+        } catch (SQLException e) {
+            throwFatalException(e);
+        }
+        return repository;
+    }
+
+    @Override
+    public Task findById(Integer id) {
+        return getRepository().findTask(id);
+    }
+
+    @Override
+    public boolean contains(Integer id) {
+        return getRepository().findTask(id) != null;
+    }
+
+    @Override
+    public List<Task> findAll() {
+        return getRepository().findAllTasks();
+    }
+
+    @Override
+    public Long count() {
+        return (long) getRepository().countTasks();
+    }
+
+    @Override
+    public int refresh(Task entity) {
+        if (getRepository().refresh(entity)) {
+            return 1;
+        }
+        return super.refresh(entity);
+    }
+
     @Override
     public Task save(Task entity) {
         entity.setLastUpdated(new Date());
-        return super.save(entity);
+        super.save(entity);
+        getRepository().putTask(entity);
+        return entity;
     }
 
     @Override
     public Task update(Task entity) {
         entity.setLastUpdated(new Date());
-        return super.update(entity);
+        super.update(entity);
+        getRepository().putTask(entity);
+        return entity;
     }
 
     @Override
@@ -68,56 +117,65 @@ public class TaskDaoImpl extends GenericDaoImpl<Task, Integer> implements TaskDa
             }
         }
         super.delete(entity);
+        getRepository().removeTask(entity.getId());
     }
 
     @Override
     public void deleteAll() {
-        List<Task> entities = findAll();
+        syncRemovalCache.saveRemovals(getSyncKeys(findAll()), Task.class.getSimpleName());
+        super.deleteAll();
+        ProjectTaskRepository.getInstance().invalidate();
+    }
+
+    @Override
+    public void deleteAll(Collection<Task> entities) {
+        syncRemovalCache.saveRemovals(getSyncKeys(entities), Task.class.getSimpleName());
+        super.deleteAll(entities);
+        ProjectTaskRepository repository = getRepository();
+        for (Task entity : entities) {
+            repository.removeTask(entity.getId());
+        }
+    }
+
+    @Override
+    public <R> R callInTransaction(Callable<R> callable) {
+        try {
+            return super.callInTransaction(callable);
+        } catch (RuntimeException e) {
+            // The transaction is rolled back, so the changes written through to the repository are no longer valid
+            ProjectTaskRepository.getInstance().invalidate();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void onDataChanged() {
+        UiRefreshBus.getInstance().publish(getContext());
+    }
+
+    private List<String> getSyncKeys(Collection<Task> entities) {
+        List<String> syncKeys = new ArrayList<String>();
         for (Task entity : entities) {
             if (entity.getSyncKey() != null) {
-                if (syncRemovalCache.findById(entity.getSyncKey()) == null) {
-                    SyncRemovalCache cache = new SyncRemovalCache(entity.getSyncKey(), entity.getClass().getSimpleName());
-                    syncRemovalCache.save(cache);
-                }
+                syncKeys.add(entity.getSyncKey());
             }
         }
-        super.deleteAll();
+        return syncKeys;
     }
 
     /**
      * {@inheritDoc}
      */
     public List<Task> findTasksForProject(Project project) {
-        QueryBuilder<Task, Integer> qb = dao.queryBuilder();
-        try {
-            qb.where().eq("projectId", project.getId());
-            PreparedQuery<Task> pq = qb.prepare();
-            return dao.query(pq);
-        } catch (SQLException e) {
-            Log.e(getContext(), LOG_TAG, "Could not start the query... Returning null.", e);
-            return null;
-        }
+        return getRepository().findTasksForProject(project.getId());
     }
 
     /**
      * {@inheritDoc}
      */
     public int countTasksForProject(Project project) {
-        int rowCount = 0;
-        List<String[]> results = null;
-        try {
-            GenericRawResults rawResults = dao.queryRaw("select count(*) from task where projectId = " + project.getId());
-            results = rawResults.getResults();
-        } catch (SQLException e) {
-            throwFatalException(e);
-        }
-
-        if (results != null && results.size() > 0) {
-            rowCount = Integer.parseInt(results.get(0)[0]);
-        }
-
+        int rowCount = getRepository().findTasksForProject(project.getId()).size();
         Log.d(getContext(), LOG_TAG, "Rowcount: " + rowCount);
-
         return rowCount;
     }
 
@@ -125,69 +183,45 @@ public class TaskDaoImpl extends GenericDaoImpl<Task, Integer> implements TaskDa
      * {@inheritDoc}
      */
     public List<Task> findNotFinishedTasksForProject(Project project) {
-        QueryBuilder<Task, Integer> qb = dao.queryBuilder();
-        try {
-            qb.where().eq("projectId", project.getId())
-                    .and().eq("finished", false);
-            PreparedQuery<Task> pq = qb.prepare();
-            return dao.query(pq);
-        } catch (SQLException e) {
-            Log.e(getContext(), LOG_TAG, "Could not start the query... Returning null.", e);
-            return null;
+        List<Task> tasks = new ArrayList<Task>();
+        for (Task task : getRepository().findTasksForProject(project.getId())) {
+            if (!task.isFinished()) {
+                tasks.add(task);
+            }
         }
+        return tasks;
     }
 
     @Override
     public Task findByName(String name, Project project) {
-        List<Task> tasks = null;
-        QueryBuilder<Task, Integer> qb = dao.queryBuilder();
-        try {
-            qb.where().eq("name", new SelectArg(name)).and().eq("projectId", project.getId());
-            PreparedQuery<Task> pq = qb.prepare();
-            tasks = dao.query(pq);
-        } catch (SQLException e) {
-            Log.e(getContext(), LOG_TAG, "Could not start the query... Returning null.", e);
-            return null;
-        }
-
-        if(tasks == null || tasks.size() == 0 || tasks.size() > 1) {
-            if (tasks == null || tasks.size() == 0) {
-                return null;
-            } else {
-                String message = "The task data is corrupt. More than one task with the same name (" + name + ") is found in the database for project '" + project.getName() + "'!";
-                Log.e(getContext(), LOG_TAG, message);
-                throw new CorruptTaskDataException(message);
+        Task result = null;
+        for (Task task : getRepository().findTasksForProject(project.getId())) {
+            if (task.getName() != null && task.getName().equals(name)) {
+                if (result != null) {
+                    String message = "The task data is corrupt. More than one task with the same name (" + name + ") is found in the database for project '" + project.getName() + "'!";
+                    Log.e(getContext(), LOG_TAG, message);
+                    throw new CorruptTaskDataException(message);
+                }
+                result = task;
             }
-        } else {
-            return tasks.get(0);
         }
+        return result;
     }
 
     @Override
     public Task findBySyncKey(String syncKey) {
-        List<Task> tasks = null;
-
-        QueryBuilder<Task, Integer> qb = dao.queryBuilder();
-        try {
-            qb.where().eq("syncKey", syncKey);
-            PreparedQuery<Task> pq = qb.prepare();
-            tasks = dao.query(pq);
-        } catch (SQLException e) {
-            Log.e(getContext(), LOG_TAG, "Could not start the query... Returning null.", e);
-            return null;
-        }
-
-        if(tasks == null || tasks.size() == 0 || tasks.size() > 1) {
-            if (tasks == null || tasks.size() == 0) {
-                return null;
-            } else {
-                String message = "The task data is corrupt. More than one task with the same sync key (" + syncKey + ") is found in the database!";
-                Log.e(getContext(), LOG_TAG, message);
-                throw new CorruptTaskDataException(message);
+        Task result = null;
+        for (Task task : getRepository().findAllTasks()) {
+            if (task.getSyncKey() != null && task.getSyncKey().equals(syncKey)) {
+                if (result != null) {
+                    String message = "The task data is corrupt. More than one task with the same sync key (" + syncKey + ") is found in the database!";
+                    Log.e(getContext(), LOG_TAG, message);
+                    throw new CorruptTaskDataException(message);
+                }
+                result = task;
             }
-        } else {
-            return tasks.get(0);
         }
+        return result;
     }
 
     @Override
@@ -19,15 +19,16 @@ package eu.vranckaert.worktime.dao.impl;
 import android.content.Context;
 import com.google.inject.Inject;
 import com.j256.ormlite.stmt.*;
-import eu.vranckaert.worktime.comparators.timeregistration.TimeRegistrationDescendingByStartdate;
 import eu.vranckaert.worktime.dao.SyncRemovalCacheDao;
 import eu.vranckaert.worktime.dao.TimeRegistrationDao;
+import eu.vranckaert.worktime.dao.cache.LatestTimeRegistrationCache;
 import eu.vranckaert.worktime.dao.generic.GenericDaoImpl;
 import eu.vranckaert.worktime.dao.utils.DatabaseHelper;
 import eu.vranckaert.worktime.exceptions.CorruptTimeRegistrationDataException;
 import eu.vranckaert.worktime.model.SyncRemovalCache;
 import eu.vranckaert.worktime.model.Task;
 import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.service.ui.refresh.UiRefreshBus;
 import eu.vranckaert.worktime.utils.context.Log;
 
 import java.sql.SQLException;
@@ -74,29 +75,75 @@ public class TimeRegistrationDaoImpl extends GenericDaoImpl<TimeRegistration, In
 
     @Override
     public void deleteAll() {
-        List<TimeRegistration> entities = findAll();
+        syncRemovalCache.saveRemovals(getSyncKeys(findAll()), TimeRegistration.class.getSimpleName());
+        super.deleteAll();
+    }
+
+    @Override
+    public void deleteAll(Collection<TimeRegistration> entities) {
+        syncRemovalCache.saveRemovals(getSyncKeys(entities), TimeRegistration.class.getSimpleName());
+        super.deleteAll(entities);
+    }
+
+    @Override
+    protected void onDataChanged() {
+        LatestTimeRegistrationCache.getInstance().invalidate();
+        UiRefreshBus.getInstance().publish(getContext());
+    }
+
+    private List<String> getSyncKeys(Collection<TimeRegistration> entities) {
+        List<String> syncKeys = new ArrayList<String>();
         for (TimeRegistration entity : entities) {
             if (entity.getSyncKey() != null) {
-                if (syncRemovalCache.findById(entity.getSyncKey()) == null) {
-                    SyncRemovalCache cache = new SyncRemovalCache(entity.getSyncKey(), entity.getClass().getSimpleName());
-                    syncRemovalCache.save(cache);
-                }
+                syncKeys.add(entity.getSyncKey());
             }
         }
-        super.deleteAll();
+        return syncKeys;
     }
 
     /**
      * {@inheritDoc}
      */
     public TimeRegistration getLatestTimeRegistration() {
-        List<TimeRegistration> timeRegistrations = findAll();
-        if(timeRegistrations.size() > 0) {
-            Collections.sort(timeRegistrations, new TimeRegistrationDescendingByStartdate());
-            return timeRegistrations.get(0);
-        } else {
-            return null;
+        LatestTimeRegistrationCache cache = LatestTimeRegistrationCache.getInstance();
+        synchronized (cache) {
+            if (cache.isLoaded()) {
+                Integer latestId = cache.getLatestId();
+                return latestId == null ? null : findById(latestId);
+            }
+        }
+
+        long generation = cache.getGeneration();
+        TimeRegistration latest = null;
+        QueryBuilder<TimeRegistration,Integer> qb = dao.queryBuilder();
+        try {
+            // The start time is indexed, so only the latest row is read instead of loading and sorting all of them
+            qb.orderBy("startTime", false);
+            qb.limit(1L);
+            latest = dao.queryForFirst(qb.prepare());
+        } catch (SQLException e) {
+            Log.e(getContext(), LOG_TAG, "Could not start the query...");
+            throwFatalException(e);
+        }
+
+        cache.load(generation, latest);
+        return latest;
+    }
+
+    @Override
+    public TimeRegistration findOngoingTimeRegistration() {
+        LatestTimeRegistrationCache cache = LatestTimeRegistrationCache.getInstance();
+        synchronized (cache) {
+            if (cache.isLoaded() && !cache.isOngoing()) {
+                return null;
+            }
         }
+
+        TimeRegistration latest = getLatestTimeRegistration();
+        if (latest != null && latest.isOngoingTimeRegistration()) {
+            return latest;
+        }
+        return null;
     }
 
     public List<TimeRegistration> findTimeRegistrationsForTask(Task task) {
@@ -296,6 +343,7 @@ public class TimeRegistrationDaoImpl extends GenericDaoImpl<TimeRegistration, In
         count = countBefore - countAfter;
 
         Log.d(getContext(), LOG_TAG, "number of deleted records: " + count);
+        dataChanged();
         return count;
     }
 
@@ -329,6 +377,29 @@ public class TimeRegistrationDaoImpl extends GenericDaoImpl<TimeRegistration, In
         return false;
     }
 
+    @Override
+    public List<TimeRegistration> findOverlapping(Date startTime, Date endTime) {
+        QueryBuilder<TimeRegistration,Integer> qb = dao.queryBuilder();
+        try {
+            qb.orderBy("startTime", true);
+
+            Where where = qb.where();
+            where.lt("startTime", endTime);
+            Where orClause = where.isNull("endTime").or().gt("endTime", startTime);
+            where.and(where, orClause);
+            qb.setWhere(where);
+
+            PreparedQuery<TimeRegistration> pq = qb.prepare();
+            Log.d(getContext(), LOG_TAG, pq.toString());
+            return dao.query(pq);
+        } catch (SQLException e) {
+            Log.e(getContext(), LOG_TAG, "Could not start the query...");
+            throwFatalException(e);
+        }
+
+        return null;
+    }
+
     @Override
     public TimeRegistration findByDates(Date startDate, Date endDate) {
         List<TimeRegistration> timeRegistrations = null;
@@ -23,6 +23,7 @@ import com.j256.ormlite.stmt.QueryBuilder;
 import eu.vranckaert.worktime.dao.WidgetConfigurationDao;
 import eu.vranckaert.worktime.dao.generic.GenericDaoImpl;
 import eu.vranckaert.worktime.model.WidgetConfiguration;
+import eu.vranckaert.worktime.service.ui.refresh.UiRefreshBus;
 import eu.vranckaert.worktime.utils.context.Log;
 
 import java.sql.SQLException;
@@ -37,6 +38,11 @@ public class WidgetConfigurationDaoImpl extends GenericDaoImpl<WidgetConfigurati
         super(WidgetConfiguration.class, context);
     }
 
+    @Override
+    protected void onDataChanged() {
+        UiRefreshBus.getInstance().publish(getContext());
+    }
+
     @Override
     public List<WidgetConfiguration> findPerProjectId(int projectId) {
         QueryBuilder<WidgetConfiguration, Integer> qb = dao.queryBuilder();
@@ -23,5 +23,5 @@ package eu.vranckaert.worktime.dao.utils;
  */
 public interface DaoConstants {
     public static final String DATABASE = "worktime.db";
-    public static final int VERSION = 35;
+    public static final int VERSION = 37;
 }
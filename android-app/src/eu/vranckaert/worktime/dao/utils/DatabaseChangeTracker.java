@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.dao.utils;
+
+import android.content.Context;
+import eu.vranckaert.worktime.utils.preferences.Preferences;
+
+/**
+ * Keeps track of whether the database has been changed since the last backup, so that a backup can be skipped if
+ * nothing changed. The DAO's mark the database as changed on every write. The flag is persisted in the preferences
+ * (so it survives a restart of the application) but is only written the first time the database changes after a
+ * backup, not on every single write.<br/>
+ * The flag is cleared when a backup starts, before the database is read, so a write made while the backup is
+ * written marks the database as changed again and is part of the next backup.
+ */
+public class DatabaseChangeTracker {
+    /**
+     * The last known value of the persisted flag, null if not known yet in this process.
+     */
+    private static volatile Boolean changed = null;
+
+    /**
+     * Marks the database as changed since the last backup.
+     * @param ctx The context.
+     */
+    public static void markChanged(Context ctx) {
+        if (!Boolean.TRUE.equals(changed)) {
+            synchronized (DatabaseChangeTracker.class) {
+                if (!Boolean.TRUE.equals(changed)) {
+                    Preferences.Backup.setDatabaseChangedSinceLastBackup(ctx, true);
+                    changed = Boolean.TRUE;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the database has been changed since the last backup.
+     * @param ctx The context.
+     * @return True if the database has changed or if no backup has been taken yet.
+     */
+    public static boolean isChanged(Context ctx) {
+        Boolean result = changed;
+        if (result == null) {
+            result = Preferences.Backup.isDatabaseChangedSinceLastBackup(ctx);
+            changed = result;
+        }
+        return result;
+    }
+
+    /**
+     * Starts a new backup of the database. From now on the database is considered to be backed up until the next
+     * change. Should be called before the database is read for the backup.
+     * @param ctx The context.
+     */
+    public static synchronized void startBackup(Context ctx) {
+        Preferences.Backup.setDatabaseChangedSinceLastBackup(ctx, false);
+        changed = Boolean.FALSE;
+    }
+
+    /**
+     * Registers the backup that has been written since {@link #startBackup(Context)}.
+     * @param ctx The context.
+     * @param backupFile The full path of the backup file.
+     */
+    public static void markBackedUp(Context ctx, String backupFile) {
+        Preferences.Backup.setLastBackupFile(ctx, backupFile);
+    }
+
+    /**
+     * Registers that the backup started with {@link #startBackup(Context)} could not be written, the database
+     * still needs to be backed up.
+     * @param ctx The context.
+     */
+    public static void backupFailed(Context ctx) {
+        markChanged(ctx);
+    }
+}
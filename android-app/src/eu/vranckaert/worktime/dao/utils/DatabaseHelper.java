@@ -132,6 +132,7 @@ public class DatabaseHelper<T, ID> extends OrmLiteSqliteOpenHelper {
         if (upgradeSqlCount > 0) {
             Log.d(LOG_TAG, "All upadate queries exected with success. Total number of upgrade queries executed: "
                     + upgradeSqlCount + " in " + upgradeSqlBlockCount + " blocks");
+            DatabaseChangeTracker.markChanged(context);
         } else {
             Log.d(LOG_TAG, "No database upgrade queries where necessary!");
         }
@@ -155,6 +155,17 @@ public enum DatabaseUpgrade {
     UPGRADE14(35, new String[] {
         "ALTER TABLE SyncHistory add column endedLocally " + DataTypes.VARCHAR + ";",
         "UPDATE SyncHistory SET endedLocally = ended;"
+    }),
+    UPGRADE15(36, new String[] {
+        "ALTER TABLE recurrence add column lastTriggered " + DataTypes.VARCHAR + ";",
+        "CREATE INDEX IF NOT EXISTS timeregistration_startTime_idx ON timeregistration (startTime);",
+        "CREATE INDEX IF NOT EXISTS timeregistration_endTime_idx ON timeregistration (endTime);"
+    }),
+    UPGRADE16(37, new String[] {
+        "ALTER TABLE commenthistory add column lastUsed " + DataTypes.VARCHAR + ";",
+        "UPDATE commenthistory SET lastUsed = entranceDate;",
+        "CREATE INDEX IF NOT EXISTS commenthistory_lastUsed_idx ON commenthistory (lastUsed);",
+        "CREATE INDEX IF NOT EXISTS commenthistory_comment_idx ON commenthistory (comment);"
     })
     ;
 
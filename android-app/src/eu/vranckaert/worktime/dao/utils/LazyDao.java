@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.dao.utils;
+
+import android.content.Context;
+import com.j256.ormlite.android.apptools.OpenHelperManager;
+import com.j256.ormlite.android.apptools.OrmLiteSqliteOpenHelper;
+import com.j256.ormlite.dao.Dao;
+import eu.vranckaert.worktime.utils.context.StartupTimings;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+
+/**
+ * An ORMLite {@link Dao} that is only created when it's used for the first time. Creating an ORMLite DAO requires the
+ * database helper and inspects the annotations of the entity class, which is a waste of time for all DAO's that are
+ * injected in an activity, widget or broadcast receiver but are not used while handling a single click. The time it
+ * takes to create the ORMLite DAO's is recorded in the {@link StartupTimings}.
+ */
+public class LazyDao implements InvocationHandler {
+    private final Context context;
+    private final Class<?> entityClass;
+    private volatile Dao<?, ?> dao;
+
+    private LazyDao(Context context, Class<?> entityClass) {
+        this.context = context;
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * Creates a DAO for an entity class that is only created when it's used for the first time.
+     * @param context The context.
+     * @param entityClass The entity class.
+     * @param <T> The entity type.
+     * @param <ID> The id type.
+     * @return The lazy DAO.
+     */
+    public static <T, ID> Dao<T, ID> create(Context context, Class<T> entityClass) {
+        return (Dao<T, ID>) Proxy.newProxyInstance(Dao.class.getClassLoader(), new Class[] {Dao.class}, new LazyDao(context, entityClass));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if ("getDataClass".equals(method.getName())) {
+            // Known without creating the DAO
+            return entityClass;
+        }
+
+        try {
+            return method.invoke(getDao(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Dao<?, ?> getDao() {
+        Dao<?, ?> result = dao;
+        if (result == null) {
+            synchronized (this) {
+                result = dao;
+                if (result == null) {
+                    long start = System.nanoTime();
+                    OrmLiteSqliteOpenHelper helper = OpenHelperManager.getHelper(context, DatabaseHelper.class);
+                    try {
+                        result = helper.getDao((Class<Object>) entityClass);
+                    } catch (SQLException e) {
+                        throw new RuntimeException("Could not instantiate a DAO for class " + entityClass.getName(), e);
+                    }
+                    dao = result;
+                    StartupTimings.record(StartupTimings.Phase.DAO_CREATION, System.nanoTime() - start);
+                }
+            }
+        }
+        return result;
+    }
+}
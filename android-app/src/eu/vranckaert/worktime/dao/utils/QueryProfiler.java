@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.dao.utils;
+
+import android.content.Context;
+import android.os.Looper;
+import com.j256.ormlite.dao.Dao;
+import eu.vranckaert.worktime.utils.context.ContextUtils;
+import eu.vranckaert.worktime.utils.context.Log;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+
+/**
+ * Wraps an ORMLite {@link Dao} so that every query executed through it is recorded in the {@link QueryStatistics}.
+ * The call site of a query is the DAO method that executes it combined with the first method outside of the DAO
+ * layer that called that DAO method (for example <i>TimeRegistration.findAll &lt;- TimeRegistrationServiceImpl.findAll</i>).
+ * Queries that are executed on the main thread are flagged and the first one of every call site is logged as a
+ * warning.<br/>
+ * Looking up the call site is not cheap so the DAO's are only profiled for non-stable builds.
+ */
+public class QueryProfiler implements InvocationHandler {
+    private static final String LOG_TAG = QueryProfiler.class.getSimpleName();
+
+    private static final String APPLICATION_PACKAGE = "eu.vranckaert.worktime.";
+    private static final String DAO_PACKAGE = APPLICATION_PACKAGE + "dao.";
+    private static final String DAO_UTILS_PACKAGE = DAO_PACKAGE + "utils.";
+
+    private final Context context;
+    private final Dao<?, ?> dao;
+    private final String entityName;
+
+    private QueryProfiler(Context context, Dao<?, ?> dao) {
+        this.context = context;
+        this.dao = dao;
+        this.entityName = dao.getDataClass().getSimpleName();
+    }
+
+    /**
+     * Wraps the DAO in a profiling DAO if profiling is enabled for this build.
+     * @param context The context.
+     * @param dao The ORMLite DAO to wrap.
+     * @param <T> The entity type.
+     * @param <ID> The id type.
+     * @return The profiling DAO or the DAO itself if profiling is not enabled.
+     */
+    public static <T, ID> Dao<T, ID> wrap(Context context, Dao<T, ID> dao) {
+        if (!isEnabled(context)) {
+            return dao;
+        }
+        return (Dao<T, ID>) Proxy.newProxyInstance(Dao.class.getClassLoader(), new Class[] {Dao.class}, new QueryProfiler(context, dao));
+    }
+
+    public static boolean isEnabled(Context context) {
+        return !ContextUtils.isStableBuild(context);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (!isQuery(method.getName())) {
+            return invokeDao(method, args);
+        }
+
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = invokeDao(method, args);
+            return result;
+        } finally {
+            long latency = System.nanoTime() - start;
+            boolean onMainThread = Looper.myLooper() == Looper.getMainLooper();
+            String callSite = findCallSite(method.getName());
+            boolean firstOnMainThread = QueryStatistics.queryExecuted(callSite, countRows(result), latency, onMainThread);
+            if (firstOnMainThread) {
+                Log.w(context, LOG_TAG, "Database access on the main thread: " + callSite, new Throwable());
+            }
+        }
+    }
+
+    private Object invokeDao(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(dao, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Checks if a method of the {@link Dao} interface hits the database. The builder methods only create a builder, the
+     * query that is prepared with the builder is executed through one of the other methods.
+     * @param methodName The name of the method.
+     * @return True if the method executes a query.
+     */
+    private boolean isQuery(String methodName) {
+        if (methodName.endsWith("Builder")) {
+            return false;
+        }
+        return methodName.startsWith("query") || methodName.startsWith("create") || methodName.startsWith("update")
+                || methodName.startsWith("delete") || methodName.startsWith("execute") || methodName.equals("refresh")
+                || methodName.equals("countOf") || methodName.equals("idExists") || methodName.equals("isTableExists");
+    }
+
+    /**
+     * Determines the number of rows returned or affected by a query based on it's result.
+     * @param result The result of the query.
+     * @return The number of rows.
+     */
+    private int countRows(Object result) {
+        if (result == null) {
+            return 0;
+        } else if (result instanceof Collection) {
+            return ((Collection) result).size();
+        } else if (result instanceof Integer) {
+            return (Integer) result;
+        } else if (result instanceof Dao.CreateOrUpdateStatus) {
+            return ((Dao.CreateOrUpdateStatus) result).getNumLinesChanged();
+        } else if (result instanceof Boolean || result instanceof Long) {
+            return 1;
+        } else if (result.getClass().getName().startsWith("com.j256.ormlite")) {
+            // Raw results and iterators, the number of rows is not known up front
+            return 0;
+        }
+        return 1;
+    }
+
+    /**
+     * Looks up the call site of a query in the stack trace of the current thread: the outermost DAO method that is
+     * executing the query and the first method outside of the DAO layer that called it.
+     * @param methodName The name of the {@link Dao} method executing the query.
+     * @return The call site.
+     */
+    private String findCallSite(String methodName) {
+        String daoMethod = methodName;
+        String caller = null;
+
+        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+        for (StackTraceElement element : stackTrace) {
+            String className = element.getClassName();
+            if (!className.startsWith(APPLICATION_PACKAGE) || className.startsWith(DAO_UTILS_PACKAGE)) {
+                continue;
+            }
+            if (className.startsWith(DAO_PACKAGE)) {
+                // Keep the outermost DAO method, DAO methods can call other methods of the same DAO
+                daoMethod = element.getMethodName();
+            } else {
+                caller = simpleName(className) + "." + element.getMethodName();
+                break;
+            }
+        }
+
+        String callSite = entityName + "." + daoMethod;
+        return caller == null ? callSite : callSite + " <- " + caller;
+    }
+
+    private String simpleName(String className) {
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        int innerClassIndex = simpleName.indexOf('$');
+        if (innerClassIndex > 0) {
+            // Anonymous classes (transaction callables for example) are attributed to their outer class
+            simpleName = simpleName.substring(0, innerClassIndex);
+        }
+        return simpleName;
+    }
+}
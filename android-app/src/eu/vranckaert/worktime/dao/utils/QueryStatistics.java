@@ -0,0 +1,187 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.dao.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of all database queries that are executed through the DAO's, grouped per call site. For every call site
+ * the number of queries, the number of rows returned (or affected), the latency and the number of queries that were
+ * executed on the main (UI) thread are recorded. The statistics are filled in by the {@link QueryProfiler}.
+ */
+public class QueryStatistics {
+    private static final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    /**
+     * Registers the execution of a query.
+     * @param callSite The call site of the query.
+     * @param rows The number of rows returned or affected by the query.
+     * @param latency The time in nanoseconds it took to execute the query.
+     * @param onMainThread If the query was executed on the main thread.
+     * @return True if this is the first query of this call site that is executed on the main thread.
+     */
+    public static synchronized boolean queryExecuted(String callSite, int rows, long latency, boolean onMainThread) {
+        Entry entry = entries.get(callSite);
+        if (entry == null) {
+            entry = new Entry(callSite);
+            entries.put(callSite, entry);
+        }
+
+        entry.queries++;
+        entry.rows += rows;
+        entry.totalLatency += latency;
+        if (latency > entry.maxLatency) {
+            entry.maxLatency = latency;
+        }
+        if (onMainThread) {
+            entry.mainThreadQueries++;
+            return entry.mainThreadQueries == 1L;
+        }
+        return false;
+    }
+
+    /**
+     * Get a copy of the statistics of all call sites, the call sites with the highest total latency first.
+     * @return The statistics per call site.
+     */
+    public static synchronized List<Entry> getEntries() {
+        List<Entry> result = new ArrayList<Entry>();
+        for (Entry entry : entries.values()) {
+            result.add(entry.copy());
+        }
+        Collections.sort(result, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry entry1, Entry entry2) {
+                return Long.valueOf(entry2.totalLatency).compareTo(entry1.totalLatency);
+            }
+        });
+        return result;
+    }
+
+    public static synchronized long getQueries() {
+        long queries = 0L;
+        for (Entry entry : entries.values()) {
+            queries += entry.queries;
+        }
+        return queries;
+    }
+
+    public static synchronized long getMainThreadQueries() {
+        long queries = 0L;
+        for (Entry entry : entries.values()) {
+            queries += entry.mainThreadQueries;
+        }
+        return queries;
+    }
+
+    /**
+     * Resets all counters.
+     */
+    public static synchronized void reset() {
+        entries.clear();
+    }
+
+    /**
+     * Creates a summary of all counters (one line per call site), to be used for logging or to be displayed.
+     * @return The summary.
+     */
+    public static synchronized String dump() {
+        StringBuilder dump = new StringBuilder();
+        dump.append("queries=").append(getQueries())
+                .append(", mainThreadQueries=").append(getMainThreadQueries())
+                .append(", callSites=").append(entries.size());
+        for (Entry entry : getEntries()) {
+            dump.append('\n').append(entry.toString());
+        }
+        return dump.toString();
+    }
+
+    /**
+     * The statistics of one call site.
+     */
+    public static class Entry {
+        private final String callSite;
+        private long queries = 0L;
+        private long rows = 0L;
+        private long totalLatency = 0L;
+        private long maxLatency = 0L;
+        private long mainThreadQueries = 0L;
+
+        private Entry(String callSite) {
+            this.callSite = callSite;
+        }
+
+        public String getCallSite() {
+            return callSite;
+        }
+
+        public long getQueries() {
+            return queries;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * @return The total latency of all queries of this call site in nanoseconds.
+         */
+        public long getTotalLatency() {
+            return totalLatency;
+        }
+
+        /**
+         * @return The latency of the slowest query of this call site in nanoseconds.
+         */
+        public long getMaxLatency() {
+            return maxLatency;
+        }
+
+        public long getMainThreadQueries() {
+            return mainThreadQueries;
+        }
+
+        private Entry copy() {
+            Entry copy = new Entry(callSite);
+            copy.queries = queries;
+            copy.rows = rows;
+            copy.totalLatency = totalLatency;
+            copy.maxLatency = maxLatency;
+            copy.mainThreadQueries = mainThreadQueries;
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            return callSite
+                    + ": queries=" + queries
+                    + ", rows=" + rows
+                    + ", totalLatency=" + toMillis(totalLatency) + "ms"
+                    + ", maxLatency=" + toMillis(maxLatency) + "ms"
+                    + (mainThreadQueries > 0L ? ", mainThread=" + mainThreadQueries : "");
+        }
+
+        private static String toMillis(long nanos) {
+            return String.valueOf(nanos / 100000L / 10.0);
+        }
+    }
+}
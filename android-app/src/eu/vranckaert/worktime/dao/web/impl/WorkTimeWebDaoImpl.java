@@ -82,7 +82,7 @@ public class WorkTimeWebDaoImpl extends JsonWebServiceImpl implements WorkTimeWe
     }
 
     private void checkNetworkConnection() throws NoNetworkConnectionException {
-        if (!NetworkUtil.canSurf(context, ENDPOINT_TEST)) {
+        if (!NetworkUtil.canSurf(context, getClient(), ENDPOINT_TEST)) {
             Log.w(LOG_TAG, "Cannot reach endpoint (" + ENDPOINT_TEST + "), device seems to be offline!");
             throw new NoNetworkConnectionException();
         }
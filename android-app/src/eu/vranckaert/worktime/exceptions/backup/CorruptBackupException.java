@@ -0,0 +1,31 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.exceptions.backup;
+
+/**
+ * Thrown when a backup file is incomplete, corrupt or written in a format that is not supported. The backup is
+ * validated before anything is restored, so when this exception is thrown the database has not been touched.
+ */
+public class CorruptBackupException extends BackupException {
+    public CorruptBackupException(String message) {
+        super(message);
+    }
+
+    public CorruptBackupException(String message, Exception cause) {
+        super(message, cause);
+    }
+}
@@ -16,24 +16,71 @@
 
 package eu.vranckaert.worktime.guice;
 
+import com.google.inject.Stage;
 import eu.vranckaert.worktime.utils.context.ContextUtils;
+import eu.vranckaert.worktime.utils.context.StartupTimings;
+import eu.vranckaert.worktime.web.json.HttpClientFactory;
+import eu.vranckaert.worktime.web.json.HttpResponseCache;
 import org.acra.ACRA;
 import org.acra.annotation.ReportsCrashes;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.DefaultHttpClient;
+import roboguice.RoboGuice;
 
 @ReportsCrashes(formKey = "dEhWRHpBM1ZFenAxZ25lbFFGWndjdFE6MQ")
 public class Application extends android.app.Application {
+    private DefaultHttpClient httpClient;
+    private final HttpResponseCache httpResponseCache = new HttpResponseCache();
+
+    public Application() {
+        StartupTimings.processStarted();
+    }
+
     @Override
     public void onCreate() {
+        long start = System.nanoTime();
+
+        // In the production stage Guice creates all singletons as soon as the injector is created, in the development
+        // stage they are only created when they are needed for the first time
+        RoboGuice.DEFAULT_STAGE = Stage.DEVELOPMENT;
+
         // The following line triggers the initialization of ACRA
         if (ContextUtils.isStableBuild(this)) {
             ACRA.init(this);
         }
         super.onCreate();
+
+        StartupTimings.record(StartupTimings.Phase.APPLICATION_CREATE, System.nanoTime() - start);
+    }
+
+    @Override
+    public void onTerminate() {
+        synchronized (this) {
+            if (httpClient != null) {
+                httpClient.getConnectionManager().shutdown();
+                httpClient = null;
+            }
+        }
+        super.onTerminate();
+    }
+
+    /**
+     * Get the HTTP client that is shared over the entire application. The client is created the first time it's
+     * requested and keeps it's (pooled) connections alive for as long as the application lives.
+     * @return The shared {@link HttpClient}.
+     */
+    public synchronized HttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = HttpClientFactory.createPooledClient();
+        }
+        return httpClient;
     }
 
-    public HttpClient getHttpClient() {
-        return new DefaultHttpClient();
+    /**
+     * Get the cache of responses that can be revalidated with their ETag, shared over the entire application.
+     * @return The shared {@link HttpResponseCache}.
+     */
+    public HttpResponseCache getHttpResponseCache() {
+        return httpResponseCache;
     }
 }
@@ -18,6 +18,7 @@ package eu.vranckaert.worktime.guice;
 
 import android.content.Context;
 import com.google.inject.AbstractModule;
+import com.google.inject.Singleton;
 import eu.vranckaert.worktime.dao.*;
 import eu.vranckaert.worktime.dao.impl.*;
 import eu.vranckaert.worktime.dao.web.WorkTimeWebDao;
@@ -35,6 +36,11 @@ public class Module extends AbstractModule {
     public Module(Context ctx) {
     }
 
+    /**
+     * All DAO's and services are singletons that are only created when they are injected for the first time (the
+     * injector is created in {@link com.google.inject.Stage#DEVELOPMENT}, see {@link Application}), so a widget or broadcast receiver in a
+     * cold process only pays for what it uses.
+     */
     @Override
     protected void configure() {
         bindDaos();
@@ -43,35 +49,35 @@ public class Module extends AbstractModule {
     }
 
     private void bindDaos() {
-        bind(TimeRegistrationDao.class).to(TimeRegistrationDaoImpl.class).asEagerSingleton();
-        bind(ProjectDao.class).to(ProjectDaoImpl.class).asEagerSingleton();
-        bind(TaskDao.class).to(TaskDaoImpl.class).asEagerSingleton();
-        bind(CommentHistoryDao.class).to(CommentHistoryDaoImpl.class).asEagerSingleton();
-        bind(WidgetConfigurationDao.class).to(WidgetConfigurationDaoImpl.class).asEagerSingleton();
-        bind(AccountDao.class).to(AccountDaoImpl.class).asEagerSingleton();
-        bind(SyncHistoryDao.class).to(SyncHistoryDaoImpl.class).asEagerSingleton();
-        bind(SyncRemovalCacheDao.class).to(SyncRemovalCacheDaoImpl.class).asEagerSingleton();
-        bind(GeofenceDao.class).to(GeofenceDaoImpl.class).asEagerSingleton();
-        bind(RecurrenceDao.class).to(RecurrenceDaoImpl.class).asEagerSingleton();
+        bind(TimeRegistrationDao.class).to(TimeRegistrationDaoImpl.class).in(Singleton.class);
+        bind(ProjectDao.class).to(ProjectDaoImpl.class).in(Singleton.class);
+        bind(TaskDao.class).to(TaskDaoImpl.class).in(Singleton.class);
+        bind(CommentHistoryDao.class).to(CommentHistoryDaoImpl.class).in(Singleton.class);
+        bind(WidgetConfigurationDao.class).to(WidgetConfigurationDaoImpl.class).in(Singleton.class);
+        bind(AccountDao.class).to(AccountDaoImpl.class).in(Singleton.class);
+        bind(SyncHistoryDao.class).to(SyncHistoryDaoImpl.class).in(Singleton.class);
+        bind(SyncRemovalCacheDao.class).to(SyncRemovalCacheDaoImpl.class).in(Singleton.class);
+        bind(GeofenceDao.class).to(GeofenceDaoImpl.class).in(Singleton.class);
+        bind(RecurrenceDao.class).to(RecurrenceDaoImpl.class).in(Singleton.class);
     }
 
     private void bindWebDaos() {
-        bind(WorkTimeWebDao.class).to(WorkTimeWebDaoImpl.class).asEagerSingleton();
+        bind(WorkTimeWebDao.class).to(WorkTimeWebDaoImpl.class).in(Singleton.class);
     }
 
     private void bindServices() {
-        bind(ProjectService.class).to(ProjectServiceImpl.class).asEagerSingleton();
-        bind(TimeRegistrationService.class).to(TimeRegistrationServiceImpl.class).asEagerSingleton();
-        bind(TaskService.class).to(TaskServiceImpl.class).asEagerSingleton();
-        bind(CommentHistoryService.class).to(CommentHistoryServiceImpl.class).asEagerSingleton();
-        bind(BackupService.class).to(DatabaseFileBackupServiceImpl.class).asEagerSingleton();
-        bind(ExportService.class).to(ExportServiceImpl.class).asEagerSingleton();
-        bind(AccountService.class).to(AccountServiceImpl.class).asEagerSingleton();
-        bind(GeofenceService.class).to(GeofenceServiceImpl.class).asEagerSingleton();
-        bind(RecurrenceService.class).to(RecurrenceServiceImpl.class).asEagerSingleton();
-        bind(GCMService.class).to(GCMServiceImpl.class).asEagerSingleton();
+        bind(ProjectService.class).to(ProjectServiceImpl.class).in(Singleton.class);
+        bind(TimeRegistrationService.class).to(TimeRegistrationServiceImpl.class).in(Singleton.class);
+        bind(TaskService.class).to(TaskServiceImpl.class).in(Singleton.class);
+        bind(CommentHistoryService.class).to(CommentHistoryServiceImpl.class).in(Singleton.class);
+        bind(BackupService.class).to(DatabaseFileBackupServiceImpl.class).in(Singleton.class);
+        bind(ExportService.class).to(ExportServiceImpl.class).in(Singleton.class);
+        bind(AccountService.class).to(AccountServiceImpl.class).in(Singleton.class);
+        bind(GeofenceService.class).to(GeofenceServiceImpl.class).in(Singleton.class);
+        bind(RecurrenceService.class).to(RecurrenceServiceImpl.class).in(Singleton.class);
+        bind(GCMService.class).to(GCMServiceImpl.class).in(Singleton.class);
         //UI services
-        bind(WidgetService.class).to(WidgetServiceImpl.class).asEagerSingleton();
-        bind(StatusBarNotificationService.class).to(StatusBarNotificationServiceImpl.class).asEagerSingleton();
+        bind(WidgetService.class).to(WidgetServiceImpl.class).in(Singleton.class);
+        bind(StatusBarNotificationService.class).to(StatusBarNotificationServiceImpl.class).in(Singleton.class);
     }
 }
@@ -37,20 +37,26 @@ public class CommentHistory {
 
     /**
      * The construct for a comment. After setting the specified comment the current date will be set in the
-     * {@link CommentHistory#entranceDate} field.
+     * {@link CommentHistory#entranceDate} and {@link CommentHistory#lastUsed} fields.
      * @param comment The comment to set.
      */
     public CommentHistory(String comment) {
         this.comment = comment;
         this.entranceDate = new Date();
+        this.lastUsed = this.entranceDate;
     }
 
     @DatabaseField(generatedId = true)
     private Integer id;
-    @DatabaseField
+    @DatabaseField(indexName = "commenthistory_comment_idx")
     private String comment;
     @DatabaseField
     private Date entranceDate;
+    /**
+     * The last time the comment has been used, the least recently used comments are removed from the history first.
+     */
+    @DatabaseField(columnName = "lastUsed", indexName = "commenthistory_lastUsed_idx")
+    private Date lastUsed;
     @DatabaseField
     private String flags;
 
@@ -78,6 +84,14 @@ public class CommentHistory {
         this.entranceDate = entranceDate;
     }
 
+    public Date getLastUsed() {
+        return lastUsed;
+    }
+
+    public void setLastUsed(Date lastUsed) {
+        this.lastUsed = lastUsed;
+    }
+
     public String getFlags() {
         return flags;
     }
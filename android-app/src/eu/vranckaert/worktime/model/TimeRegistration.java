@@ -34,10 +34,10 @@ import java.util.Date;
 public class TimeRegistration implements Serializable {
     @DatabaseField(generatedId = true, columnName = "id")
     private Integer id;
-    @DatabaseField(columnName = "startTime", dataType = DataType.DATE_STRING)
+    @DatabaseField(columnName = "startTime", dataType = DataType.DATE_STRING, indexName = "timeregistration_startTime_idx")
     @Expose
     private Date startTime;
-    @DatabaseField(columnName = "endTime", dataType = DataType.DATE_STRING)
+    @DatabaseField(columnName = "endTime", dataType = DataType.DATE_STRING, indexName = "timeregistration_endTime_idx")
     @Expose
     private Date endTime;
     @DatabaseField(columnName = "comment")
@@ -0,0 +1,525 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.model.dto.sync;
+
+import eu.vranckaert.worktime.dao.web.model.response.sync.EntitySyncResult;
+import eu.vranckaert.worktime.dao.web.model.response.sync.ProjectSyncResult;
+import eu.vranckaert.worktime.dao.web.model.response.sync.TaskSyncResult;
+import eu.vranckaert.worktime.dao.web.model.response.sync.TimeRegistrationSyncResult;
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+
+import java.util.*;
+
+/**
+ * The plan of all local database changes (inserts, updates and deletes) that result from a synchronization with the
+ * server. All local projects, tasks and time registrations are indexed once on sync key, (project name, task name) and
+ * start and end date so that the plan can be computed completely in memory. The plan is then applied to the database
+ * in one single transaction.<br/>
+ * The plan must be computed in the same order as the steps of the synchronization process: first
+ * {@link SyncApplyPlan#applySyncResult(EntitySyncResult)}, then
+ * {@link SyncApplyPlan#checkServerEntities(List, List, List)} and finally
+ * {@link SyncApplyPlan#removeEntities(Map)}.
+ */
+public class SyncApplyPlan {
+    private final Map<Integer, Project> projectsById = new HashMap<Integer, Project>();
+    private final Map<String, Project> projectsBySyncKey = new HashMap<String, Project>();
+    private final Map<String, Project> projectsByName = new HashMap<String, Project>();
+
+    private final Map<Integer, Task> tasksById = new HashMap<Integer, Task>();
+    private final Map<String, Task> tasksBySyncKey = new HashMap<String, Task>();
+    private final Map<Project, Map<String, Task>> tasksByProject = new IdentityHashMap<Project, Map<String, Task>>();
+
+    private final Map<String, TimeRegistration> timeRegistrationsBySyncKey = new HashMap<String, TimeRegistration>();
+    private final Map<String, TimeRegistration> timeRegistrationsByDates = new HashMap<String, TimeRegistration>();
+
+    private final Set<Project> projectsToSave = new LinkedHashSet<Project>();
+    private final Set<Project> projectsToUpdate = new LinkedHashSet<Project>();
+    private final Set<Project> projectsToDelete = new LinkedHashSet<Project>();
+
+    private final Set<Task> tasksToSave = new LinkedHashSet<Task>();
+    private final Set<Task> tasksToUpdate = new LinkedHashSet<Task>();
+    private final Set<Task> tasksToDelete = new LinkedHashSet<Task>();
+
+    private final Set<TimeRegistration> timeRegistrationsToSave = new LinkedHashSet<TimeRegistration>();
+    private final Set<TimeRegistration> timeRegistrationsToUpdate = new LinkedHashSet<TimeRegistration>();
+    private final Set<TimeRegistration> timeRegistrationsToDelete = new LinkedHashSet<TimeRegistration>();
+
+    /**
+     * Creates a new plan based on the entire local state of the database. The foreign project of every task and the
+     * foreign task of every time registration are replaced by the matching local instance so that the entire graph is
+     * identity-mapped.
+     * @param projects All local projects.
+     * @param tasks All local tasks.
+     * @param timeRegistrations All local time registrations.
+     */
+    public SyncApplyPlan(List<Project> projects, List<Task> tasks, List<TimeRegistration> timeRegistrations) {
+        for (Project project : projects) {
+            projectsById.put(project.getId(), project);
+            indexProject(project);
+        }
+        for (Task task : tasks) {
+            if (task.getProject() != null) {
+                task.setProject(projectsById.get(task.getProject().getId()));
+            }
+            tasksById.put(task.getId(), task);
+            indexTask(task);
+        }
+        for (TimeRegistration timeRegistration : timeRegistrations) {
+            if (timeRegistration.getTask() != null) {
+                timeRegistration.setTask(tasksById.get(timeRegistration.getTask().getId()));
+            }
+            indexTimeRegistration(timeRegistration);
+        }
+    }
+
+    /**
+     * Apply the sync result as it has been returned from the server. For each entity in the result the local entity
+     * is looked up based on the original entity (that has been sent to the server by us). Merged entities get the
+     * content of the synced entity, not accepted entities are removed (and for time registrations replaced by the
+     * list of synced time registrations) and for all other entities only the sync key is set if not set yet.
+     * @param entitySyncResult The synchronization result containing every single entity that has been sent to the
+     *                         server.
+     */
+    public void applySyncResult(EntitySyncResult entitySyncResult) {
+        for (ProjectSyncResult syncResult : entitySyncResult.getProjectSyncResults()) {
+            Project project = projectsByName.get(syncResult.getProject().getName());
+            if (project == null) {
+                continue;
+            }
+            switch (syncResult.getResolution()) {
+                case MERGED:
+                    updateProject(syncResult.getSyncedProject(), project);
+                    break;
+                case NOT_ACCEPTED:
+                    deleteProject(project);
+                    break;
+                default:
+                    if (project.getSyncKey() == null) {
+                        unindexProject(project);
+                        project.setSyncKey(syncResult.getSyncedProject().getSyncKey());
+                        indexProject(project);
+                        markProjectUpdated(project);
+                    }
+                    break;
+            }
+        }
+
+        for (TaskSyncResult syncResult : entitySyncResult.getTaskSyncResults()) {
+            Task localTask = syncResult.getTask();
+            Task task = findTaskByName(localTask.getProject().getName(), localTask.getName());
+            if (task == null) {
+                continue;
+            }
+            switch (syncResult.getResolution()) {
+                case MERGED:
+                    updateTask(syncResult.getSyncedTask(), task);
+                    break;
+                case NOT_ACCEPTED:
+                    deleteTask(task);
+                    break;
+                default:
+                    if (task.getSyncKey() == null) {
+                        unindexTask(task);
+                        task.setSyncKey(syncResult.getSyncedTask().getSyncKey());
+                        indexTask(task);
+                        markTaskUpdated(task);
+                    }
+                    break;
+            }
+        }
+
+        for (TimeRegistrationSyncResult syncResult : entitySyncResult.getTimeRegistrationSyncResults()) {
+            TimeRegistration localTimeRegistration = syncResult.getTimeRegistration();
+            TimeRegistration timeRegistration = timeRegistrationsByDates.get(
+                    getDatesKey(localTimeRegistration.getStartTime(), localTimeRegistration.getEndTime())
+            );
+            switch (syncResult.getResolution()) {
+                case MERGED:
+                    if (timeRegistration != null) {
+                        updateTimeRegistration(syncResult.getSyncedTimeRegistration(), timeRegistration);
+                    }
+                    break;
+                case NOT_ACCEPTED:
+                    if (timeRegistration != null) {
+                        deleteTimeRegistration(timeRegistration);
+                    }
+
+                    List<TimeRegistration> syncedTimeRegistrations = syncResult.getSyncedTimeRegistrations();
+                    if (syncedTimeRegistrations != null) {
+                        for (TimeRegistration incomingTimeRegistration : syncedTimeRegistrations) {
+                            TimeRegistration timeRegistrationWithSyncKey = timeRegistrationsBySyncKey.get(incomingTimeRegistration.getSyncKey());
+                            if (timeRegistrationWithSyncKey != null) {
+                                deleteTimeRegistration(timeRegistrationWithSyncKey);
+                            }
+                            Task incomingTask = incomingTimeRegistration.getTask();
+                            incomingTimeRegistration.setTask(findTaskByName(incomingTask.getProject().getName(), incomingTask.getName()));
+                            saveTimeRegistration(incomingTimeRegistration);
+                        }
+                    }
+                    break;
+                default:
+                    if (timeRegistration != null && timeRegistration.getSyncKey() == null) {
+                        unindexTimeRegistration(timeRegistration);
+                        timeRegistration.setSyncKey(syncResult.getSyncedTimeRegistration().getSyncKey());
+                        indexTimeRegistration(timeRegistration);
+                        markTimeRegistrationUpdated(timeRegistration);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Check the entities returned by the server and check if everything is already available locally or if any entity
+     * should be updated or persisted. Projects and tasks that are only referenced by incoming tasks or time
+     * registrations are added to the incoming lists.
+     * @param projects Projects coming from the server.
+     * @param tasks Tasks coming from the server.
+     * @param timeRegistrations Time registrations coming from the server.
+     */
+    public void checkServerEntities(List<Project> projects, List<Task> tasks, List<TimeRegistration> timeRegistrations) {
+        Set<String> incomingProjectNames = new HashSet<String>();
+        for (Project project : projects) {
+            incomingProjectNames.add(project.getName());
+        }
+        Set<String> incomingTaskKeys = new HashSet<String>();
+        for (Task task : tasks) {
+            incomingTaskKeys.add(getTaskKey(task.getProject().getName(), task.getName()));
+        }
+
+        for (Task task : tasks) {
+            if (incomingProjectNames.add(task.getProject().getName())) {
+                projects.add(task.getProject());
+            }
+        }
+        for (TimeRegistration timeRegistration : timeRegistrations) {
+            Task task = timeRegistration.getTask();
+            if (incomingTaskKeys.add(getTaskKey(task.getProject().getName(), task.getName()))) {
+                tasks.add(task);
+            }
+            if (incomingProjectNames.add(task.getProject().getName())) {
+                projects.add(task.getProject());
+            }
+        }
+
+        for (Project project : projects) {
+            Project localProject = projectsBySyncKey.get(project.getSyncKey());
+            if (localProject == null) {
+                localProject = projectsByName.get(project.getName());
+            }
+            if (localProject != null) {
+                updateProject(project, localProject);
+            } else {
+                saveProject(project);
+            }
+        }
+
+        for (Task task : tasks) {
+            Task localTask = tasksBySyncKey.get(task.getSyncKey());
+            if (localTask == null) {
+                localTask = findTaskByName(task.getProject().getName(), task.getName());
+            }
+            if (localTask != null) {
+                updateTask(task, localTask);
+            } else {
+                updateTask(task, task);
+                saveTask(task);
+            }
+        }
+
+        for (TimeRegistration timeRegistration : timeRegistrations) {
+            TimeRegistration localTimeRegistration = timeRegistrationsBySyncKey.get(timeRegistration.getSyncKey());
+            if (localTimeRegistration == null) {
+                localTimeRegistration = timeRegistrationsByDates.get(
+                        getDatesKey(timeRegistration.getStartTime(), timeRegistration.getEndTime())
+                );
+            }
+            if (localTimeRegistration != null) {
+                updateTimeRegistration(timeRegistration, localTimeRegistration);
+            } else {
+                updateTimeRegistration(timeRegistration, timeRegistration);
+                saveTimeRegistration(timeRegistration);
+            }
+        }
+    }
+
+    /**
+     * Removes all the entities of which the sync key is listed in the removal map of the server.
+     * @param syncRemovalMap The map of sync keys (key) and entity names (value) that have been removed on the server.
+     */
+    public void removeEntities(Map<String, String> syncRemovalMap) {
+        if (syncRemovalMap == null || syncRemovalMap.isEmpty())
+            return;
+
+        List<String> projectSyncKeys = new ArrayList<String>();
+        List<String> taskSyncKeys = new ArrayList<String>();
+        List<String> timeRegistrationSyncKeys = new ArrayList<String>();
+
+        for (Map.Entry<String, String> entry : syncRemovalMap.entrySet()) {
+            String entityName = entry.getValue();
+            if (Project.class.getSimpleName().equals(entityName)) {
+                projectSyncKeys.add(entry.getKey());
+            } else if (Task.class.getSimpleName().equals(entityName)) {
+                taskSyncKeys.add(entry.getKey());
+            } else if (TimeRegistration.class.getSimpleName().equals(entityName)) {
+                timeRegistrationSyncKeys.add(entry.getKey());
+            }
+        }
+
+        for (String syncKey : timeRegistrationSyncKeys) {
+            TimeRegistration entity = timeRegistrationsBySyncKey.get(syncKey);
+            if (entity != null)
+                deleteTimeRegistration(entity);
+        }
+        for (String syncKey : taskSyncKeys) {
+            Task entity = tasksBySyncKey.get(syncKey);
+            if (entity != null)
+                deleteTask(entity);
+        }
+        for (String syncKey : projectSyncKeys) {
+            Project entity = projectsBySyncKey.get(syncKey);
+            if (entity != null)
+                deleteProject(entity);
+        }
+    }
+
+    /**
+     * Copies the content of the source project into the destination project. The id is not overwritten!
+     */
+    private void updateProject(Project source, Project destination) {
+        unindexProject(destination);
+        destination.setName(source.getName());
+        destination.setComment(source.getComment());
+        destination.setDefaultValue(source.isDefaultValue());
+        destination.setFinished(source.isFinished());
+        destination.setFlags(source.getFlags());
+        destination.setOrder(source.getOrder());
+        destination.setLastUpdated(source.getLastUpdated());
+        destination.setSyncKey(source.getSyncKey());
+        indexProject(destination);
+        markProjectUpdated(destination);
+    }
+
+    /**
+     * Copies the content of the source task into the destination task. The id is not overwritten! The linked project
+     * is looked up based on the project of the source task.
+     */
+    private void updateTask(Task source, Task destination) {
+        Project project = projectsBySyncKey.get(source.getProject().getSyncKey());
+        if (project == null) {
+            project = projectsByName.get(source.getProject().getName());
+        }
+
+        unindexTask(destination);
+        destination.setName(source.getName());
+        destination.setComment(source.getComment());
+        destination.setFinished(source.isFinished());
+        destination.setFlags(source.getFlags());
+        destination.setOrder(source.getOrder());
+        destination.setLastUpdated(source.getLastUpdated());
+        destination.setSyncKey(source.getSyncKey());
+        destination.setProject(project);
+        indexTask(destination);
+        markTaskUpdated(destination);
+    }
+
+    /**
+     * Copies the content of the source time registration into the destination time registration. The id is not
+     * overwritten! The linked task is looked up based on the task of the source time registration.
+     */
+    private void updateTimeRegistration(TimeRegistration source, TimeRegistration destination) {
+        Task task = tasksBySyncKey.get(source.getTask().getSyncKey());
+        if (task == null) {
+            task = findTaskByName(source.getTask().getProject().getName(), source.getTask().getName());
+        }
+
+        unindexTimeRegistration(destination);
+        destination.setComment(source.getComment());
+        destination.setFlags(source.getFlags());
+        destination.setLastUpdated(source.getLastUpdated());
+        destination.setSyncKey(source.getSyncKey());
+        destination.setStartTime(source.getStartTime());
+        destination.setEndTime(source.getEndTime());
+        destination.setTask(task);
+        indexTimeRegistration(destination);
+        markTimeRegistrationUpdated(destination);
+    }
+
+    private void saveProject(Project project) {
+        indexProject(project);
+        projectsToSave.add(project);
+    }
+
+    private void saveTask(Task task) {
+        indexTask(task);
+        tasksToSave.add(task);
+    }
+
+    private void saveTimeRegistration(TimeRegistration timeRegistration) {
+        indexTimeRegistration(timeRegistration);
+        timeRegistrationsToSave.add(timeRegistration);
+    }
+
+    /**
+     * Only entities that already exist in the database have to be updated, new entities are stored with their latest
+     * content anyway.
+     */
+    private void markProjectUpdated(Project project) {
+        if (project.getId() != null)
+            projectsToUpdate.add(project);
+    }
+
+    private void markTaskUpdated(Task task) {
+        if (task.getId() != null)
+            tasksToUpdate.add(task);
+    }
+
+    private void markTimeRegistrationUpdated(TimeRegistration timeRegistration) {
+        if (timeRegistration.getId() != null)
+            timeRegistrationsToUpdate.add(timeRegistration);
+    }
+
+    private void deleteProject(Project project) {
+        unindexProject(project);
+        projectsToUpdate.remove(project);
+        if (!projectsToSave.remove(project))
+            projectsToDelete.add(project);
+    }
+
+    private void deleteTask(Task task) {
+        unindexTask(task);
+        tasksToUpdate.remove(task);
+        if (!tasksToSave.remove(task))
+            tasksToDelete.add(task);
+    }
+
+    private void deleteTimeRegistration(TimeRegistration timeRegistration) {
+        unindexTimeRegistration(timeRegistration);
+        timeRegistrationsToUpdate.remove(timeRegistration);
+        if (!timeRegistrationsToSave.remove(timeRegistration))
+            timeRegistrationsToDelete.add(timeRegistration);
+    }
+
+    private void indexProject(Project project) {
+        if (project.getSyncKey() != null)
+            projectsBySyncKey.put(project.getSyncKey(), project);
+        projectsByName.put(project.getName(), project);
+    }
+
+    private void unindexProject(Project project) {
+        removeIfMapped(projectsBySyncKey, project.getSyncKey(), project);
+        removeIfMapped(projectsByName, project.getName(), project);
+    }
+
+    private void indexTask(Task task) {
+        if (task.getSyncKey() != null)
+            tasksBySyncKey.put(task.getSyncKey(), task);
+        Map<String, Task> tasksForProject = tasksByProject.get(task.getProject());
+        if (tasksForProject == null) {
+            tasksForProject = new HashMap<String, Task>();
+            tasksByProject.put(task.getProject(), tasksForProject);
+        }
+        tasksForProject.put(task.getName(), task);
+    }
+
+    private void unindexTask(Task task) {
+        removeIfMapped(tasksBySyncKey, task.getSyncKey(), task);
+        Map<String, Task> tasksForProject = tasksByProject.get(task.getProject());
+        if (tasksForProject != null)
+            removeIfMapped(tasksForProject, task.getName(), task);
+    }
+
+    private void indexTimeRegistration(TimeRegistration timeRegistration) {
+        if (timeRegistration.getSyncKey() != null)
+            timeRegistrationsBySyncKey.put(timeRegistration.getSyncKey(), timeRegistration);
+        timeRegistrationsByDates.put(getDatesKey(timeRegistration.getStartTime(), timeRegistration.getEndTime()), timeRegistration);
+    }
+
+    private void unindexTimeRegistration(TimeRegistration timeRegistration) {
+        removeIfMapped(timeRegistrationsBySyncKey, timeRegistration.getSyncKey(), timeRegistration);
+        removeIfMapped(timeRegistrationsByDates, getDatesKey(timeRegistration.getStartTime(), timeRegistration.getEndTime()), timeRegistration);
+    }
+
+    private Task findTaskByName(String projectName, String taskName) {
+        Project project = projectsByName.get(projectName);
+        if (project == null)
+            return null;
+        Map<String, Task> tasksForProject = tasksByProject.get(project);
+        return tasksForProject == null ? null : tasksForProject.get(taskName);
+    }
+
+    private static <K, V> void removeIfMapped(Map<K, V> map, K key, V value) {
+        if (key != null && map.get(key) == value)
+            map.remove(key);
+    }
+
+    private static String getTaskKey(String projectName, String taskName) {
+        return projectName + '\u0000' + taskName;
+    }
+
+    private static String getDatesKey(Date startTime, Date endTime) {
+        return (startTime == null ? "NULL" : String.valueOf(startTime.getTime()))
+                + '/' + (endTime == null ? "NULL" : String.valueOf(endTime.getTime()));
+    }
+
+    public Set<Project> getProjectsToSave() {
+        return projectsToSave;
+    }
+
+    public Set<Project> getProjectsToUpdate() {
+        return projectsToUpdate;
+    }
+
+    public Set<Project> getProjectsToDelete() {
+        return projectsToDelete;
+    }
+
+    public Set<Task> getTasksToSave() {
+        return tasksToSave;
+    }
+
+    public Set<Task> getTasksToUpdate() {
+        return tasksToUpdate;
+    }
+
+    public Set<Task> getTasksToDelete() {
+        return tasksToDelete;
+    }
+
+    public Set<TimeRegistration> getTimeRegistrationsToSave() {
+        return timeRegistrationsToSave;
+    }
+
+    public Set<TimeRegistration> getTimeRegistrationsToUpdate() {
+        return timeRegistrationsToUpdate;
+    }
+
+    public Set<TimeRegistration> getTimeRegistrationsToDelete() {
+        return timeRegistrationsToDelete;
+    }
+
+    /**
+     * @return The total number of database operations in this plan.
+     */
+    public int size() {
+        return projectsToSave.size() + projectsToUpdate.size() + projectsToDelete.size()
+                + tasksToSave.size() + tasksToUpdate.size() + tasksToDelete.size()
+                + timeRegistrationsToSave.size() + timeRegistrationsToUpdate.size() + timeRegistrationsToDelete.size();
+    }
+}
@@ -67,6 +67,8 @@ public class RecurrenceTrigger implements Serializable {
 
     @DatabaseField(columnName = "timesTriggered")
     private int timesTriggered;
+    @DatabaseField(columnName = "lastTriggered", dataType = DataType.DATE_STRING, canBeNull = true)
+    private Date lastTriggered;
     @DatabaseField(columnName = "active", canBeNull = false, defaultValue = "1")
     private boolean active;
 
@@ -198,6 +200,14 @@ public class RecurrenceTrigger implements Serializable {
         this.timesTriggered = timesTriggered;
     }
 
+    public Date getLastTriggered() {
+        return lastTriggered;
+    }
+
+    public void setLastTriggered(Date lastTriggered) {
+        this.lastTriggered = lastTriggered;
+    }
+
     public boolean isActive() {
         return active;
     }
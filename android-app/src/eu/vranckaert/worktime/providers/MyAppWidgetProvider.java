@@ -23,6 +23,7 @@ import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
 import eu.vranckaert.worktime.service.ui.WidgetService;
 import eu.vranckaert.worktime.service.ui.impl.WidgetServiceImpl;
 import eu.vranckaert.worktime.utils.context.Log;
+import eu.vranckaert.worktime.utils.context.StartupTimings;
 
 public class MyAppWidgetProvider extends AppWidgetProvider {
     private static final String LOG_TAG = MyAppWidgetProvider.class.getName();
@@ -33,7 +34,9 @@ public class MyAppWidgetProvider extends AppWidgetProvider {
     @Override
     public void onReceive(Context context, Intent intent) {
         Log.d(context, LOG_TAG, "RECEIVE");
+        long start = System.nanoTime();
         super.onReceive(context, intent);
+        StartupTimings.record(StartupTimings.Phase.WIDGET_BROADCAST, System.nanoTime() - start);
     }
 
     @Override
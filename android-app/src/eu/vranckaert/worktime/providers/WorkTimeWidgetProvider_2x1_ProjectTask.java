@@ -21,8 +21,12 @@ import android.appwidget.AppWidgetProviderInfo;
 import android.content.Context;
 import eu.vranckaert.worktime.service.ui.impl.StatusBarNotificationServiceImpl;
 import eu.vranckaert.worktime.service.ui.impl.WidgetServiceImpl;
+import eu.vranckaert.worktime.service.ui.refresh.UiStateSnapshot;
 import eu.vranckaert.worktime.utils.context.Log;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * User: DIRK VRANCKAERT
  * Date: 07/02/11
@@ -39,14 +43,19 @@ public class WorkTimeWidgetProvider_2x1_ProjectTask extends MyAppWidgetProvider
         widgetService = new WidgetServiceImpl(context);
         statusBarNotificationService = new StatusBarNotificationServiceImpl(context);
 
+        List<Integer> widgetIds = new ArrayList<Integer>();
         for(int appWidgetId : appWidgetIds) {
             AppWidgetProviderInfo widgetProviderInfo = appWidgetManager.getAppWidgetInfo(appWidgetId);
             Log.d(context, LOG_TAG, "STARTING FOR WIDGET ID: " + appWidgetId);
             if (widgetProviderInfo != null && widgetProviderInfo.provider != null)
                 Log.d(context, LOG_TAG, "PROVIDER: " + widgetProviderInfo.provider.toString());
 
-            widgetService.updateWidget(appWidgetId);
-            statusBarNotificationService.addOrUpdateNotification(null);
+            widgetIds.add(appWidgetId);
         }
+
+        // Query the application state only once for all widgets to be updated
+        UiStateSnapshot snapshot = widgetService.createSnapshot(widgetIds);
+        widgetService.updateWidgets(snapshot);
+        statusBarNotificationService.updateNotification(snapshot);
     }
 }
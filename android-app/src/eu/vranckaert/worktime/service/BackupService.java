@@ -20,6 +20,7 @@ import android.content.Context;
 import eu.vranckaert.worktime.exceptions.SDCardUnavailableException;
 import eu.vranckaert.worktime.exceptions.backup.BackupFileCouldNotBeCreated;
 import eu.vranckaert.worktime.exceptions.backup.BackupFileCouldNotBeWritten;
+import eu.vranckaert.worktime.exceptions.backup.CorruptBackupException;
 
 import java.io.File;
 import java.util.List;
@@ -32,11 +33,16 @@ import java.util.List;
 public interface BackupService {
     static final String BASE_FILE_NAME = "worktimedb-";
     static final String FILE_EXTENSION = ".bak";
+    static final String COMPRESSED_FILE_EXTENSION = FILE_EXTENSION + ".gz";
+    static final String PORTABLE_FILE_EXTENSION = ".json.gz";
 
     /**
-     * Backup the entire database.
+     * Backup the entire database. The backup is written in a portable format (independent of the database schema),
+     * compressed and older backups are removed so only the most recent
+     * backups are kept. If the database has not changed since the last backup (and that backup still exists) no new
+     * backup is written.
      * @param ctx The context.
-     * @return The full path for the backup file.
+     * @return The full path for the backup file (the last backup file if no new backup was needed).
      * @throws SDCardUnavailableException When the SD-card is not available or not writable.
      * @throws BackupFileCouldNotBeCreated When the backup file could not be created.
      * @throws BackupFileCouldNotBeWritten When the content of the backup file could not written.
@@ -44,13 +50,16 @@ public interface BackupService {
     String backup(Context ctx) throws SDCardUnavailableException, BackupFileCouldNotBeCreated, BackupFileCouldNotBeWritten;
 
     /**
-     * Resotre the entire database.
+     * Resotre the entire database. Portable backups are validated before the database is changed, backups that are a
+     * copy of the database file (compressed or not) written by older versions can also be restored.
      * @param ctx The context.
      * @param backupFile the backup file to restore.
      * @return {@link Boolean#TRUE} if the restore was successful. Otherwise {@link Boolean#FALSE}.
      * @throws SDCardUnavailableException When the SD-card is not available or not writable.
+     * @throws BackupFileCouldNotBeWritten When the database could not be written or the backup file is corrupt.
+     * @throws CorruptBackupException When a portable backup is incomplete or corrupt, the database is not changed.
      */
-    boolean restore(Context ctx, File backupFile) throws SDCardUnavailableException, BackupFileCouldNotBeWritten;
+    boolean restore(Context ctx, File backupFile) throws SDCardUnavailableException, BackupFileCouldNotBeWritten, CorruptBackupException;
 
     /**
      * Find a list of all possible backup/restore files.
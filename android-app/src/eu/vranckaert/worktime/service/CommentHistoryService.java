@@ -16,6 +16,8 @@
 
 package eu.vranckaert.worktime.service;
 
+import java.util.List;
+
 /**
  * User: DIRK VRANCKAERT
  * Date: 26/04/11
@@ -24,13 +26,23 @@ package eu.vranckaert.worktime.service;
 public interface CommentHistoryService {
 
     /**
-     * Save a comment in the comment history.
+     * Save a comment in the comment history. If the comment is already in the history it's marked as the most recently
+     * used one. The least recently used comments are removed from the history if the history contains more comments
+     * than the maximum size of the history.
      * @param comment The comment to save.
      */
     void updateLastComment(String comment);
     /**
      * Find the last comment.
-     * @return
+     * @return The most recently used comment or null if the history is empty.
      */
     String findLastComment();
+
+    /**
+     * Find the comments in the history that start with a prefix, to suggest them while typing a comment.
+     * @param prefix The prefix (case insensitive).
+     * @param max The maximum number of comments to return.
+     * @return The comments, the most recently used first.
+     */
+    List<String> findCommentSuggestions(String prefix, int max);
 }
@@ -21,6 +21,7 @@ import eu.vranckaert.worktime.exceptions.worktime.trigger.geofence.DuplicateGeof
 import eu.vranckaert.worktime.model.Project;
 import eu.vranckaert.worktime.model.Task;
 import eu.vranckaert.worktime.model.trigger.GeofenceTrigger;
+import eu.vranckaert.worktime.utils.geofence.GeofenceTransition;
 
 import java.util.List;
 
@@ -66,16 +67,21 @@ public interface GeofenceService {
     GeofenceTrigger findGeofenceTriggerByGeofenceRequestId(String requestId);
 
     /**
-     * Executed when a {@link Geofence} has been triggered.
-     * @param geofence           The {@link Geofence} that has been triggered
-     * @param geofenceTrigger    The {@link GeofenceTrigger} that is stored in our db according to the {@link Geofence}.
-     * @param transition         The transition, can be {@link Geofence#GEOFENCE_TRANSITION_ENTER} or
-     *                           {@link Geofence#GEOFENCE_TRANSITION_EXIT}.
-     * @return Returns null if no action could be performed and when that's ok. Returns {@link Boolean#TRUE} if an action
-     * was taken successful, returns {@link Boolean#FALSE} if no action could be performed and another geofence (if any)
-     * can be tried.
+     * Executed when one or more {@link Geofence}s have been triggered. The transitions are not handled immediately but
+     * buffered until the bursts caused by GPS jitter are settled (see
+     * {@link eu.vranckaert.worktime.utils.geofence.GeofenceTransitionBuffer}), an alarm is scheduled to process them
+     * with {@link #processSettledTransitions()}.
+     * @param transitions The transitions of the {@link Geofence}s.
      */
-    Boolean geofenceTriggered(Geofence geofence, GeofenceTrigger geofenceTrigger, int transition);
+    void bufferTransitions(List<GeofenceTransition> transitions);
+
+    /**
+     * Processes all buffered transitions that are settled as one batch: starts or ends time registrations for the
+     * {@link GeofenceTrigger}s of the transitions and notifies the user if a transition could not be handled. If
+     * transitions remain in the buffer the alarm to process them is scheduled again.
+     * @return The number of (collapsed) transitions that have been processed.
+     */
+    int processSettledTransitions();
 
     /**
      * Do all necessary checks upon removing a {@link Task} for removing all corresponding {@link GeofenceTrigger}s.
@@ -16,8 +16,12 @@
 
 package eu.vranckaert.worktime.service;
 
+import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.model.trigger.RecurrenceTrigger;
 
+import java.util.Date;
+import java.util.List;
+
 /**
  * User: DIRK VRANCKAERT
  * Date: 30/05/13
@@ -30,4 +34,21 @@ public interface RecurrenceService {
      * @return The {@link RecurrenceTrigger} that has been saved.
      */
     RecurrenceTrigger save(RecurrenceTrigger trigger);
+
+    /**
+     * Creates the time registrations for all occurrences of all active {@link RecurrenceTrigger}s that have ended
+     * since they were last triggered, in one single transaction. The existing time registrations that could overlap
+     * are queried once for the whole batch, an occurrence that overlaps with a time registration is skipped (but does
+     * count as an occurrence of the trigger). Triggers that will not occur anymore are deactivated.
+     * @return The time registrations that have been created.
+     */
+    List<TimeRegistration> materializeOccurrences();
+
+    /**
+     * Schedules one single alarm for all active {@link RecurrenceTrigger}s, at the end of the first upcoming
+     * occurrence. The alarm replaces any previously scheduled alarm. If an occurrence has ended already the alarm goes
+     * off immediately.
+     * @return The time of the alarm or null if no trigger will occur anymore (and no alarm is scheduled).
+     */
+    Date scheduleNextOccurrence();
 }
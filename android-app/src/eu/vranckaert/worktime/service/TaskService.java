@@ -51,6 +51,12 @@ public interface TaskService {
      */
     Task save(Task task);
 
+    /**
+     * Persist a list of new {@link Task} instances in one single transaction.
+     * @param tasks The new {@link Task} instances to persist.
+     */
+    void saveAll(List<Task> tasks);
+
     /**
      * Updates an existing {@link Task} instance.
      * @param task The {@link Task} instance to update.
@@ -82,6 +82,12 @@ public interface TimeRegistrationService {
      */
     TimeRegistration getLatestTimeRegistration();
 
+    /**
+     * Find the ongoing time registration. Returns <b>null</b> if no time registration is ongoing!
+     * @return The ongoing time registration.
+     */
+    TimeRegistration getOngoingTimeRegistration();
+
     /**
      * Removes an existing time registration.
      *
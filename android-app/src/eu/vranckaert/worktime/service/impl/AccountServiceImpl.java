@@ -38,17 +38,19 @@ import eu.vranckaert.worktime.exceptions.worktime.sync.SyncAlreadyBusyException;
 import eu.vranckaert.worktime.exceptions.worktime.sync.SynchronizationFailedException;
 import eu.vranckaert.worktime.guice.Application;
 import eu.vranckaert.worktime.model.*;
+import eu.vranckaert.worktime.model.dto.sync.SyncApplyPlan;
 import eu.vranckaert.worktime.service.AccountService;
 import eu.vranckaert.worktime.service.BackupService;
-import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
 import eu.vranckaert.worktime.utils.alarm.AlarmUtil;
 import eu.vranckaert.worktime.utils.date.DateUtils;
 import eu.vranckaert.worktime.utils.network.NetworkUtil;
 import eu.vranckaert.worktime.utils.preferences.Preferences;
 import eu.vranckaert.worktime.utils.view.actionbar.SyncDelegate;
+import eu.vranckaert.worktime.web.json.HttpStatistics;
 import eu.vranckaert.worktime.web.json.exception.GeneralWebException;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * User: DIRK VRANCKAERT
@@ -82,9 +84,6 @@ public class AccountServiceImpl implements AccountService {
     @Inject
     private BackupService backupService;
 
-    @Inject
-    private StatusBarNotificationService statusBarNotificationService;
-
     @Inject
     private Context context;
 
@@ -100,7 +99,7 @@ public class AccountServiceImpl implements AccountService {
         taskDao = new TaskDaoImpl(context, new SyncRemovalCacheDaoImpl(context));
         timeRegistrationDao = new TimeRegistrationDaoImpl(context, new SyncRemovalCacheDaoImpl(context));
         syncRemovalCacheDao = new SyncRemovalCacheDaoImpl(context);
-        backupService = new DatabaseFileBackupServiceImpl();
+        backupService = new DatabaseFileBackupServiceImpl(context);
     }
 
     @Override
@@ -315,13 +314,18 @@ public class AccountServiceImpl implements AccountService {
             EntitySyncResult entitySyncResult = (EntitySyncResult) result.get(3);
             Map<String, String> serverSyncRemovalMap = (Map<String, String>) result.get(4);
 
-            applySyncResult(entitySyncResult);
-            checkServerEntities(projectsSinceLastSync, tasksSinceLastSync, timeRegistrationsSinceLastSync);
-            removeEntities(serverSyncRemovalMap);
+            // Compute all local changes in memory and apply them in one single transaction
+            SyncApplyPlan syncApplyPlan = new SyncApplyPlan(projectDao.findAll(), taskDao.findAll(), timeRegistrationDao.findAll());
+            syncApplyPlan.applySyncResult(entitySyncResult);
+            syncApplyPlan.checkServerEntities(projectsSinceLastSync, tasksSinceLastSync, timeRegistrationsSinceLastSync);
+            syncApplyPlan.removeEntities(serverSyncRemovalMap);
+            applySyncPlan(syncApplyPlan);
 
             // Clean up the entities that should be removed on the next sync.
             syncRemovalCacheDao.deleteAll();
 
+            Log.d(LOG_TAG, "Network statistics after synchronization: " + HttpStatistics.dump());
+
             syncHistory = syncHistoryDao.getOngoingSyncHistory();
             if (syncHistory != null) {
                 syncHistory.setEndedLocally(new Date());
@@ -364,8 +368,6 @@ public class AccountServiceImpl implements AccountService {
                     timeRegistrationDao.update(localTimeRegistration);
                 }
             }
-            statusBarNotificationService.removeOngoingTimeRegistrationNotification();
-            statusBarNotificationService.addOrUpdateNotification(null);
             SyncDelegate.get().delegateEndOfSync(true);
         } catch (RuntimeException e) {
             markSyncAsFailed(e);
@@ -399,370 +401,34 @@ public class AccountServiceImpl implements AccountService {
         }
     }
 
-    private void removeEntities(Map<String, String> syncRemovalMap) {
-        if (syncRemovalMap == null || syncRemovalMap.size() == 0)
-            return;
-
-        List<String> projectSyncKeys = new ArrayList<String>();
-        List<String> taskSyncKeys = new ArrayList<String>();
-        List<String> timeRegistrationSyncKeys = new ArrayList<String>();
-
-        for (Map.Entry<String, String> entry : syncRemovalMap.entrySet()) {
-            String syncKey = entry.getKey();
-            String entityName = entry.getValue();
-
-            if (entityName.equals("Project")) {
-                projectSyncKeys.add(syncKey);
-            } else if (entityName.equals("Task")) {
-                taskSyncKeys.add(syncKey);
-            } else if (entityName.equals("TimeRegistration")) {
-                timeRegistrationSyncKeys.add(syncKey);
-            }
-        }
-
-        for (String syncKey : timeRegistrationSyncKeys) {
-            TimeRegistration entity = timeRegistrationDao.findBySyncKey(syncKey);
-            if (entity != null)
-                timeRegistrationDao.delete(entity);
-        }
-
-        for (String syncKey : taskSyncKeys) {
-            Task entity = taskDao.findBySyncKey(syncKey);
-            if (entity != null)
-                taskDao.delete(entity);
-        }
-
-        for (String syncKey : projectSyncKeys) {
-            Project entity = projectDao.findBySyncKey(syncKey);
-            if (entity != null)
-                projectDao.delete(entity);
-        }
-    }
-
-    /**
-     * Apply the sync result as it has been returned from the server. For each entity group it result in which we find
-     * the original entity (that has been sent to the server by us), the synced entity (as it is stored on the server)
-     * or null and the resolution (if it's accepted, merged, not accepted or no action has been performed.<br/>
-     * In case an entity is merged we do a lookup locally based on the original entity and replace it's content with the
-     * content of the synced entity.<br/>
-     * In case the entity is not either accepted or no action has been performed for the entity we'll check if the
-     * sync-key is set or not. If the sync key is not set we set it and update the entity.<br/>
-     * In case the entity is not accepted the entity will be removed from the local database. If it's a time
-     * registration the list of synced time registrations needs to be checked. If that list is not empty it means the
-     * the just removed entity needs to be replaced with that list of time registrations. So each one of them should be
-     * persisted.
-     * @param entitySyncResult The synchronization result containing every single entity that has been sent to the
-     *                         server.
-     */
-    private void applySyncResult(EntitySyncResult entitySyncResult) {
-        Log.d(LOG_TAG, "Applying synchronization result...");
-
-        for (ProjectSyncResult syncResult : entitySyncResult.getProjectSyncResults()) {
-            Log.d(LOG_TAG, "Checking for project with local name " + syncResult.getProject().getName());
-            Project localProject = syncResult.getProject();
-            Project syncedProject = syncResult.getSyncedProject();
-            switch (syncResult.getResolution()) {
-                case MERGED: {
-                    // The entity has been merged with an entity on the server, so we will have copy all of the
-                    // synced data into the local entity.
-                    Log.d(LOG_TAG, "The project has been merged...");
-                    Project project = projectDao.findByName(localProject.getName());
-                    updateProject(syncedProject, project);
-                    break;
-                }
-                case NOT_ACCEPTED: {
-                    // The entity has been synced before but is no longer found remotely based on the sync key so we
-                    // can safely remove the entity from the database.
-                    Log.d(LOG_TAG, "The project has not been accepted...");
-                    Project project = projectDao.findByName(localProject.getName());
-                    projectDao.delete(project);
-                    break;
-                }
-                default: {
-                    // The entity has been either accepted remotely or it already exists on the server and the
-                    // contents did not have to be merged. We will only update it's syncKey!
-                    Log.d(LOG_TAG, "The project has been accepted or no action was necessary...");
-                    Project project = projectDao.findByName(localProject.getName());
-                    if (project.getSyncKey() == null) {
-                        project.setSyncKey(syncedProject.getSyncKey());
-                        projectDao.update(project);
-                    }
-                    break;
-                }
-            }
-        }
-        for (TaskSyncResult syncResult : entitySyncResult.getTaskSyncResults()) {
-            Log.d(LOG_TAG, "Checking for task with local name " + syncResult.getTask().getName());
-            Task localTask = syncResult.getTask();
-            Project localProject = projectDao.findByName(localTask.getProject().getName());
-            Task syncedTask = syncResult.getSyncedTask();
-            switch (syncResult.getResolution()) {
-                case MERGED: {
-                    // The entity has been merged with an entity on the server, so we will have copy all of the
-                    // synced data into the local entity.
-                    Log.d(LOG_TAG, "The task has been merged...");
-                    Task task = taskDao.findByName(localTask.getName(), localProject);
-                    updateTask(syncedTask, task);
-                    break;
-                }
-                case NOT_ACCEPTED: {
-                    // The entity has been synced before but is no longer found remotely based on the sync key so we
-                    // can safely remove the entity from the database.
-                    Log.d(LOG_TAG, "The task has not been accepted...");
-                    Task task = taskDao.findByName(localTask.getName(), localProject);
-                    taskDao.delete(task);
-                    break;
-                }
-                default: {
-                    // The entity has been either accepted remotely or it already exists on the server and the
-                    // contents did not have to be merged. We will only update it's syncKey!
-                    Log.d(LOG_TAG, "The task has been accepted or no action was necessary...");
-                    Task task = taskDao.findByName(localTask.getName(), localProject);
-                    if (task.getSyncKey() == null) {
-                        task.setSyncKey(syncedTask.getSyncKey());
-                        taskDao.update(task);
-                    }
-                    break;
-                }
-            }
-        }
-        for (TimeRegistrationSyncResult syncResult : entitySyncResult.getTimeRegistrationSyncResults()) {
-            Log.d(LOG_TAG, "Checking for time registration with local start and end time (" + syncResult.getTimeRegistration().getStartTime() + ", END: " + (syncResult.getTimeRegistration().getEndTime() == null ? "NULL" : syncResult.getTimeRegistration().getEndTime()) + ")");
-            TimeRegistration localTimeRegistration = syncResult.getTimeRegistration();
-            TimeRegistration syncedTimeRegistration = syncResult.getSyncedTimeRegistration();
-            List<TimeRegistration> syncedTimeRegistrations = syncResult.getSyncedTimeRegistrations();
-            switch (syncResult.getResolution()) {
-                case MERGED: {
-                    // The entity has been merged with an entity on the server, so we will have copy all of the
-                    // synced data into the local entity.
-                    Log.d(LOG_TAG, "The time registration has been merged...");
-                    TimeRegistration timeRegistration = timeRegistrationDao.findByDates(
-                            localTimeRegistration.getStartTime(), localTimeRegistration.getEndTime()
-                    );
-                    updateTimeRegistration(syncedTimeRegistration, timeRegistration);
-                    break;
-                }
-                case NOT_ACCEPTED: {
-                    // The time registration was not accepted remotely because it interfered with other time
-                    // registrations so the time registration should be removed and the 'others' should be
-                    // persisted. Or the time registration was not accepted because there was not match found with
-                    // the sync-key (so it must have been removed on the server) before this sync. We can then
-                    // safely remove it here also.
-                    Log.d(LOG_TAG, "The time registration has not been accepted...");
-                    TimeRegistration timeRegistration = timeRegistrationDao.findByDates(
-                            localTimeRegistration.getStartTime(), localTimeRegistration.getEndTime()
-                    );
-                    timeRegistrationDao.delete(timeRegistration);
-
-                    if (syncedTimeRegistrations != null && !syncedTimeRegistrations.isEmpty()) {
-                        for (TimeRegistration incomingTimeRegistration : syncedTimeRegistrations) {
-                            Log.d(LOG_TAG, "Checking for other time registrations in DB with same sync key " + incomingTimeRegistration.getSyncKey());
-                            TimeRegistration timeRegistrationWithSyncKey = timeRegistrationDao.findBySyncKey(incomingTimeRegistration.getSyncKey());
-                            if (timeRegistrationWithSyncKey != null) {
-                                timeRegistrationDao.delete(timeRegistrationWithSyncKey);
-                            }
-                            Log.d(LOG_TAG, "Persisting incoming time registration with sync key " + incomingTimeRegistration.getSyncKey() + " and start and end time (" + incomingTimeRegistration.getStartTime() + ", END: " + (incomingTimeRegistration.getEndTime() == null ? "NULL" : incomingTimeRegistration.getEndTime()) + ")");
-                            Project localProject = projectDao.findByName(incomingTimeRegistration.getTask().getProject().getName());
-                            Task task = taskDao.findByName(incomingTimeRegistration.getTask().getName(), localProject);
-                            incomingTimeRegistration.setTask(task);
-                            timeRegistrationDao.save(incomingTimeRegistration);
-                        }
-                    }
-                    break;
-                }
-                default: {
-                    // The entity has been either accepted remotely or it already exists on the server and the
-                    // contents did not have to be merged. We will only update it's syncKey!
-                    Log.d(LOG_TAG, "The time registration has been accepted or no action was necessary...");
-                    TimeRegistration timeRegistration = timeRegistrationDao.findByDates(
-                            localTimeRegistration.getStartTime(), localTimeRegistration.getEndTime()
-                    );
-                    if (timeRegistration.getSyncKey() == null) {
-                        timeRegistration.setSyncKey(syncedTimeRegistration.getSyncKey());
-                        timeRegistrationDao.update(timeRegistration);
-                    }
-                    break;
-                }
-            }
-        }
-    }
-
     /**
-     * Check the entities returned by the server and check if everything is already available locally or if any entity
-     * should be updated or persisted.
-     * @param projects Projects coming from the server.
-     * @param tasks Tasks coming from the server.
-     * @param timeRegistrations Time registrations coming from the server.
+     * Applies all the inserts, updates and deletes of a {@link SyncApplyPlan} to the local database in one single
+     * transaction. New projects are stored before new tasks and new tasks before new time registrations so that all
+     * foreign keys are known by the time they are needed. Removals are executed starting from the time registrations
+     * up to the projects.
+     * @param plan The plan to apply.
      */
-    private void checkServerEntities(List<Project> projects, List<Task> tasks, List<TimeRegistration> timeRegistrations) {
-        Log.d(LOG_TAG, "Check for the entities on the server that have changed since the last update to be persisted locally or use to update local information...");
-
-        Log.d(LOG_TAG, "Make sure every project, task and time registration gets updated if needed");
-        for (Task task : tasks) {
-            boolean projectFound = false;
-            for (Project project : projects) {
-                if (project.getName().equals(task.getProject().getName())) {
-                    projectFound = true;
-                    break;
-                }
-            }
-            if (!projectFound) {
-                projects.add(task.getProject());
-            }
-        }
-        for (TimeRegistration timeRegistration : timeRegistrations) {
-            boolean taskFound = false;
-            for (Task task : tasks) {
-                if (task.getName().equals(timeRegistration.getTask().getName())) {
-                    taskFound = true;
-                    break;
-                }
-            }
-            if (!taskFound) {
-                tasks.add(timeRegistration.getTask());
-            }
-            boolean projectFound = false;
-            for (Project project : projects) {
-                if (project.getName().equals(timeRegistration.getTask().getProject().getName())) {
-                    projectFound = true;
-                    break;
-                }
-            }
-            if (!projectFound) {
-                projects.add(timeRegistration.getTask().getProject());
-            }
-        }
-
-        Log.d(LOG_TAG, "Checking the server-projects...");
-        for (Project project : projects) {
-            Log.d(LOG_TAG, "Checking project with sync key " + project.getSyncKey() + " and name " + project.getName());
-            Project localProject = projectDao.findBySyncKey(project.getSyncKey());
-            if (localProject == null) {
-                Log.d(LOG_TAG, "No local project found based on the sync key (" + project.getSyncKey() + ")");
-                localProject = projectDao.findByName(project.getName());
-                if (localProject != null) {
-                    Log.d(LOG_TAG, "Local project found based on the name (" + localProject.getName() + "), update the local project with the server content");
-                    updateProject(project, localProject);
-                } else {
-                    Log.d(LOG_TAG, "No local project found based on the name, save incoming project with name " + project.getName());
-                    projectDao.save(project);
-                }
-            } else {
-                Log.d(LOG_TAG, "Local project found based on the sync key (" + localProject.getSyncKey() + "), update the local project with the server content");
-                updateProject(project, localProject);
-            }
-        }
-
-        Log.d(LOG_TAG, "Checking the server-tasks...");
-        for (Task task : tasks) {
-            Log.d(LOG_TAG, "Checking task with sync key " + task.getSyncKey() + " and name " + task.getName());
-            Task localTask = taskDao.findBySyncKey(task.getSyncKey());
-            if (localTask == null) {
-                Log.d(LOG_TAG, "No local task found based on the sync key (" + task.getSyncKey() + ")");
-                Project localProject = projectDao.findByName(task.getProject().getName());
-                localTask = taskDao.findByName(task.getName(), localProject);
-                if (localTask != null) {
-                    Log.d(LOG_TAG, "Local task found based on the name (" + localTask.getName() + "), update the local task with the server content");
-                    updateTask(task, localTask);
-                } else {
-                    Log.d(LOG_TAG, "No local task found based on the name, save incoming task with name " + task.getName());
-                    updateTask(task, task);
-                    taskDao.save(task);
-                }
-            } else {
-                Log.d(LOG_TAG, "Local task found based on the sync key (" + localTask.getSyncKey() + "), update the local task with the server content");
-                updateTask(task, localTask);
+    private void applySyncPlan(final SyncApplyPlan plan) {
+        Log.d(LOG_TAG, "Applying " + plan.size() + " local changes of the synchronization...");
+        long start = System.currentTimeMillis();
+
+        projectDao.callInTransaction(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                projectDao.saveAll(plan.getProjectsToSave());
+                projectDao.updateAll(plan.getProjectsToUpdate());
+                taskDao.saveAll(plan.getTasksToSave());
+                taskDao.updateAll(plan.getTasksToUpdate());
+                timeRegistrationDao.saveAll(plan.getTimeRegistrationsToSave());
+                timeRegistrationDao.updateAll(plan.getTimeRegistrationsToUpdate());
+                timeRegistrationDao.deleteAll(plan.getTimeRegistrationsToDelete());
+                taskDao.deleteAll(plan.getTasksToDelete());
+                projectDao.deleteAll(plan.getProjectsToDelete());
+                return null;
             }
-        }
-
-        Log.d(LOG_TAG, "Checking the server-time registrations...");
-        for (TimeRegistration timeRegistration : timeRegistrations) {
-            Log.d(LOG_TAG, "Checking time registrations with sync key " + timeRegistration.getSyncKey() + " and start and end time (START: " + timeRegistration.getStartTime() + ", END: " + (timeRegistration.getEndTime() == null ? "NULL" : timeRegistration.getEndTime()) + "), update the local time registration with the server content");
-            TimeRegistration localTimeRegistration = timeRegistrationDao.findBySyncKey(timeRegistration.getSyncKey());
-            if (localTimeRegistration == null) {
-                Log.d(LOG_TAG, "No local time registration found based on the sync key (" + timeRegistration.getSyncKey() + ")");
-                localTimeRegistration = timeRegistrationDao.findByDates(timeRegistration.getStartTime(), timeRegistration.getEndTime());
-                if (localTimeRegistration != null) {
-                    Log.d(LOG_TAG, "Local time registration found based on the start and end time (START: " + timeRegistration.getStartTime() + ", END: " + (timeRegistration.getEndTime() == null ? "NULL" : timeRegistration.getEndTime()) + "), update the local time registration with the server content");
-                    updateTimeRegistration(timeRegistration, localTimeRegistration);
-                } else {
-                    Log.d(LOG_TAG, "No local time registration found based on the start and end time, save incoming time registration with start and end time (START: " + timeRegistration.getStartTime() + ", END: " + (timeRegistration.getEndTime() == null ? "NULL" : timeRegistration.getEndTime()) + ")");
-                    updateTimeRegistration(timeRegistration, timeRegistration);
-                    timeRegistrationDao.save(timeRegistration);
-                }
-            } else {
-                Log.d(LOG_TAG, "Local time registration found based on the sync key (" + localTimeRegistration.getSyncKey() + "), update the local task with the server content");
-                updateTimeRegistration(timeRegistration, localTimeRegistration);
-            }
-        }
-    }
+        });
 
-    /**
-     * Updates the destination project after the contents of the source project have been copied into the destination
-     * project. The id is not overwritten!
-     * @param source The source project.
-     * @param destination The destination project that will be updated.
-     */
-    private void updateProject(Project source, Project destination) {
-        destination.setName(source.getName());
-        destination.setComment(source.getComment());
-        destination.setDefaultValue(source.isDefaultValue());
-        destination.setFinished(source.isFinished());
-        destination.setFlags(source.getFlags());
-        destination.setOrder(source.getOrder());
-        destination.setLastUpdated(source.getLastUpdated());
-        destination.setSyncKey(source.getSyncKey());
-
-        if (source.getId() != null)
-            projectDao.update(destination);
-    }
-
-    /**
-     * Updates the destination task after the contents of the source task have been copied into the destination task.
-     * The id is not overwritten! The linked project is looked up in the database based on the project of the
-     * source-task.
-     * @param source The source task.
-     * @param destination The destination task that will be updated.
-     */
-    private void updateTask(Task source, Task destination) {
-        destination.setName(source.getName());
-        destination.setComment(source.getComment());
-        destination.setFinished(source.isFinished());
-        destination.setFlags(source.getFlags());
-        destination.setOrder(source.getOrder());
-        destination.setLastUpdated(source.getLastUpdated());
-        destination.setSyncKey(source.getSyncKey());
-        Project project = projectDao.findBySyncKey(source.getProject().getSyncKey());
-        if (project == null) {
-            project = projectDao.findByName(source.getProject().getName());
-        }
-        destination.setProject(project);
-        if (source.getId() != null)
-            taskDao.update(destination);
-    }
-
-    /**
-     * Updates the destination time registration after the contents of the source time registration have been copied
-     * into the destination time registration. The id is not overwritten! The linked task is looked up in the database
-     * based on the task of the source-time-registration.
-     * @param source The source time registration.
-     * @param destination The destination time registration that will be updated.
-     */
-    private void updateTimeRegistration(TimeRegistration source, TimeRegistration destination) {
-        destination.setComment(source.getComment());
-        destination.setFlags(source.getFlags());
-        destination.setLastUpdated(source.getLastUpdated());
-        destination.setSyncKey(source.getSyncKey());
-        destination.setStartTime(source.getStartTime());
-        destination.setEndTime(source.getEndTime());
-        Task task = taskDao.findBySyncKey(source.getTask().getSyncKey());
-        if (task == null) {
-            Project localProject = projectDao.findByName(source.getTask().getProject().getName());
-            task = taskDao.findByName(source.getTask().getName(), localProject);
-        }
-        destination.setTask(task);
-        if (destination.getId() != null)
-            timeRegistrationDao.update(destination);
+        Log.d(LOG_TAG, "Local changes of the synchronization applied in " + (System.currentTimeMillis() - start) + "ms");
     }
 
     /**
@@ -934,18 +600,18 @@ public class AccountServiceImpl implements AccountService {
         List<TimeRegistration> timeRegistrations = timeRegistrationDao.findAll();
         for (TimeRegistration timeRegistration : timeRegistrations) {
             timeRegistration.setSyncKey(null);
-            timeRegistrationDao.update(timeRegistration);
         }
+        timeRegistrationDao.updateAll(timeRegistrations);
         List<Project> projects = projectDao.findAll();
         for (Project project : projects) {
             project.setSyncKey(null);
-            projectDao.update(project);
         }
+        projectDao.updateAll(projects);
         List<Task> tasks = taskDao.findAll();
         for (Task task : tasks) {
             task.setSyncKey(null);
-            taskDao.update(task);
         }
+        taskDao.updateAll(tasks);
 
         clearUserAppData();
     }
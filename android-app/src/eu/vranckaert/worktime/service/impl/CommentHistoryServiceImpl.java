@@ -19,10 +19,15 @@ package eu.vranckaert.worktime.service.impl;
 import android.content.Context;
 import com.google.inject.Inject;
 import eu.vranckaert.worktime.dao.CommentHistoryDao;
+import eu.vranckaert.worktime.dao.cache.CommentHistoryIndex;
 import eu.vranckaert.worktime.dao.impl.CommentHistoryDaoImpl;
 import eu.vranckaert.worktime.model.CommentHistory;
 import eu.vranckaert.worktime.service.CommentHistoryService;
+import eu.vranckaert.worktime.utils.preferences.Preferences;
+import eu.vranckaert.worktime.utils.string.StringUtils;
+import roboguice.inject.ContextSingleton;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -31,10 +36,15 @@ import java.util.List;
  * Time: 18:34
  */
 public class CommentHistoryServiceImpl implements CommentHistoryService {
+    @Inject
+    @ContextSingleton
+    private Context ctx;
+
     @Inject
     private CommentHistoryDao dao;
 
     public CommentHistoryServiceImpl(Context ctx) {
+        this.ctx = ctx;
         getDaos(ctx);
     }
 
@@ -45,19 +55,43 @@ public class CommentHistoryServiceImpl implements CommentHistoryService {
 
     @Override
     public void updateLastComment(String comment) {
-        dao.deleteAll();
-        dao.save(comment);
+        String optimizedComment = StringUtils.optimizeString(comment);
+
+        CommentHistory commentHistory = dao.findByComment(optimizedComment);
+        if (commentHistory == null) {
+            commentHistory = dao.save(new CommentHistory(optimizedComment));
+        } else {
+            commentHistory.setLastUsed(new Date());
+            dao.update(commentHistory);
+        }
+
+        CommentHistoryIndex index = CommentHistoryIndex.getInstance();
+        index.put(commentHistory);
+        for (CommentHistory evicted : dao.deleteLeastRecentlyUsed(Preferences.getCommentHistorySize(ctx))) {
+            index.remove(evicted);
+        }
     }
 
     @Override
     public String findLastComment() {
-        List<CommentHistory> commentHistories = dao.findAll();
+        List<CommentHistory> commentHistories = dao.findMostRecentlyUsed(1);
         if (commentHistories.size() > 0) {
             return commentHistories.get(0).getComment();
         }
         return null;
     }
 
+    @Override
+    public List<String> findCommentSuggestions(String prefix, int max) {
+        CommentHistoryIndex index = CommentHistoryIndex.getInstance();
+        if (!index.isLoaded()) {
+            // The history is bounded, so it can be loaded completely in the index
+            long generation = index.getGeneration();
+            index.load(generation, dao.findMostRecentlyUsed(Preferences.getCommentHistorySize(ctx)));
+        }
+        return index.findByPrefix(prefix, max);
+    }
+
     /**
      * Create all the required service instances.
      * @param ctx The widget's context.
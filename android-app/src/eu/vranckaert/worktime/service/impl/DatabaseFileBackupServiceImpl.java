@@ -18,67 +18,97 @@ package eu.vranckaert.worktime.service.impl;
 
 import android.content.Context;
 import com.google.inject.Inject;
-import eu.vranckaert.worktime.dao.GeofenceDao;
+import com.j256.ormlite.android.apptools.OpenHelperManager;
+import eu.vranckaert.worktime.comparators.preferences.DatabaseBackupFileComparator;
+import eu.vranckaert.worktime.constants.Constants;
+import eu.vranckaert.worktime.dao.backup.PortableBackupFormat;
+import eu.vranckaert.worktime.dao.backup.PortableBackupReader;
+import eu.vranckaert.worktime.dao.backup.PortableBackupWriter;
+import eu.vranckaert.worktime.dao.cache.CommentHistoryIndex;
+import eu.vranckaert.worktime.dao.cache.LatestTimeRegistrationCache;
+import eu.vranckaert.worktime.dao.cache.ProjectTaskRepository;
 import eu.vranckaert.worktime.dao.utils.DaoConstants;
+import eu.vranckaert.worktime.dao.utils.DatabaseChangeTracker;
+import eu.vranckaert.worktime.dao.utils.DatabaseHelper;
 import eu.vranckaert.worktime.exceptions.SDCardUnavailableException;
 import eu.vranckaert.worktime.exceptions.backup.BackupFileCouldNotBeCreated;
 import eu.vranckaert.worktime.exceptions.backup.BackupFileCouldNotBeWritten;
-import eu.vranckaert.worktime.model.trigger.GeofenceTrigger;
+import eu.vranckaert.worktime.exceptions.backup.CorruptBackupException;
 import eu.vranckaert.worktime.service.BackupService;
+import eu.vranckaert.worktime.service.GeofenceService;
 import eu.vranckaert.worktime.utils.context.ContextUtils;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.date.DateUtils;
 import eu.vranckaert.worktime.utils.date.TimeFormat;
 import eu.vranckaert.worktime.utils.file.FileUtil;
+import eu.vranckaert.worktime.utils.preferences.Preferences;
+import roboguice.RoboGuice;
 import roboguice.inject.ContextSingleton;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * User: DIRK VRANCKAERT
  * Date: 12/09/11
  * Time: 16:31
+ *
+ * Backups are written in the {@link PortableBackupFormat} and compressed with GZIP. Backups that are a copy of the
+ * database file (written by older versions) can still be restored.
  */
 public class DatabaseFileBackupServiceImpl implements BackupService {
     private static final String LOG_TAG = DatabaseFileBackupServiceImpl.class.getSimpleName();
+    /* The name of the backup of the database that is written to the cache directory before a backup is restored */
+    private static final String ROLLBACK_FILE_NAME = "restore-rollback";
 
     @Inject
     @ContextSingleton
     private Context ctx;
 
-    @Inject
-    private GeofenceDao geofenceDao;
-
-    private List<GeofenceTrigger> preBackup() {
-        List<GeofenceTrigger> geofenceTriggers = geofenceDao.findAll();
-        geofenceDao.deleteAll();
-        return geofenceTriggers;
+    public DatabaseFileBackupServiceImpl(Context ctx) {
+        this.ctx = ctx;
     }
 
-    private void postBackup(List<GeofenceTrigger> geofenceTriggers) {
-        for (GeofenceTrigger geofenceTrigger : geofenceTriggers) {
-            geofenceTrigger.setId(null);
-            geofenceDao.save(geofenceTrigger);
-        }
+    /**
+     * Default constructor required by RoboGuice!
+     */
+    public DatabaseFileBackupServiceImpl() {}
+
+    private DatabaseHelper getDatabaseHelper(Context ctx) {
+        return OpenHelperManager.getHelper(ctx, DatabaseHelper.class);
     }
 
     public String backup(Context ctx) throws SDCardUnavailableException, BackupFileCouldNotBeCreated, BackupFileCouldNotBeWritten {
-        List<GeofenceTrigger> geofenceTriggers = preBackup();
-
-        String fileName = BASE_FILE_NAME + DateUtils.DateTimeConverter.getUniqueTimestampString() + FILE_EXTENSION;
-
         if (!ContextUtils.isSdCardAvailable() || !ContextUtils.isSdCardWritable()) {
             throw new SDCardUnavailableException("Make sure the SD-card is in the device and the SD-card is mounted.");
         }
 
+        String lastBackupFile = Preferences.Backup.getLastBackupFile(ctx);
+        if (!DatabaseChangeTracker.isChanged(ctx) && lastBackupFile != null && new File(lastBackupFile).isFile()) {
+            Log.d(ctx, LOG_TAG, "The database did not change since the last backup (" + lastBackupFile + "), no new backup is needed");
+            return lastBackupFile;
+        }
+
+        String fileName = BASE_FILE_NAME + DateUtils.DateTimeConverter.getUniqueTimestampString() + PORTABLE_FILE_EXTENSION;
+
         File folder = FileUtil.getBackupDir(ctx);
         if (folder.isFile()) {
             Log.d(ctx, LOG_TAG, "Directory seems to be a file... Deleting it now...");
@@ -103,26 +133,180 @@ public class DatabaseFileBackupServiceImpl implements BackupService {
         } catch (IOException e) {
             throw new BackupFileCouldNotBeCreated(e);
         }
-        File dbFile = new File(FileUtil.getDatabaseDirectory(ctx) + File.separator + DaoConstants.DATABASE);
-
+        // Writes made while the backup is written mark the database as changed again
+        DatabaseChangeTracker.startBackup(ctx);
+        OutputStream out = null;
         try {
-            FileUtil.copyFile(dbFile, backupFile);
+            out = new GZIPOutputStream(new FileOutputStream(backupFile), Constants.Backup.BUFFER_SIZE);
+            Map<String, Integer> records = new PortableBackupWriter(getDatabaseHelper(ctx)).write(out);
+            out.close();
+            Log.d(ctx, LOG_TAG, "Backup " + backupFile.getName() + " of " + backupFile.length() + " bytes written with " + records);
         } catch (IOException e) {
+            close(out);
+            // Do not leave a partially written backup behind
+            backupFile.delete();
+            DatabaseChangeTracker.backupFailed(ctx);
             throw new BackupFileCouldNotBeWritten(e);
+        } catch (SQLException e) {
+            close(out);
+            backupFile.delete();
+            DatabaseChangeTracker.backupFailed(ctx);
+            throw new BackupFileCouldNotBeWritten(e);
+        } catch (RuntimeException e) {
+            close(out);
+            backupFile.delete();
+            DatabaseChangeTracker.backupFailed(ctx);
+            throw e;
         }
 
         FileUtil.enableForMTP(ctx, backupFile);
 
-        postBackup(geofenceTriggers);
+        DatabaseChangeTracker.markBackedUp(ctx, backupFile.getAbsolutePath());
+        pruneBackups(ctx);
 
         return backupFile.getAbsolutePath();
     }
 
-    public boolean restore(Context ctx, File backupFile) throws SDCardUnavailableException, BackupFileCouldNotBeWritten {
+    /**
+     * Removes the oldest backup files so only the {@link Constants.Backup#MAX_BACKUP_FILES} most recent backups are
+     * kept.
+     * @param ctx The context.
+     */
+    private void pruneBackups(Context ctx) {
+        List<File> backupFiles;
+        try {
+            backupFiles = getPossibleRestoreFiles(ctx);
+        } catch (SDCardUnavailableException e) {
+            return;
+        }
+        if (backupFiles == null || backupFiles.size() <= Constants.Backup.MAX_BACKUP_FILES) {
+            return;
+        }
+
+        List<File> sortedBackupFiles = new ArrayList<File>(backupFiles);
+        Collections.sort(sortedBackupFiles, new DatabaseBackupFileComparator());
+        List<File> expiredBackupFiles = sortedBackupFiles.subList(Constants.Backup.MAX_BACKUP_FILES, sortedBackupFiles.size());
+        Log.d(ctx, LOG_TAG, "Removing " + expiredBackupFiles.size() + " old backup file(s)");
+        FileUtil.deleteFiles(expiredBackupFiles);
+    }
+
+    public boolean restore(Context ctx, File backupFile) throws SDCardUnavailableException, BackupFileCouldNotBeWritten, CorruptBackupException {
         if (!ContextUtils.isSdCardAvailable() || !ContextUtils.isSdCardWritable()) {
             throw new SDCardUnavailableException("Make sure the SD-card is in the device and the SD-card is mounted.");
         }
 
+        if (backupFile.getName().endsWith(PORTABLE_FILE_EXTENSION)) {
+            restorePortableBackup(ctx, backupFile);
+        } else {
+            restoreDatabaseFile(ctx, backupFile);
+        }
+
+        // The data in memory is that of the database before the restore
+        ProjectTaskRepository.getInstance().invalidate();
+        LatestTimeRegistrationCache.getInstance().invalidate();
+        CommentHistoryIndex.getInstance().invalidate();
+        DatabaseChangeTracker.markChanged(ctx);
+
+        return false;
+    }
+
+    /**
+     * Restores a backup in the {@link PortableBackupFormat}. The complete backup is validated first, only if it's valid
+     * the database is changed. The backup is restored in batches, so before the restore the current database is
+     * written to a rollback backup that is restored if one of the batches fails.
+     * @param ctx The context.
+     * @param backupFile The backup file.
+     * @throws BackupFileCouldNotBeWritten If the backup could not be restored in the database.
+     * @throws CorruptBackupException If the backup is incomplete or corrupt.
+     */
+    private void restorePortableBackup(Context ctx, File backupFile) throws BackupFileCouldNotBeWritten, CorruptBackupException {
+        Log.d(ctx, LOG_TAG, "Restoring portable backup " + backupFile.getAbsolutePath());
+        PortableBackupReader reader = new PortableBackupReader(getDatabaseHelper(ctx));
+
+        InputStream in = null;
+        try {
+            in = new GZIPInputStream(new FileInputStream(backupFile), Constants.Backup.BUFFER_SIZE);
+            Map<String, Integer> records = reader.validate(in);
+            Log.d(ctx, LOG_TAG, "Backup " + backupFile.getName() + " is valid and contains " + records);
+        } catch (IOException e) {
+            // Also a checksum mismatch or a truncated file end up here
+            throw new CorruptBackupException("The backup " + backupFile.getName() + " could not be read", e);
+        } finally {
+            close(in);
+        }
+
+        File rollbackFile = new File(ctx.getCacheDir(), ROLLBACK_FILE_NAME + PORTABLE_FILE_EXTENSION);
+        OutputStream out = null;
+        try {
+            out = new GZIPOutputStream(new FileOutputStream(rollbackFile), Constants.Backup.BUFFER_SIZE);
+            new PortableBackupWriter(getDatabaseHelper(ctx)).write(out);
+            out.close();
+        } catch (IOException e) {
+            close(out);
+            rollbackFile.delete();
+            Log.e(ctx, LOG_TAG, "Could not write the rollback backup, the database is not changed", e);
+            throw new BackupFileCouldNotBeWritten(e);
+        } catch (SQLException e) {
+            close(out);
+            rollbackFile.delete();
+            Log.e(ctx, LOG_TAG, "Could not write the rollback backup, the database is not changed", e);
+            throw new BackupFileCouldNotBeWritten(e);
+        }
+
+        List<String> removedGeofences = null;
+        try {
+            removedGeofences = reader.clear();
+            in = new GZIPInputStream(new FileInputStream(backupFile), Constants.Backup.BUFFER_SIZE);
+            reader.restoreRecords(in);
+        } catch (IOException e) {
+            rollback(reader, rollbackFile);
+            throw new BackupFileCouldNotBeWritten(e);
+        } catch (SQLException e) {
+            Log.e(ctx, LOG_TAG, "Could not restore backup " + backupFile.getName() + ", the database is rolled back", e);
+            if (removedGeofences != null) {
+                rollback(reader, rollbackFile);
+            }
+            throw new BackupFileCouldNotBeWritten(e);
+        } finally {
+            close(in);
+            rollbackFile.delete();
+
+            // The geofence triggers are removed as their tasks are replaced, they are not part of the rollback backup
+            // either
+            if (removedGeofences != null && !removedGeofences.isEmpty()) {
+                Log.d(ctx, LOG_TAG, removedGeofences.size() + " geofence trigger(s) removed by the restore, removing their geofences");
+                RoboGuice.getInjector(ctx).getInstance(GeofenceService.class).deleteGeofences(removedGeofences);
+            }
+        }
+    }
+
+    /**
+     * Restores the database as it was before a restore that failed.
+     * @param reader The reader of the failed restore.
+     * @param rollbackFile The rollback backup written before the restore.
+     */
+    private void rollback(PortableBackupReader reader, File rollbackFile) {
+        InputStream in = null;
+        try {
+            in = new GZIPInputStream(new FileInputStream(rollbackFile), Constants.Backup.BUFFER_SIZE);
+            reader.clear();
+            reader.restoreRecords(in);
+        } catch (IOException e) {
+            Log.e(ctx, LOG_TAG, "Could not read the rollback backup " + rollbackFile.getAbsolutePath(), e);
+        } catch (SQLException e) {
+            Log.e(ctx, LOG_TAG, "Could not restore the rollback backup " + rollbackFile.getAbsolutePath(), e);
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Restores a backup that is a copy of the database file, as written by older versions of the application.
+     * @param ctx The context.
+     * @param backupFile The backup file.
+     * @throws BackupFileCouldNotBeWritten If the backup could not be copied over the database file.
+     */
+    private void restoreDatabaseFile(Context ctx, File backupFile) throws BackupFileCouldNotBeWritten {
         File dbFile = new File(FileUtil.getDatabaseDirectory(ctx) + File.separator + DaoConstants.DATABASE);
         FileUtil.applyPermissions(dbFile, true, true, false, true);
         Log.d(ctx, LOG_TAG, "Restoring backup to database file " + dbFile.getAbsolutePath());
@@ -133,13 +317,37 @@ public class DatabaseFileBackupServiceImpl implements BackupService {
             } catch (IOException e) {}
         }
 
-        try {
-            FileUtil.copyFile(backupFile, dbFile);
-        } catch (IOException e) {
-            throw new BackupFileCouldNotBeWritten(e);
+        if (backupFile.getName().endsWith(COMPRESSED_FILE_EXTENSION)) {
+            // Decompress next to the database first, a corrupt backup should not overwrite the current database
+            File restoredDbFile = new File(dbFile.getAbsolutePath() + ".restore");
+            try {
+                FileUtil.decompressFile(backupFile, restoredDbFile);
+            } catch (IOException e) {
+                Log.e(ctx, LOG_TAG, "Could not decompress backup " + backupFile.getAbsolutePath() + ", the backup is probably corrupt", e);
+                restoredDbFile.delete();
+                throw new BackupFileCouldNotBeWritten(e);
+            }
+            if (!restoredDbFile.renameTo(dbFile)) {
+                restoredDbFile.delete();
+                throw new BackupFileCouldNotBeWritten(new IOException("Could not replace the database file " + dbFile.getAbsolutePath()));
+            }
+        } else {
+            try {
+                FileUtil.copyFile(backupFile, dbFile);
+            } catch (IOException e) {
+                throw new BackupFileCouldNotBeWritten(e);
+            }
         }
+    }
 
-        return false;
+    private void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.w(ctx, LOG_TAG, "Could not close the backup file", e);
+            }
+        }
     }
 
     public List<File> getPossibleRestoreFiles(Context ctx) throws SDCardUnavailableException {
@@ -155,7 +363,8 @@ public class DatabaseFileBackupServiceImpl implements BackupService {
 
         FilenameFilter databaseBackupFilenameFilter = new FilenameFilter() {
             public boolean accept(File dir, String fileName) {
-                if (fileName.startsWith(BASE_FILE_NAME) && fileName.endsWith(FILE_EXTENSION)) {
+                if (fileName.startsWith(BASE_FILE_NAME) && (fileName.endsWith(PORTABLE_FILE_EXTENSION)
+                        || fileName.endsWith(FILE_EXTENSION) || fileName.endsWith(COMPRESSED_FILE_EXTENSION))) {
                     return true;
                 }
                 return false;
@@ -168,6 +377,8 @@ public class DatabaseFileBackupServiceImpl implements BackupService {
 
     public String toString(Context ctx, File backupFile) {
         String fileName = backupFile.getName()
+                .replace(BackupService.PORTABLE_FILE_EXTENSION, "")
+                .replace(BackupService.COMPRESSED_FILE_EXTENSION, "")
                 .replace(BackupService.FILE_EXTENSION, "")
                 .replace(BackupService.BASE_FILE_NAME, "");
 
@@ -37,6 +37,9 @@ import eu.vranckaert.worktime.service.ProjectService;
 import eu.vranckaert.worktime.service.TaskService;
 import eu.vranckaert.worktime.service.TimeRegistrationService;
 import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
+import eu.vranckaert.worktime.utils.alarm.AlarmUtil;
+import eu.vranckaert.worktime.utils.geofence.GeofenceTransition;
+import eu.vranckaert.worktime.utils.geofence.GeofenceTransitionBuffer;
 import eu.vranckaert.worktime.utils.preferences.Preferences;
 import roboguice.inject.ContextSingleton;
 
@@ -57,6 +60,11 @@ public class GeofenceServiceImpl implements GeofenceService {
     @Inject private TaskService taskService;
     @Inject private ProjectService projectService;
 
+    /**
+     * The buffered transitions are stored in the preferences and changed from the broadcast receiver and the service.
+     */
+    private static final Object TRANSITIONS_LOCK = new Object();
+
     private LocationClient mLocationClient = null;
 
     @Override
@@ -122,12 +130,108 @@ public class GeofenceServiceImpl implements GeofenceService {
     }
 
     @Override
-    public Boolean geofenceTriggered(Geofence geofence, GeofenceTrigger geofenceTrigger, int transition) {
-        TimeRegistration ongoingTimeRegistration = timeRegistrationService.getLatestTimeRegistration();
-        if (ongoingTimeRegistration != null && !ongoingTimeRegistration.isOngoingTimeRegistration()) {
-            ongoingTimeRegistration = null;
+    public void bufferTransitions(List<GeofenceTransition> transitions) {
+        Long nextSettleTime;
+        synchronized (TRANSITIONS_LOCK) {
+            GeofenceTransitionBuffer buffer = getTransitionBuffer();
+            buffer.addAll(transitions);
+            Preferences.TriggersGeofence.setPendingTransitions(context, buffer.serialize());
+            nextSettleTime = buffer.getNextSettleTime();
+        }
+
+        if (nextSettleTime == null) {
+            Log.d(LOG_TAG, "No geofence transitions are pending, no alarm is set");
+            return;
+        }
+
+        Log.d(LOG_TAG, transitions.size() + " geofence transition(s) buffered, processing them at " + new Date(nextSettleTime));
+        AlarmUtil.setGeofenceTransitionsAlarm(context, nextSettleTime);
+    }
+
+    @Override
+    public int processSettledTransitions() {
+        List<GeofenceTransition> transitions;
+        Long nextSettleTime;
+        synchronized (TRANSITIONS_LOCK) {
+            GeofenceTransitionBuffer buffer = getTransitionBuffer();
+            transitions = buffer.drainSettled(System.currentTimeMillis());
+            Preferences.TriggersGeofence.setPendingTransitions(context, buffer.isEmpty() ? null : buffer.serialize());
+            nextSettleTime = buffer.getNextSettleTime();
         }
 
+        if (nextSettleTime != null) {
+            AlarmUtil.setGeofenceTransitionsAlarm(context, nextSettleTime);
+        }
+
+        if (!transitions.isEmpty()) {
+            Log.d(LOG_TAG, "Processing " + transitions.size() + " settled geofence transition(s): " + transitions);
+            processTransitions(transitions);
+        }
+        return transitions.size();
+    }
+
+    private GeofenceTransitionBuffer getTransitionBuffer() {
+        long window = Preferences.TriggersGeofence.getTransitionDebounceWindow(context) * 1000L;
+        return GeofenceTransitionBuffer.deserialize(window, Preferences.TriggersGeofence.getPendingTransitions(context));
+    }
+
+    /**
+     * Processes a batch of transitions. The {@link GeofenceTrigger}s of all transitions are queried at once. Consecutive
+     * transitions of the same kind (entering or leaving) are handled as simultaneous: as soon as one of them is handled
+     * the others are ignored, so entering two geofences at once only starts one time registration.
+     * @param transitions The transitions, sorted by time.
+     */
+    private void processTransitions(List<GeofenceTransition> transitions) {
+        Set<String> requestIds = new LinkedHashSet<String>();
+        for (GeofenceTransition transition : transitions) {
+            requestIds.add(transition.getRequestId());
+        }
+
+        Map<String, GeofenceTrigger> geofenceTriggers = new HashMap<String, GeofenceTrigger>();
+        for (GeofenceTrigger geofenceTrigger : dao.findGeofenceTriggersByGeofenceRequestIds(new ArrayList<String>(requestIds))) {
+            geofenceTriggers.put(geofenceTrigger.getGeofenceRequestId(), geofenceTrigger);
+        }
+        requestIds.removeAll(geofenceTriggers.keySet());
+        deleteGeofences(new ArrayList<String>(requestIds));
+
+        int i = 0;
+        while (i < transitions.size()) {
+            int transition = transitions.get(i).getTransition();
+            String geofenceNames = "";
+            Boolean result = null;
+            boolean handled = false;
+            for (; i < transitions.size() && transitions.get(i).getTransition() == transition; i++) {
+                GeofenceTrigger geofenceTrigger = geofenceTriggers.get(transitions.get(i).getRequestId());
+                if (geofenceTrigger == null || handled) {
+                    continue;
+                }
+
+                if (geofenceNames.length() > 0)
+                    geofenceNames += ", ";
+                geofenceNames += geofenceTrigger.getName();
+                result = geofenceTriggered(geofenceTrigger, transition, new Date(transitions.get(i).getTime()));
+                handled = result == null || result;
+            }
+
+            if (result != null && !result) {
+                addNotHandledNotification(transition, geofenceNames);
+            }
+        }
+    }
+
+    /**
+     * Executed when a geofence has been entered or left.
+     * @param geofenceTrigger The {@link GeofenceTrigger} of the geofence.
+     * @param transition The transition, can be {@link Geofence#GEOFENCE_TRANSITION_ENTER} or
+     * {@link Geofence#GEOFENCE_TRANSITION_EXIT}.
+     * @param time The time of the transition.
+     * @return Returns null if no action could be performed and when that's ok. Returns {@link Boolean#TRUE} if an
+     * action was taken successful, returns {@link Boolean#FALSE} if no action could be performed and another geofence
+     * (if any) can be tried.
+     */
+    private Boolean geofenceTriggered(GeofenceTrigger geofenceTrigger, int transition, Date time) {
+        // Only queries the database if the cached state says a time registration is ongoing
+        TimeRegistration ongoingTimeRegistration = timeRegistrationService.getOngoingTimeRegistration();
         if (transition == Geofence.GEOFENCE_TRANSITION_ENTER) {
             Log.d(LOG_TAG, "Entering geo fence '" + geofenceTrigger.getName() + "'");
             // Entering a geo fence...
@@ -148,7 +252,7 @@ public class GeofenceServiceImpl implements GeofenceService {
             }
 
             Log.d(LOG_TAG, "GEOFENCE_TRIGGER: Start TR (A new time registration will be started and the GeofenceTrigger will be marked as 'entered') - " + geofenceTrigger.getName());
-            TimeRegistration timeRegistration = timeRegistrationService.create(new Date(), geofenceTrigger.getTask());
+            timeRegistrationService.create(time, geofenceTrigger.getTask());
             geofenceTrigger.setEntered(true);
             dao.update(geofenceTrigger);
 
@@ -167,7 +271,7 @@ public class GeofenceServiceImpl implements GeofenceService {
                         context.getString(R.string.lbl_trigger_geo_fencing_broadcast_notification_warn_finished_task_message_short, geofenceTrigger.getName()),
                         context.getString(R.string.lbl_trigger_geo_fencing_broadcast_notification_warn_finished_task_message, geofenceTrigger.getName())
                 );
-            } else if (geofenceTrigger.getTask().isFinished()) {
+            } else if (geofenceTrigger.getTask().getProject().isFinished()) {
                 statusBarNotificationService.addNotificationForGeofence(
                         context.getString(R.string.lbl_trigger_geo_fencing_broadcast_notification_warn_finished_task_project_title),
                         context.getString(R.string.lbl_trigger_geo_fencing_broadcast_notification_warn_finished_project_message_short, geofenceTrigger.getName()),
@@ -184,7 +288,8 @@ public class GeofenceServiceImpl implements GeofenceService {
                 return null;
             } else if (geofenceTrigger.isEntered()) {
                 if (!Preferences.TriggersGeofence.doNotPunchOutOnLeavingGeofence(context)) {
-                    ongoingTimeRegistration.setEndTime(new Date());
+                    // Never end the time registration before it started (it might have been started manually)
+                    ongoingTimeRegistration.setEndTime(time.after(ongoingTimeRegistration.getStartTime()) ? time : new Date());
                     timeRegistrationService.update(ongoingTimeRegistration);
                 } else  if(Preferences.TriggersGeofence.showNotificationWhenNotPunchedOut(context)) {
                     statusBarNotificationService.addNotificationForGeofence(
@@ -207,6 +312,21 @@ public class GeofenceServiceImpl implements GeofenceService {
         return false; // Would mean that another geofence transition (other then enter and exit) is passed...
     }
 
+    private void addNotHandledNotification(int transition, String geofenceNames) {
+        String action = "";
+        if (transition == Geofence.GEOFENCE_TRANSITION_ENTER) {
+            action = context.getString(R.string.lbl_trigger_geo_fencing_entering);
+        } else if (transition == Geofence.GEOFENCE_TRANSITION_EXIT) {
+            action = context.getString(R.string.lbl_trigger_geo_fencing_leaving);
+        }
+
+        statusBarNotificationService.addNotificationForGeofence(
+                context.getString(R.string.lbl_trigger_geo_fencing_broadcast_notification_error_not_handled_geofence_title),
+                context.getString(R.string.lbl_trigger_geo_fencing_broadcast_notification_error_not_handled_geofence_message_short, action, geofenceNames),
+                context.getString(R.string.lbl_trigger_geo_fencing_broadcast_notification_error_not_handled_geofence_message_short, action, geofenceNames)
+        );
+    }
+
     @Override
     public void checkGeoFencesOnTaskRemoval(Task task) {
         List<GeofenceTrigger> geofenceTriggers = dao.findGeoFencesForTask(task);
@@ -114,12 +114,8 @@ public class ProjectServiceImpl implements ProjectService {
         // Delete the project and all it's dependencies...
         geofenceService.checkGeoFencesOnProjectRemoval(project);
 
-        for (TimeRegistration tr : trsForProject) {
-            timeRegistrationDao.delete(tr);
-        }
-        for (Task task : tasksForProject) {
-            taskDao.delete(task);
-        }
+        timeRegistrationDao.deleteAll(trsForProject);
+        taskDao.deleteAll(tasksForProject);
         dao.delete(project);
         if (project.isDefaultValue()) {
             changeDefaultProjectUponProjectRemoval(project);
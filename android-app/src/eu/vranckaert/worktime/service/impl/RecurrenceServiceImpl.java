@@ -16,10 +16,25 @@
 
 package eu.vranckaert.worktime.service.impl;
 
+import android.content.Context;
 import com.google.inject.Inject;
 import eu.vranckaert.worktime.dao.RecurrenceDao;
+import eu.vranckaert.worktime.dao.TimeRegistrationDao;
+import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.model.trigger.RecurrenceTrigger;
 import eu.vranckaert.worktime.service.RecurrenceService;
+import eu.vranckaert.worktime.utils.alarm.AlarmUtil;
+import eu.vranckaert.worktime.utils.context.Log;
+import eu.vranckaert.worktime.utils.date.RecurrenceCalculator;
+import roboguice.inject.ContextSingleton;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * User: DIRK VRANCKAERT
@@ -27,11 +42,121 @@ import eu.vranckaert.worktime.service.RecurrenceService;
  * Time: 18:07
  */
 public class RecurrenceServiceImpl implements RecurrenceService {
+    private static final String LOG_TAG = RecurrenceServiceImpl.class.getSimpleName();
+
+    @Inject
+    @ContextSingleton
+    private Context ctx;
+
     @Inject
     private RecurrenceDao recurrenceDao;
 
+    @Inject
+    private TimeRegistrationDao timeRegistrationDao;
+
     @Override
     public RecurrenceTrigger save(RecurrenceTrigger trigger) {
-        return recurrenceDao.save(trigger);
+        RecurrenceTrigger savedTrigger = recurrenceDao.save(trigger);
+        scheduleNextOccurrence();
+        return savedTrigger;
+    }
+
+    @Override
+    public List<TimeRegistration> materializeOccurrences() {
+        final Date now = new Date();
+        return recurrenceDao.callInTransaction(new Callable<List<TimeRegistration>>() {
+            @Override
+            public List<TimeRegistration> call() throws Exception {
+                List<RecurrenceTrigger> triggers = recurrenceDao.findAllActive();
+
+                List<RecurrenceCalculator.Occurrence> occurrences = new ArrayList<RecurrenceCalculator.Occurrence>();
+                for (RecurrenceTrigger trigger : triggers) {
+                    occurrences.addAll(RecurrenceCalculator.getOccurrences(trigger, trigger.getLastTriggered(), now));
+                }
+
+                List<TimeRegistration> createdTimeRegistrations = new ArrayList<TimeRegistration>();
+                Set<RecurrenceTrigger> triggered = new HashSet<RecurrenceTrigger>();
+                if (!occurrences.isEmpty()) {
+                    Collections.sort(occurrences);
+                    List<TimeRegistration> existingTimeRegistrations = findOverlapping(occurrences);
+
+                    for (RecurrenceCalculator.Occurrence occurrence : occurrences) {
+                        if (overlaps(occurrence, existingTimeRegistrations)) {
+                            Log.d(ctx, LOG_TAG, "Occurrence from " + occurrence.getStartTime() + " to " + occurrence.getEndTime() + " overlaps with an existing time registration and is skipped");
+                        } else {
+                            TimeRegistration timeRegistration = new TimeRegistration();
+                            timeRegistration.setStartTime(occurrence.getStartTime());
+                            timeRegistration.setEndTime(occurrence.getEndTime());
+                            timeRegistration.setTask(occurrence.getTrigger().getTask());
+                            timeRegistrationDao.save(timeRegistration);
+
+                            existingTimeRegistrations.add(timeRegistration);
+                            createdTimeRegistrations.add(timeRegistration);
+                        }
+
+                        RecurrenceTrigger trigger = occurrence.getTrigger();
+                        trigger.setTimesTriggered(trigger.getTimesTriggered() + 1);
+                        trigger.setLastTriggered(occurrence.getEndTime());
+                        triggered.add(trigger);
+                    }
+                }
+
+                for (RecurrenceTrigger trigger : triggers) {
+                    boolean finished = RecurrenceCalculator.getNextOccurrence(trigger, trigger.getLastTriggered()) == null;
+                    if (finished) {
+                        trigger.setActive(false);
+                    }
+                    if (finished || triggered.contains(trigger)) {
+                        recurrenceDao.update(trigger);
+                    }
+                }
+
+                Log.d(ctx, LOG_TAG, createdTimeRegistrations.size() + " time registration(s) created for " + occurrences.size() + " occurrence(s) of " + triggers.size() + " active trigger(s)");
+                return createdTimeRegistrations;
+            }
+        });
+    }
+
+    /**
+     * Queries all time registrations that could overlap with a batch of occurrences at once.
+     * @param occurrences The occurrences, sorted by start time.
+     * @return The time registrations between the start of the first and the end of the last occurrence.
+     */
+    private List<TimeRegistration> findOverlapping(List<RecurrenceCalculator.Occurrence> occurrences) {
+        Date startTime = occurrences.get(0).getStartTime();
+        Date endTime = occurrences.get(0).getEndTime();
+        for (RecurrenceCalculator.Occurrence occurrence : occurrences) {
+            if (occurrence.getEndTime().after(endTime)) {
+                endTime = occurrence.getEndTime();
+            }
+        }
+        return new ArrayList<TimeRegistration>(timeRegistrationDao.findOverlapping(startTime, endTime));
+    }
+
+    private boolean overlaps(RecurrenceCalculator.Occurrence occurrence, List<TimeRegistration> timeRegistrations) {
+        for (TimeRegistration timeRegistration : timeRegistrations) {
+            if (occurrence.overlaps(timeRegistration.getStartTime(), timeRegistration.getEndTime())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Date scheduleNextOccurrence() {
+        Date nextAlarm = null;
+        for (RecurrenceTrigger trigger : recurrenceDao.findAllActive()) {
+            RecurrenceCalculator.Occurrence occurrence = RecurrenceCalculator.getNextOccurrence(trigger, trigger.getLastTriggered());
+            if (occurrence != null && (nextAlarm == null || occurrence.getEndTime().before(nextAlarm))) {
+                nextAlarm = occurrence.getEndTime();
+            }
+        }
+
+        if (nextAlarm == null) {
+            AlarmUtil.removeRecurrenceAlarm(ctx);
+        } else {
+            AlarmUtil.setRecurrenceAlarm(ctx, nextAlarm);
+        }
+        return nextAlarm;
     }
 }
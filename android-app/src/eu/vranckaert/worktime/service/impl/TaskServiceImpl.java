@@ -96,6 +96,13 @@ public class TaskServiceImpl implements TaskService {
         return dao.save(task);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void saveAll(List<Task> tasks) {
+        dao.saveAll(tasks);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -114,9 +121,7 @@ public class TaskServiceImpl implements TaskService {
         } else {
             if(force) {
                 Log.d(ctx, LOG_TAG, "Forcing to delete all timeregistrations and geo fences linked to the task first!");
-                for (TimeRegistration treg : timeRegistrations) {
-                    timeRegistrationDao.delete(treg);
-                }
+                timeRegistrationDao.deleteAll(timeRegistrations);
                 geofenceService.checkGeoFencesOnTaskRemoval(task);
             }
         }
@@ -166,6 +166,13 @@ public class TimeRegistrationServiceImpl implements TimeRegistrationService {
         return dao.getLatestTimeRegistration();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public TimeRegistration getOngoingTimeRegistration() {
+        return dao.findOngoingTimeRegistration();
+    }
+
     /**
      * {@inheritDoc}
      */
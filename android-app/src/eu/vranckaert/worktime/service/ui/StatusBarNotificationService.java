@@ -17,6 +17,7 @@
 package eu.vranckaert.worktime.service.ui;
 
 import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.service.ui.refresh.UiStateSnapshot;
 
 public interface StatusBarNotificationService {
     /**
@@ -32,6 +33,13 @@ public interface StatusBarNotificationService {
      */
     void addOrUpdateNotification(TimeRegistration registration);
 
+    /**
+     * Updates the notification of the ongoing time registration to match the snapshot: the notification is added or
+     * updated if a time registration is ongoing (and the preference has been enabled), otherwise it's removed.
+     * @param snapshot The {@link UiStateSnapshot}.
+     */
+    void updateNotification(UiStateSnapshot snapshot);
+
     /**
      * Add a new notification in the status bar to notify that a restore is successful.
      * @param success Defines if the restore was successful or not. Based on this parameter different messages can be
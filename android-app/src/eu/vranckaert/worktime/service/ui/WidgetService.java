@@ -19,6 +19,7 @@ package eu.vranckaert.worktime.service.ui;
 import eu.vranckaert.worktime.model.Project;
 import eu.vranckaert.worktime.model.Task;
 import eu.vranckaert.worktime.model.WidgetConfiguration;
+import eu.vranckaert.worktime.service.ui.refresh.UiStateSnapshot;
 
 import java.util.List;
 
@@ -33,6 +34,20 @@ public interface WidgetService {
      */
     void updateAllWidgets();
 
+    /**
+     * Computes the current state of the application for the specified widgets: the latest time registration and the
+     * project or task selected on every widget.
+     * @param widgetIds The id's of the widgets to include in the snapshot.
+     * @return The {@link UiStateSnapshot}.
+     */
+    UiStateSnapshot createSnapshot(List<Integer> widgetIds);
+
+    /**
+     * Updates all widgets in the snapshot, without querying the application state again.
+     * @param snapshot The {@link UiStateSnapshot} to show on the widgets.
+     */
+    void updateWidgets(UiStateSnapshot snapshot);
+
     /**
      * Updates all widgets for which the id is specified in the list.
      * @param widgetIds The list of id's defining which widgets should be updated.
@@ -38,6 +38,7 @@ import eu.vranckaert.worktime.service.impl.ProjectServiceImpl;
 import eu.vranckaert.worktime.service.impl.TaskServiceImpl;
 import eu.vranckaert.worktime.service.impl.TimeRegistrationServiceImpl;
 import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
+import eu.vranckaert.worktime.service.ui.refresh.UiStateSnapshot;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.date.DateFormat;
 import eu.vranckaert.worktime.utils.date.DateUtils;
@@ -197,6 +198,15 @@ public class StatusBarNotificationServiceImpl implements StatusBarNotificationSe
         }
     }
 
+    @Override
+    public void updateNotification(UiStateSnapshot snapshot) {
+        if (snapshot.isTimeRegistrationOngoing() && Preferences.getShowStatusBarNotificationsPreference(context)) {
+            addOrUpdateNotification(snapshot.getLatestTimeRegistration());
+        } else {
+            removeOngoingTimeRegistrationNotification();
+        }
+    }
+
     @Override
     public void addStatusBarNotificationForBackup(String backupLocation, boolean success, String text, String bigText) {
         String ticker = null;
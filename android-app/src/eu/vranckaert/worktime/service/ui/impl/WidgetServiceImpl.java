@@ -48,12 +48,17 @@ import eu.vranckaert.worktime.service.impl.ProjectServiceImpl;
 import eu.vranckaert.worktime.service.impl.TaskServiceImpl;
 import eu.vranckaert.worktime.service.impl.TimeRegistrationServiceImpl;
 import eu.vranckaert.worktime.service.ui.WidgetService;
+import eu.vranckaert.worktime.service.ui.refresh.UiStateSnapshot;
 import eu.vranckaert.worktime.utils.context.Log;
 import eu.vranckaert.worktime.utils.preferences.Preferences;
 import eu.vranckaert.worktime.utils.widget.WidgetUtil;
 import roboguice.inject.ContextSingleton;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * User: DIRK VRANCKAERT
@@ -100,40 +105,98 @@ public class WidgetServiceImpl implements WidgetService {
 
     @Override
     public void updateWidgets(List<Integer> widgetIds) {
-        for (int widgetId : widgetIds) {
-            updateWidget(widgetId);
-        }
+        updateWidgets(createSnapshot(widgetIds));
     }
 
     @Override
-    public void updateWidgetsForTask(Task task) {
-        List<WidgetConfiguration> wcs = widgetConfigurationDao.findPerTaskId(task.getId());
+    public UiStateSnapshot createSnapshot(List<Integer> widgetIds) {
+        TimeRegistration latestTimeRegistration = timeRegistrationService.getLatestTimeRegistration();
+        if (latestTimeRegistration != null) {
+            timeRegistrationService.fullyInitialize(latestTimeRegistration);
+            Log.d(ctx, LOG_TAG, "The last time registration has ID " + latestTimeRegistration.getId());
+        } else {
+            Log.d(ctx, LOG_TAG, "No time registrations found yet!");
+        }
 
-        for (WidgetConfiguration wc : wcs) {
-            updateWidget(wc.getWidgetId());
+        UiStateSnapshot snapshot = new UiStateSnapshot(latestTimeRegistration);
+        if (widgetIds.isEmpty()) {
+            return snapshot;
         }
 
-        updateWidgetsForProject(task.getProject());
+        // Load all widget configurations at once instead of once per widget
+        Map<Integer, WidgetConfiguration> widgetConfigurations = new HashMap<Integer, WidgetConfiguration>();
+        for (WidgetConfiguration wc : widgetConfigurationDao.findAll()) {
+            widgetConfigurations.put(wc.getWidgetId(), wc);
+        }
+
+        for (int widgetId : widgetIds) {
+            WidgetConfiguration wc = widgetConfigurations.get(widgetId);
+            if (wc == null) {
+                Log.d(ctx, LOG_TAG, "No widget configuration found yet for widget with id " + widgetId);
+                snapshot.addWidget(widgetId, null, null, null);
+            } else if (wc.getProject() == null && wc.getTask() != null) {
+                Task task = wc.getTask();
+                if (taskService.checkTaskExisting(task)) {
+                    taskService.refresh(task);
+                } else {
+                    task = taskService.getSelectedTask(widgetId);
+                }
+                snapshot.addWidget(widgetId, wc, task != null ? task.getProject() : null, task);
+            } else {
+                Project project = wc.getProject();
+                if (project != null && projectService.checkProjectExisting(project)) {
+                    projectService.refresh(project);
+                } else {
+                    project = projectService.getSelectedProject(widgetId);
+                }
+                snapshot.addWidget(widgetId, wc, project, null);
+            }
+        }
+
+        return snapshot;
+    }
+
+    @Override
+    public void updateWidgets(UiStateSnapshot snapshot) {
+        for (int widgetId : snapshot.getWidgetIds()) {
+            updateWidget(widgetId, snapshot);
+        }
     }
 
-    private void updateWidgetsForProject(Project project) {
-        List<WidgetConfiguration> wcs = widgetConfigurationDao.findPerProjectId(project.getId());
+    @Override
+    public void updateWidgetsForTask(Task task) {
+        List<Integer> widgetIds = new ArrayList<Integer>();
 
-        for (WidgetConfiguration wc : wcs) {
-            updateWidget(wc.getWidgetId());
+        for (WidgetConfiguration wc : widgetConfigurationDao.findPerTaskId(task.getId())) {
+            widgetIds.add(wc.getWidgetId());
+        }
+        for (WidgetConfiguration wc : widgetConfigurationDao.findPerProjectId(task.getProject().getId())) {
+            widgetIds.add(wc.getWidgetId());
         }
+
+        updateWidgets(widgetIds);
     }
 
     @Override
     public void updateWidget(int id) {
+        updateWidgets(Arrays.asList(id));
+    }
+
+    /**
+     * Update the widget with a certain id based on the snapshot. This will forward the call to the method that will
+     * handle the request for widgets of this size.
+     * @param id The id of the widget to be updated.
+     * @param snapshot The {@link UiStateSnapshot} to show on the widget.
+     */
+    private void updateWidget(int id, UiStateSnapshot snapshot) {
         AppWidgetManager awm = AppWidgetManager.getInstance(ctx);
         AppWidgetProviderInfo info = awm.getAppWidgetInfo(id);
         if (info != null) {
             ComponentName componentName = info.provider;
             if (componentName.getClassName().equals(WorkTimeWidgetProvider_2x1_ProjectTask.class.getName())) {
-                updateWidget2x1ProjectTask(id);
+                updateWidget2x1ProjectTask(id, snapshot);
             } else if (componentName.getClassName().equals(WorkTimeWidgetProvider_2x2_Project.class.getName())) {
-                updateWidget2x2Project(id);
+                updateWidget2x2Project(id, snapshot);
             }
         }
     }
@@ -141,31 +204,30 @@ public class WidgetServiceImpl implements WidgetService {
     /**
      * Updates the widget's content for the 2x1 widgets for a project or task.
      * @param widgetId The id of the widget to be updated.
+     * @param snapshot The {@link UiStateSnapshot} to show on the widget.
      */
-    private void updateWidget2x1ProjectTask(int widgetId) {
+    private void updateWidget2x1ProjectTask(int widgetId, UiStateSnapshot snapshot) {
         Log.d(ctx, LOG_TAG, "Updating widget (2x1) with id " + widgetId);
 
         getViews(ctx, R.layout.worktime_appwidget_2x1_project_task);
 
         // Set the project-name
-        WidgetConfiguration wc = widgetConfigurationDao.findById(widgetId);
-        if (wc == null) {
+        UiStateSnapshot.WidgetSelection selection = snapshot.getWidgetSelection(widgetId);
+        if (selection.getConfiguration() == null) {
             views.setCharSequence(R.id.widget_title, "setText", ctx.getString(R.string.loading));
             return;
         }
 
-        if (wc.getProject() != null) {
-            Project project = projectService.getSelectedProject(widgetId);
-            views.setCharSequence(R.id.widget_title, "setText", project.getName());
-        } else if (wc.getTask() != null) {
-            Task task = taskService.getSelectedTask(widgetId);
-            views.setCharSequence(R.id.widget_title, "setText", task.getName());
+        if (selection.getTask() != null) {
+            views.setCharSequence(R.id.widget_title, "setText", selection.getTask().getName());
+        } else if (selection.getProject() != null) {
+            views.setCharSequence(R.id.widget_title, "setText", selection.getProject().getName());
         } else {
             views.setCharSequence(R.id.widget_title, "setText", "Corrupt data!");
         }
 
         // Set the button and it's action
-        setPunchButton(widgetId);
+        setPunchButton(widgetId, selection, snapshot.getLatestTimeRegistration());
 
         enableWidgetOnClick(R.id.widget);
 
@@ -176,18 +238,23 @@ public class WidgetServiceImpl implements WidgetService {
     /**
      * Updates the widget's content for the 2x2 widgets for projects.
      * @param widgetId The id of the widget to be updated.
+     * @param snapshot The {@link UiStateSnapshot} to show on the widget.
      */
-    private void updateWidget2x2Project(int widgetId) {
+    private void updateWidget2x2Project(int widgetId, UiStateSnapshot snapshot) {
         Log.d(ctx, LOG_TAG, "Updating widget (2x2) with id " + widgetId);
 
         getViews(ctx, R.layout.worktime_appwidget_2x2_project);
 
         //Update the selected project
-        Project selectedProject = projectService.getSelectedProject(widgetId);
+        Project selectedProject = snapshot.getWidgetSelection(widgetId).getProject();
+        if (selectedProject == null) {
+            // Not configured yet, this will create a configuration for the default project
+            selectedProject = projectService.getSelectedProject(widgetId);
+        }
         views.setCharSequence(R.id.widget_projectname, "setText", selectedProject.getName());
 
         // Set the button and it's action
-        boolean timeRegistrationStarted = setPunchButton(widgetId);
+        boolean timeRegistrationStarted = setPunchButton(widgetId, selectedProject, snapshot.getLatestTimeRegistration());
 
         //Enable on click for the entire widget to open the app
         enableWidgetOnClick(R.id.widget);
@@ -206,16 +273,11 @@ public class WidgetServiceImpl implements WidgetService {
         commitView(ctx, widgetId, views, WorkTimeWidgetProvider_2x2_Project.class);
     }
 
-    private boolean setPunchButton(int widgetId) {
-        boolean ongoingTimeRegistration = false;
-
-        WidgetConfiguration wc = widgetConfigurationDao.findById(widgetId);
-        if (wc.getProject() != null) {
-            Project project = projectService.getSelectedProject(widgetId);
-            return setPunchButton(widgetId, project);
-        } else if (wc.getTask() != null) {
-            Task task = taskService.getSelectedTask(widgetId);
-            return setPunchButton(widgetId, task);
+    private boolean setPunchButton(int widgetId, UiStateSnapshot.WidgetSelection selection, TimeRegistration lastTimeRegistration) {
+        if (selection.getTask() != null) {
+            return setPunchButton(widgetId, selection.getTask(), lastTimeRegistration);
+        } else if (selection.getProject() != null) {
+            return setPunchButton(widgetId, selection.getProject(), lastTimeRegistration);
         } else {
             String errorMsg = "Invalid widget configuration found for widget with id " + widgetId + ". Cause: no project or task found in the configuration, at least one of both should be available! The punch-button will not be set!";
             Log.w(ctx, LOG_TAG, errorMsg);
@@ -227,29 +289,20 @@ public class WidgetServiceImpl implements WidgetService {
      * Configure the "punch in"/"punch out" button to display the correct value and handle an on click correctly.
      * @param widgetId The id of the widget for which the button needs to be configured.
      * @param project The {@link Project} configured on that widget to be used to start/end a time registration for.
+     * @param lastTimeRegistration The latest (fully initialized) time registration, null if there is none.
      * @return {@link Boolean#TRUE} if a time registration is ongoing for this project, {@link Boolean#FALSE} if not.
      */
-    private boolean setPunchButton(int widgetId, Project project) {
+    private boolean setPunchButton(int widgetId, Project project, TimeRegistration lastTimeRegistration) {
         boolean ongoingTimeRegistration = false;
 
-        Long numberOfTimeRegs = timeRegistrationService.count();
-        TimeRegistration lastTimeRegistration = null;
-        if(numberOfTimeRegs > 0L) {
-            lastTimeRegistration = timeRegistrationService.getLatestTimeRegistration();
-            timeRegistrationService.fullyInitialize(lastTimeRegistration);
-            Log.d(ctx, LOG_TAG, "The last time registration has ID " + lastTimeRegistration.getId());
-        } else {
-            Log.d(ctx, LOG_TAG, "No time registrations found yet!");
-        }
-
-        if(numberOfTimeRegs == 0L || (lastTimeRegistration != null &&
-                (!lastTimeRegistration.isOngoingTimeRegistration() || !lastTimeRegistration.getTask().getProject().getId().equals(project.getId())) )) {
+        if(lastTimeRegistration == null || !lastTimeRegistration.isOngoingTimeRegistration()
+                || !lastTimeRegistration.getTask().getProject().getId().equals(project.getId())) {
             Log.d(ctx, LOG_TAG, "No time registrations found yet or it's an ended time registration");
             views.setCharSequence(R.id.widget_actionbtn, "setText", ctx.getString(R.string.btn_widget_start));
             //Enable on click for the start button
             Log.d(ctx, LOG_TAG, "Couple the start button to an on click action");
             startBackgroundWorkActivity(ctx, R.id.widget_actionbtn, TimeRegistrationPunchInActivity.class, null, null, widgetId);
-        } else if(lastTimeRegistration != null && lastTimeRegistration.isOngoingTimeRegistration() && lastTimeRegistration.getTask().getProject().getId().equals(project.getId())) {
+        } else {
             Log.d(ctx, LOG_TAG, "This is an ongoing time registration");
             views.setCharSequence(R.id.widget_actionbtn, "setText", ctx.getString(R.string.btn_widget_stop));
             //Enable on click for the stop button
@@ -265,29 +318,20 @@ public class WidgetServiceImpl implements WidgetService {
      * Configure the "punch in"/"punch out" button to display the correct value and handle an on click correctly.
      * @param widgetId The id of the widget for which the button needs to be configured.
      * @param task The {@link Task} configured on that widget to be used to start/end a time registration for.
+     * @param lastTimeRegistration The latest (fully initialized) time registration, null if there is none.
      * @return {@link Boolean#TRUE} if a time registration is ongoing for this task, {@link Boolean#FALSE} if not.
      */
-    private boolean setPunchButton(int widgetId, Task task) {
+    private boolean setPunchButton(int widgetId, Task task, TimeRegistration lastTimeRegistration) {
         boolean ongoingTimeRegistration = false;
 
-        Long numberOfTimeRegs = timeRegistrationService.count();
-        TimeRegistration lastTimeRegistration = null;
-        if(numberOfTimeRegs > 0L) {
-            lastTimeRegistration = timeRegistrationService.getLatestTimeRegistration();
-            timeRegistrationService.fullyInitialize(lastTimeRegistration);
-            Log.d(ctx, LOG_TAG, "The last time registration has ID " + lastTimeRegistration.getId());
-        } else {
-            Log.d(ctx, LOG_TAG, "No time registrations found yet!");
-        }
-
-        if(numberOfTimeRegs == 0L || (lastTimeRegistration != null &&
-                (!lastTimeRegistration.isOngoingTimeRegistration() || !lastTimeRegistration.getTask().getId().equals(task.getId())) )) {
+        if(lastTimeRegistration == null || !lastTimeRegistration.isOngoingTimeRegistration()
+                || !lastTimeRegistration.getTask().getId().equals(task.getId())) {
             Log.d(ctx, LOG_TAG, "No time registrations found yet or it's an ended time registration");
             views.setCharSequence(R.id.widget_actionbtn, "setText", ctx.getString(R.string.btn_widget_start));
             //Enable on click for the start button
             Log.d(ctx, LOG_TAG, "Couple the start button to an on click action");
             startBackgroundWorkActivity(ctx, R.id.widget_actionbtn, TimeRegistrationPunchInActivity.class, null, task, widgetId);
-        } else if(lastTimeRegistration != null && lastTimeRegistration.isOngoingTimeRegistration() && lastTimeRegistration.getTask().getId().equals(task.getId())) {
+        } else {
             Log.d(ctx, LOG_TAG, "This is an ongoing time registration");
             views.setCharSequence(R.id.widget_actionbtn, "setText", ctx.getString(R.string.btn_widget_stop));
             //Enable on click for the stop button
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.service.ui.refresh;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import eu.vranckaert.worktime.constants.Constants;
+import eu.vranckaert.worktime.service.ui.StatusBarNotificationService;
+import eu.vranckaert.worktime.service.ui.WidgetService;
+import eu.vranckaert.worktime.service.ui.impl.StatusBarNotificationServiceImpl;
+import eu.vranckaert.worktime.service.ui.impl.WidgetServiceImpl;
+import eu.vranckaert.worktime.utils.context.Log;
+import eu.vranckaert.worktime.utils.widget.WidgetUtil;
+
+/**
+ * Application wide bus to which every change that should be reflected on the widgets and the status bar notification
+ * is published (the DAO's of time registrations, projects, tasks and widget configurations publish every write).<br/>
+ * Changes are not handled immediately: a burst of changes (a punch out followed by a punch in, a split, a
+ * synchronization,...) is coalesced into one refresh that is executed on a background thread once no more changes
+ * are published for {@link Constants.UiRefresh#DEBOUNCE_DELAY} milliseconds, or at the latest
+ * {@link Constants.UiRefresh#MAX_DELAY} milliseconds after the first change of the burst. A refresh computes one
+ * {@link UiStateSnapshot} and pushes it to all widgets and the notification in one pass.<br/>
+ * Broadcast receivers and services can be killed as soon as they are done, so they should call {@link #flush()}
+ * before they return to refresh right away instead of waiting for the delayed refresh.
+ */
+public class UiRefreshBus {
+    private static final String LOG_TAG = UiRefreshBus.class.getSimpleName();
+
+    private static final UiRefreshBus INSTANCE = new UiRefreshBus();
+
+    private Context context;
+    private Handler handler;
+    private int pendingChanges = 0;
+    private long firstPendingChange = 0L;
+    /**
+     * Only one refresh runs at the same time.
+     */
+    private final Object refreshLock = new Object();
+
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+        }
+    };
+
+    private UiRefreshBus() {}
+
+    public static UiRefreshBus getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Publishes a change. The widgets and the notification will be refreshed once the burst of changes is over.
+     * @param ctx The context.
+     */
+    public synchronized void publish(Context ctx) {
+        if (handler == null) {
+            context = ctx.getApplicationContext();
+            HandlerThread thread = new HandlerThread(LOG_TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+
+        long now = SystemClock.uptimeMillis();
+        if (pendingChanges == 0) {
+            firstPendingChange = now;
+        }
+        pendingChanges++;
+
+        long refreshTime = Math.min(now + Constants.UiRefresh.DEBOUNCE_DELAY, firstPendingChange + Constants.UiRefresh.MAX_DELAY);
+        handler.removeCallbacks(refreshRunnable);
+        handler.postAtTime(refreshRunnable, refreshTime);
+    }
+
+    /**
+     * Refreshes the widgets and the notification on the calling thread if changes have been published that are not
+     * refreshed yet, instead of waiting for the delayed refresh. If a delayed refresh is running it is waited for.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (handler != null) {
+                handler.removeCallbacks(refreshRunnable);
+            }
+        }
+        refresh();
+    }
+
+    /**
+     * Computes the current state and pushes it to all widgets and the status bar notification.
+     */
+    private void refresh() {
+        synchronized (refreshLock) {
+            int changes;
+            synchronized (this) {
+                changes = pendingChanges;
+                pendingChanges = 0;
+            }
+            if (changes == 0) {
+                return;
+            }
+
+            Log.d(context, LOG_TAG, "Refreshing the widgets and notification for " + changes + " change(s)");
+            try {
+                WidgetService widgetService = new WidgetServiceImpl(context);
+                StatusBarNotificationService statusBarNotificationService = new StatusBarNotificationServiceImpl(context);
+
+                UiStateSnapshot snapshot = widgetService.createSnapshot(WidgetUtil.getAllWidgetIds(context));
+                widgetService.updateWidgets(snapshot);
+                statusBarNotificationService.updateNotification(snapshot);
+            } catch (RuntimeException e) {
+                // Never let a failing refresh kill the refresh thread, the next change will try again
+                Log.e(context, LOG_TAG, "Could not refresh the widgets and notification", e);
+            }
+        }
+    }
+}
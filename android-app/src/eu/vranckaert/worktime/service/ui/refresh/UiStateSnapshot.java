@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.service.ui.refresh;
+
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.WidgetConfiguration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The state of the application that is shown outside of the application itself: the latest (possibly ongoing) time
+ * registration with it's task and project, and the project or task that is selected on every widget. The snapshot is
+ * computed once (see {@link eu.vranckaert.worktime.service.ui.WidgetService#createSnapshot(java.util.List)}) and then
+ * used to update all widgets and the status bar notification, so that none of them has to query the database again.
+ */
+public class UiStateSnapshot {
+    private final TimeRegistration latestTimeRegistration;
+    private final Map<Integer, WidgetSelection> widgetSelections = new LinkedHashMap<Integer, WidgetSelection>();
+
+    /**
+     * Creates a new snapshot.
+     * @param latestTimeRegistration The latest time registration, fully initialized, or null if there is no time
+     * registration yet.
+     */
+    public UiStateSnapshot(TimeRegistration latestTimeRegistration) {
+        this.latestTimeRegistration = latestTimeRegistration;
+    }
+
+    /**
+     * Adds the selection of a widget to the snapshot.
+     * @param widgetId The id of the widget.
+     * @param configuration The configuration of the widget, null if the widget is not yet configured.
+     * @param project The project selected on the widget, if any.
+     * @param task The task selected on the widget, if any.
+     */
+    public void addWidget(int widgetId, WidgetConfiguration configuration, Project project, Task task) {
+        widgetSelections.put(widgetId, new WidgetSelection(widgetId, configuration, project, task));
+    }
+
+    public TimeRegistration getLatestTimeRegistration() {
+        return latestTimeRegistration;
+    }
+
+    /**
+     * Checks if a time registration is ongoing.
+     * @return True if the latest time registration is ongoing, false if not or if there is no time registration.
+     */
+    public boolean isTimeRegistrationOngoing() {
+        return latestTimeRegistration != null && latestTimeRegistration.isOngoingTimeRegistration();
+    }
+
+    /**
+     * Get the id's of all widgets in this snapshot.
+     * @return The list of widget id's.
+     */
+    public List<Integer> getWidgetIds() {
+        return new ArrayList<Integer>(widgetSelections.keySet());
+    }
+
+    /**
+     * Get the selection of a widget.
+     * @param widgetId The id of the widget.
+     * @return The selection of the widget, or null if the widget is not part of this snapshot.
+     */
+    public WidgetSelection getWidgetSelection(int widgetId) {
+        return widgetSelections.get(widgetId);
+    }
+
+    /**
+     * The project or task that is selected on one widget.
+     */
+    public static class WidgetSelection {
+        private final int widgetId;
+        private final WidgetConfiguration configuration;
+        private final Project project;
+        private final Task task;
+
+        private WidgetSelection(int widgetId, WidgetConfiguration configuration, Project project, Task task) {
+            this.widgetId = widgetId;
+            this.configuration = configuration;
+            this.project = project;
+            this.task = task;
+        }
+
+        public int getWidgetId() {
+            return widgetId;
+        }
+
+        public WidgetConfiguration getConfiguration() {
+            return configuration;
+        }
+
+        public Project getProject() {
+            return project;
+        }
+
+        public Task getTask() {
+            return task;
+        }
+    }
+}
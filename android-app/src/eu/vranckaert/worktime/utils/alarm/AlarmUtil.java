@@ -22,6 +22,8 @@ import android.content.Context;
 import android.content.Intent;
 import android.util.Log;
 import eu.vranckaert.worktime.activities.account.AccountSyncService;
+import eu.vranckaert.worktime.activities.triggers.TriggerGeofenceService;
+import eu.vranckaert.worktime.activities.triggers.TriggerRecurrenceService;
 import eu.vranckaert.worktime.constants.Constants;
 import eu.vranckaert.worktime.model.SyncHistory;
 
@@ -46,6 +48,18 @@ public class AlarmUtil {
         return operation;
     }
 
+    private static PendingIntent getRecurrenceOperation(Context context) {
+        Intent intent = new Intent(context, TriggerRecurrenceService.class);
+        PendingIntent operation = PendingIntent.getService(context, Constants.IntentRequestCodes.ALARM_RECURRENCE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+        return operation;
+    }
+
+    private static PendingIntent getGeofenceTransitionsOperation(Context context) {
+        Intent intent = new Intent(context, TriggerGeofenceService.class);
+        PendingIntent operation = PendingIntent.getService(context, Constants.IntentRequestCodes.ALARM_GEOFENCE_TRANSITIONS, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+        return operation;
+    }
+
     /**
      * Remove all planned synchronization alarms.
      * @param context The context.
@@ -144,4 +158,34 @@ public class AlarmUtil {
 
         getAlarmManager(context).set(AlarmManager.RTC_WAKEUP, syncTime.getTime().getTime(), getSyncOperation(context, Constants.IntentRequestCodes.ALARM_SYNC_RETRY));
     }
+
+    /**
+     * Schedule the one alarm for all recurrence triggers. A previously scheduled recurrence alarm is replaced.
+     * @param context The context.
+     * @param time The time the alarm should go off, if in the past it goes off immediately.
+     */
+    public static void setRecurrenceAlarm(Context context, Date time) {
+        getAlarmManager(context).set(AlarmManager.RTC_WAKEUP, time.getTime(), getRecurrenceOperation(context));
+        Log.i(LOG_TAG, "Recurrence alarm scheduled to go off at " + time);
+    }
+
+    /**
+     * Remove the planned recurrence alarm.
+     * @param context The context.
+     */
+    public static void removeRecurrenceAlarm(Context context) {
+        getAlarmManager(context).cancel(getRecurrenceOperation(context));
+        Log.i(LOG_TAG, "The recurrence alarm has been removed");
+    }
+
+    /**
+     * Schedule the alarm to process the buffered geofence transitions once they are settled. A previously scheduled
+     * alarm is replaced.
+     * @param context The context.
+     * @param time The time (in milliseconds) the alarm should go off.
+     */
+    public static void setGeofenceTransitionsAlarm(Context context, long time) {
+        getAlarmManager(context).set(AlarmManager.RTC_WAKEUP, time, getGeofenceTransitionsOperation(context));
+        Log.i(LOG_TAG, "Geofence transitions alarm scheduled to go off at " + new Date(time));
+    }
 }
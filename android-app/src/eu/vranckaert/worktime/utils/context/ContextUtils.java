@@ -33,6 +33,8 @@ import java.util.Locale;
 public class ContextUtils {
     private static final String LOG_TAG = ContextUtils.class.getSimpleName();
 
+    private static volatile Boolean stableBuild = null;
+
     /**
      * Get the current user locale.
      * @param context The context on which to search for the locale.
@@ -124,15 +126,24 @@ public class ContextUtils {
      * @return {@link Boolean#TRUE} if the current version of the application is stable, {@link Boolean#FALSE} if not.
      */
     public static boolean isStableBuild(Context ctx) {
+        // Checked on every log statement, the version cannot change while the process is running
+        Boolean stableBuild = ContextUtils.stableBuild;
+        if (stableBuild != null) {
+            return stableBuild;
+        }
+
         String[] nonFinalBuildNames = {"unstable", "alpha", "beta", "rc"};
         String version = ContextUtils.getCurrentApplicationVersionName(ctx).toLowerCase();
 
+        stableBuild = true;
         for (String nonFinalBuildName : nonFinalBuildNames) {
             if (version.contains(nonFinalBuildName)) {
-                return false;
+                stableBuild = false;
+                break;
             }
         }
 
-        return true;
+        ContextUtils.stableBuild = stableBuild;
+        return stableBuild;
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.utils.context;
+
+import android.content.Context;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the time spent in the phases of starting the application: creating the application, injecting the
+ * dependencies of activities, creating the ORMLite DAO's, handling widget broadcasts and the time it takes until the
+ * first frame of the first activity is drawn. The timings are kept in memory for the lifetime of the process and can
+ * be viewed in the {@link eu.vranckaert.worktime.activities.about.QueryStatisticsActivity} (non-stable builds only).
+ */
+public class StartupTimings {
+    private static final String LOG_TAG = StartupTimings.class.getSimpleName();
+
+    /**
+     * The phases of starting the application.
+     */
+    public enum Phase {
+        APPLICATION_CREATE,
+        DEPENDENCY_INJECTION,
+        DAO_CREATION,
+        WIDGET_BROADCAST,
+        TIME_TO_FIRST_FRAME
+    }
+
+    /**
+     * The moment the class is loaded, which is (almost) the start of the process as the application loads it first.
+     */
+    private static final long PROCESS_START = System.nanoTime();
+
+    private static final Map<Phase, Entry> entries = new EnumMap<Phase, Entry>(Phase.class);
+    private static boolean firstFrameDrawn = false;
+
+    /**
+     * Makes sure the start of the process is recorded, should be called as soon as the application is created.
+     */
+    public static void processStarted() {
+        // Loading the class is enough
+    }
+
+    /**
+     * Records the time spent in a phase.
+     * @param phase The phase.
+     * @param duration The time in nanoseconds.
+     */
+    public static synchronized void record(Phase phase, long duration) {
+        Entry entry = entries.get(phase);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(phase, entry);
+        }
+        entry.count++;
+        entry.total += duration;
+        if (duration > entry.max) {
+            entry.max = duration;
+        }
+    }
+
+    /**
+     * Records the time from the start of the process until the first frame is drawn, only the first call in the lifetime
+     * of the process is recorded.
+     * @param ctx The context.
+     */
+    public static void firstFrameDrawn(Context ctx) {
+        long duration;
+        synchronized (StartupTimings.class) {
+            if (firstFrameDrawn) {
+                return;
+            }
+            firstFrameDrawn = true;
+            duration = System.nanoTime() - PROCESS_START;
+            record(Phase.TIME_TO_FIRST_FRAME, duration);
+        }
+        Log.d(ctx, LOG_TAG, "First frame drawn " + toMillis(duration) + "ms after the start of the process: " + dump());
+    }
+
+    /**
+     * Creates a summary of all timings (one line per phase), to be used for logging or to be displayed.
+     * @return The summary.
+     */
+    public static synchronized String dump() {
+        StringBuilder dump = new StringBuilder("startup timings (ms)");
+        for (Phase phase : Phase.values()) {
+            Entry entry = entries.get(phase);
+            if (entry != null) {
+                dump.append('\n').append(phase.name().toLowerCase())
+                        .append(": count=").append(entry.count)
+                        .append(", total=").append(toMillis(entry.total))
+                        .append(", avg=").append(toMillis(entry.total / entry.count))
+                        .append(", max=").append(toMillis(entry.max));
+            }
+        }
+        return dump.toString();
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1000000L;
+    }
+
+    private static class Entry {
+        private long count = 0L;
+        private long total = 0L;
+        private long max = 0L;
+    }
+}
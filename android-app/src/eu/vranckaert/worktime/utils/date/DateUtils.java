@@ -116,7 +116,7 @@ public class DateUtils {
 
             switch(format) {
                 case MEDIUM: {
-                    TimePrecisionPreference timePrecisionPreference = Preferences.getTimePrecision(ctx);
+                    TimePrecisionPreference timePrecisionPreference = Preferences.getSnapshot(ctx).getTimePrecision();
                     switch (timePrecisionPreference) {
                         case SECOND: {
                             dateFormat = separator + minutes + separator + seconds;
@@ -285,9 +285,21 @@ public class DateUtils {
          * @return The {@link org.joda.time.Interval} between the two dates.
          */
         public static final Interval calculateInterval(Context ctx, Date startDate, Date endDate) {
-            Calendar start = TimePrecision.applyTimePrecisionCalendar(ctx, startDate);
+            return calculateInterval(Preferences.getSnapshot(ctx).getTimePrecision(), startDate, endDate);
+        }
 
-            Calendar end = TimePrecision.applyTimePrecisionCalendar(ctx, endDate);
+        /**
+         * Calculates the time ({@link org.joda.time.Interval}) between two dates, applying the specified time
+         * precision on the start and end date.
+         * @param precision The {@link TimePrecisionPreference} to apply.
+         * @param startDate The start date for the interval.
+         * @param endDate The ending date for the interval.
+         * @return The {@link org.joda.time.Interval} between the two dates.
+         */
+        private static Interval calculateInterval(TimePrecisionPreference precision, Date startDate, Date endDate) {
+            Calendar start = TimePrecision.applyTimePrecisionCalendar(precision, startDate);
+
+            Calendar end = TimePrecision.applyTimePrecisionCalendar(precision, endDate);
 
             if(end.before(start)) {
                 Calendar swap = start;
@@ -409,7 +421,7 @@ public class DateUtils {
                 seperatorRes = " ";
             }
             
-            TimePrecisionPreference preference = Preferences.getTimePrecision(ctx);
+            TimePrecisionPreference preference = Preferences.getSnapshot(ctx).getTimePrecision();
             switch (preference) {
                 case SECOND: {
                     hoursString = hours + hoursRes + seperatorRes;
@@ -448,14 +460,15 @@ public class DateUtils {
          */
         public static final Period calculatePeriod(Context ctx, List<TimeRegistration> registrations) {
             Long duration = 0L;
+            TimePrecisionPreference precision = Preferences.getSnapshot(ctx).getTimePrecision();
 
             Log.d(ctx, LOG_TAG, "Calculating period for " + registrations.size() + " TR's...");
             for (TimeRegistration registration : registrations) {
                 Duration regDuration = null;
                 if (registration.isOngoingTimeRegistration()) {
-                    regDuration = calculateDuration(ctx, registration.getStartTime(), new Date());
+                    regDuration = calculateInterval(precision, registration.getStartTime(), new Date()).toDuration();
                 } else {
-                    regDuration = calculateDuration(ctx, registration.getStartTime(), registration.getEndTime());
+                    regDuration = calculateInterval(precision, registration.getStartTime(), registration.getEndTime()).toDuration();
                 }
                 Log.d(ctx, LOG_TAG, "Calculated duration: " + regDuration);
                 Log.d(ctx, LOG_TAG, "About to add milis: " + regDuration.getMillis());
@@ -512,7 +525,7 @@ public class DateUtils {
             String secondsString = "";
             String periodString = "";
 
-            TimePrecisionPreference preference = Preferences.getTimePrecision(ctx);
+            TimePrecisionPreference preference = Preferences.getSnapshot(ctx).getTimePrecision();
             switch (preference) {
                 case SECOND: {
                     daysString = StringUtils.leftPad(String.valueOf(days), "0", 2) + ctx.getString(R.string.daysShort) + " ";
@@ -710,7 +723,7 @@ public class DateUtils {
          * {@link DateConstants#LAST_DAY_OF_WEEK).
          */
         public static SparseArray<Date> calculateWeekBoundaries(final int weekDiff, final Date date, final Context ctx) {
-            int weekStartsOn = Preferences.getWeekStartsOn(ctx);
+            int weekStartsOn = Preferences.getSnapshot(ctx).getWeekStartsOn();
 
             Date dateWithWeeks = addWeeksToDate(date, weekDiff);
             
@@ -868,50 +881,30 @@ public class DateUtils {
     }
 
     /**
-     * Containing some methods to determine the time precision to be used in this utility class.
+     * Containing some methods to apply the time precision to be used in this utility class. The
+     * {@link TimePrecisionPreference} is passed in by the callers (read once from the
+     * {@link eu.vranckaert.worktime.utils.preferences.PreferencesSnapshot}) instead of being looked up for every date.
      */
     private static class TimePrecision {
         /**
-         * Apply the user's selected {@link TimePrecisionPreference} on the provided {@link Date}.
-         * @param ctx The context to search for the preference setting.
-         * @param date The {@link Date} to which the the {@link TimePrecisionPreference} must be applied.
-         * @return The {@link Date} with the applied {@link TimePrecisionPreference}.
-         */
-        private static Date applyTimePrecision(Context ctx, Date date) {
-            return applyTimePrecisionCalendar(ctx, date).getTime();
-        }
-
-        /**
-         * Apply the user's selected {@link TimePrecisionPreference} on the provided {@link Calendar}.
-         * @param ctx The context to search for the preference setting.
-         * @param cal The {@link Calendar} to which the the {@link TimePrecisionPreference} must be applied.
-         * @return The {@link Date} with the applied {@link TimePrecisionPreference}.
-         */
-        private static Date applyTimePrecision(Context ctx, Calendar cal) {
-            return applyTimePrecisionCalendar(ctx, cal).getTime();
-        }
-
-        /**
-         * Apply the user's selected {@link TimePrecisionPreference} on the provided {@link Date}.
-         * @param ctx The context to search for the preference setting.
+         * Apply the {@link TimePrecisionPreference} on the provided {@link Date}.
+         * @param preference The {@link TimePrecisionPreference} to apply.
          * @param date The {@link Date} to which the the {@link TimePrecisionPreference} must be applied.
          * @return The {@link Calendar} with the applied {@link TimePrecisionPreference}.
          */
-        private static Calendar applyTimePrecisionCalendar(Context ctx, Date date) {
+        private static Calendar applyTimePrecisionCalendar(TimePrecisionPreference preference, Date date) {
             Calendar cal = Calendar.getInstance();
             cal.setTime(date);
-            return applyTimePrecisionCalendar(ctx, cal);
+            return applyTimePrecisionCalendar(preference, cal);
         }
 
         /**
-         * Apply the user's selected {@link TimePrecisionPreference} on the provided {@link Calendar}.
-         * @param ctx The context to search for the preference setting.
+         * Apply the {@link TimePrecisionPreference} on the provided {@link Calendar}.
+         * @param preference The {@link TimePrecisionPreference} to apply.
          * @param cal The {@link Calendar} to which the the {@link TimePrecisionPreference} must be applied.
          * @return The {@link Calendar} with the applied {@link TimePrecisionPreference}.
          */
-        private static Calendar applyTimePrecisionCalendar(Context ctx, Calendar cal) {
-            TimePrecisionPreference preference = Preferences.getTimePrecision(ctx);
-            
+        private static Calendar applyTimePrecisionCalendar(TimePrecisionPreference preference, Calendar cal) {
             switch (preference) {
                 case SECOND:
                     cal.set(Calendar.MILLISECOND, 0);
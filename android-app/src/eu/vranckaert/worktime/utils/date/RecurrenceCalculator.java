@@ -0,0 +1,220 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.utils.date;
+
+import eu.vranckaert.worktime.model.trigger.RecurrenceTrigger;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Calculates the occurrences of a {@link RecurrenceTrigger}. An occurrence is the period of one time registration
+ * that should be created for the trigger: on every day of the week that is enabled in the trigger, between the start
+ * and end time of the trigger. If the end time is not after the start time the occurrence ends on the next day.<br/>
+ * The calculations do not touch the database, they only use the trigger itself.
+ */
+public class RecurrenceCalculator {
+    /**
+     * An occurrence of a {@link RecurrenceTrigger}.
+     */
+    public static class Occurrence implements Comparable<Occurrence> {
+        private final RecurrenceTrigger trigger;
+        private final Date startTime;
+        private final Date endTime;
+
+        public Occurrence(RecurrenceTrigger trigger, Date startTime, Date endTime) {
+            this.trigger = trigger;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        public RecurrenceTrigger getTrigger() {
+            return trigger;
+        }
+
+        public Date getStartTime() {
+            return startTime;
+        }
+
+        public Date getEndTime() {
+            return endTime;
+        }
+
+        /**
+         * Checks if this occurrence overlaps with a period. A period without end is considered to be ongoing.
+         * @param start The start of the period.
+         * @param end The end of the period, can be null.
+         * @return True if both overlap.
+         */
+        public boolean overlaps(Date start, Date end) {
+            return startTime.before(end == null ? new Date(Long.MAX_VALUE) : end) && start.before(endTime);
+        }
+
+        @Override
+        public int compareTo(Occurrence other) {
+            return startTime.compareTo(other.startTime);
+        }
+    }
+
+    /**
+     * Calculates all occurrences of a trigger that end after a certain date and before (or on) another date. The
+     * number of times a trigger can be triggered is taken into account.
+     * @param trigger The trigger.
+     * @param after Only occurrences that end after this date are returned. If null all occurrences since the start date
+     * of the trigger are returned.
+     * @param until Only occurrences that end before or on this date are returned.
+     * @return The occurrences, sorted by start time.
+     */
+    public static List<Occurrence> getOccurrences(RecurrenceTrigger trigger, Date after, Date until) {
+        List<Occurrence> occurrences = new ArrayList<Occurrence>();
+        int remaining = getRemainingOccurrences(trigger);
+        if (remaining == 0 || !hasWeekDays(trigger)) {
+            return occurrences;
+        }
+
+        Calendar day = getFirstDay(trigger, after);
+        while (remaining > 0) {
+            Occurrence occurrence = getOccurrence(trigger, day);
+            if (occurrence == null || occurrence.getEndTime().after(until)) {
+                break;
+            }
+            if (isOccurring(trigger, day) && (after == null || occurrence.getEndTime().after(after))) {
+                occurrences.add(occurrence);
+                remaining--;
+            }
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+
+        return occurrences;
+    }
+
+    /**
+     * Calculates the first occurrence of a trigger that ends after a certain date.
+     * @param trigger The trigger.
+     * @param after The date after which the occurrence should end. If null the first occurrence since the start date
+     * of the trigger is returned.
+     * @return The next occurrence or null if the trigger will not occur anymore.
+     */
+    public static Occurrence getNextOccurrence(RecurrenceTrigger trigger, Date after) {
+        if (getRemainingOccurrences(trigger) == 0 || !hasWeekDays(trigger)) {
+            return null;
+        }
+
+        Calendar day = getFirstDay(trigger, after);
+        // At least one day of the week is enabled, so within eight days there is an occurrence
+        for (int i = 0; i <= 8; i++) {
+            Occurrence occurrence = getOccurrence(trigger, day);
+            if (occurrence == null) {
+                return null;
+            }
+            if (isOccurring(trigger, day) && (after == null || occurrence.getEndTime().after(after))) {
+                return occurrence;
+            }
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The number of times the trigger can still be triggered, {@link Integer#MAX_VALUE} if not limited.
+     */
+    private static int getRemainingOccurrences(RecurrenceTrigger trigger) {
+        if (trigger.getTriggerEndTimes() == null) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(0, trigger.getTriggerEndTimes() - trigger.getTimesTriggered());
+    }
+
+    private static boolean hasWeekDays(RecurrenceTrigger trigger) {
+        return trigger.isMonday() || trigger.isTuesday() || trigger.isWednesday() || trigger.isThursday()
+                || trigger.isFriday() || trigger.isSaturday() || trigger.isSunday();
+    }
+
+    /**
+     * The first day to look for occurrences. An occurrence that ends after the date can have started the day before.
+     */
+    private static Calendar getFirstDay(RecurrenceTrigger trigger, Date after) {
+        Calendar day = Calendar.getInstance();
+        day.setTime(DateUtils.Various.setMinTimeValueOfDay(trigger.getTriggerStartDate()));
+
+        if (after != null) {
+            Calendar dayBefore = Calendar.getInstance();
+            dayBefore.setTime(DateUtils.Various.setMinTimeValueOfDay(after));
+            dayBefore.add(Calendar.DAY_OF_MONTH, -1);
+            if (dayBefore.after(day)) {
+                day = dayBefore;
+            }
+        }
+
+        return day;
+    }
+
+    /**
+     * Calculates the occurrence that starts on a certain day, whether the trigger is enabled on that day or not.
+     * @return The occurrence or null if the day is after the end date of the trigger.
+     */
+    private static Occurrence getOccurrence(RecurrenceTrigger trigger, Calendar day) {
+        if (trigger.getTriggerEndDate() != null && day.getTime().after(trigger.getTriggerEndDate())) {
+            return null;
+        }
+
+        Date startTime = setTimeOfDay(day, trigger.getTimeRegistrationStartTime());
+        Date endTime = setTimeOfDay(day, trigger.getTimeRegistrationEndTime());
+        if (!endTime.after(startTime)) {
+            Calendar nextDay = (Calendar) day.clone();
+            nextDay.add(Calendar.DAY_OF_MONTH, 1);
+            endTime = setTimeOfDay(nextDay, trigger.getTimeRegistrationEndTime());
+        }
+
+        return new Occurrence(trigger, startTime, endTime);
+    }
+
+    private static Date setTimeOfDay(Calendar day, Date time) {
+        Calendar timeCal = Calendar.getInstance();
+        timeCal.setTime(time);
+
+        Calendar result = (Calendar) day.clone();
+        result.set(Calendar.HOUR_OF_DAY, timeCal.get(Calendar.HOUR_OF_DAY));
+        result.set(Calendar.MINUTE, timeCal.get(Calendar.MINUTE));
+        result.set(Calendar.SECOND, 0);
+        result.set(Calendar.MILLISECOND, 0);
+        return result.getTime();
+    }
+
+    private static boolean isOccurring(RecurrenceTrigger trigger, Calendar day) {
+        switch (day.get(Calendar.DAY_OF_WEEK)) {
+            case Calendar.MONDAY:
+                return trigger.isMonday();
+            case Calendar.TUESDAY:
+                return trigger.isTuesday();
+            case Calendar.WEDNESDAY:
+                return trigger.isWednesday();
+            case Calendar.THURSDAY:
+                return trigger.isThursday();
+            case Calendar.FRIDAY:
+                return trigger.isFriday();
+            case Calendar.SATURDAY:
+                return trigger.isSaturday();
+            case Calendar.SUNDAY:
+                return trigger.isSunday();
+        }
+        return false;
+    }
+}
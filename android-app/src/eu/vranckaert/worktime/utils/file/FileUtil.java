@@ -32,8 +32,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.channels.FileChannel;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 /**
  * User: DIRK VRANCKAERT
@@ -64,6 +67,36 @@ public class FileUtil {
         }
     }
 
+    /**
+     * Decompress the content of a GZIP file into another file. The content is streamed so the file is never completely
+     * loaded in memory.
+     * @param src The GZIP file to decompress.
+     * @param dest The destination to write the decompressed content to.
+     * @throws IOException If the file cannot be read or written, or if the checksum of the decompressed content does
+     * not match the checksum in the GZIP file ({@link java.util.zip.ZipException}).
+     */
+    public static void decompressFile(File src, File dest) throws IOException {
+        InputStream in = new GZIPInputStream(new FileInputStream(src), Constants.Backup.BUFFER_SIZE);
+        try {
+            OutputStream out = new FileOutputStream(dest);
+            try {
+                copyStream(in, out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void copyStream(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[Constants.Backup.BUFFER_SIZE];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+        }
+    }
+
     /**
      * Get the directory where databases are stored on the device.
      * @param ctx The context.
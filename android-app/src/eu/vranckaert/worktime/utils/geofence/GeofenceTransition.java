@@ -0,0 +1,63 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.vranckaert.worktime.utils.geofence;
+
+/**
+ * One transition of a geofence: entering or leaving it at a certain time.
+ */
+public class GeofenceTransition implements Comparable<GeofenceTransition> {
+    private String requestId;
+    private int transition;
+    private long time;
+
+    public GeofenceTransition(String requestId, int transition, long time) {
+        this.requestId = requestId;
+        this.transition = transition;
+        this.time = time;
+    }
+
+    /**
+     * @return The request id of the geofence.
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * @return The transition, {@link com.google.android.gms.location.Geofence#GEOFENCE_TRANSITION_ENTER} or
+     * {@link com.google.android.gms.location.Geofence#GEOFENCE_TRANSITION_EXIT}.
+     */
+    public int getTransition() {
+        return transition;
+    }
+
+    /**
+     * @return The time of the transition in milliseconds.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public int compareTo(GeofenceTransition other) {
+        return time < other.time ? -1 : (time == other.time ? 0 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return requestId + "/" + transition + "@" + time;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.vranckaert.worktime.utils.geofence;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffers geofence transitions to filter out the bursts caused by GPS jitter at the boundary of a geofence (entering,
+ * leaving and entering again within a few seconds).<br/>
+ * The transitions of one geofence that each follow the previous one within the debounce window form a burst. A burst
+ * is settled once no transition has been added to it for the length of the window, only then it's returned by
+ * {@link #drainSettled(long)}, collapsed into one single transition:
+ * <li>If the burst starts and ends with the same transition (enter, leave, enter) it's collapsed into that transition,
+ * at the time of the first transition of the burst.</li>
+ * <li>If the burst starts and ends with a different transition (enter, leave) the geofence is in the same state before
+ * and after the burst, so the burst is dropped.</li>
+ * The buffer is not thread safe.
+ */
+public class GeofenceTransitionBuffer {
+    private final long window;
+    private final List<GeofenceTransition> pending = new ArrayList<GeofenceTransition>();
+
+    /**
+     * Creates an empty buffer.
+     * @param window The debounce window in milliseconds.
+     */
+    public GeofenceTransitionBuffer(long window) {
+        this.window = window;
+    }
+
+    /**
+     * Creates a buffer with the pending transitions of a buffer that has been serialized with {@link #serialize()}.
+     * @param window The debounce window in milliseconds.
+     * @param serialized The serialized transitions, can be null.
+     * @return The buffer.
+     */
+    public static GeofenceTransitionBuffer deserialize(long window, String serialized) {
+        GeofenceTransitionBuffer buffer = new GeofenceTransitionBuffer(window);
+        if (serialized != null && serialized.length() > 0) {
+            List<GeofenceTransition> transitions = new Gson().fromJson(serialized, new TypeToken<List<GeofenceTransition>>() {}.getType());
+            buffer.addAll(transitions);
+        }
+        return buffer;
+    }
+
+    /**
+     * @return The pending transitions serialized to a string, to be restored with {@link #deserialize(long, String)}.
+     */
+    public String serialize() {
+        return new Gson().toJson(pending);
+    }
+
+    public void add(GeofenceTransition transition) {
+        pending.add(transition);
+    }
+
+    public void addAll(List<GeofenceTransition> transitions) {
+        pending.addAll(transitions);
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * @return The time (in milliseconds) at which the first of the pending bursts is settled or null if there are no
+     * pending transitions.
+     */
+    public Long getNextSettleTime() {
+        Long nextSettleTime = null;
+        for (List<GeofenceTransition> transitions : groupByGeofence(pending).values()) {
+            long settleTime = transitions.get(transitions.size() - 1).getTime() + window;
+            if (nextSettleTime == null || settleTime < nextSettleTime) {
+                nextSettleTime = settleTime;
+            }
+        }
+        return nextSettleTime;
+    }
+
+    /**
+     * Removes all settled bursts from the buffer. The transitions of bursts that are not yet settled stay in the
+     * buffer.
+     * @param now The current time in milliseconds.
+     * @return The collapsed transitions of all settled bursts, sorted by time.
+     */
+    public List<GeofenceTransition> drainSettled(long now) {
+        List<GeofenceTransition> settled = new ArrayList<GeofenceTransition>();
+        List<GeofenceTransition> stillPending = new ArrayList<GeofenceTransition>();
+
+        for (List<GeofenceTransition> transitions : groupByGeofence(pending).values()) {
+            List<GeofenceTransition> burst = new ArrayList<GeofenceTransition>();
+            for (GeofenceTransition transition : transitions) {
+                if (!burst.isEmpty() && transition.getTime() - burst.get(burst.size() - 1).getTime() > window) {
+                    addCollapsed(settled, burst);
+                    burst = new ArrayList<GeofenceTransition>();
+                }
+                burst.add(transition);
+            }
+
+            if (now - burst.get(burst.size() - 1).getTime() >= window) {
+                addCollapsed(settled, burst);
+            } else {
+                stillPending.addAll(burst);
+            }
+        }
+
+        pending.clear();
+        pending.addAll(stillPending);
+        Collections.sort(settled);
+        return settled;
+    }
+
+    private void addCollapsed(List<GeofenceTransition> settled, List<GeofenceTransition> burst) {
+        GeofenceTransition first = burst.get(0);
+        GeofenceTransition last = burst.get(burst.size() - 1);
+        if (first.getTransition() == last.getTransition()) {
+            settled.add(first);
+        }
+    }
+
+    /**
+     * @return The transitions per geofence, sorted by time.
+     */
+    private Map<String, List<GeofenceTransition>> groupByGeofence(List<GeofenceTransition> transitions) {
+        List<GeofenceTransition> sorted = new ArrayList<GeofenceTransition>(transitions);
+        Collections.sort(sorted);
+
+        Map<String, List<GeofenceTransition>> transitionsByGeofence = new LinkedHashMap<String, List<GeofenceTransition>>();
+        for (GeofenceTransition transition : sorted) {
+            List<GeofenceTransition> geofenceTransitions = transitionsByGeofence.get(transition.getRequestId());
+            if (geofenceTransitions == null) {
+                geofenceTransitions = new ArrayList<GeofenceTransition>();
+                transitionsByGeofence.put(transition.getRequestId(), geofenceTransitions);
+            }
+            geofenceTransitions.add(transition);
+        }
+        return transitionsByGeofence;
+    }
+}
@@ -24,6 +24,7 @@ import android.net.wifi.WifiInfo;
 import android.net.wifi.WifiManager;
 import android.util.Log;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.DefaultHttpClient;
 
@@ -58,9 +59,23 @@ public class NetworkUtil {
      * @return {@link Boolean#TRUE} if the device can reach the endpoint, {@link Boolean#FALSE} if not.
      */
     public static boolean canReachEndpoint(String endpoint) {
+        return canReachEndpoint(new DefaultHttpClient(), endpoint);
+    }
+
+    /**
+     * Checks if the device can access a website (makes sure that proxy settings are ok) using a specific HTTP client.
+     * The response is always consumed so that the connection can be reused if the client pools it's connections.
+     * @param client The HTTP client to use.
+     * @param endpoint The endpoint to try to reach.
+     * @return {@link Boolean#TRUE} if the device can reach the endpoint, {@link Boolean#FALSE} if not.
+     */
+    public static boolean canReachEndpoint(HttpClient client, String endpoint) {
         HttpGet requestForTest = new HttpGet(endpoint);
         try {
-            HttpResponse response = new DefaultHttpClient().execute(requestForTest);
+            HttpResponse response = client.execute(requestForTest);
+            if (response.getEntity() != null) {
+                response.getEntity().consumeContent();
+            }
             int statusCode = response.getStatusLine().getStatusCode();
             Log.d(LOG_TAG, "Trying to surf with status code " + statusCode);
             if (statusCode == 200) {
@@ -85,6 +100,19 @@ public class NetworkUtil {
         return (isOnline(ctx) && canReachEndpoint(endpoint));
     }
 
+    /**
+     * Tests if the device is connected to the internet and if the device can reach a website using a specific HTTP
+     * client.
+     * @param ctx The app-context.
+     * @param client The HTTP client to use.
+     * @param endpoint The endpoint to try to reach.
+     * @return {@link Boolean#TRUE} if the device is connected and can reach the endpoint website, {@link Boolean#FALSE}
+     * if not.
+     */
+    public static boolean canSurf(Context ctx, HttpClient client, String endpoint) {
+        return (isOnline(ctx) && canReachEndpoint(client, endpoint));
+    }
+
     /**
      * Checks if the device is connected to a WiFi network or not.
      * @param ctx The app-context.
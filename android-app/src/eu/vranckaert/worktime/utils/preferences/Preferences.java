@@ -45,6 +45,22 @@ import java.util.StringTokenizer;
  * Time: 14:22
  */
 public class Preferences {
+    private static volatile PreferencesSnapshot snapshot;
+
+    /**
+     * Rebuilds the snapshot whenever a preference changes, also when changed from a preference screen. The listener
+     * is kept in a static field as the {@link SharedPreferences} only keeps a weak reference to it's listeners.
+     */
+    private static final SharedPreferences.OnSharedPreferenceChangeListener SNAPSHOT_LISTENER = new SharedPreferences.OnSharedPreferenceChangeListener() {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+            synchronized (Preferences.class) {
+                snapshot = new PreferencesSnapshot(sharedPreferences);
+            }
+        }
+    };
+    private static boolean snapshotListenerRegistered = false;
+
     /**
      * Get an instance of {@link SharedPreferences} to access the preferences.
      * @param ctx The context when accessing the preferences.
@@ -54,6 +70,54 @@ public class Preferences {
         return ctx.getSharedPreferences(Constants.Preferences.PREFERENCES_NAME, Activity.MODE_PRIVATE);
     }
 
+    /**
+     * Get the current {@link PreferencesSnapshot}. Reading the snapshot does not access the {@link SharedPreferences}
+     * so it should be preferred over the separate getters in code that is executed often (for example for every time
+     * registration in a list).
+     * @param ctx The context.
+     * @return The current snapshot of the preferences.
+     */
+    public static PreferencesSnapshot getSnapshot(Context ctx) {
+        PreferencesSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (Preferences.class) {
+                SharedPreferences sharedPreferences = getSharedPreferences(ctx);
+                if (!snapshotListenerRegistered) {
+                    sharedPreferences.registerOnSharedPreferenceChangeListener(SNAPSHOT_LISTENER);
+                    snapshotListenerRegistered = true;
+                }
+                current = snapshot;
+                if (current == null) {
+                    current = new PreferencesSnapshot(sharedPreferences);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Drops the current {@link PreferencesSnapshot} so it's rebuilt on the next read. The change listener only gets
+     * notified on the main thread, so code that writes the {@link SharedPreferences} directly from another thread
+     * should call this method to make sure the next read returns the new values.<br/>
+     * The snapshot is only built and dropped while holding the lock on this class, so a snapshot that was being built
+     * from the old values while the preferences changed is always dropped.
+     */
+    public static void invalidateSnapshot() {
+        synchronized (Preferences.class) {
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Commits the changes in the editor and makes sure the next read of the snapshot contains the changes.
+     * @param editor The editor with the changes.
+     */
+    private static void commitAndInvalidateSnapshot(SharedPreferences.Editor editor) {
+        editor.commit();
+        invalidateSnapshot();
+    }
+
     /**
      * Remove a certain preference from the system.
      * @param ctx The context.
@@ -62,7 +126,7 @@ public class Preferences {
     public static final void removePreference(Context ctx, String key) {
         SharedPreferences.Editor editor = getSharedPreferences(ctx).edit();
         editor.remove(key);
-        editor.commit();
+        commitAndInvalidateSnapshot(editor);
     }
 
     /**
@@ -173,10 +237,7 @@ public class Preferences {
      * @return The {@link boolean} which represents the users' choice to show or hide status bar notifications.
      */
     public static boolean getShowStatusBarNotificationsPreference(Context ctx) {
-        return getSharedPreferences(ctx).getBoolean(
-                Constants.Preferences.Keys.SHOW_STATUS_BAR_NOTIFICATIONS_PREFERENCE,
-                Constants.Preferences.SHOW_STATUS_BAR_NOTIFICATIONS_PREFERENCE_DEFAULT_VALUE
-        );
+        return getSnapshot(ctx).isShowStatusBarNotifications();
     }
 
     /**
@@ -187,7 +248,7 @@ public class Preferences {
     public static void setShowStatusBarNotificationsPreference(Context ctx, boolean showNotif) {
         SharedPreferences.Editor editor = getSharedPreferences(ctx).edit();
         editor.putBoolean(Constants.Preferences.Keys.SHOW_STATUS_BAR_NOTIFICATIONS_PREFERENCE, showNotif);
-        editor.commit();
+        commitAndInvalidateSnapshot(editor);
     }
 
     /**
@@ -197,11 +258,7 @@ public class Preferences {
      * @return The {@link HourPreference12Or24} value or null.
      */
     public static HourPreference12Or24 getDisplayHour1224Format(Context ctx) {
-        String value = getSharedPreferences(ctx).getString(
-                Constants.Preferences.Keys.DISPLAY_HOUR_12_24_FORMAT,
-                Constants.Preferences.DISPLAY_HOUR_12_24_FORMAT_DEFAULT_VALUE
-        );
-        HourPreference12Or24 preference = HourPreference12Or24.findHourPreference12Or24(value);
+        HourPreference12Or24 preference = getSnapshot(ctx).getDisplayHour1224Format();
 
         if (preference == null) {
             if (DateUtils.System.is24HourClock(ctx)) {
@@ -225,7 +282,7 @@ public class Preferences {
         }
         SharedPreferences.Editor editor = getSharedPreferences(ctx).edit();
         editor.putString(Constants.Preferences.Keys.DISPLAY_HOUR_12_24_FORMAT, value);
-        editor.commit();
+        commitAndInvalidateSnapshot(editor);
     }
 
     /**
@@ -310,15 +367,7 @@ public class Preferences {
      * @return The {@link Integer} value.
      */
     public static Integer getWeekStartsOn(Context ctx) {
-        String value = getSharedPreferences(ctx).getString(
-                Constants.Preferences.Keys.WEEK_STARTS_ON,
-                Constants.Preferences.WEEK_STARTS_ON_DEFAULT_VALUE
-        );
-        try {
-            return Integer.parseInt(value);
-        } catch(Exception e) {
-            return null;
-        }
+        return getSnapshot(ctx).getWeekStartsOn();
     }
 
     /**
@@ -329,7 +378,7 @@ public class Preferences {
     public static void setWeekStartsOn(Context ctx, Integer weekStartsOn) {
         SharedPreferences.Editor editor = getSharedPreferences(ctx).edit();
         editor.putString(Constants.Preferences.Keys.WEEK_STARTS_ON, weekStartsOn.toString());
-        editor.commit();
+        commitAndInvalidateSnapshot(editor);
     }
 
     /**
@@ -392,13 +441,7 @@ public class Preferences {
      * @return The {@link TimePrecisionPreference}.
      */
     public static TimePrecisionPreference getTimePrecision(Context ctx) {
-        String value = getSharedPreferences(ctx).getString(
-                Constants.Preferences.Keys.TIME_PRECISION,
-                TimePrecisionPreference.getDefaultValue()
-        );
-
-        TimePrecisionPreference preference = TimePrecisionPreference.getPreferenceForValue(value);
-        return preference;
+        return getSnapshot(ctx).getTimePrecision();
     }
 
     /**
@@ -409,7 +452,7 @@ public class Preferences {
     public static void setTimePrecision(Context ctx, TimePrecisionPreference preference) {
         SharedPreferences.Editor editor = getSharedPreferences(ctx).edit();
         editor.putString(Constants.Preferences.Keys.TIME_PRECISION, preference.getValue());
-        editor.commit();
+        commitAndInvalidateSnapshot(editor);
     }
 
     /**
@@ -685,10 +728,7 @@ public class Preferences {
      * @return The {@link Boolean} for the user-preference.
      */
     public static boolean getImmediatePunchOut(Context ctx) {
-        return getSharedPreferences(ctx).getBoolean(
-                Constants.Preferences.Keys.IMMEDIATE_PUNCH_OUT,
-                Constants.Preferences.IMMEDIATE_PUNCH_OUT_DEFAULT_VALUE
-        );
+        return getSnapshot(ctx).isImmediatePunchOut();
     }
 
     /**
@@ -699,6 +739,30 @@ public class Preferences {
     public static void setImmediatePunchOut(Context ctx, boolean immediatePunchOut) {
         SharedPreferences.Editor editor = getSharedPreferences(ctx).edit();
         editor.putBoolean(Constants.Preferences.Keys.IMMEDIATE_PUNCH_OUT, immediatePunchOut);
+        commitAndInvalidateSnapshot(editor);
+    }
+
+    /**
+     * Get the preference for key {@link Constants.Preferences.Keys#COMMENT_HISTORY_SIZE}. If no value is found for the
+     * preference the default value will be {@link Constants.Preferences#COMMENT_HISTORY_SIZE_DEFAULT_VALUE}.
+     * @param ctx The context when getting the preference for the comment history size.
+     * @return The maximum number of distinct comments to remember in the comment history.
+     */
+    public static int getCommentHistorySize(Context ctx) {
+        return getSharedPreferences(ctx).getInt(
+                Constants.Preferences.Keys.COMMENT_HISTORY_SIZE,
+                Constants.Preferences.COMMENT_HISTORY_SIZE_DEFAULT_VALUE
+        );
+    }
+
+    /**
+     * Updates the preference {@link Constants.Preferences.Keys#COMMENT_HISTORY_SIZE}.
+     * @param ctx The context when updating the preference.
+     * @param size The maximum number of distinct comments to remember in the comment history.
+     */
+    public static void setCommentHistorySize(Context ctx, int size) {
+        SharedPreferences.Editor editor = getSharedPreferences(ctx).edit();
+        editor.putInt(Constants.Preferences.Keys.COMMENT_HISTORY_SIZE, size);
         editor.commit();
     }
 
@@ -858,6 +922,85 @@ public class Preferences {
                     Constants.Preferences.SHOW_NOTIFICATION_WHEN_NOT_PUNCHED_OUT_DEFAULT_VALUE
             );
         }
+
+        /**
+         * The window within which consecutive transitions of the same geofence are considered to be one burst (caused
+         * by GPS jitter at the boundary of the geofence), see
+         * {@link eu.vranckaert.worktime.utils.geofence.GeofenceTransitionBuffer}.
+         * @param ctx The context.
+         * @return The debounce window in seconds, 0 if transitions should not be debounced.
+         */
+        public static int getTransitionDebounceWindow(Context ctx) {
+            return getSharedPreferences(ctx).getInt(
+                    Constants.Preferences.Keys.GEOFENCE_TRANSITION_DEBOUNCE_WINDOW,
+                    Constants.Preferences.GEOFENCE_TRANSITION_DEBOUNCE_WINDOW_DEFAULT_VALUE
+            );
+        }
+
+        public static void setTransitionDebounceWindow(Context ctx, int value) {
+            SharedPreferences.Editor editor = getSharedPreferences(ctx).edit();
+            editor.putInt(Constants.Preferences.Keys.GEOFENCE_TRANSITION_DEBOUNCE_WINDOW, value);
+            editor.commit();
+        }
+
+        /**
+         * The geofence transitions that are waiting for their burst to settle, serialized by
+         * {@link eu.vranckaert.worktime.utils.geofence.GeofenceTransitionBuffer#serialize()}.
+         * @param ctx The context.
+         * @return The serialized transitions, null if there are none.
+         */
+        public static String getPendingTransitions(Context ctx) {
+            return getSharedPreferences(ctx).getString(Constants.Preferences.Keys.GEOFENCE_PENDING_TRANSITIONS, null);
+        }
+
+        public static void setPendingTransitions(Context ctx, String value) {
+            SharedPreferences.Editor editor = getSharedPreferences(ctx).edit();
+            editor.putString(Constants.Preferences.Keys.GEOFENCE_PENDING_TRANSITIONS, value);
+            editor.commit();
+        }
+    }
+
+    public static class Backup {
+        /**
+         * Checks if the database has been changed since the last backup was taken.
+         * @param ctx The context.
+         * @return True if the database has changed (or if no backup has been taken yet).
+         */
+        public static boolean isDatabaseChangedSinceLastBackup(Context ctx) {
+            return getSharedPreferences(ctx).getBoolean(
+                    Constants.Preferences.Keys.BACKUP_DATABASE_CHANGED,
+                    Constants.Preferences.BACKUP_DATABASE_CHANGED_DEFAULT_VALUE
+            );
+        }
+
+        public static void setDatabaseChangedSinceLastBackup(Context ctx, boolean changed) {
+            SharedPreferences.Editor editor = getSharedPreferences(ctx).edit();
+            editor.putBoolean(Constants.Preferences.Keys.BACKUP_DATABASE_CHANGED, changed);
+            editor.commit();
+        }
+
+        /**
+         * Get the full path of the last backup file that has been written.
+         * @param ctx The context.
+         * @return The full path of the last backup file or null if no backup has been taken yet.
+         */
+        public static String getLastBackupFile(Context ctx) {
+            return getSharedPreferences(ctx).getString(
+                    Constants.Preferences.Keys.BACKUP_LAST_FILE,
+                    null
+            );
+        }
+
+        /**
+         * Registers a new backup.
+         * @param ctx The context.
+         * @param backupFile The full path of the backup file.
+         */
+        public static void setLastBackupFile(Context ctx, String backupFile) {
+            SharedPreferences.Editor editor = getSharedPreferences(ctx).edit();
+            editor.putString(Constants.Preferences.Keys.BACKUP_LAST_FILE, backupFile);
+            editor.commit();
+        }
     }
 
     public static class GCM {
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.utils.preferences;
+
+import android.content.SharedPreferences;
+import eu.vranckaert.worktime.constants.Constants;
+import eu.vranckaert.worktime.utils.date.HourPreference12Or24;
+
+/**
+ * An immutable copy of the preferences that are read in hot paths (time calculations and formatting done for every
+ * time registration in lists and reports, widget and notification updates,...). The values are parsed once when the
+ * snapshot is created instead of on every read. The current snapshot is available through
+ * {@link Preferences#getSnapshot(android.content.Context)} and is replaced as soon as any preference changes.
+ */
+public class PreferencesSnapshot {
+    private final TimePrecisionPreference timePrecision;
+    private final HourPreference12Or24 displayHour1224Format;
+    private final Integer weekStartsOn;
+    private final boolean showStatusBarNotifications;
+    private final boolean immediatePunchOut;
+
+    PreferencesSnapshot(SharedPreferences sharedPreferences) {
+        timePrecision = TimePrecisionPreference.getPreferenceForValue(sharedPreferences.getString(
+                Constants.Preferences.Keys.TIME_PRECISION,
+                TimePrecisionPreference.getDefaultValue()
+        ));
+        displayHour1224Format = HourPreference12Or24.findHourPreference12Or24(sharedPreferences.getString(
+                Constants.Preferences.Keys.DISPLAY_HOUR_12_24_FORMAT,
+                Constants.Preferences.DISPLAY_HOUR_12_24_FORMAT_DEFAULT_VALUE
+        ));
+        weekStartsOn = parseInteger(sharedPreferences.getString(
+                Constants.Preferences.Keys.WEEK_STARTS_ON,
+                Constants.Preferences.WEEK_STARTS_ON_DEFAULT_VALUE
+        ));
+        showStatusBarNotifications = sharedPreferences.getBoolean(
+                Constants.Preferences.Keys.SHOW_STATUS_BAR_NOTIFICATIONS_PREFERENCE,
+                Constants.Preferences.SHOW_STATUS_BAR_NOTIFICATIONS_PREFERENCE_DEFAULT_VALUE
+        );
+        immediatePunchOut = sharedPreferences.getBoolean(
+                Constants.Preferences.Keys.IMMEDIATE_PUNCH_OUT,
+                Constants.Preferences.IMMEDIATE_PUNCH_OUT_DEFAULT_VALUE
+        );
+    }
+
+    private static Integer parseInteger(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch(Exception e) {
+            return null;
+        }
+    }
+
+    public TimePrecisionPreference getTimePrecision() {
+        return timePrecision;
+    }
+
+    /**
+     * Get the hour display format chosen by the user.
+     * @return The {@link HourPreference12Or24} or null if the system default should be used.
+     */
+    public HourPreference12Or24 getDisplayHour1224Format() {
+        return displayHour1224Format;
+    }
+
+    public Integer getWeekStartsOn() {
+        return weekStartsOn;
+    }
+
+    public boolean isShowStatusBarNotifications() {
+        return showStatusBarNotifications;
+    }
+
+    public boolean isImmediatePunchOut() {
+        return immediatePunchOut;
+    }
+}
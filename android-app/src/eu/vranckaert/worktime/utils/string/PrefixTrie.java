@@ -0,0 +1,188 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.utils.string;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A trie of texts to find all texts that start with a certain prefix without looping over all texts, used for
+ * autocompletion. The prefix matching is case insensitive. Every text has a rank (for example the last time it was
+ * used), texts with a higher rank are returned first.<br/>
+ * The trie is not thread safe.
+ */
+public class PrefixTrie {
+    private static class Node {
+        private Map<Character, Node> children;
+        /**
+         * The texts that end in this node with their rank. More than one text can end in the same node if they only
+         * differ in case.
+         */
+        private Map<String, Long> values;
+
+        private Node getChild(char c) {
+            return children == null ? null : children.get(c);
+        }
+
+        private boolean isEmpty() {
+            return (children == null || children.isEmpty()) && (values == null || values.isEmpty());
+        }
+    }
+
+    private static final Comparator<Map.Entry<String, Long>> RANK_COMPARATOR = new Comparator<Map.Entry<String, Long>>() {
+        @Override
+        public int compare(Map.Entry<String, Long> entry1, Map.Entry<String, Long> entry2) {
+            int result = entry1.getValue().compareTo(entry2.getValue());
+            if (result == 0) {
+                result = entry2.getKey().compareTo(entry1.getKey());
+            }
+            return result;
+        }
+    };
+
+    private final Node root = new Node();
+    private int size = 0;
+
+    /**
+     * Adds a text to the trie or updates its rank if it's already in the trie.
+     * @param text The text.
+     * @param rank The rank of the text.
+     */
+    public void put(String text, long rank) {
+        Node node = root;
+        String key = normalize(text);
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            Node child = node.getChild(c);
+            if (child == null) {
+                if (node.children == null) {
+                    node.children = new HashMap<Character, Node>(4);
+                }
+                child = new Node();
+                node.children.put(c, child);
+            }
+            node = child;
+        }
+
+        if (node.values == null) {
+            node.values = new HashMap<String, Long>(2);
+        }
+        if (node.values.put(text, rank) == null) {
+            size++;
+        }
+    }
+
+    /**
+     * Removes a text from the trie.
+     * @param text The text.
+     * @return True if the text was in the trie.
+     */
+    public boolean remove(String text) {
+        String key = normalize(text);
+        List<Node> path = new ArrayList<Node>(key.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.getChild(key.charAt(i));
+            path.add(node);
+        }
+
+        if (node == null || node.values == null || node.values.remove(text) == null) {
+            return false;
+        }
+        size--;
+
+        // Prune the nodes that do not lead to any text anymore
+        for (int i = path.size() - 1; i > 0 && path.get(i).isEmpty(); i--) {
+            path.get(i - 1).children.remove(key.charAt(i - 1));
+        }
+        return true;
+    }
+
+    /**
+     * Finds the texts that start with a prefix (case insensitive).
+     * @param prefix The prefix, an empty prefix matches all texts.
+     * @param max The maximum number of texts to return.
+     * @return The texts with the highest rank first.
+     */
+    public List<String> findByPrefix(String prefix, int max) {
+        List<String> result = new ArrayList<String>();
+        if (max <= 0) {
+            return result;
+        }
+
+        Node node = root;
+        String key = normalize(prefix);
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.getChild(key.charAt(i));
+        }
+        if (node == null) {
+            return result;
+        }
+
+        // Only keep the best matches while walking the sub-tree
+        PriorityQueue<Map.Entry<String, Long>> best = new PriorityQueue<Map.Entry<String, Long>>(max, RANK_COMPARATOR);
+        List<Node> toVisit = new ArrayList<Node>();
+        toVisit.add(node);
+        while (!toVisit.isEmpty()) {
+            Node visiting = toVisit.remove(toVisit.size() - 1);
+            if (visiting.values != null) {
+                for (Map.Entry<String, Long> value : visiting.values.entrySet()) {
+                    if (best.size() < max) {
+                        best.add(value);
+                    } else if (RANK_COMPARATOR.compare(value, best.peek()) > 0) {
+                        best.poll();
+                        best.add(value);
+                    }
+                }
+            }
+            if (visiting.children != null) {
+                toVisit.addAll(visiting.children.values());
+            }
+        }
+
+        List<Map.Entry<String, Long>> sorted = new ArrayList<Map.Entry<String, Long>>(best);
+        Collections.sort(sorted, Collections.reverseOrder(RANK_COMPARATOR));
+        for (Map.Entry<String, Long> entry : sorted) {
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of texts in the trie.
+     */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        root.children = null;
+        root.values = null;
+        size = 0;
+    }
+
+    private String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.getDefault());
+    }
+}
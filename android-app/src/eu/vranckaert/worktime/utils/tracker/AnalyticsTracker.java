@@ -37,64 +37,84 @@ public class AnalyticsTracker {
 
     private AnalyticsTracker() {}
 
+    /**
+     * Creates a tracker. The analytics session is only started when the first event, page view or transaction is
+     * tracked, so creating a tracker in an activity that does not track anything costs nothing.
+     * @param ctx The context.
+     * @return The tracker.
+     */
     public static AnalyticsTracker getInstance(Context ctx) {
         AnalyticsTracker tracker = new AnalyticsTracker();
         tracker.ctx = ctx;
+        return tracker;
+    }
 
+    /**
+     * @return The Google Analytics tracker with a started session or null if nothing should be tracked (non-stable
+     * builds).
+     */
+    private GoogleAnalyticsTracker getTracker() {
         if (!ContextUtils.isStableBuild(ctx)) {
-            return tracker;
+            return null;
         }
-
-        tracker.gat = GoogleAnalyticsTracker.getInstance();
-        tracker.gat.startNewSession(ACCOUNT_UA, DISPATCH_INTERVAL_SEC, ctx);
-
-        return tracker;
+        if (gat == null) {
+            gat = GoogleAnalyticsTracker.getInstance();
+            gat.startNewSession(ACCOUNT_UA, DISPATCH_INTERVAL_SEC, ctx);
+        }
+        return gat;
     }
 
     public void addTransaction(Transaction transaction) {
-        if (!ContextUtils.isStableBuild(ctx)) {
+        GoogleAnalyticsTracker tracker = getTracker();
+        if (tracker == null) {
             return;
         }
-        gat.addTransaction(transaction);
+        tracker.addTransaction(transaction);
     }
 
     public void addItem(Item item) {
-        if (!ContextUtils.isStableBuild(ctx)) {
+        GoogleAnalyticsTracker tracker = getTracker();
+        if (tracker == null) {
             return;
         }
-        gat.addItem(item);
+        tracker.addItem(item);
     }
 
     public void trackTransactions() {
-        if (!ContextUtils.isStableBuild(ctx)) {
+        GoogleAnalyticsTracker tracker = getTracker();
+        if (tracker == null) {
             return;
         }
-        gat.trackTransactions();
+        tracker.trackTransactions();
     }
 
     public void clearTransactions() {
-        if (!ContextUtils.isStableBuild(ctx)) {
+        GoogleAnalyticsTracker tracker = getTracker();
+        if (tracker == null) {
             return;
         }
-        gat.clearTransactions();
+        tracker.clearTransactions();
     }
 
     public void trackEvent(String source, String action) {
-        if (!ContextUtils.isStableBuild(ctx)) {
+        GoogleAnalyticsTracker tracker = getTracker();
+        if (tracker == null) {
             return;
         }
-        gat.trackEvent(source, action, "", -1);
+        tracker.trackEvent(source, action, "", -1);
     }
 
     public void trackPageView(String pageView) {
-        if (!ContextUtils.isStableBuild(ctx)) {
+        GoogleAnalyticsTracker tracker = getTracker();
+        if (tracker == null) {
             return;
         }
-        gat.trackPageView(pageView);
+        tracker.trackPageView(pageView);
     }
 
     public void stopSession() {
-        if (!ContextUtils.isStableBuild(ctx)) {
+        // Nothing to stop if nothing has been tracked
+        if (gat == null) {
             return;
         }
         gat.stopSession();
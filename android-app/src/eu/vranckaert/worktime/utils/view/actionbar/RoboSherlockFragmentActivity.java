@@ -22,6 +22,7 @@ import android.os.Bundle;
 import com.actionbarsherlock.app.SherlockFragmentActivity;
 import com.google.inject.Inject;
 import com.google.inject.Key;
+import eu.vranckaert.worktime.utils.context.StartupTimings;
 import roboguice.RoboGuice;
 import roboguice.activity.event.*;
 import roboguice.event.EventManager;
@@ -41,13 +42,23 @@ public abstract class RoboSherlockFragmentActivity extends SherlockFragmentActiv
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long start = System.nanoTime();
         final RoboInjector injector = RoboGuice.getInjector(this);
         eventManager = injector.getInstance(EventManager.class);
         injector.injectMembersWithoutViews(this);
+        StartupTimings.record(StartupTimings.Phase.DEPENDENCY_INJECTION, System.nanoTime() - start);
         super.onCreate(savedInstanceState);
         eventManager.fire(new OnCreateEvent(savedInstanceState));
     }
 
+    @Override
+    public void onWindowFocusChanged(boolean hasFocus) {
+        super.onWindowFocusChanged(hasFocus);
+        if (hasFocus) {
+            StartupTimings.firstFrameDrawn(getApplicationContext());
+        }
+    }
+
     @Override
     protected void onRestart() {
         super.onRestart();
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.web.json;
+
+import eu.vranckaert.worktime.constants.Constants;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.LayeredSocketFactory;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.scheme.SocketFactory;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+
+/**
+ * Creates the HTTP client that is shared by all calls to the WorkTime web application. The client is thread-safe, pools
+ * it's connections and keeps them alive in between requests so that the login, profile and synchronization calls of
+ * one synchronization can reuse the same (SSL) connection instead of doing a new handshake for every call.
+ */
+public class HttpClientFactory {
+    /**
+     * Creates a new pooled and thread-safe HTTP client. The timeouts and pool sizes are defined in
+     * {@link Constants.Network}.
+     * @return The HTTP client.
+     */
+    public static DefaultHttpClient createPooledClient() {
+        HttpParams params = new BasicHttpParams();
+        HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+        HttpProtocolParams.setContentCharset(params, HTTP.UTF_8);
+        HttpConnectionParams.setConnectionTimeout(params, Constants.Network.CONNECTION_TIMEOUT);
+        HttpConnectionParams.setSoTimeout(params, Constants.Network.SOCKET_TIMEOUT);
+        HttpConnectionParams.setStaleCheckingEnabled(params, true);
+        ConnManagerParams.setTimeout(params, Constants.Network.CONNECTION_POOL_TIMEOUT);
+        ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(Constants.Network.MAX_CONNECTIONS_PER_HOST));
+        ConnManagerParams.setMaxTotalConnections(params, Constants.Network.MAX_CONNECTIONS_PER_HOST * 2);
+
+        SchemeRegistry schemeRegistry = new SchemeRegistry();
+        schemeRegistry.register(new Scheme("http", new CountingSocketFactory(PlainSocketFactory.getSocketFactory()), 80));
+        schemeRegistry.register(new Scheme("https", new CountingLayeredSocketFactory(SSLSocketFactory.getSocketFactory()), 443));
+
+        ClientConnectionManager connectionManager = new ThreadSafeClientConnManager(params, schemeRegistry);
+        DefaultHttpClient client = new DefaultHttpClient(connectionManager, params);
+        client.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long duration = super.getKeepAliveDuration(response, context);
+                if (duration < 0) {
+                    duration = Constants.Network.KEEP_ALIVE_DURATION;
+                }
+                return duration;
+            }
+        });
+        return client;
+    }
+
+    /**
+     * Delegates to a plain socket factory and counts every new connection that is opened.
+     */
+    private static class CountingSocketFactory implements SocketFactory {
+        private final SocketFactory delegate;
+
+        private CountingSocketFactory(SocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return delegate.createSocket();
+        }
+
+        @Override
+        public Socket connectSocket(Socket sock, String host, int port, InetAddress localAddress, int localPort, HttpParams params) throws IOException, UnknownHostException, ConnectTimeoutException {
+            Socket socket = delegate.connectSocket(sock, host, port, localAddress, localPort, params);
+            HttpStatistics.connectionOpened(delegate.isSecure(socket));
+            return socket;
+        }
+
+        @Override
+        public boolean isSecure(Socket sock) throws IllegalArgumentException {
+            return delegate.isSecure(sock);
+        }
+    }
+
+    /**
+     * Delegates to a layered (SSL) socket factory and counts every new connection, and thus every SSL handshake.
+     */
+    private static class CountingLayeredSocketFactory extends CountingSocketFactory implements LayeredSocketFactory {
+        private final LayeredSocketFactory delegate;
+
+        private CountingLayeredSocketFactory(LayeredSocketFactory delegate) {
+            super(delegate);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException, UnknownHostException {
+            Socket layeredSocket = delegate.createSocket(socket, host, port, autoClose);
+            HttpStatistics.connectionOpened(true);
+            return layeredSocket;
+        }
+    }
+}
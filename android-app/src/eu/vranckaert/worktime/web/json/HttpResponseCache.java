@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.web.json;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small in-memory cache for the responses of GET requests that are returned with an ETag header. When the same
+ * endpoint is requested again the ETag is sent in the If-None-Match header, and if the server answers with 304 (Not
+ * Modified) the cached body is used instead of downloading it again. The cache is keyed on the full endpoint (including
+ * the query parameters) and only keeps the most recently used entries.
+ */
+public class HttpResponseCache {
+    private static final int MAX_ENTRIES = 20;
+
+    private final Map<String, CachedResponse> entries = new LinkedHashMap<String, CachedResponse>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Find the cached response for a certain endpoint.
+     * @param endpoint The full endpoint.
+     * @return The cached response or null if nothing is cached for this endpoint.
+     */
+    public synchronized CachedResponse get(String endpoint) {
+        return entries.get(endpoint);
+    }
+
+    /**
+     * Cache the response of a certain endpoint. If no ETag is specified the endpoint is removed from the cache.
+     * @param endpoint The full endpoint.
+     * @param eTag The ETag the server returned for the response.
+     * @param body The body of the response.
+     */
+    public synchronized void put(String endpoint, String eTag, String body) {
+        if (eTag == null) {
+            entries.remove(endpoint);
+        } else {
+            entries.put(endpoint, new CachedResponse(eTag, body));
+        }
+    }
+
+    /**
+     * Removes all cached responses.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public static class CachedResponse {
+        private final String eTag;
+        private final String body;
+
+        private CachedResponse(String eTag, String body) {
+            this.eTag = eTag;
+            this.body = body;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013 Dirk Vranckaert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.vranckaert.worktime.web.json;
+
+/**
+ * Keeps track of the number of connections (and SSL handshakes) that are opened towards the WorkTime web application
+ * compared to the number of requests that are executed, together with the latency of those requests. This allows to
+ * verify that connections are actually reused by the pooled HTTP client.
+ */
+public class HttpStatistics {
+    private static long connectionsOpened = 0L;
+    private static long sslHandshakes = 0L;
+    private static long requests = 0L;
+    private static long failedRequests = 0L;
+    private static long totalLatency = 0L;
+    private static long maxLatency = 0L;
+
+    /**
+     * Registers that a new connection has been opened.
+     * @param secure If the connection is an SSL connection (and thus required an SSL handshake).
+     */
+    public static synchronized void connectionOpened(boolean secure) {
+        connectionsOpened++;
+        if (secure) {
+            sslHandshakes++;
+        }
+    }
+
+    /**
+     * Registers the execution of a request.
+     * @param latency The time in milliseconds between sending the request and receiving the response.
+     * @param failed If the request failed to execute (an I/O error occurred).
+     */
+    public static synchronized void requestExecuted(long latency, boolean failed) {
+        requests++;
+        if (failed) {
+            failedRequests++;
+        }
+        totalLatency += latency;
+        if (latency > maxLatency) {
+            maxLatency = latency;
+        }
+    }
+
+    public static synchronized long getConnectionsOpened() {
+        return connectionsOpened;
+    }
+
+    public static synchronized long getSslHandshakes() {
+        return sslHandshakes;
+    }
+
+    public static synchronized long getRequests() {
+        return requests;
+    }
+
+    public static synchronized long getFailedRequests() {
+        return failedRequests;
+    }
+
+    public static synchronized long getAverageLatency() {
+        return requests == 0L ? 0L : totalLatency / requests;
+    }
+
+    public static synchronized long getMaxLatency() {
+        return maxLatency;
+    }
+
+    /**
+     * Resets all counters.
+     */
+    public static synchronized void reset() {
+        connectionsOpened = 0L;
+        sslHandshakes = 0L;
+        requests = 0L;
+        failedRequests = 0L;
+        totalLatency = 0L;
+        maxLatency = 0L;
+    }
+
+    /**
+     * Creates a one-line summary of all counters, to be used for logging.
+     * @return The summary.
+     */
+    public static synchronized String dump() {
+        return "requests=" + requests
+                + ", failed=" + failedRequests
+                + ", connectionsOpened=" + connectionsOpened
+                + ", sslHandshakes=" + sslHandshakes
+                + ", avgLatency=" + getAverageLatency() + "ms"
+                + ", maxLatency=" + maxLatency + "ms";
+    }
+}
@@ -22,6 +22,7 @@ import eu.vranckaert.worktime.web.json.exception.*;
 import eu.vranckaert.worktime.web.json.model.AuthorizationHeader;
 import eu.vranckaert.worktime.web.json.model.JsonEntity;
 import eu.vranckaert.worktime.web.json.model.JsonResult;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
@@ -29,6 +30,7 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicHeader;
@@ -84,9 +86,8 @@ public class JsonWebServiceImpl implements JsonWebService {
             } catch (UnsupportedEncodingException e) {}
         }
 
-        HttpClient client = authorizationHeader == null ? getClient() : getNewClient();
         try {
-            HttpResponse response = client.execute(httpPost);
+            HttpResponse response = execute(httpPost);
             return handleHttpResponse(response);
         } catch (UnknownHostException e) {
             throw new CommunicationException(e);
@@ -117,10 +118,27 @@ public class JsonWebServiceImpl implements JsonWebService {
             httpGet.setHeader("Authorization", authorizationHeader.getContent());
         }
 
-        HttpClient client = authorizationHeader == null ? getClient() : getNewClient();
+        HttpResponseCache.CachedResponse cachedResponse = getResponseCache().get(endpoint);
+        if (cachedResponse != null) {
+            httpGet.setHeader("If-None-Match", cachedResponse.getETag());
+        }
+
         try {
-            HttpResponse response = client.execute(httpGet);
-            return handleHttpResponse(response);
+            HttpResponse response = execute(httpGet);
+            if (cachedResponse != null && response != null && response.getStatusLine().getStatusCode() == HttpStatusCode.NOT_MODIFIED) {
+                consumeEntity(response);
+                Log.d(LOG_TAG, "Content not modified, using the cached response for " + httpGet.getURI().getPath());
+                return new JsonResult(cachedResponse.getBody());
+            }
+
+            JsonResult result = handleHttpResponse(response);
+            Header eTag = response == null ? null : response.getFirstHeader("ETag");
+            if (result != null && eTag != null) {
+                getResponseCache().put(endpoint, eTag.getValue(), result.getJson());
+            } else {
+                getResponseCache().put(endpoint, null, null);
+            }
+            return result;
         } catch (ClientProtocolException e) {
             throw new CommunicationException(e);
         } catch (IOException e) {
@@ -145,9 +163,8 @@ public class JsonWebServiceImpl implements JsonWebService {
             httpPut.setHeader("Authorization", authorizationHeader.getContent());
         }
 
-        HttpClient client = authorizationHeader == null ? getClient() : getNewClient();
         try {
-            HttpResponse response = client.execute(httpPut);
+            HttpResponse response = execute(httpPut);
             return handleHttpResponse(response);
         } catch (ClientProtocolException e) {
             throw new CommunicationException(e);
@@ -173,10 +190,11 @@ public class JsonWebServiceImpl implements JsonWebService {
             httpPut.setHeader("Authorization", authorizationHeader.getContent());
         }
 
-        HttpClient client = authorizationHeader == null ? getClient() : getNewClient();
         try {
-            HttpResponse response = client.execute(httpPut);
+            HttpResponse response = execute(httpPut);
             if (response != null) {
+                // Consume the response so the connection is released back into the pool
+                consumeEntity(response);
                 return response.getStatusLine().getStatusCode();
             } else {
                 return HttpStatusCode.UNHANDLED_EXCEPTION;
@@ -214,12 +232,42 @@ public class JsonWebServiceImpl implements JsonWebService {
         return endpoint;
     }
 
-    private HttpClient getClient() {
+    /**
+     * The HTTP client is shared by all web services. It pools and keeps alive it's connections, so all requests should
+     * be executed using this client and all responses should be consumed completely.
+     * @return The shared HTTP client.
+     */
+    protected HttpClient getClient() {
         return applicationScope.getHttpClient();
     }
 
-    private HttpClient getNewClient() {
-        return new DefaultHttpClient();
+    private HttpResponseCache getResponseCache() {
+        return applicationScope.getHttpResponseCache();
+    }
+
+    private HttpResponse execute(HttpUriRequest request) throws IOException {
+        long start = System.currentTimeMillis();
+        boolean failed = true;
+        try {
+            HttpResponse response = getClient().execute(request);
+            failed = false;
+            return response;
+        } finally {
+            long latency = System.currentTimeMillis() - start;
+            HttpStatistics.requestExecuted(latency, failed);
+            Log.d(LOG_TAG, request.getMethod() + " " + request.getURI().getPath() + " executed in " + latency + "ms");
+        }
+    }
+
+    private void consumeEntity(HttpResponse response) {
+        HttpEntity entity = response.getEntity();
+        if (entity != null) {
+            try {
+                entity.consumeContent();
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Could not consume the content of the response", e);
+            }
+        }
     }
 
     private JsonResult handleHttpResponse(HttpResponse response) throws IOException, WebException {
@@ -243,6 +291,9 @@ public class JsonWebServiceImpl implements JsonWebService {
                     return new JsonResult(result);
                 }
             } else {
+                // The content of an error response is never used but must be consumed to release the connection
+                consumeEntity(response);
+
                 WebException e;
                 switch (responseCode) {
                     case HttpStatusCode.UNAUTHORIZED:
@@ -294,6 +345,7 @@ public class JsonWebServiceImpl implements JsonWebService {
     @Override
     public void clearCookies() {
         ((DefaultHttpClient) getClient()).getCookieStore().clear();
+        getResponseCache().clear();
     }
 
     @Override
@@ -349,6 +401,7 @@ public class JsonWebServiceImpl implements JsonWebService {
         private static final int UNHANDLED_EXCEPTION = -1;
 
         private static final int OK = 200;
+        private static final int NOT_MODIFIED = 304;
 
         private static final int BAD_REQUEST = 400;
         private static final int UNAUTHORIZED = 401;
@@ -43,6 +43,10 @@ public class JsonResult {
         this.json = json;
     }
 
+    public String getJson() {
+        return json;
+    }
+
     public <Y extends JsonEntity> Y getSingleResult(Class<Y> entityClass) {
         GsonBuilder builder = new GsonBuilder();
         builder.registerTypeAdapter(Date.class, new DateTimeDeserializer());
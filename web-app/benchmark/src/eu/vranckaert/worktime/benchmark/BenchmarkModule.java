@@ -0,0 +1,72 @@
+package eu.vranckaert.worktime.benchmark;
+
+import com.google.code.twig.ObjectDatastore;
+import com.google.inject.AbstractModule;
+
+import eu.vranckaert.worktime.benchmark.dao.InMemoryDatastore;
+import eu.vranckaert.worktime.benchmark.dao.InMemoryProjectDao;
+import eu.vranckaert.worktime.benchmark.dao.InMemorySyncHistoryDao;
+import eu.vranckaert.worktime.benchmark.dao.InMemorySyncLockDao;
+import eu.vranckaert.worktime.benchmark.dao.InMemoryTaskDao;
+import eu.vranckaert.worktime.benchmark.dao.InMemoryTimeRegistrationDao;
+import eu.vranckaert.worktime.dao.ProjectDao;
+import eu.vranckaert.worktime.dao.SyncHistoryDao;
+import eu.vranckaert.worktime.dao.SyncLockDao;
+import eu.vranckaert.worktime.dao.TaskDao;
+import eu.vranckaert.worktime.dao.TimeRegistrationDao;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.report.DailyTotalChanges;
+import eu.vranckaert.worktime.security.service.UserService;
+import eu.vranckaert.worktime.service.ReportService;
+
+/**
+ * Binds everything the {@link eu.vranckaert.worktime.service.impl.SyncServiceImpl} needs to the in-memory DAO's of one
+ * {@link InMemoryDatastore}, for a single user.
+ */
+public class BenchmarkModule extends AbstractModule {
+	private final InMemoryDatastore datastore;
+	private final User user;
+	
+	public BenchmarkModule(InMemoryDatastore datastore, User user) {
+		this.datastore = datastore;
+		this.user = user;
+	}
+	
+	@Override
+	protected void configure() {
+		bind(ObjectDatastore.class).toInstance(datastore.getObjectDatastore());
+		
+		bind(ProjectDao.class).toInstance(new InMemoryProjectDao(datastore));
+		bind(TaskDao.class).toInstance(new InMemoryTaskDao(datastore));
+		bind(TimeRegistrationDao.class).toInstance(new InMemoryTimeRegistrationDao(datastore));
+		bind(SyncHistoryDao.class).toInstance(new InMemorySyncHistoryDao(datastore));
+		bind(SyncLockDao.class).toInstance(new InMemorySyncLockDao(datastore));
+		
+		bind(UserService.class).toInstance(Partial.implement(UserService.class, new SingleUserService(user)));
+		bind(ReportService.class).toInstance(Partial.implement(ReportService.class, new NoReports()));
+	}
+	
+	private static class SingleUserService {
+		private final User user;
+		
+		SingleUserService(User user) {
+			this.user = user;
+		}
+		
+		public User findUser(String email) {
+			return user.getEmail().equals(email) ? user : null;
+		}
+	}
+	
+	/**
+	 * The daily totals are still calculated by the synchronisation, but not stored.
+	 */
+	private static class NoReports {
+		public void applyChanges(User user, DailyTotalChanges changes) {
+			changes.getChanges();
+		}
+		
+		public void invalidateTotals(User user) {
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package eu.vranckaert.worktime.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Implements a (large) interface of which only a few methods are needed in the benchmarks, like the
+ * {@link com.google.code.twig.ObjectDatastore}. Every method of the interface is delegated to the method with the same
+ * signature on an implementation object, any other method throws an {@link UnsupportedOperationException}.
+ */
+public final class Partial {
+	private Partial() {}
+	
+	@SuppressWarnings("unchecked")
+	public static <T> T implement(final Class<T> type, final Object implementation) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getDeclaringClass() == Object.class) {
+					return method.invoke(implementation, args);
+				}
+				
+				Method target;
+				try {
+					target = implementation.getClass().getMethod(method.getName(), method.getParameterTypes());
+				} catch (NoSuchMethodException e) {
+					throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " is not supported in the benchmarks");
+				}
+				
+				try {
+					target.setAccessible(true);
+					return target.invoke(implementation, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+	}
+}
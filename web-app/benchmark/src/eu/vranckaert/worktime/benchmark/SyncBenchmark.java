@@ -0,0 +1,140 @@
+package eu.vranckaert.worktime.benchmark;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.sync.EntitySyncResult;
+import eu.vranckaert.worktime.model.sync.SyncConflictConfiguration;
+import eu.vranckaert.worktime.model.sync.SyncResult;
+import eu.vranckaert.worktime.service.SyncService;
+
+/**
+ * Measures the synchronisation of a device without conflicts: the first synchronisation of a device with a history of
+ * a certain size and an incremental synchronisation of a few new time registrations against a stored history of that
+ * size.<br/>
+ * A synchronisation stops after 50 entities. Like the app, the benchmarks send the entities that were not synchronised
+ * again until the synchronisation completes, see {@link #syncUntilComplete}, so the time is that of synchronising the
+ * whole history and the result is the number of synchronisations it took.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SyncBenchmark {
+	/**
+	 * The number of new time registrations of an incremental synchronisation.
+	 */
+	private static final int INCREMENTAL_SIZE = 5;
+	
+	@State(Scope.Thread)
+	public static class FirstTimeSync {
+		@Param({"10", "50", "200"})
+		public int size;
+		
+		SyncFixture fixture;
+		SyncFixture.History history;
+		
+		@Setup(Level.Trial)
+		public void setupLogging() {
+			silenceSyncLogging();
+		}
+		
+		@Setup(Level.Invocation)
+		public void setup() {
+			fixture = new SyncFixture();
+			history = fixture.createHistory(size, 0);
+			// Creates the injector outside of the measurement
+			fixture.createSyncService();
+		}
+	}
+	
+	@State(Scope.Thread)
+	public static class IncrementalSync {
+		@Param({"10", "50", "200"})
+		public int size;
+		
+		SyncFixture fixture;
+		SyncFixture.History history;
+		Date lastSuccessfulSyncDate;
+		
+		@Setup(Level.Trial)
+		public void setupLogging() {
+			silenceSyncLogging();
+		}
+		
+		@Setup(Level.Invocation)
+		public void setup() {
+			fixture = new SyncFixture();
+			fixture.seed(size, false);
+			history = fixture.createHistory(INCREMENTAL_SIZE, INCREMENTAL_SIZE + 1);
+			lastSuccessfulSyncDate = fixture.getLastSuccessfulSyncDate();
+			// Creates the injector outside of the measurement
+			fixture.createSyncService();
+		}
+	}
+	
+	@Benchmark
+	public int firstTimeSync(FirstTimeSync state) throws Exception {
+		return syncUntilComplete(state.fixture, SyncConflictConfiguration.CLIENT, state.history.projects, state.history.tasks, state.history.timeRegistrations, new HashMap<String, String>(), null);
+	}
+	
+	@Benchmark
+	public int incrementalSync(IncrementalSync state) throws Exception {
+		return syncUntilComplete(state.fixture, SyncConflictConfiguration.CLIENT, state.history.projects, state.history.tasks, state.history.timeRegistrations, new HashMap<String, String>(), state.lastSuccessfulSyncDate);
+	}
+	
+	/**
+	 * Synchronises like the app does: as long as a synchronisation is interrupted, the entities that were not
+	 * synchronised are sent again. The removals are only sent with the first synchronisation.
+	 * @return The number of synchronisations it took.
+	 * @throws IllegalStateException If an interrupted synchronisation did not synchronise anything, the benchmark would
+	 * never end.
+	 */
+	static int syncUntilComplete(SyncFixture fixture, SyncConflictConfiguration conflictConfiguration, List<Project> projects, List<Task> tasks, List<TimeRegistration> timeRegistrations, Map<String, String> removalMap, Date lastSuccessfulSyncDate) throws Exception {
+		int syncs = 0;
+		while (true) {
+			EntitySyncResult result = fixture.createSyncService().sync(SyncFixture.EMAIL, conflictConfiguration, projects, tasks, timeRegistrations, removalMap, lastSuccessfulSyncDate);
+			syncs++;
+			if (result.getSyncResult() != SyncResult.INTERRUPTED) {
+				return syncs;
+			}
+			
+			int entities = projects.size() + tasks.size() + timeRegistrations.size();
+			projects = result.getNonSyncedProjects();
+			tasks = result.getNonSyncedTasks();
+			timeRegistrations = result.getNonSyncedTimeRegistrations();
+			removalMap = new HashMap<String, String>();
+			if (projects.size() + tasks.size() + timeRegistrations.size() >= entities) {
+				throw new IllegalStateException("Synchronisation " + syncs + " was interrupted without synchronising anything");
+			}
+		}
+	}
+	
+	/**
+	 * The synchronisation logs every entity it handles, which would be measured as well.
+	 */
+	static void silenceSyncLogging() {
+		Logger.getLogger(SyncService.class.getName()).setLevel(java.util.logging.Level.WARNING);
+	}
+}
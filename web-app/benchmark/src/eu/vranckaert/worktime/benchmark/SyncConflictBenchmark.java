@@ -0,0 +1,78 @@
+package eu.vranckaert.worktime.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.sync.SyncConflictConfiguration;
+
+/**
+ * Measures the synchronisation of a device that conflicts with the stored history, for both conflict configurations:
+ * <li>conflictSync: every project has the same modification date as the stored one but another comment and every time
+ * registration overlaps with a stored time registration.</li>
+ * <li>removalSync: the device removed all time registrations and half of the tasks, half of the stored entities have
+ * been modified since the last successful synchronisation.</li>
+ * Like in {@link SyncBenchmark} the entities are synchronised again until the synchronisation completes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SyncConflictBenchmark {
+	@Param({"10", "50", "200"})
+	public int size;
+	
+	@Param({"CLIENT", "SERVER"})
+	public SyncConflictConfiguration conflictConfiguration;
+	
+	private SyncFixture fixture;
+	private SyncFixture.History history;
+	private Map<String, String> removalMap;
+	private Date lastSuccessfulSyncDate;
+	
+	@Setup(Level.Trial)
+	public void setupLogging() {
+		SyncBenchmark.silenceSyncLogging();
+	}
+	
+	@Setup(Level.Invocation)
+	public void setup() {
+		fixture = new SyncFixture();
+		fixture.seed(size, true);
+		history = fixture.createConflictingHistory();
+		removalMap = fixture.createRemovalMap();
+		lastSuccessfulSyncDate = fixture.getLastSuccessfulSyncDate();
+		// Creates the injector outside of the measurement
+		fixture.createSyncService();
+	}
+	
+	@Benchmark
+	public int conflictSync() throws Exception {
+		return SyncBenchmark.syncUntilComplete(fixture, conflictConfiguration, history.projects, history.tasks, history.timeRegistrations, new HashMap<String, String>(), lastSuccessfulSyncDate);
+	}
+	
+	@Benchmark
+	public int removalSync() throws Exception {
+		return SyncBenchmark.syncUntilComplete(fixture, conflictConfiguration, new ArrayList<Project>(), new ArrayList<Task>(), new ArrayList<TimeRegistration>(), removalMap, lastSuccessfulSyncDate);
+	}
+}
@@ -0,0 +1,216 @@
+package eu.vranckaert.worktime.benchmark;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import eu.vranckaert.worktime.benchmark.dao.InMemoryDatastore;
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.security.utils.KeyGenerator;
+import eu.vranckaert.worktime.service.SyncService;
+import eu.vranckaert.worktime.service.impl.SyncServiceImpl;
+
+/**
+ * The data of one benchmark invocation: an {@link InMemoryDatastore} for one user and generated histories of projects,
+ * tasks and time registrations. A history of a certain size has that number of time registrations, one per day, spread
+ * over a number of tasks and projects.
+ */
+public class SyncFixture {
+	public static final String EMAIL = "benchmark@vranckaert.eu";
+	public static final int TASKS_PER_PROJECT = 4;
+	public static final int TIME_REGISTRATIONS_PER_PROJECT = 25;
+	
+	private final InMemoryDatastore datastore = new InMemoryDatastore();
+	private final User user;
+	private final Date lastSuccessfulSyncDate;
+	private Injector injector;
+	
+	private final List<Project> storedProjects = new ArrayList<Project>();
+	private final List<Task> storedTasks = new ArrayList<Task>();
+	private final List<TimeRegistration> storedTimeRegistrations = new ArrayList<TimeRegistration>();
+	
+	public SyncFixture() {
+		user = new User();
+		user.setEmail(EMAIL);
+		user.setFirstName("Bench");
+		user.setLastName("Mark");
+		
+		lastSuccessfulSyncDate = new Date(System.currentTimeMillis() - 60L * 60L * 1000L);
+	}
+	
+	/**
+	 * @return A new {@link SyncService}. The service keeps state of a synchronisation so it can only be used once.
+	 */
+	public SyncService createSyncService() {
+		if (injector == null) {
+			injector = Guice.createInjector(new BenchmarkModule(datastore, user));
+		}
+		return injector.getInstance(SyncServiceImpl.class);
+	}
+	
+	public Date getLastSuccessfulSyncDate() {
+		return lastSuccessfulSyncDate;
+	}
+	
+	public List<TimeRegistration> getStoredTimeRegistrations() {
+		return storedTimeRegistrations;
+	}
+	
+	/**
+	 * Stores a history as if it was synchronised before the last successful synchronisation, every entity has a sync
+	 * key.
+	 * @param size The number of time registrations.
+	 * @param modifiedSinceLastSync Marks every other entity as modified since the last successful synchronisation.
+	 */
+	public void seed(int size, boolean modifiedSinceLastSync) {
+		History history = createHistory(size, 0);
+		Date synced = new Date(lastSuccessfulSyncDate.getTime() - 60L * 1000L);
+		Date modified = new Date(lastSuccessfulSyncDate.getTime() + 60L * 1000L);
+		
+		int i = 0;
+		for (Project project : history.projects) {
+			project.setUser(user);
+			project.setSyncKey(KeyGenerator.getNewKey());
+			project.setLastUpdated(modifiedSinceLastSync && i++ % 2 == 1 ? modified : synced);
+			datastore.store(project);
+			storedProjects.add(project);
+		}
+		for (Task task : history.tasks) {
+			task.setSyncKey(KeyGenerator.getNewKey());
+			task.setLastUpdated(modifiedSinceLastSync && i++ % 2 == 1 ? modified : synced);
+			datastore.store(task);
+			storedTasks.add(task);
+		}
+		for (TimeRegistration timeRegistration : history.timeRegistrations) {
+			timeRegistration.setSyncKey(KeyGenerator.getNewKey());
+			timeRegistration.setLastUpdated(modifiedSinceLastSync && i++ % 2 == 1 ? modified : synced);
+			datastore.store(timeRegistration);
+			storedTimeRegistrations.add(timeRegistration);
+		}
+	}
+	
+	/**
+	 * Creates a new history, as it's sent by a device that never synchronised: no sync keys.
+	 * @param size The number of time registrations.
+	 * @param dayOffset The number of days to shift the time registrations to the future, to create time registrations
+	 * that do not interfere with the stored ones.
+	 */
+	public History createHistory(int size, int dayOffset) {
+		History history = new History();
+		Date now = new Date();
+		
+		int projectCount = Math.max(1, (size + TIME_REGISTRATIONS_PER_PROJECT - 1) / TIME_REGISTRATIONS_PER_PROJECT);
+		for (int i = 0; i < projectCount; i++) {
+			Project project = new Project();
+			project.setName("Project " + i);
+			project.setComment("Benchmark project " + i);
+			project.setFinished(false);
+			project.setLastUpdated(now);
+			history.projects.add(project);
+			
+			for (int j = 0; j < TASKS_PER_PROJECT; j++) {
+				Task task = new Task();
+				task.setName("Task " + i + "." + j);
+				task.setFinished(false);
+				task.setProject(project);
+				task.setLastUpdated(now);
+				history.tasks.add(task);
+			}
+		}
+		
+		Calendar day = Calendar.getInstance();
+		day.add(Calendar.DAY_OF_MONTH, dayOffset - size);
+		day.set(Calendar.HOUR_OF_DAY, 9);
+		day.set(Calendar.MINUTE, 0);
+		day.set(Calendar.SECOND, 0);
+		day.set(Calendar.MILLISECOND, 0);
+		for (int i = 0; i < size; i++) {
+			Calendar end = (Calendar) day.clone();
+			end.add(Calendar.HOUR_OF_DAY, 8);
+			
+			TimeRegistration timeRegistration = new TimeRegistration();
+			timeRegistration.setStartTime(day.getTime());
+			timeRegistration.setEndTime(end.getTime());
+			timeRegistration.setComment("Time registration " + i);
+			timeRegistration.setTask(history.tasks.get(i % history.tasks.size()));
+			timeRegistration.setLastUpdated(now);
+			history.timeRegistrations.add(timeRegistration);
+			
+			day.add(Calendar.DAY_OF_MONTH, 1);
+		}
+		
+		return history;
+	}
+	
+	/**
+	 * Creates the incoming entities of a device that conflict with the stored ones: the projects have the same
+	 * modification date but another comment and the time registrations (without sync key) overlap with the stored
+	 * time registrations by one hour.
+	 */
+	public History createConflictingHistory() {
+		History history = new History();
+		Map<Task, Task> tasks = new HashMap<Task, Task>();
+		
+		for (Project storedProject : storedProjects) {
+			Project project = new Project();
+			project.setName(storedProject.getName());
+			project.setComment("Conflicting comment");
+			project.setSyncKey(storedProject.getSyncKey());
+			project.setLastUpdated(storedProject.getLastUpdated());
+			history.projects.add(project);
+			
+			for (Task storedTask : storedTasks) {
+				if (storedTask.getProject() == storedProject) {
+					Task task = new Task();
+					task.setName(storedTask.getName());
+					task.setProject(project);
+					task.setSyncKey(storedTask.getSyncKey());
+					task.setLastUpdated(storedTask.getLastUpdated());
+					history.tasks.add(task);
+					tasks.put(storedTask, task);
+				}
+			}
+		}
+		
+		for (TimeRegistration storedTimeRegistration : storedTimeRegistrations) {
+			TimeRegistration timeRegistration = new TimeRegistration();
+			timeRegistration.setStartTime(new Date(storedTimeRegistration.getStartTime().getTime() + 7L * 60L * 60L * 1000L));
+			timeRegistration.setEndTime(new Date(storedTimeRegistration.getEndTime().getTime() + 7L * 60L * 60L * 1000L));
+			timeRegistration.setComment("Overlapping time registration");
+			timeRegistration.setTask(tasks.get(storedTimeRegistration.getTask()));
+			timeRegistration.setLastUpdated(new Date());
+			history.timeRegistrations.add(timeRegistration);
+		}
+		
+		return history;
+	}
+	
+	/**
+	 * @return The removal map of a device that removed all stored time registrations and every other task.
+	 */
+	public Map<String, String> createRemovalMap() {
+		Map<String, String> removalMap = new HashMap<String, String>();
+		for (TimeRegistration timeRegistration : storedTimeRegistrations) {
+			removalMap.put(timeRegistration.getSyncKey(), TimeRegistration.class.getSimpleName());
+		}
+		for (int i = 0; i < storedTasks.size(); i += 2) {
+			removalMap.put(storedTasks.get(i).getSyncKey(), Task.class.getSimpleName());
+		}
+		return removalMap;
+	}
+	
+	public static class History {
+		public final List<Project> projects = new ArrayList<Project>();
+		public final List<Task> tasks = new ArrayList<Task>();
+		public final List<TimeRegistration> timeRegistrations = new ArrayList<TimeRegistration>();
+	}
+}
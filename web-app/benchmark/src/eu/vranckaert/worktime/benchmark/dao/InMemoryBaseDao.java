@@ -0,0 +1,111 @@
+package eu.vranckaert.worktime.benchmark.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import eu.vranckaert.worktime.dao.BaseDao;
+
+/**
+ * In-memory counterpart of the {@link eu.vranckaert.worktime.dao.impl.BaseDaoImpl}, queries only see the committed
+ * entities and the entities stored in the current transaction are available through {@link #getCachedObjects(Object)}.
+ */
+public class InMemoryBaseDao<T> implements BaseDao<T> {
+	private final InMemoryDatastore datastore;
+	private final Class<T> clazz;
+	
+	public InMemoryBaseDao(InMemoryDatastore datastore, Class<T> clazz) {
+		this.datastore = datastore;
+		this.clazz = clazz;
+	}
+	
+	public InMemoryDatastore getDatastore() {
+		return datastore;
+	}
+
+	@Override
+	public List<T> findAll() {
+		return datastore.find(clazz, null);
+	}
+
+	@Override
+	public long persist(T instance) {
+		return datastore.store(instance);
+	}
+
+	@Override
+	public T update(T instance) {
+		datastore.store(instance);
+		return instance;
+	}
+
+	@Override
+	public void remove(T instance) {
+		datastore.delete(instance);
+	}
+
+	@Override
+	public void persistAll(Collection<T> instances) {
+		for (T instance : instances) {
+			persist(instance);
+		}
+	}
+
+	@Override
+	public void updateAll(Collection<T> instances) {
+		for (T instance : instances) {
+			update(instance);
+		}
+	}
+
+	@Override
+	public void removeAll(Collection<T> instances) {
+		for (T instance : instances) {
+			remove(instance);
+		}
+	}
+
+	@Override
+	public T findById(Object id) {
+		throw new UnsupportedOperationException("Entities are not looked up by id in the synchronisation");
+	}
+
+	@Override
+	public int countAll() {
+		return findAll().size();
+	}
+
+	@Override
+	public int countForParent(Object parent) {
+		return find(parent).size();
+	}
+	
+	/**
+	 * @return The committed entities with a certain ancestor.
+	 */
+	protected List<T> find(Object ancestor) {
+		return datastore.find(clazz, ancestor);
+	}
+	
+	/**
+	 * @return The entities with a certain ancestor that are stored in the current transaction.
+	 */
+	protected List<T> getCachedObjects(Object ancestor) {
+		if (!datastore.isTransactionActive()) {
+			return new ArrayList<T>();
+		}
+		return datastore.findPending(clazz, ancestor);
+	}
+	
+	/**
+	 * The equivalent of a query that returns a unique result: null if more than one entity qualifies.
+	 */
+	protected T unique(List<T> entities) {
+		return entities.size() == 1 ? entities.get(0) : null;
+	}
+	
+	protected static boolean isModifiedOnOrAfter(Date lastUpdated, Date date) {
+		return date == null || (lastUpdated != null && !lastUpdated.before(date));
+	}
+}
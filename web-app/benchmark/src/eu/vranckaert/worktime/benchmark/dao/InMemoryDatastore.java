@@ -0,0 +1,232 @@
+package eu.vranckaert.worktime.benchmark.dao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.appengine.api.datastore.Transaction;
+import com.google.code.twig.ObjectDatastore;
+
+import eu.vranckaert.worktime.benchmark.Partial;
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+
+/**
+ * In-memory stand-in for the datastore, shared by all in-memory DAO's of one benchmark invocation. Just like the App
+ * Engine datastore, entities that are stored or deleted during a transaction are only visible to queries after the
+ * transaction is committed, that's why the DAO's keep a transaction cache (see
+ * {@link eu.vranckaert.worktime.dao.impl.BaseDaoImpl}). Loaded entities are the stored instances, as Twig returns the
+ * same instance within one request. A committed entity keeps the parent it had when it was stored, just like the parent
+ * in the key of a datastore entity, as the synchronisation removes the user from the projects it returns.
+ */
+public class InMemoryDatastore {
+	private final Map<Class<?>, List<Object>> entities = new HashMap<Class<?>, List<Object>>();
+	private final Map<Object, Object> committed = new IdentityHashMap<Object, Object>();
+	private final List<Object> pendingStores = new ArrayList<Object>();
+	private final List<Object> pendingDeletes = new ArrayList<Object>();
+	private final ObjectDatastore objectDatastore = Partial.implement(ObjectDatastore.class, new Datastore());
+	private Transaction transaction;
+	private long nextId = 1L;
+	
+	/**
+	 * @return The {@link ObjectDatastore} that only supports the transaction handling.
+	 */
+	public ObjectDatastore getObjectDatastore() {
+		return objectDatastore;
+	}
+	
+	public boolean isTransactionActive() {
+		return transaction != null;
+	}
+	
+	/**
+	 * Stores an entity, within the active transaction if any.
+	 * @return The id of the entity.
+	 */
+	public long store(Object entity) {
+		if (committed.containsKey(entity)) {
+			// Storing an entity again only updates it
+		} else if (isTransactionActive()) {
+			if (!containsInstance(pendingStores, entity)) {
+				pendingStores.add(entity);
+			}
+		} else {
+			add(entity);
+		}
+		return nextId++;
+	}
+	
+	/**
+	 * Deletes an entity, within the active transaction if any.
+	 */
+	public void delete(Object entity) {
+		if (isTransactionActive()) {
+			if (!removeInstance(pendingStores, entity)) {
+				pendingDeletes.add(entity);
+			}
+		} else {
+			remove(entity);
+		}
+	}
+	
+	/**
+	 * Finds all committed entities of a type, the equivalent of an ancestor query.
+	 * @param type The type of the entities.
+	 * @param ancestor The ancestor of the entities, null for all entities of the type.
+	 * @return A new list with the entities.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> find(Class<T> type, Object ancestor) {
+		List<T> result = new ArrayList<T>();
+		for (Object entity : getEntities(type)) {
+			if (ancestor == null || hasAncestor(entity, ancestor)) {
+				result.add((T) entity);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @return The entities of a type stored in the active transaction, with a certain ancestor.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> findPending(Class<T> type, Object ancestor) {
+		List<T> result = new ArrayList<T>();
+		for (Object entity : pendingStores) {
+			if (type.isInstance(entity) && hasAncestor(entity, ancestor)) {
+				result.add((T) entity);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Walks up the entity group of an entity (time registration, task, project, user) looking for an ancestor.
+	 */
+	private boolean hasAncestor(Object entity, Object ancestor) {
+		Object parent = getParent(entity);
+		while (parent != null) {
+			if (parent.equals(ancestor)) {
+				return true;
+			}
+			parent = getParent(parent);
+		}
+		return false;
+	}
+	
+	private Object getParent(Object entity) {
+		if (committed.containsKey(entity)) {
+			return committed.get(entity);
+		}
+		return getCurrentParent(entity);
+	}
+	
+	private static Object getCurrentParent(Object entity) {
+		if (entity instanceof TimeRegistration) {
+			return ((TimeRegistration) entity).getTask();
+		} else if (entity instanceof Task) {
+			return ((Task) entity).getProject();
+		} else if (entity instanceof Project) {
+			return ((Project) entity).getUser();
+		}
+		return null;
+	}
+	
+	private List<Object> getEntities(Class<?> type) {
+		List<Object> list = entities.get(type);
+		if (list == null) {
+			list = new ArrayList<Object>();
+			entities.put(type, list);
+		}
+		return list;
+	}
+	
+	private void add(Object entity) {
+		getEntities(entity.getClass()).add(entity);
+		committed.put(entity, getCurrentParent(entity));
+	}
+	
+	private void remove(Object entity) {
+		if (committed.remove(entity) != null) {
+			removeInstance(getEntities(entity.getClass()), entity);
+		}
+	}
+	
+	private boolean containsInstance(List<Object> list, Object entity) {
+		for (Object element : list) {
+			if (element == entity) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private boolean removeInstance(List<Object> list, Object entity) {
+		for (int i = 0; i < list.size(); i++) {
+			if (list.get(i) == entity) {
+				list.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private void commit() {
+		for (Object entity : pendingStores) {
+			add(entity);
+		}
+		for (Object entity : pendingDeletes) {
+			remove(entity);
+		}
+		endTransaction();
+	}
+	
+	private void endTransaction() {
+		pendingStores.clear();
+		pendingDeletes.clear();
+		transaction = null;
+	}
+	
+	private class Datastore {
+		public Transaction beginTransaction() {
+			if (isTransactionActive()) {
+				throw new IllegalStateException("A transaction is already active");
+			}
+			transaction = Partial.implement(Transaction.class, new InMemoryTransaction());
+			return transaction;
+		}
+		
+		public Transaction getTransaction() {
+			return transaction;
+		}
+	}
+	
+	private class InMemoryTransaction {
+		private boolean active = true;
+		
+		public void commit() {
+			checkActive();
+			active = false;
+			InMemoryDatastore.this.commit();
+		}
+		
+		public void rollback() {
+			checkActive();
+			active = false;
+			endTransaction();
+		}
+		
+		public boolean isActive() {
+			return active;
+		}
+		
+		private void checkActive() {
+			if (!active) {
+				throw new IllegalStateException("The transaction is no longer active");
+			}
+		}
+	}
+}
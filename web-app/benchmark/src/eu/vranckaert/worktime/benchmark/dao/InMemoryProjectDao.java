@@ -0,0 +1,95 @@
+package eu.vranckaert.worktime.benchmark.dao;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import eu.vranckaert.worktime.dao.ProjectDao;
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.User;
+
+public class InMemoryProjectDao extends InMemoryBaseDao<Project> implements ProjectDao {
+	public InMemoryProjectDao(InMemoryDatastore datastore) {
+		super(datastore, Project.class);
+	}
+	
+	@Override
+	public long persist(Project instance) {
+		instance.setLastUpdated(new Date());
+		return super.persist(instance);
+	}
+
+	@Override
+	public Project update(Project instance) {
+		instance.setLastUpdated(new Date());
+		return super.update(instance);
+	}
+
+	@Override
+	public List<Project> findAll(User user) {
+		List<Project> projects = find(user);
+		projects.addAll(getCachedObjects(user));
+		return projects;
+	}
+
+	@Override
+	public Project find(String name, User user) {
+		List<Project> matches = new ArrayList<Project>();
+		for (Project project : find(user)) {
+			if (project.getName().equals(name)) {
+				matches.add(project);
+			}
+		}
+		
+		Project project = unique(matches);
+		if (project == null && matches.isEmpty()) {
+			for (Project cachedProject : getCachedObjects(user)) {
+				if (cachedProject.getName().equals(name)) {
+					return cachedProject;
+				}
+			}
+		}
+		return project;
+	}
+
+	@Override
+	public Project findBySyncKey(String syncKey, User user) {
+		List<Project> matches = new ArrayList<Project>();
+		for (Project project : find(user)) {
+			if (syncKey.equals(project.getSyncKey())) {
+				matches.add(project);
+			}
+		}
+		
+		Project project = unique(matches);
+		if (project == null && matches.isEmpty()) {
+			for (Project cachedProject : getCachedObjects(user)) {
+				if (syncKey.equals(cachedProject.getSyncKey())) {
+					return cachedProject;
+				}
+			}
+		}
+		return project;
+	}
+
+	@Override
+	public boolean isUniqueSynKey(String syncKey, User user) {
+		for (Project project : findAll(user)) {
+			if (syncKey.equals(project.getSyncKey())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public List<Project> findAllModifiedAfter(User user, Date lastModifiedDate) {
+		List<Project> projects = new ArrayList<Project>();
+		for (Project project : find(user)) {
+			if (isModifiedOnOrAfter(project.getLastUpdated(), lastModifiedDate)) {
+				projects.add(project);
+			}
+		}
+		return projects;
+	}
+}
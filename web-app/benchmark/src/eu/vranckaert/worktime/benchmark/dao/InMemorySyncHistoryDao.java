@@ -0,0 +1,49 @@
+package eu.vranckaert.worktime.benchmark.dao;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import eu.vranckaert.worktime.dao.SyncHistoryDao;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.sync.SyncHistory;
+import eu.vranckaert.worktime.model.sync.SyncResult;
+
+public class InMemorySyncHistoryDao extends InMemoryBaseDao<SyncHistory> implements SyncHistoryDao {
+	public InMemorySyncHistoryDao(InMemoryDatastore datastore) {
+		super(datastore, SyncHistory.class);
+	}
+
+	@Override
+	public boolean hasSyncHistory(User user) {
+		for (SyncHistory syncHistory : findAll()) {
+			if (syncHistory.getUserEmail().equals(user.getEmail())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public SyncHistory getOngoingSyncHistory(User user) {
+		for (SyncHistory syncHistory : findAll()) {
+			if (syncHistory.getUserEmail().equals(user.getEmail()) && syncHistory.getSyncResult() == SyncResult.BUSY) {
+				return syncHistory;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public List<SyncHistory> findSyncsBetween(Date minDate, Date maxDate, boolean includeBoundaries) {
+		List<SyncHistory> syncHistories = new ArrayList<SyncHistory>();
+		for (SyncHistory syncHistory : findAll()) {
+			int afterMin = syncHistory.getStartTime().compareTo(minDate);
+			int beforeMax = maxDate.compareTo(syncHistory.getStartTime());
+			if (includeBoundaries ? afterMin >= 0 && beforeMax >= 0 : afterMin > 0 && beforeMax > 0) {
+				syncHistories.add(syncHistory);
+			}
+		}
+		return syncHistories;
+	}
+}
@@ -0,0 +1,38 @@
+package eu.vranckaert.worktime.benchmark.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import eu.vranckaert.worktime.dao.SyncLockDao;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.sync.SyncLock;
+
+/**
+ * Keeps the locks in a map, the benchmarks do not synchronise the same user concurrently so the lease is ignored.
+ */
+public class InMemorySyncLockDao extends InMemoryBaseDao<SyncLock> implements SyncLockDao {
+	private final Map<String, String> locks = new HashMap<String, String>();
+	
+	public InMemorySyncLockDao(InMemoryDatastore datastore) {
+		super(datastore, SyncLock.class);
+	}
+
+	@Override
+	public SyncLock acquire(User user, long leaseMillis) {
+		if (locks.containsKey(user.getEmail())) {
+			return null;
+		}
+		SyncLock lock = new SyncLock(user.getEmail());
+		lock.setLockKey(UUID.randomUUID().toString());
+		locks.put(user.getEmail(), lock.getLockKey());
+		return lock;
+	}
+
+	@Override
+	public void release(User user, String lockKey) {
+		if (lockKey.equals(locks.get(user.getEmail()))) {
+			locks.remove(user.getEmail());
+		}
+	}
+}
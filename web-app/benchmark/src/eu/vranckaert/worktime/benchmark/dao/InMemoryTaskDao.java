@@ -0,0 +1,96 @@
+package eu.vranckaert.worktime.benchmark.dao;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import eu.vranckaert.worktime.dao.TaskDao;
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.User;
+
+public class InMemoryTaskDao extends InMemoryBaseDao<Task> implements TaskDao {
+	public InMemoryTaskDao(InMemoryDatastore datastore) {
+		super(datastore, Task.class);
+	}
+	
+	@Override
+	public long persist(Task instance) {
+		instance.setLastUpdated(new Date());
+		return super.persist(instance);
+	}
+
+	@Override
+	public Task update(Task instance) {
+		instance.setLastUpdated(new Date());
+		return super.update(instance);
+	}
+
+	@Override
+	public List<Task> findAll(User user) {
+		List<Task> tasks = find(user);
+		tasks.addAll(getCachedObjects(user));
+		return tasks;
+	}
+
+	@Override
+	public Task find(String name, Project project) {
+		List<Task> matches = new ArrayList<Task>();
+		for (Task task : find(project)) {
+			if (task.getName().equals(name)) {
+				matches.add(task);
+			}
+		}
+		
+		Task task = unique(matches);
+		if (task == null && matches.isEmpty()) {
+			for (Task cachedTask : getCachedObjects(project)) {
+				if (cachedTask.getName().equals(name)) {
+					return cachedTask;
+				}
+			}
+		}
+		return task;
+	}
+
+	@Override
+	public Task findBySyncKey(String syncKey, User user) {
+		List<Task> matches = new ArrayList<Task>();
+		for (Task task : find(user)) {
+			if (syncKey.equals(task.getSyncKey())) {
+				matches.add(task);
+			}
+		}
+		
+		Task task = unique(matches);
+		if (task == null && matches.isEmpty()) {
+			for (Task cachedTask : getCachedObjects(user)) {
+				if (syncKey.equals(cachedTask.getSyncKey())) {
+					return cachedTask;
+				}
+			}
+		}
+		return task;
+	}
+
+	@Override
+	public boolean isUniqueSynKey(String syncKey, User user) {
+		for (Task task : findAll(user)) {
+			if (syncKey.equals(task.getSyncKey())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public List<Task> findAllModifiedAfter(User user, Date lastModifiedDate) {
+		List<Task> tasks = new ArrayList<Task>();
+		for (Task task : find(user)) {
+			if (isModifiedOnOrAfter(task.getLastUpdated(), lastModifiedDate)) {
+				tasks.add(task);
+			}
+		}
+		return tasks;
+	}
+}
@@ -0,0 +1,88 @@
+package eu.vranckaert.worktime.benchmark.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import eu.vranckaert.worktime.dao.TimeRegistrationDao;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.User;
+
+/**
+ * The in-memory time registrations are found through their task instead of an index, the index only sets the time of
+ * the last update. There are no time registrations of the old layout.
+ */
+public class InMemoryTimeRegistrationDao extends InMemoryBaseDao<TimeRegistration> implements TimeRegistrationDao {
+	public InMemoryTimeRegistrationDao(InMemoryDatastore datastore) {
+		super(datastore, TimeRegistration.class);
+	}
+	
+	@Override
+	public List<TimeRegistration> findAll(User user) {
+		return find(user);
+	}
+	
+	@Override
+	public TimeRegistration findBySyncKey(String syncKey, User user) {
+		for (TimeRegistration timeRegistration : find(user)) {
+			if (syncKey.equals(timeRegistration.getSyncKey())) {
+				return timeRegistration;
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public List<TimeRegistration> findAllModifiedAfter(User user, Date lastModifiedDate) {
+		List<TimeRegistration> timeRegistrations = new ArrayList<TimeRegistration>();
+		for (TimeRegistration timeRegistration : find(user)) {
+			if (isModifiedOnOrAfter(timeRegistration.getLastUpdated(), lastModifiedDate)) {
+				timeRegistrations.add(timeRegistration);
+			}
+		}
+		return timeRegistrations;
+	}
+	
+	@Override
+	public List<TimeRegistration> findForSync(User user, Date date, Collection<String> syncKeys) {
+		List<TimeRegistration> timeRegistrations = new ArrayList<TimeRegistration>();
+		for (TimeRegistration timeRegistration : find(user)) {
+			if (timeRegistration.isOngoingTimeRegistration()
+					|| (date != null && !timeRegistration.getEndTime().before(date))
+					|| syncKeys.contains(timeRegistration.getSyncKey())) {
+				timeRegistrations.add(timeRegistration);
+			}
+		}
+		return timeRegistrations;
+	}
+	
+	@Override
+	public void index(User user, Collection<TimeRegistration> stored, Collection<TimeRegistration> updated, Collection<TimeRegistration> removed) {
+		Date now = new Date();
+		for (TimeRegistration timeRegistration : stored) {
+			timeRegistration.setLastUpdated(now);
+		}
+		for (TimeRegistration timeRegistration : updated) {
+			timeRegistration.setLastUpdated(now);
+		}
+	}
+	
+	@Override
+	public int removeBatch(User user, int batchSize) {
+		List<TimeRegistration> timeRegistrations = find(user);
+		timeRegistrations = timeRegistrations.subList(0, Math.min(timeRegistrations.size(), batchSize));
+		removeAll(new ArrayList<TimeRegistration>(timeRegistrations));
+		return timeRegistrations.size();
+	}
+	
+	@Override
+	public int migrateLegacyTimeRegistrations(User user, int batchSize) {
+		return 0;
+	}
+	
+	@Override
+	public String findUserWithLegacyTimeRegistrations() {
+		return null;
+	}
+}
@@ -0,0 +1,31 @@
+package eu.vranckaert.worktime.cron.migration;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.inject.Inject;
+
+import eu.vranckaert.worktime.service.CronJobService;
+
+/**
+ * Migrates the time registrations that are still stored as children of their
+ * task. The time registrations of a user are migrated when the user
+ * synchronises as well, but some users never synchronise again.
+ */
+public class MigrateTimeRegistrationsServlet extends HttpServlet {
+	private static final Logger log = Logger.getLogger(MigrateTimeRegistrationsServlet.class.getName());
+	
+	@Inject private CronJobService cronJobService;
+	
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+			throws ServletException, IOException {
+		int migrated = cronJobService.migrateTimeRegistrations();
+		log.info(migrated + " time registrations of the old layout have been migrated");
+	}
+}
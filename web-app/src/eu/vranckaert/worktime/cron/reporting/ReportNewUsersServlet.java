@@ -14,12 +14,13 @@ import javax.servlet.http.HttpServletResponse;
 import com.google.inject.Inject;
 
 import eu.vranckaert.worktime.dao.SyncHistoryDao;
+import eu.vranckaert.worktime.mail.MailQueue;
+import eu.vranckaert.worktime.mail.OutboundMail;
 import eu.vranckaert.worktime.model.User;
 import eu.vranckaert.worktime.model.sync.SyncHistory;
 import eu.vranckaert.worktime.security.service.UserService;
 import eu.vranckaert.worktime.service.CronJobService;
 import eu.vranckaert.worktime.util.DateUtil;
-import eu.vranckaert.worktime.util.EmailUtil;
 
 public class ReportNewUsersServlet extends HttpServlet {
 	private static final Logger log = Logger.getLogger(ReportNewUsersServlet.class.getName());
@@ -27,6 +28,7 @@ public class ReportNewUsersServlet extends HttpServlet {
 	@Inject private UserService userService;
 	@Inject private CronJobService cronJobService;
 	@Inject private SyncHistoryDao syncHistoryDao;
+	@Inject private MailQueue mailQueue;
 	
 	@Override
 	protected void doGet(HttpServletRequest req, HttpServletResponse resp)
@@ -175,6 +177,6 @@ public class ReportNewUsersServlet extends HttpServlet {
 		user.setFirstName("Dirk");
 		user.setLastName("Vranckaert");
 		recipients.add(user);
-		EmailUtil.sendEmail("WorkTime Reporting", html, "text/html", recipients);
+		mailQueue.enqueue(new OutboundMail("WorkTime Reporting", html, "text/html", User.getTechnicalUser(), recipients));
 	}
 }
@@ -0,0 +1,30 @@
+package eu.vranckaert.worktime.cron.session;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.inject.Inject;
+
+import eu.vranckaert.worktime.service.CronJobService;
+
+/**
+ * Removes the expired sessions of all users. Expired sessions are removed 
+ * when they are used as well, but most of them are never used again.
+ */
+public class RemoveExpiredSessionsServlet extends HttpServlet {
+	private static final Logger log = Logger.getLogger(RemoveExpiredSessionsServlet.class.getName());
+	
+	@Inject private CronJobService cronJobService;
+	
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+			throws ServletException, IOException {
+		int removed = cronJobService.removeExpiredSessions();
+		log.info(removed + " expired sessions have been removed");
+	}
+}
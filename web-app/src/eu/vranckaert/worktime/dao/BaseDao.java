@@ -1,5 +1,6 @@
 package eu.vranckaert.worktime.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface BaseDao <T> {
@@ -11,6 +12,21 @@ public interface BaseDao <T> {
 	
 	public void remove(T instance);
 	
+	/**
+	 * Stores new instances in one batch.
+	 */
+	void persistAll(Collection<T> instances);
+	
+	/**
+	 * Updates existing instances in one batch.
+	 */
+	void updateAll(Collection<T> instances);
+	
+	/**
+	 * Removes instances in one batch.
+	 */
+	void removeAll(Collection<T> instances);
+	
 	T findById(Object id);
 	
 	int countAll();
@@ -0,0 +1,57 @@
+package eu.vranckaert.worktime.dao;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.report.DailyTotal;
+
+public interface DailyTotalDao extends BaseDao<DailyTotal> {
+	/**
+	 * Find a daily total of a user by it's key, this is a consistent read so 
+	 * it can be used in a transaction.
+	 * @param user The user to which the total belongs.
+	 * @param id The key of the total, see 
+	 * {@link DailyTotal#getId(Date, String)}.
+	 * @return The {@link DailyTotal} or null if none found.
+	 */
+	DailyTotal find(User user, String id);
+	
+	/**
+	 * Find daily totals of a user by their keys in one batch, this is a 
+	 * consistent read so it can be used in a transaction.
+	 * @param user The user to which the totals belong.
+	 * @param ids The keys of the totals, see 
+	 * {@link DailyTotal#getId(Date, String)}.
+	 * @return The {@link DailyTotal}s that exist by their key.
+	 */
+	Map<String, DailyTotal> find(User user, Collection<String> ids);
+	
+	/**
+	 * Find all daily totals of a user.
+	 * @param user The user for which to retrieve the totals.
+	 * @return All {@link DailyTotal}s of the user.
+	 */
+	List<DailyTotal> findAll(User user);
+	
+	/**
+	 * Find the daily totals of a user for a range of days.
+	 * @param user The user for which to retrieve the totals.
+	 * @param firstDay The first day of the range (included).
+	 * @param lastDay The last day of the range (included).
+	 * @return The {@link DailyTotal}s in the range.
+	 */
+	List<DailyTotal> findBetween(User user, Date firstDay, Date lastDay);
+	
+	/**
+	 * Removes a batch of daily totals of a user by their keys, so also the 
+	 * totals of an older layout that can not be loaded any more.
+	 * @param user The user.
+	 * @param batchSize The maximum number of totals to remove.
+	 * @return The number of totals removed, less than the batch size once
+	 * all totals are removed.
+	 */
+	int removeBatch(User user, int batchSize);
+}
@@ -0,0 +1,15 @@
+package eu.vranckaert.worktime.dao;
+
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.report.DailyTotalsState;
+
+public interface DailyTotalsStateDao extends BaseDao<DailyTotalsState> {
+	/**
+	 * Find the state of the daily totals of a user by it's key, this is a 
+	 * consistent read so it can be used in a transaction.
+	 * @param user The user.
+	 * @return The {@link DailyTotalsState} or null if the totals of the user
+	 * have not been built yet.
+	 */
+	DailyTotalsState find(User user);
+}
@@ -0,0 +1,26 @@
+package eu.vranckaert.worktime.dao;
+
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.sync.SyncLock;
+
+public interface SyncLockDao extends BaseDao<SyncLock> {
+	/**
+	 * Tries to acquire the synchronisation lock of a user. The lock is read 
+	 * and written in one transaction so of two concurrent attempts only one 
+	 * can succeed.
+	 * @param user The user for which to acquire the lock.
+	 * @param leaseMillis The number of milliseconds after which the lock 
+	 * expires if it's not released.
+	 * @return The acquired lock, it's key is needed to release the lock, or 
+	 * null if the lock is held by another synchronisation.
+	 */
+	SyncLock acquire(User user, long leaseMillis);
+	
+	/**
+	 * Releases the synchronisation lock of a user, only if it is still held
+	 * with the specified lock key.
+	 * @param user The user for which to release the lock.
+	 * @param lockKey The key that was returned when acquiring the lock.
+	 */
+	void release(User user, String lockKey);
+}
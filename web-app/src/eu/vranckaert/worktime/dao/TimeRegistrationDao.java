@@ -1,11 +1,23 @@
 package eu.vranckaert.worktime.dao;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
 import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.TimeRegistrationIndex;
 import eu.vranckaert.worktime.model.User;
 
+/**
+ * The time registrations are root entities keyed by their sync key, the
+ * {@link TimeRegistrationIndex} of a user lists them. A synchronisation first
+ * updates the index with {@link #index(User, Collection, Collection, Collection)}
+ * in the transaction of the entity group of the user, and writes the time
+ * registrations themselves with {@link #persistAll(Collection)},
+ * {@link #updateAll(Collection)} and {@link #removeAll(Collection)} after the
+ * transaction has been committed. A time registration that is in the index
+ * but that was not written is skipped by all lookups.
+ */
 public interface TimeRegistrationDao extends BaseDao<TimeRegistration> {
 	@Deprecated
 	@Override
@@ -15,6 +27,41 @@ public interface TimeRegistrationDao extends BaseDao<TimeRegistration> {
 	@Override
 	TimeRegistration findById(Object id);
 	
+	/**
+	 * Time registrations are written in batches after they have been indexed.
+	 */
+	@Deprecated
+	@Override
+	long persist(TimeRegistration instance);
+	
+	/**
+	 * Time registrations are written in batches after they have been indexed.
+	 */
+	@Deprecated
+	@Override
+	TimeRegistration update(TimeRegistration instance);
+	
+	/**
+	 * Time registrations are written in batches after they have been indexed.
+	 */
+	@Deprecated
+	@Override
+	void remove(TimeRegistration instance);
+	
+	/**
+	 * Stores new time registrations in parallel batches, as they are. The time
+	 * of the last update is set when they are indexed.
+	 */
+	@Override
+	void persistAll(Collection<TimeRegistration> instances);
+	
+	/**
+	 * Overwrites existing time registrations in parallel batches, as they
+	 * are. The time of the last update is set when they are indexed.
+	 */
+	@Override
+	void updateAll(Collection<TimeRegistration> instances);
+	
 	/**
 	 * Find a list of all {@link TimeRegistration}s for a specific user.
 	 * @param user The user for which to retrieve the time registrations.
@@ -22,64 +69,80 @@ public interface TimeRegistrationDao extends BaseDao<TimeRegistration> {
 	 */
 	List<TimeRegistration> findAll(User user);
 	
-	/**
-	 * Find a time registration for a certain user based on it's start- and
-	 * end-date.
-	 * @param startDate The starting date of the time registration.
-	 * @param endDate The ending date of the time registration (can be null if
-	 * you are looking for an ongoing time registration).
-	 * @param user The user for which to retrieve the time registration. 
-	 * @return The {@link TimeRegistration} that qualifies or null if none 
-	 * found.
-	 */
-	TimeRegistration find(Date startDate, Date endDate, User user);
-	
 	/**
 	 * Find a time registration for a certain user based on it's synchronization
 	 * key.
 	 * @param syncKey The synchronization key for which to look.
 	 * @param user The user for which to retrieve the time registration.
-	 * @return The {@link TimeRegistration} that qualifies or null if none 
+	 * @return The {@link TimeRegistration} that qualifies or null if none
 	 * found.
 	 */
 	TimeRegistration findBySyncKey(String syncKey, User user);
 	
 	/**
-	 * Find all {@link TimeRegistration}s that interfere with the provided one.
-	 * @param timeRegistration The time registrations that all resulting time
-	 * registrations will interfere with.
+	 * Search for all {@link TimeRegistration}s that have been modified on or
+	 * after a certain date.
 	 * @param user The user for which to retrieve the time registrations.
-	 * @return A list of {@link TimeRegistration}s that interfere, based on 
-	 * start and end time, with the provided time registration.
+	 * @param lastModifiedDate The date after which (or on which) the time
+	 * registrations should be modified.
+	 * @return A list of {@link TimeRegistration}s that are modified after the
+	 * provided date.
 	 */
-	List<TimeRegistration> findInterferingTimeRegistrations(TimeRegistration timeRegistration, User user);
+	List<TimeRegistration> findAllModifiedAfter(User user, Date lastModifiedDate);
 	
 	/**
-	 * Checks if the provided synchronization key is already used for a 
-	 * {@link TimeRegistration} or not.
-	 * @param syncKey The synchronization key to check uniqueness for.
-	 * @param user The user to which the time registrations should belong.
-	 * @return {@link Boolean#TRUE} if the provided synchronization key is 
-	 * unique. Otherwise {@link Boolean#FALSE}.
+	 * Loads the time registrations a synchronisation needs in one batch: the
+	 * ones that end on or after a certain date, the ongoing time registration
+	 * and the ones with one of the provided sync keys.
+	 * @param user The user for which to retrieve the time registrations.
+	 * @param date The date on which (or after which) the time registrations
+	 * should end, null to only load the ongoing time registration and the
+	 * provided sync keys.
+	 * @param syncKeys The sync keys of the time registrations that are
+	 * loaded whenever they end.
+	 * @return The {@link TimeRegistration}s of the user that qualify.
 	 */
-	boolean isUniqueSynKey(String syncKey, User user);
+	List<TimeRegistration> findForSync(User user, Date date, Collection<String> syncKeys);
 	
 	/**
-	 * Search for all {@link TimeRegistration}s that have been modified on or 
-	 * after a certain date.
-	 * @param user The user for which to retrieve the time registrations.
-	 * @param lastModifiedDate The date after which (or on which) the time 
-	 * registrations should be modified.
-	 * @return A list of {@link TimeRegistration}s that are modified after the 
-	 * provided date.
+	 * Sets the time of the last update of the stored and updated time
+	 * registrations and updates the index of the user. Must be called in the
+	 * transaction of the entity group of the user, before the time
+	 * registrations themselves are written.
+	 * @param user The user of the time registrations.
+	 * @param stored The new time registrations.
+	 * @param updated The time registrations that are updated.
+	 * @param removed The time registrations that are removed.
 	 */
-	List<TimeRegistration> findAllModifiedAfter(User user, Date lastModifiedDate);
+	void index(User user, Collection<TimeRegistration> stored, Collection<TimeRegistration> updated, Collection<TimeRegistration> removed);
+	
+	/**
+	 * Removes a batch of time registrations of a user together with their
+	 * entries in the index, an index that is empty is removed as well. The
+	 * caller must hold the synchronisation lock of the user.
+	 * @param user The user.
+	 * @param batchSize The maximum number of time registrations to remove.
+	 * @return The number of time registrations removed, less than the batch
+	 * size once all time registrations and indexes are removed.
+	 */
+	int removeBatch(User user, int batchSize);
+	
+	/**
+	 * Migrates a batch of time registrations of a user that are still stored
+	 * as children of their task to root time registrations in the index of
+	 * the user. The caller must hold the synchronisation lock of the user.
+	 * @param user The user.
+	 * @param batchSize The maximum number of time registrations to migrate.
+	 * @return The number of time registrations of the old layout that have
+	 * been migrated or removed.
+	 */
+	int migrateLegacyTimeRegistrations(User user, int batchSize);
 	
 	/**
-	 * Search for any ongoing time registration.
-	 * @param user The user for which to retrieve the ongoing time registration.
-	 * @return Returns an instance of {@link TimeRegistration} if any ongoing
-	 * time registration is found. Otherwise just returns null.
+	 * Looks for a user that still has time registrations stored as children
+	 * of their task. The query is eventually consistent, it can return a user
+	 * whose time registrations have just been migrated.
+	 * @return The email of the user or null if none is found.
 	 */
-	TimeRegistration findOngoingTimeRegistration(User user);
+	String findUserWithLegacyTimeRegistrations();
 }
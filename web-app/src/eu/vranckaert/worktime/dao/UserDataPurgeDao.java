@@ -0,0 +1,32 @@
+package eu.vranckaert.worktime.dao;
+
+import java.util.List;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.QueryResultIterator;
+
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.purge.UserDataPurge;
+
+public interface UserDataPurgeDao extends BaseDao<UserDataPurge> {
+	/**
+	 * Find a batch of keys of one kind in the entity group of a user. Only 
+	 * the keys are queried, the entities are never loaded.
+	 * @param user The user, the root of the entity group.
+	 * @param kind The kind of the entities.
+	 * @param cursor The cursor to continue from, null to start at the first 
+	 * key.
+	 * @param batchSize The maximum number of keys to find.
+	 * @return The entities with only their key, the cursor of the iterator 
+	 * points to the end of the batch.
+	 */
+	QueryResultIterator<Entity> findKeys(User user, String kind, Cursor cursor, int batchSize);
+	
+	/**
+	 * Removes a batch of entities by their keys.
+	 * @param keys The keys of the entities to remove.
+	 */
+	void removeKeys(List<Key> keys);
+}
@@ -2,6 +2,7 @@ package eu.vranckaert.worktime.dao.impl;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import com.google.appengine.api.datastore.Key;
@@ -58,6 +59,29 @@ public class BaseDaoImpl <T> implements BaseDao <T> {
 		getDataStore().delete(instance);
 	}
 	
+	public void persistAll(Collection<T> instances) {
+		if (instances.isEmpty()) {
+			return;
+		}
+		getDataStore().storeAll(instances);
+		
+		if (useTransactionCache()) {
+			transactionCache.addAll(instances);
+		}
+	}
+	
+	public void updateAll(Collection<T> instances) {
+		if (!instances.isEmpty()) {
+			getDataStore().updateAll(instances);
+		}
+	}
+	
+	public void removeAll(Collection<T> instances) {
+		if (!instances.isEmpty()) {
+			getDataStore().deleteAll(instances);
+		}
+	}
+	
 	@SuppressWarnings("unchecked")
 	public T findById(Object id) {
 		return (T) getDataStore().load(clazz, id);
@@ -0,0 +1,89 @@
+package eu.vranckaert.worktime.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+
+import eu.vranckaert.worktime.dao.DailyTotalDao;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.report.DailyTotal;
+
+public class DailyTotalDaoImpl extends BaseDaoImpl<DailyTotal> implements DailyTotalDao {
+
+	public DailyTotalDaoImpl() {
+		super(DailyTotal.class);
+	}
+	
+	@Override
+	public DailyTotal find(User user, String id) {
+		return getDataStore().load()
+				.type(DailyTotal.class)
+				.id(id)
+				.parent(user)
+				.now();
+	}
+	
+	@Override
+	public Map<String, DailyTotal> find(User user, Collection<String> ids) {
+		Map<String, DailyTotal> dailyTotals = new HashMap<String, DailyTotal>();
+		if (ids.isEmpty()) {
+			return dailyTotals;
+		}
+		
+		Map<Object, DailyTotal> loaded = getDataStore().load()
+				.type(DailyTotal.class)
+				.ids(ids)
+				.parent(user)
+				.now();
+		for (DailyTotal dailyTotal : loaded.values()) {
+			if (dailyTotal != null) {
+				dailyTotals.put(dailyTotal.getId(), dailyTotal);
+			}
+		}
+		return dailyTotals;
+	}
+	
+	@Override
+	public List<DailyTotal> findAll(User user) {
+		return getDataStore().find()
+				.type(DailyTotal.class)
+				.ancestor(user)
+				.returnAll()
+				.now();
+	}
+
+	@Override
+	public List<DailyTotal> findBetween(User user, Date firstDay, Date lastDay) {
+		return getDataStore().find()
+				.type(DailyTotal.class)
+				.addFilter("day", FilterOperator.GREATER_THAN_OR_EQUAL, firstDay)
+				.addFilter("day", FilterOperator.LESS_THAN_OR_EQUAL, lastDay)
+				.ancestor(user)
+				.returnAll()
+				.now();
+	}
+	
+	@Override
+	public int removeBatch(User user, int batchSize) {
+		Key userKey = getDataStore().associatedKey(user);
+		Query query = new Query(DailyTotal.KIND, userKey).setKeysOnly();
+		
+		List<Key> keys = new ArrayList<Key>();
+		for (Entity entity : getDataStore().getDefaultService().prepare(query).asList(FetchOptions.Builder.withLimit(batchSize))) {
+			keys.add(entity.getKey());
+		}
+		if (!keys.isEmpty()) {
+			getDataStore().deleteKeys(keys);
+		}
+		return keys.size();
+	}
+}
@@ -0,0 +1,21 @@
+package eu.vranckaert.worktime.dao.impl;
+
+import eu.vranckaert.worktime.dao.DailyTotalsStateDao;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.report.DailyTotalsState;
+
+public class DailyTotalsStateDaoImpl extends BaseDaoImpl<DailyTotalsState> implements DailyTotalsStateDao {
+
+	public DailyTotalsStateDaoImpl() {
+		super(DailyTotalsState.class);
+	}
+	
+	@Override
+	public DailyTotalsState find(User user) {
+		return getDataStore().load()
+				.type(DailyTotalsState.class)
+				.id(DailyTotalsState.ID)
+				.parent(user)
+				.now();
+	}
+}
@@ -1,5 +1,6 @@
 package eu.vranckaert.worktime.dao.impl;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -25,6 +26,25 @@ public class ProjectDaoImpl extends BaseDaoImpl<Project> implements ProjectDao {
 		instance.setLastUpdated(new Date());
 		return super.update(instance);
 	}
+	
+	@Override
+	public void persistAll(Collection<Project> instances) {
+		setLastUpdated(instances);
+		super.persistAll(instances);
+	}
+	
+	@Override
+	public void updateAll(Collection<Project> instances) {
+		setLastUpdated(instances);
+		super.updateAll(instances);
+	}
+	
+	private void setLastUpdated(Collection<Project> instances) {
+		Date now = new Date();
+		for (Project instance : instances) {
+			instance.setLastUpdated(now);
+		}
+	}
 
 	@Override
 	public List<Project> findAll(User user) {
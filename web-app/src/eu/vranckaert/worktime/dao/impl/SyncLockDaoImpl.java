@@ -0,0 +1,97 @@
+package eu.vranckaert.worktime.dao.impl;
+
+import java.util.ConcurrentModificationException;
+import java.util.Date;
+import java.util.logging.Logger;
+
+import com.google.appengine.api.datastore.Transaction;
+import com.google.inject.Inject;
+
+import eu.vranckaert.worktime.dao.SyncLockDao;
+import eu.vranckaert.worktime.metrics.Metrics;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.sync.SyncLock;
+import eu.vranckaert.worktime.security.utils.KeyGenerator;
+
+public class SyncLockDaoImpl extends BaseDaoImpl<SyncLock> implements SyncLockDao {
+	private static final Logger log = Logger.getLogger(SyncLockDao.class.getName());
+	
+	@Inject
+	private Metrics metrics;
+	
+	public SyncLockDaoImpl() {
+		super(SyncLock.class);
+	}
+
+	@Override
+	public SyncLock acquire(User user, long leaseMillis) {
+		Date now = new Date();
+		String lockKey = KeyGenerator.getNewKey();
+		
+		Transaction tx = getDataStore().beginTransaction();
+		try {
+			SyncLock lock = findById(user.getEmail());
+			if (lock != null && lock.isHeld(now)) {
+				return null;
+			}
+			
+			boolean newLock = lock == null;
+			if (newLock) {
+				lock = new SyncLock(user.getEmail());
+			} else if (lock.getLockKey() != null) {
+				log.warning("The synchronisation lock of user " + user.getEmail() + " acquired at " + lock.getAcquiredTime() + " has expired and will be taken over");
+			}
+			lock.setTakenOver(!newLock && lock.getLockKey() != null);
+			lock.setLockKey(lockKey);
+			lock.setAcquiredTime(now);
+			lock.setExpirationTime(new Date(now.getTime() + leaseMillis));
+			
+			if (newLock) {
+				getDataStore().store(lock);
+			} else {
+				update(lock);
+			}
+			tx.commit();
+			
+			return lock;
+		} catch (ConcurrentModificationException e) {
+			metrics.recordTransactionConflict();
+			log.info("Another synchronisation acquired the lock of user " + user.getEmail() + " at the same time");
+			return null;
+		} finally {
+			if (tx.isActive()) {
+				tx.rollback();
+			}
+		}
+	}
+
+	@Override
+	public void release(User user, String lockKey) {
+		Transaction tx = getDataStore().beginTransaction();
+		try {
+			SyncLock lock = findById(user.getEmail());
+			if (lock != null) {
+				// The lock is the instance this request cached when it was
+				// acquired, read it again in the transaction to see if another
+				// synchronisation took it over in the meantime
+				refresh(lock);
+			}
+			if (lock == null || !lockKey.equals(lock.getLockKey())) {
+				log.warning("The synchronisation lock of user " + user.getEmail() + " is no longer held by this synchronisation");
+				return;
+			}
+			
+			lock.setLockKey(null);
+			lock.setExpirationTime(null);
+			update(lock);
+			tx.commit();
+		} catch (ConcurrentModificationException e) {
+			metrics.recordTransactionConflict();
+			log.warning("Could not release the synchronisation lock of user " + user.getEmail() + ", it will expire on it's own");
+		} finally {
+			if (tx.isActive()) {
+				tx.rollback();
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package eu.vranckaert.worktime.dao.impl;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -26,6 +27,25 @@ public class TaskDaoImpl extends BaseDaoImpl<Task> implements TaskDao {
 		instance.setLastUpdated(new Date());
 		return super.update(instance);
 	}
+	
+	@Override
+	public void persistAll(Collection<Task> instances) {
+		setLastUpdated(instances);
+		super.persistAll(instances);
+	}
+	
+	@Override
+	public void updateAll(Collection<Task> instances) {
+		setLastUpdated(instances);
+		super.updateAll(instances);
+	}
+	
+	private void setLastUpdated(Collection<Task> instances) {
+		Date now = new Date();
+		for (Task instance : instances) {
+			instance.setLastUpdated(now);
+		}
+	}
 
 	@Override
 	public List<Task> findAll(User user) {
@@ -1,201 +1,436 @@
 package eu.vranckaert.worktime.dao.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
-import com.google.appengine.api.datastore.Query.FilterOperator;
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Text;
+import com.google.appengine.api.datastore.Transaction;
 
 import eu.vranckaert.worktime.dao.TimeRegistrationDao;
+import eu.vranckaert.worktime.model.Task;
 import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.TimeRegistrationIndex;
 import eu.vranckaert.worktime.model.User;
 
 public class TimeRegistrationDaoImpl extends BaseDaoImpl<TimeRegistration> implements TimeRegistrationDao {
 	private static final Logger log = Logger.getLogger(TimeRegistrationDaoImpl.class.getName());
 	
+	/**
+	 * The maximum number of entities of one datastore get.
+	 */
+	private static final int LOAD_BATCH_SIZE = 1000;
+	/**
+	 * The maximum number of entities of one datastore put.
+	 */
+	private static final int STORE_BATCH_SIZE = 500;
+	
 	public TimeRegistrationDaoImpl() {
 		super(TimeRegistration.class);
 	}
 	
 	@Override
 	public long persist(TimeRegistration instance) {
-		instance.setLastUpdated(new Date());
-		return super.persist(instance);
+		throw new UnsupportedOperationException("Time registrations are indexed and stored in batches");
 	}
-
+	
 	@Override
 	public TimeRegistration update(TimeRegistration instance) {
-		instance.setLastUpdated(new Date());
-		return super.update(instance);
+		throw new UnsupportedOperationException("Time registrations are indexed and updated in batches");
+	}
+	
+	@Override
+	public void remove(TimeRegistration instance) {
+		throw new UnsupportedOperationException("Time registrations are indexed and removed in batches");
+	}
+	
+	@Override
+	public void persistAll(Collection<TimeRegistration> instances) {
+		store(instances);
+	}
+	
+	@Override
+	public void updateAll(Collection<TimeRegistration> instances) {
+		// Twig only stores instances that are not associated, the sync key
+		// is the id so storing them again overwrites them
+		for (TimeRegistration instance : instances) {
+			getDataStore().disassociate(instance);
+		}
+		store(instances);
+	}
+	
+	/**
+	 * Stores the time registrations in batches of {@link #STORE_BATCH_SIZE}
+	 * that are all sent before waiting for the first one to complete.
+	 */
+	private void store(Collection<TimeRegistration> instances) {
+		List<Future<Map<TimeRegistration, Key>>> futures = new ArrayList<Future<Map<TimeRegistration, Key>>>();
+		for (List<TimeRegistration> batch : split(instances, STORE_BATCH_SIZE)) {
+			futures.add(getDataStore().store().instances(batch).later());
+		}
+		for (Future<Map<TimeRegistration, Key>> future : futures) {
+			get(future);
+		}
 	}
 	
 	@Override
 	public List<TimeRegistration> findAll(User user) {
-		List<TimeRegistration> timeRegistrationResult = getDataStore().find()
-				.type(TimeRegistration.class)
-				.ancestor(user)
-				.returnAll()
-				.now();
-		
-		// Check transaction cache
-		List<TimeRegistration> cachedTimeRegistrations = getCachedObjects(user);
-		timeRegistrationResult.addAll(cachedTimeRegistrations);
-		
-		return timeRegistrationResult;
+		List<String> syncKeys = new ArrayList<String>();
+		for (TimeRegistrationIndex index : findIndexes(user)) {
+			syncKeys.addAll(index.getSyncKeys());
+		}
+		return load(syncKeys);
 	}
 	
 	@Override
-	public TimeRegistration find(Date startTime, Date endTime, User user) {
-		log.info("Lookinf for a time registration that starts on " + startTime + " and ends on " + endTime);
-		if (endTime != null) {
-			log.info("The end time is not null...");
-			try {
-				TimeRegistration timeRegistration = getDataStore().find()
-						.type(TimeRegistration.class)
-						.addFilter("startTime", FilterOperator.EQUAL, startTime)
-						.addFilter("endTime", FilterOperator.EQUAL, endTime)
-						.ancestor(user)
-						.returnUnique()
-						.now();
-				
-				log.info("Query for time registration has been executed...");
-				
-				// Check transaction cache
-				if (timeRegistration == null) {
-					log.info("But no time registration has been found. Will check the cached objects now");
-					for (TimeRegistration cache : getCachedObjects(user)) {
-						if (cache.getStartTime().equals(startTime)
-								&& cache.getEndTime().equals(endTime)) {
-							log.info("Time registration foudn in cache!");
-							return cache;
-						}
-					}
-				}
-				
-				return timeRegistration;
-			} catch (IllegalStateException e) {
-				log.info("Illegal State Exception: " + e.getMessage());
-				e.printStackTrace();
-				return null;
-			}
-		} else {
-			log.info("The end time is null...");
-			try {
-				TimeRegistration timeRegistration = getDataStore().find()
-						.type(TimeRegistration.class)
-						.addFilter("startTime", FilterOperator.EQUAL, startTime)
-						.ancestor(user)
-						.returnUnique()
-						.now();
-				
-				log.info("Query for time registration has been executed...");
-				
-				// Check transaction cache
-				if (timeRegistration == null) {
-					log.info("But no time registration has been found. Will check the cached objects now");
-					for (TimeRegistration cache : getCachedObjects(user)) {
-						if (cache.getStartTime().equals(startTime)
-								&& cache.getEndTime() == null) {
-							log.info("Time registration foudn in cache!");
-							return cache;
-						}
-					}
-				}
-				
-				return timeRegistration;
-			} catch (IllegalStateException e) {
-				log.info("Illegal State Exception: " + e.getMessage());
-				e.printStackTrace();
-				return null;
+	public TimeRegistration findBySyncKey(String syncKey, User user) {
+		// The index tells if the time registration belongs to the user
+		for (TimeRegistrationIndex index : findIndexes(user)) {
+			if (index.contains(syncKey)) {
+				List<TimeRegistration> timeRegistrations = load(Collections.singletonList(syncKey));
+				return timeRegistrations.isEmpty() ? null : timeRegistrations.get(0);
 			}
 		}
+		return null;
 	}
 	
 	@Override
-	public TimeRegistration findBySyncKey(String syncKey, User user) {
-		TimeRegistration timeRegistration = getDataStore().find()
-				.type(TimeRegistration.class)
-				.addFilter("syncKey", FilterOperator.EQUAL, syncKey)
-				.ancestor(user)
-				.returnUnique()
-				.now();
-		
-		// Check transaction cache
-		if (timeRegistration == null) {
-			for (TimeRegistration cache : getCachedObjects(user)) {
-				if (cache.getSyncKey().equals(syncKey)) {
-					return cache;
+	public List<TimeRegistration> findAllModifiedAfter(User user, Date lastModifiedDate) {
+		List<String> syncKeys = new ArrayList<String>();
+		for (TimeRegistrationIndex index : findIndexes(user)) {
+			syncKeys.addAll(index.findModifiedOnOrAfter(lastModifiedDate));
+		}
+		return load(syncKeys);
+	}
+	
+	@Override
+	public List<TimeRegistration> findForSync(User user, Date date, Collection<String> syncKeys) {
+		Set<String> syncKeysToLoad = new LinkedHashSet<String>();
+		for (TimeRegistrationIndex index : findIndexes(user)) {
+			syncKeysToLoad.addAll(index.findEndingOnOrAfter(date, true));
+			for (String syncKey : syncKeys) {
+				if (index.contains(syncKey)) {
+					syncKeysToLoad.add(syncKey);
 				}
 			}
 		}
-		
-		return timeRegistration;
+		return load(syncKeysToLoad);
 	}
 	
 	@Override
-	public List<TimeRegistration> findInterferingTimeRegistrations(TimeRegistration timeRegistration, User user) {
-		TimeRegistration timeRegistrationCopy = timeRegistration.clone();
-		if (timeRegistrationCopy.getEndTime() == null)
-			timeRegistrationCopy.setEndTime(new Date());
-		
-		List<TimeRegistration> allTimeRegistrations = findAll(user);
-		List<TimeRegistration> interferingTimeRegistrations = new ArrayList<TimeRegistration>();
+	public void index(User user, Collection<TimeRegistration> stored, Collection<TimeRegistration> updated, Collection<TimeRegistration> removed) {
+		Date now = new Date();
+		List<TimeRegistration> timeRegistrations = new ArrayList<TimeRegistration>(stored);
+		timeRegistrations.addAll(updated);
+		for (TimeRegistration timeRegistration : timeRegistrations) {
+			timeRegistration.setLastUpdated(now);
+		}
 		
-		for (TimeRegistration tr : allTimeRegistrations) {
-			if (tr.isOngoingTimeRegistration()) {
-				if (timeRegistrationCopy.getStartTime().getTime() >= tr.getStartTime().getTime()) {
-					interferingTimeRegistrations.add(tr);
+		List<TimeRegistrationIndex> indexes = findIndexes(user);
+		Set<TimeRegistrationIndex> changed = new LinkedHashSet<TimeRegistrationIndex>();
+		for (TimeRegistration timeRegistration : removed) {
+			for (TimeRegistrationIndex index : indexes) {
+				if (index.remove(timeRegistration.getSyncKey())) {
+					changed.add(index);
+					break;
 				}
+			}
+		}
+		for (TimeRegistration timeRegistration : timeRegistrations) {
+			changed.add(put(user, indexes, timeRegistration));
+		}
+		save(changed);
+	}
+	
+	/**
+	 * Puts a time registration in the index that already has it, or in the
+	 * first index that is not full. A new index is added when all indexes
+	 * are full.
+	 * @return The index the time registration has been put in.
+	 */
+	private TimeRegistrationIndex put(User user, List<TimeRegistrationIndex> indexes, TimeRegistration timeRegistration) {
+		TimeRegistrationIndex target = null;
+		for (TimeRegistrationIndex index : indexes) {
+			if (index.contains(timeRegistration.getSyncKey())) {
+				target = index;
+				break;
+			} else if (target == null && !index.isFull()) {
+				target = index;
+			}
+		}
+		if (target == null) {
+			long number = 1L;
+			for (TimeRegistrationIndex index : indexes) {
+				number = Math.max(number, index.getNumber() + 1L);
+			}
+			target = new TimeRegistrationIndex(user, number);
+			indexes.add(target);
+		}
+		target.put(timeRegistration);
+		return target;
+	}
+	
+	private void save(Collection<TimeRegistrationIndex> indexes) {
+		for (TimeRegistrationIndex index : indexes) {
+			if (getDataStore().isAssociated(index)) {
+				getDataStore().update(index);
 			} else {
-				if ( (tr.getStartTime().getTime() >= timeRegistrationCopy.getStartTime().getTime() && tr.getStartTime().getTime() < timeRegistrationCopy.getEndTime().getTime()) 
-						|| (tr.getEndTime().getTime() > timeRegistrationCopy.getStartTime().getTime() && tr.getEndTime().getTime() <= timeRegistrationCopy.getEndTime().getTime()) ) {
-					interferingTimeRegistrations.add(tr);
-				}
+				getDataStore().store(index);
 			}
 		}
-		
-		return interferingTimeRegistrations;
 	}
 	
 	@Override
-	public boolean isUniqueSynKey(String syncKey, User user) {
-		int count = getDataStore().find()
-				.type(TimeRegistration.class)
-				.addFilter("syncKey", FilterOperator.EQUAL, syncKey)
-				.ancestor(user)
-				.returnCount()
-				.now();
+	public int removeBatch(User user, int batchSize) {
+		int removed = 0;
+		for (TimeRegistrationIndex index : findIndexes(user)) {
+			if (removed == batchSize) {
+				break;
+			}
+			List<String> syncKeys = index.getSyncKeys();
+			syncKeys = syncKeys.subList(0, Math.min(syncKeys.size(), batchSize - removed));
+			
+			// The time registrations are removed first, if removing the index
+			// entries fails the next batch removes them again
+			List<Key> keys = new ArrayList<Key>();
+			for (String syncKey : syncKeys) {
+				keys.add(KeyFactory.createKey(TimeRegistration.KIND, syncKey));
+				index.remove(syncKey);
+			}
+			if (!keys.isEmpty()) {
+				getDataStore().deleteKeys(keys);
+			}
+			if (index.size() == 0) {
+				getDataStore().delete(index);
+			} else {
+				getDataStore().update(index);
+			}
+			removed += syncKeys.size();
+		}
+		return removed;
+	}
+	
+	@Override
+	public int migrateLegacyTimeRegistrations(User user, int batchSize) {
+		Key userKey = getDataStore().associatedKey(user);
+		Query query = new Query(TimeRegistration.LEGACY_KIND, userKey);
+		List<Entity> legacyTimeRegistrations = getDataStore().getDefaultService().prepare(query).asList(FetchOptions.Builder.withLimit(batchSize));
+		if (legacyTimeRegistrations.isEmpty()) {
+			return 0;
+		}
+		
+		List<TimeRegistration> timeRegistrations = convert(legacyTimeRegistrations);
+		List<TimeRegistration> toIndex = new ArrayList<TimeRegistration>();
+		List<TimeRegistration> toStore = new ArrayList<TimeRegistration>();
+		Set<String> indexed = new LinkedHashSet<String>();
+		for (TimeRegistrationIndex index : findIndexes(user)) {
+			indexed.addAll(index.getSyncKeys());
+		}
+		Map<String, TimeRegistration> existing = new HashMap<String, TimeRegistration>();
+		for (TimeRegistration timeRegistration : load(getSyncKeys(timeRegistrations))) {
+			existing.put(timeRegistration.getSyncKey(), timeRegistration);
+		}
+		for (TimeRegistration timeRegistration : timeRegistrations) {
+			TimeRegistration migrated = existing.get(timeRegistration.getSyncKey());
+			if (migrated == null) {
+				toStore.add(timeRegistration);
+			} else if (!isOfUser(migrated, user)) {
+				// Sync keys were only unique per user
+				String syncKey = UUID.randomUUID().toString();
+				log.warning("The sync key " + timeRegistration.getSyncKey() + " of a time registration of user " + user.getEmail() + " is already used by another user, it is replaced by " + syncKey);
+				timeRegistration.setSyncKey(syncKey);
+				timeRegistration.setLastUpdated(new Date());
+				toStore.add(timeRegistration);
+			} else if (indexed.contains(timeRegistration.getSyncKey())) {
+				// Migrated by an interrupted run that did not remove the time
+				// registration of the old layout
+				continue;
+			}
+			toIndex.add(timeRegistration);
+		}
+		store(toStore);
 		
-		// Check transaction cache
-		for (TimeRegistration cache : getCachedObjects(user)) {
-			if (cache.getSyncKey().equals(syncKey)) {
-				count ++;
+		List<Key> legacyKeys = new ArrayList<Key>();
+		for (Entity legacyTimeRegistration : legacyTimeRegistrations) {
+			legacyKeys.add(legacyTimeRegistration.getKey());
+		}
+		Transaction tx = getDataStore().beginTransaction();
+		try {
+			List<TimeRegistrationIndex> indexes = findIndexes(user);
+			Set<TimeRegistrationIndex> changed = new LinkedHashSet<TimeRegistrationIndex>();
+			for (TimeRegistration timeRegistration : toIndex) {
+				changed.add(put(user, indexes, timeRegistration));
+			}
+			save(changed);
+			getDataStore().deleteKeys(legacyKeys);
+			tx.commit();
+		} finally {
+			if (tx.isActive()) {
+				tx.rollback();
 			}
 		}
 		
-		return count == 0 ? true : false;
+		log.info(toIndex.size() + " of " + legacyTimeRegistrations.size() + " time registrations of the old layout of user " + user.getEmail() + " have been migrated");
+		return legacyTimeRegistrations.size();
+	}
+	
+	/**
+	 * Reads the time registrations of the old layout, keeping the time of
+	 * their last update unless they get a new sync key. Time registrations of
+	 * which the task no longer exists or without start time are left out and
+	 * are only removed.
+	 */
+	private List<TimeRegistration> convert(List<Entity> legacyTimeRegistrations) {
+		Map<Key, Task> tasks = new HashMap<Key, Task>();
+		List<TimeRegistration> timeRegistrations = new ArrayList<TimeRegistration>();
+		for (Entity legacyTimeRegistration : legacyTimeRegistrations) {
+			Key taskKey = legacyTimeRegistration.getKey().getParent();
+			if (!tasks.containsKey(taskKey)) {
+				Task task = getDataStore().load(taskKey);
+				tasks.put(taskKey, task);
+			}
+			Task task = tasks.get(taskKey);
+			Date startTime = (Date) legacyTimeRegistration.getProperty("startTime");
+			if (task == null || startTime == null) {
+				log.warning("The time registration " + legacyTimeRegistration.getKey() + " has no task or start time and is removed");
+				continue;
+			}
+			
+			TimeRegistration timeRegistration = new TimeRegistration();
+			timeRegistration.setTask(task);
+			timeRegistration.setStartTime(startTime);
+			timeRegistration.setEndTime((Date) legacyTimeRegistration.getProperty("endTime"));
+			timeRegistration.setComment(getString(legacyTimeRegistration, "comment"));
+			timeRegistration.setFlags(getString(legacyTimeRegistration, "flags"));
+			timeRegistration.setLastUpdated((Date) legacyTimeRegistration.getProperty("lastUpdated"));
+			timeRegistration.setSyncKey((String) legacyTimeRegistration.getProperty("syncKey"));
+			if (StringUtils.isBlank(timeRegistration.getSyncKey())) {
+				// Derived from the old key, an interrupted run generates the
+				// same sync key again. The client only learns the sync key if
+				// the time registration is returned as modified.
+				timeRegistration.setSyncKey(UUID.nameUUIDFromBytes(KeyFactory.keyToString(legacyTimeRegistration.getKey()).getBytes()).toString());
+				timeRegistration.setLastUpdated(new Date());
+			}
+			timeRegistrations.add(timeRegistration);
+		}
+		return timeRegistrations;
+	}
+	
+	/**
+	 * Long strings are stored as {@link Text}.
+	 */
+	private static String getString(Entity entity, String property) {
+		Object value = entity.getProperty(property);
+		if (value instanceof Text) {
+			return ((Text) value).getValue();
+		}
+		return (String) value;
+	}
+	
+	private boolean isOfUser(TimeRegistration timeRegistration, User user) {
+		return timeRegistration.getTask() != null && timeRegistration.getTask().getProject() != null
+				&& user.equals(timeRegistration.getTask().getProject().getUser());
 	}
 	
 	@Override
-	public List<TimeRegistration> findAllModifiedAfter(User user, Date lastModifiedDate) {
-		List<TimeRegistration> timeRegistrations = getDataStore().find()
-				.type(TimeRegistration.class)
-				.addFilter("lastUpdated", FilterOperator.GREATER_THAN_OR_EQUAL, lastModifiedDate)
+	public String findUserWithLegacyTimeRegistrations() {
+		Query query = new Query(TimeRegistration.LEGACY_KIND).setKeysOnly();
+		List<Entity> legacyTimeRegistrations = getDataStore().getDefaultService().prepare(query).asList(FetchOptions.Builder.withLimit(1));
+		if (legacyTimeRegistrations.isEmpty()) {
+			return null;
+		}
+		// Time registration, task, project, user
+		return legacyTimeRegistrations.get(0).getKey().getParent().getParent().getParent().getName();
+	}
+	
+	/**
+	 * The indexes of a user, read with an ancestor query so they are always
+	 * up to date.
+	 */
+	private List<TimeRegistrationIndex> findIndexes(User user) {
+		return getDataStore().find()
+				.type(TimeRegistrationIndex.class)
 				.ancestor(user)
 				.returnAll()
 				.now();
+	}
+	
+	/**
+	 * Loads time registrations by their sync key in batches of
+	 * {@link #LOAD_BATCH_SIZE} that are all sent before waiting for the first
+	 * one to complete. Time registrations that do not exist are skipped.
+	 */
+	private List<TimeRegistration> load(Collection<String> syncKeys) {
+		List<Future<Map<Object, TimeRegistration>>> futures = new ArrayList<Future<Map<Object, TimeRegistration>>>();
+		List<List<String>> batches = split(syncKeys, LOAD_BATCH_SIZE);
+		for (List<String> batch : batches) {
+			futures.add(getDataStore().load().type(TimeRegistration.class).ids(batch).later());
+		}
+		
+		List<TimeRegistration> timeRegistrations = new ArrayList<TimeRegistration>();
+		for (int i = 0; i < batches.size(); i++) {
+			Map<Object, TimeRegistration> loaded = get(futures.get(i));
+			for (String syncKey : batches.get(i)) {
+				TimeRegistration timeRegistration = loaded.get(syncKey);
+				if (timeRegistration != null) {
+					timeRegistrations.add(timeRegistration);
+				}
+			}
+		}
 		return timeRegistrations;
 	}
 	
-	@Override
-	public TimeRegistration findOngoingTimeRegistration(User user) {		
-		List<TimeRegistration> allTimeRegistrations = findAll(user);
-		for (TimeRegistration timeRegistration : allTimeRegistrations) {
-			if (timeRegistration.isOngoingTimeRegistration()) {
-				return timeRegistration;
+	private static List<String> getSyncKeys(List<TimeRegistration> timeRegistrations) {
+		List<String> syncKeys = new ArrayList<String>();
+		for (TimeRegistration timeRegistration : timeRegistrations) {
+			syncKeys.add(timeRegistration.getSyncKey());
+		}
+		return syncKeys;
+	}
+	
+	private static <E> List<List<E>> split(Collection<E> elements, int batchSize) {
+		List<List<E>> batches = new ArrayList<List<E>>();
+		List<E> batch = new ArrayList<E>();
+		for (E element : elements) {
+			if (batch.size() == batchSize) {
+				batches.add(batch);
+				batch = new ArrayList<E>();
 			}
+			batch.add(element);
+		}
+		if (!batch.isEmpty()) {
+			batches.add(batch);
+		}
+		return batches;
+	}
+	
+	private static <V> V get(Future<V> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException("Interrupted while waiting for the datastore", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
 		}
-		return null;
 	}
 }
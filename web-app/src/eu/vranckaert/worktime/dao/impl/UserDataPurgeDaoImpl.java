@@ -0,0 +1,39 @@
+package eu.vranckaert.worktime.dao.impl;
+
+import java.util.List;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.QueryResultIterator;
+
+import eu.vranckaert.worktime.dao.UserDataPurgeDao;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.purge.UserDataPurge;
+
+public class UserDataPurgeDaoImpl extends BaseDaoImpl<UserDataPurge> implements UserDataPurgeDao {
+	public UserDataPurgeDaoImpl() {
+		super(UserDataPurge.class);
+	}
+
+	@Override
+	public QueryResultIterator<Entity> findKeys(User user, String kind, Cursor cursor, int batchSize) {
+		Key userKey = getDataStore().associatedKey(user);
+		Query query = new Query(kind, userKey).setKeysOnly();
+		
+		FetchOptions fetchOptions = FetchOptions.Builder.withLimit(batchSize);
+		if (cursor != null) {
+			fetchOptions = fetchOptions.startCursor(cursor);
+		}
+		return getDataStore().getDefaultService().prepare(query).asQueryResultIterator(fetchOptions);
+	}
+
+	@Override
+	public void removeKeys(List<Key> keys) {
+		if (!keys.isEmpty()) {
+			getDataStore().deleteKeys(keys);
+		}
+	}
+}
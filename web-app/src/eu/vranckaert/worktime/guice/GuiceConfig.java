@@ -15,7 +15,14 @@ import com.google.sitebricks.binding.FlashCache;
 import com.google.sitebricks.binding.HttpSessionFlashCache;
 import com.sun.jersey.guice.spi.container.servlet.GuiceContainer;
 
+import eu.vranckaert.worktime.cron.migration.MigrateTimeRegistrationsServlet;
 import eu.vranckaert.worktime.cron.reporting.ReportNewUsersServlet;
+import eu.vranckaert.worktime.cron.session.RemoveExpiredSessionsServlet;
+import eu.vranckaert.worktime.mail.impl.TaskQueueMailQueue;
+import eu.vranckaert.worktime.metrics.MetricsFilter;
+import eu.vranckaert.worktime.service.impl.UserDataPurgeServiceImpl;
+import eu.vranckaert.worktime.task.mail.SendMailServlet;
+import eu.vranckaert.worktime.task.purge.PurgeUserDataServlet;
 import eu.vranckaert.worktime.view.BaseView;
 
 public class GuiceConfig extends GuiceServletContextListener {
@@ -67,9 +74,18 @@ public class GuiceConfig extends GuiceServletContextListener {
 				new ServletModule() {
 					@Override
 					protected void configureServlets() {
+						filter("/*").through(MetricsFilter.class);
 						serve("/rest/*").with(GuiceContainer.class, params);
 						serve("/cron/reportNewUsers").with(ReportNewUsersServlet.class);
 						bind(ReportNewUsersServlet.class).in(Scopes.SINGLETON);
+						serve("/cron/removeExpiredSessions").with(RemoveExpiredSessionsServlet.class);
+						bind(RemoveExpiredSessionsServlet.class).in(Scopes.SINGLETON);
+						serve("/cron/migrateTimeRegistrations").with(MigrateTimeRegistrationsServlet.class);
+						bind(MigrateTimeRegistrationsServlet.class).in(Scopes.SINGLETON);
+						serve(TaskQueueMailQueue.WORKER_URL).with(SendMailServlet.class);
+						bind(SendMailServlet.class).in(Scopes.SINGLETON);
+						serve(UserDataPurgeServiceImpl.WORKER_URL).with(PurgeUserDataServlet.class);
+						bind(PurgeUserDataServlet.class).in(Scopes.SINGLETON);
 						bind(FlashCache.class).to(HttpSessionFlashCache.class);
 					}
 				});
@@ -6,16 +6,31 @@ import com.google.code.twig.ObjectDatastore;
 import com.google.code.twig.ObjectDatastoreFactory;
 import com.google.code.twig.annotation.AnnotationObjectDatastore;
 import com.google.inject.AbstractModule;
+import com.google.inject.matcher.Matchers;
 import com.google.inject.servlet.RequestScoped;
 
+import eu.vranckaert.worktime.dao.DailyTotalDao;
+import eu.vranckaert.worktime.dao.DailyTotalsStateDao;
 import eu.vranckaert.worktime.dao.ProjectDao;
 import eu.vranckaert.worktime.dao.SyncHistoryDao;
+import eu.vranckaert.worktime.dao.SyncLockDao;
 import eu.vranckaert.worktime.dao.TaskDao;
 import eu.vranckaert.worktime.dao.TimeRegistrationDao;
+import eu.vranckaert.worktime.dao.UserDataPurgeDao;
+import eu.vranckaert.worktime.dao.impl.BaseDaoImpl;
+import eu.vranckaert.worktime.dao.impl.DailyTotalDaoImpl;
+import eu.vranckaert.worktime.dao.impl.DailyTotalsStateDaoImpl;
 import eu.vranckaert.worktime.dao.impl.ProjectDaoImpl;
 import eu.vranckaert.worktime.dao.impl.SyncHistoryDaoImpl;
+import eu.vranckaert.worktime.dao.impl.SyncLockDaoImpl;
 import eu.vranckaert.worktime.dao.impl.TaskDaoImpl;
 import eu.vranckaert.worktime.dao.impl.TimeRegistrationDaoImpl;
+import eu.vranckaert.worktime.dao.impl.UserDataPurgeDaoImpl;
+import eu.vranckaert.worktime.mail.MailQueue;
+import eu.vranckaert.worktime.mail.MailSender;
+import eu.vranckaert.worktime.mail.impl.TaskQueueMailQueue;
+import eu.vranckaert.worktime.mail.impl.TransportMailSender;
+import eu.vranckaert.worktime.metrics.DatastoreMetricsInterceptor;
 import eu.vranckaert.worktime.model.PasswordResetRequest;
 import eu.vranckaert.worktime.model.Project;
 import eu.vranckaert.worktime.model.Service;
@@ -23,7 +38,13 @@ import eu.vranckaert.worktime.model.Session;
 import eu.vranckaert.worktime.model.Task;
 import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.purge.UserDataPurge;
+import eu.vranckaert.worktime.model.report.DailyTotal;
+import eu.vranckaert.worktime.model.report.DailyTotalsState;
 import eu.vranckaert.worktime.model.sync.SyncHistory;
+import eu.vranckaert.worktime.model.sync.SyncLock;
+import eu.vranckaert.worktime.ratelimit.MemcacheTokenBucketStore;
+import eu.vranckaert.worktime.ratelimit.TokenBucketStore;
 import eu.vranckaert.worktime.security.dao.PasswordResetRequestDao;
 import eu.vranckaert.worktime.security.dao.ServiceDao;
 import eu.vranckaert.worktime.security.dao.SessionDao;
@@ -39,9 +60,13 @@ import eu.vranckaert.worktime.security.service.impl.SecurityCheckerImpl;
 import eu.vranckaert.worktime.security.service.impl.ServiceServiceImpl;
 import eu.vranckaert.worktime.security.service.impl.UserServiceImpl;
 import eu.vranckaert.worktime.service.CronJobService;
+import eu.vranckaert.worktime.service.ReportService;
 import eu.vranckaert.worktime.service.SyncService;
+import eu.vranckaert.worktime.service.UserDataPurgeService;
 import eu.vranckaert.worktime.service.impl.CronJobServiceImpl;
+import eu.vranckaert.worktime.service.impl.ReportServiceImpl;
 import eu.vranckaert.worktime.service.impl.SyncServiceImpl;
+import eu.vranckaert.worktime.service.impl.UserDataPurgeServiceImpl;
 
 public class GuiceModule extends AbstractModule {
 	Logger logger = Logger.getLogger(GuiceModule.class.getName());
@@ -54,6 +79,9 @@ public class GuiceModule extends AbstractModule {
 		bindSecurity();
 		bindDaos();
 		bindServices();
+		bindMail();
+		bindMetrics();
+		bindRateLimiting();
 	}
 	
 	private void configureEntities() {
@@ -72,6 +100,14 @@ public class GuiceModule extends AbstractModule {
 		
 		// Sync
 		ObjectDatastoreFactory.register(SyncHistory.class);
+		ObjectDatastoreFactory.register(SyncLock.class);
+		
+		// Reporting
+		ObjectDatastoreFactory.register(DailyTotal.class);
+		ObjectDatastoreFactory.register(DailyTotalsState.class);
+		
+		// Purge
+		ObjectDatastoreFactory.register(UserDataPurge.class);
 	}
 	
 	private void bindSecurity() {
@@ -91,9 +127,13 @@ public class GuiceModule extends AbstractModule {
 	private void bindDaos() {
 		logger.info("Binding DAO's...");
 		bind(SyncHistoryDao.class).to(SyncHistoryDaoImpl.class);
+		bind(SyncLockDao.class).to(SyncLockDaoImpl.class);
 		bind(ProjectDao.class).to(ProjectDaoImpl.class);
 		bind(TaskDao.class).to(TaskDaoImpl.class);
 		bind(TimeRegistrationDao.class).to(TimeRegistrationDaoImpl.class);
+		bind(DailyTotalDao.class).to(DailyTotalDaoImpl.class);
+		bind(DailyTotalsStateDao.class).to(DailyTotalsStateDaoImpl.class);
+		bind(UserDataPurgeDao.class).to(UserDataPurgeDaoImpl.class);
 		logger.info("All DAO's are now bound...");
 	}
 	
@@ -101,6 +141,29 @@ public class GuiceModule extends AbstractModule {
 		logger.info("Binding services...");
 		bind(CronJobService.class).to(CronJobServiceImpl.class);
 		bind(SyncService.class).to(SyncServiceImpl.class);
+		bind(ReportService.class).to(ReportServiceImpl.class);
+		bind(UserDataPurgeService.class).to(UserDataPurgeServiceImpl.class);
 		logger.info("All services are now bound...");
 	}
+	
+	private void bindMail() {
+		logger.info("Binding mail...");
+		bind(MailQueue.class).to(TaskQueueMailQueue.class);
+		bind(MailSender.class).to(TransportMailSender.class);
+		logger.info("Mail queue and sender are now bound...");
+	}
+	
+	private void bindMetrics() {
+		logger.info("Binding metrics...");
+		DatastoreMetricsInterceptor datastoreMetricsInterceptor = new DatastoreMetricsInterceptor();
+		requestInjection(datastoreMetricsInterceptor);
+		bindInterceptor(Matchers.subclassesOf(BaseDaoImpl.class), DatastoreMetricsInterceptor.DAO_METHODS, datastoreMetricsInterceptor);
+		logger.info("Datastore metrics interceptor is now bound...");
+	}
+	
+	private void bindRateLimiting() {
+		logger.info("Binding rate limiting...");
+		bind(TokenBucketStore.class).to(MemcacheTokenBucketStore.class);
+		logger.info("Token bucket store is now bound...");
+	}
 }
@@ -0,0 +1,19 @@
+package eu.vranckaert.worktime.json.endpoint;
+
+import javax.ws.rs.core.Response;
+
+import eu.vranckaert.worktime.json.response.metrics.MetricsResponse;
+
+public interface MetricsEndpointInterface {
+	/**
+	 * Retrieves the request and datastore metrics of the App Engine instance
+	 * that handles the request using a GET-method. Only available for 
+	 * administrators. The metrics are kept in memory per instance, so two
+	 * requests can return the metrics of different instances.
+	 * @param serviceKey The service key.
+	 * @param email The email of the user.
+	 * @param sessionKey The session key with which the user is logged in.
+	 * @return A response containing the {@link MetricsResponse}, never cached.
+	 */
+	Response snapshot(String serviceKey, String email, String sessionKey);
+}
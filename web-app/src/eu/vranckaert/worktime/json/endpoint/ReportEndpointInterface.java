@@ -0,0 +1,34 @@
+package eu.vranckaert.worktime.json.endpoint;
+
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+import eu.vranckaert.worktime.json.response.report.ReportTotalsResponse;
+import eu.vranckaert.worktime.model.report.ReportGrouping;
+
+public interface ReportEndpointInterface {
+	/**
+	 * Retrieves the totals of the time registered by a user in a range of 
+	 * days using a GET-method. The totals are calculated on the server so a 
+	 * client does not need all time registrations to show them.
+	 * @param serviceKey The service key.
+	 * @param email The email of the user.
+	 * @param sessionKey The session key with which the user is logged in.
+	 * @param from The first day of the range (included), formatted as 
+	 * yyyy-MM-dd. Days start at midnight in the time zone of the user.
+	 * @param to The last day of the range (included), formatted as yyyy-MM-dd.
+	 * The range can contain at most 731 days.
+	 * @param groupBy The {@link ReportGrouping} of the totals, by default 
+	 * {@link ReportGrouping#DAY}.
+	 * @param timeZone The ID of the time zone of the user, for example 
+	 * Europe/Brussels, by default UTC. The days and weeks of the totals start
+	 * at midnight in this time zone.
+	 * @param httpRequest The HTTP request, used to evaluate the If-None-Match
+	 * header against the entity tag of the totals.
+	 * @return A response containing the {@link ReportTotalsResponse} and it's
+	 * entity tag. If the entity tag matches the If-None-Match header of the 
+	 * request the response has status code 304 and no content. If the range,
+	 * grouping or time zone is not valid the status code is 400.
+	 */
+	Response totals(String serviceKey, String email, String sessionKey, String from, String to, String groupBy, String timeZone, Request httpRequest);
+}
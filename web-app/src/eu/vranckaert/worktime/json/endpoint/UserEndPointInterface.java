@@ -1,5 +1,6 @@
 package eu.vranckaert.worktime.json.endpoint;
 
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 import eu.vranckaert.worktime.json.exception.user.EmailOrPasswordIncorrectJSONException;
@@ -84,9 +85,13 @@ public interface UserEndPointInterface {
 	 * @param serviceKey The service key.
 	 * @param email The email of the user.
 	 * @param sessionKey The session key with which the user is logged in.
-	 * @return The user-profile.
+	 * @param httpRequest The HTTP request, used to evaluate the If-None-Match
+	 * header against the entity tag of the user-profile.
+	 * @return A response containing the {@link UserProfileResponse} and it's
+	 * entity tag. If the entity tag matches the If-None-Match header of the 
+	 * request the response has status code 304 and no content.
 	 */
-	UserProfileResponse profile(String serviceKey, String email, String sessionKey);
+	Response profile(String serviceKey, String email, String sessionKey, Request httpRequest);
 
 	/**
 	 * Log the user out of the system using a GET-method.
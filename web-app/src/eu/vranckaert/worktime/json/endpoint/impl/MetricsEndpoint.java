@@ -0,0 +1,72 @@
+package eu.vranckaert.worktime.json.endpoint.impl;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.inject.Inject;
+
+import eu.vranckaert.worktime.json.base.request.AuthenticatedUserRequest;
+import eu.vranckaert.worktime.json.endpoint.MetricsEndpointInterface;
+import eu.vranckaert.worktime.json.exception.security.ServiceNotAllowedJSONException;
+import eu.vranckaert.worktime.json.exception.security.UserIncorrectRoleException;
+import eu.vranckaert.worktime.json.exception.security.UserNotLoggedInJSONException;
+import eu.vranckaert.worktime.json.response.metrics.MetricsResponse;
+import eu.vranckaert.worktime.metrics.Metrics;
+import eu.vranckaert.worktime.model.Role;
+import eu.vranckaert.worktime.security.exception.ServiceNotAllowedException;
+import eu.vranckaert.worktime.security.exception.UserNotAdminException;
+import eu.vranckaert.worktime.security.exception.UserNotLoggedInException;
+import eu.vranckaert.worktime.security.service.SecurityChecker;
+
+@Path("metrics")
+public class MetricsEndpoint implements MetricsEndpointInterface {
+	@Inject
+	private SecurityChecker securityChecker;
+	
+	@Inject
+	private Metrics metrics;
+	
+	@GET
+	@Path("snapshot")
+	@Consumes(MediaType.TEXT_PLAIN)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Override
+	public Response snapshot(@QueryParam("serviceKey") String serviceKey, @QueryParam("email") String email, @QueryParam("sessionKey") String sessionKey) {
+		MetricsResponse response = new MetricsResponse();
+		
+		AuthenticatedUserRequest request = new AuthenticatedUserRequest() {};
+		request.setServiceKey(serviceKey);
+		request.setEmail(email);
+		request.setSessionKey(sessionKey);
+		
+		try {
+			securityChecker.checkUserIsAdmin(request);
+		} catch (ServiceNotAllowedException e) {
+			ServiceNotAllowedJSONException exception = new ServiceNotAllowedJSONException("metrics/snapshot", request.getServiceKey());
+			response.setServiceNotAllowedException(exception);
+			return Response.ok(response).build();
+		} catch (UserNotLoggedInException e) {
+			UserNotLoggedInJSONException exception = new UserNotLoggedInJSONException("metrics/snapshot");
+			response.setUserNotLoggedInException(exception);
+			return Response.ok(response).build();
+		} catch (UserNotAdminException e) {
+			UserIncorrectRoleException exception = new UserIncorrectRoleException("metrics/snapshot", Role.ADMIN);
+			response.setUserIncorrectRoleException(exception);
+			return Response.ok(response).build();
+		}
+		
+		response.setCurrent(metrics.getCurrent());
+		response.setPrevious(metrics.getPrevious());
+		
+		CacheControl cacheControl = new CacheControl();
+		cacheControl.setPrivate(true);
+		cacheControl.setNoStore(true);
+		return Response.ok(response).cacheControl(cacheControl).build();
+	}
+}
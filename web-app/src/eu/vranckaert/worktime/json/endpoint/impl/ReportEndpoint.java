@@ -0,0 +1,145 @@
+package eu.vranckaert.worktime.json.endpoint.impl;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.inject.Inject;
+
+import eu.vranckaert.worktime.json.base.request.AuthenticatedUserRequest;
+import eu.vranckaert.worktime.json.endpoint.ReportEndpointInterface;
+import eu.vranckaert.worktime.json.exception.security.ServiceNotAllowedJSONException;
+import eu.vranckaert.worktime.json.exception.security.UserNotLoggedInJSONException;
+import eu.vranckaert.worktime.json.response.report.ReportTotalsResponse;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.report.DailyTotal;
+import eu.vranckaert.worktime.model.report.ReportGrouping;
+import eu.vranckaert.worktime.model.report.ReportTotal;
+import eu.vranckaert.worktime.security.exception.ServiceNotAllowedException;
+import eu.vranckaert.worktime.security.exception.UserNotLoggedInException;
+import eu.vranckaert.worktime.security.service.SecurityChecker;
+import eu.vranckaert.worktime.security.service.UserService;
+import eu.vranckaert.worktime.service.ReportService;
+import eu.vranckaert.worktime.util.EntityTagUtil;
+
+@Path("report")
+public class ReportEndpoint implements ReportEndpointInterface {
+	@Inject
+	private SecurityChecker securityChecker;
+	
+	@Inject
+	private UserService userService;
+	
+	@Inject
+	private ReportService reportService;
+	
+	@GET
+	@Path("totals")
+	@Consumes(MediaType.TEXT_PLAIN)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Override
+	public Response totals(@QueryParam("serviceKey") String serviceKey, @QueryParam("email") String email, @QueryParam("sessionKey") String sessionKey, 
+			@QueryParam("from") String from, @QueryParam("to") String to, @QueryParam("groupBy") String groupBy, @QueryParam("timeZone") String timeZone, 
+			@Context Request httpRequest) {
+		ReportTotalsResponse response = new ReportTotalsResponse();
+		
+		AuthenticatedUserRequest request = new AuthenticatedUserRequest() {};
+		request.setServiceKey(serviceKey);
+		request.setEmail(email);
+		request.setSessionKey(sessionKey);
+		
+		try {
+			securityChecker.checkUserLoggedIn(request);
+		} catch (ServiceNotAllowedException e) {
+			ServiceNotAllowedJSONException exception = new ServiceNotAllowedJSONException("report/totals", request.getServiceKey());
+			response.setServiceNotAllowedException(exception);
+			return Response.ok(response).build();
+		} catch (UserNotLoggedInException e) {
+			UserNotLoggedInJSONException exception = new UserNotLoggedInJSONException("report/totals");
+			response.setUserNotLoggedInException(exception);
+			return Response.ok(response).build();
+		}
+		
+		SimpleDateFormat dayFormat = DailyTotal.getDayFormat();
+		dayFormat.setLenient(false);
+		Date firstDay = null;
+		Date lastDay = null;
+		ReportGrouping grouping = ReportGrouping.DAY;
+		TimeZone userTimeZone = DailyTotal.DAY_TIME_ZONE;
+		if (StringUtils.isNotBlank(timeZone)) {
+			// An unknown time zone ID silently results in GMT
+			userTimeZone = TimeZone.getTimeZone(timeZone);
+			if (!userTimeZone.getID().equals(timeZone)) {
+				return Response.status(400).build();
+			}
+		}
+		try {
+			firstDay = dayFormat.parse(StringUtils.defaultString(from));
+			lastDay = dayFormat.parse(StringUtils.defaultString(to));
+			if (StringUtils.isNotBlank(groupBy)) {
+				grouping = ReportGrouping.valueOf(groupBy.toUpperCase());
+			}
+		} catch (ParseException e) {
+			return Response.status(400).build();
+		} catch (IllegalArgumentException e) {
+			return Response.status(400).build();
+		}
+		
+		long days = (lastDay.getTime() - firstDay.getTime()) / (24L * 60L * 60L * 1000L) + 1;
+		if (lastDay.before(firstDay) || days > ReportService.MAX_REPORT_DAYS) {
+			return Response.status(400).build();
+		}
+		
+		User user = userService.findUser(email);
+		
+		// The totals only change when the time registrations of the user are
+		// synchronised, which changes the version of the totals
+		Long version = reportService.getTotalsVersion(user);
+		EntityTag entityTag = null;
+		CacheControl cacheControl = new CacheControl();
+		cacheControl.setPrivate(true);
+		cacheControl.setNoCache(true);
+		if (version != null) {
+			entityTag = EntityTagUtil.getEntityTag(user.getEmail(), version, firstDay, lastDay, grouping, userTimeZone.getID());
+			ResponseBuilder notModified = httpRequest.evaluatePreconditions(entityTag);
+			if (notModified != null) {
+				return notModified.cacheControl(cacheControl).build();
+			}
+		}
+		
+		List<ReportTotal> totals = reportService.getTotals(user, firstDay, lastDay, grouping, userTimeZone);
+		long totalDuration = 0L;
+		for (ReportTotal total : totals) {
+			totalDuration += total.getDuration();
+		}
+		
+		response.setFrom(dayFormat.format(firstDay));
+		response.setTo(dayFormat.format(lastDay));
+		response.setGrouping(grouping);
+		response.setTotals(totals);
+		response.setTotalDuration(totalDuration);
+		
+		ResponseBuilder builder = Response.ok(response).cacheControl(cacheControl);
+		if (entityTag != null) {
+			builder.tag(entityTag);
+		}
+		return builder.build();
+	}
+}
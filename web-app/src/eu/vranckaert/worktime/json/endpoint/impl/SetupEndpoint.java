@@ -28,12 +28,14 @@ import eu.vranckaert.worktime.model.Session;
 import eu.vranckaert.worktime.model.Task;
 import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.purge.UserDataPurge;
 import eu.vranckaert.worktime.security.dao.ServiceDao;
 import eu.vranckaert.worktime.security.dao.SessionDao;
 import eu.vranckaert.worktime.security.dao.UserDao;
 import eu.vranckaert.worktime.security.exception.ServiceNotAllowedException;
 import eu.vranckaert.worktime.security.service.SecurityChecker;
 import eu.vranckaert.worktime.security.utils.KeyGenerator;
+import eu.vranckaert.worktime.service.UserDataPurgeService;
 
 @Path("setup")
 public class SetupEndpoint {
@@ -58,6 +60,9 @@ public class SetupEndpoint {
 	@Inject
 	private UserDao userDao;
 	
+	@Inject
+	private UserDataPurgeService userDataPurgeService;
+	
 	@GET
 	@Path("hello")
 	@Produces(MediaType.TEXT_PLAIN)
@@ -94,24 +99,14 @@ public class SetupEndpoint {
 		}
 		
 		User user = userDao.findById(email);
-		
-		List<Project> projects = projectDao.findAll(user);
-		List<Task> tasks = taskDao.findAll(user);
-		List<TimeRegistration> timeRegistrations = timeRegistrationDao.findAll(user);
-		
-		for (TimeRegistration timeRegistration : timeRegistrations) {
-			timeRegistrationDao.remove(timeRegistration);
-		}
-		
-		for (Task task : tasks) {
-			taskDao.remove(task);
-		}
-		
-		for (Project project : projects) {
-			projectDao.remove(project);
+		if (user == null) {
+			return "Unknown user...";
 		}
 		
-		return "Done!";
+		// The data is removed in the background, calling this again reports 
+		// the progress
+		UserDataPurge purge = userDataPurgeService.schedulePurge(user);
+		return "Scheduled! " + purge.getRemovedEntities() + " entities removed so far, started at " + purge.getStartTime();
 	}
 	
 	@GET
@@ -310,14 +305,14 @@ public class SetupEndpoint {
 		List<Session> sessions = sessionDao.findAll();
 		for (int i=startAt; i<sessions.size(); i++) {
 			Session session = sessions.get(i);
-			if (session != null && !getIgnoredAccounts().contains(session.getUser().getEmail())) {
+			if (session != null && !getIgnoredAccounts().contains(session.getEmail())) {
 				exportSessions += "insert into session(creationDate, sessionKey, timesUsed, lastTimeUsed, platform, userId) select ";
 				exportSessions += "'" + sdf.format(session.getCreationDate()) + "', ";
 				exportSessions += "'" + session.getSessionKey() + "', ";
 				exportSessions += session.getTimesUsed() + ", ";
 				exportSessions += (session.getLastTimeUsed() != null ? "'" + sdf.format(session.getLastTimeUsed()) + "'" : "null") + ", ";
 				exportSessions += "'" + (session.getPlatform() != null ? session.getPlatform().toString() : "") + "', ";
-				exportSessions += "'" + session.getUser().getEmail() + "'";
+				exportSessions += "'" + session.getEmail() + "'";
 				exportSessions += ";\n";
 			}
 			
@@ -1,13 +1,20 @@
 package eu.vranckaert.worktime.json.endpoint.impl;
 
+import java.util.Date;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.validator.routines.EmailValidator;
@@ -41,6 +48,7 @@ import eu.vranckaert.worktime.json.response.user.UserProfileResponse;
 import eu.vranckaert.worktime.model.Role;
 import eu.vranckaert.worktime.model.User;
 import eu.vranckaert.worktime.model.Session.Platform;
+import eu.vranckaert.worktime.ratelimit.RateLimiter;
 import eu.vranckaert.worktime.security.exception.EmailAlreadyInUseException;
 import eu.vranckaert.worktime.security.exception.InvalidPasswordResetKeyException;
 import eu.vranckaert.worktime.security.exception.PasswordIncorrectException;
@@ -53,6 +61,7 @@ import eu.vranckaert.worktime.security.exception.UserNotFoundException;
 import eu.vranckaert.worktime.security.exception.UserNotLoggedInException;
 import eu.vranckaert.worktime.security.service.SecurityChecker;
 import eu.vranckaert.worktime.security.service.UserService;
+import eu.vranckaert.worktime.util.EntityTagUtil;
 
 @Path("user")
 public class UserEndpoint implements UserEndPointInterface {
@@ -62,6 +71,9 @@ public class UserEndpoint implements UserEndPointInterface {
 	@Inject
 	private SecurityChecker securityChecker;
 	
+	@Inject
+	private RateLimiter rateLimiter;
+	
 	@POST
 	@Path("register")
 	@Consumes(MediaType.APPLICATION_JSON)
@@ -97,6 +109,8 @@ public class UserEndpoint implements UserEndPointInterface {
 			return response;
 		}
 		
+		rateLimiter.checkUser(request.getEmail());
+		
 		User user = new User();
 		user.setEmail(request.getEmail().toLowerCase());
 		user.setFirstName(request.getFirstName());
@@ -131,6 +145,9 @@ public class UserEndpoint implements UserEndPointInterface {
 			return response;
 		}
 		
+		// Checking the password is expensive, so is guessing it
+		rateLimiter.checkUser(request.getEmail());
+		
 		try {
 			String sessionKey = userService.login(request.getEmail(), request.getPassword(), Platform.OTHER);
 			response.setSessionKey(sessionKey);
@@ -191,6 +208,8 @@ public class UserEndpoint implements UserEndPointInterface {
 			return Response.status(405).build();
 		}
 		
+		rateLimiter.checkUser(email);
+		
 		userService.resetPasswordRequest(email);
 		
 		return Response.status(200).build();
@@ -291,7 +310,7 @@ public class UserEndpoint implements UserEndPointInterface {
 	@Consumes(MediaType.TEXT_PLAIN)
 	@Produces(MediaType.APPLICATION_JSON)
 	@Override
-	public UserProfileResponse profile(@QueryParam("serviceKey") String serviceKey, @QueryParam("email") String email, @QueryParam("sessionKey") String sessionKey) {
+	public Response profile(@QueryParam("serviceKey") String serviceKey, @QueryParam("email") String email, @QueryParam("sessionKey") String sessionKey, @Context Request httpRequest) {
 		UserProfileResponse response = new UserProfileResponse();
 		
 		AuthenticatedUserRequest request = new AuthenticatedUserRequest() {};
@@ -304,22 +323,44 @@ public class UserEndpoint implements UserEndPointInterface {
 		} catch (ServiceNotAllowedException e) {
 			ServiceNotAllowedJSONException exception = new ServiceNotAllowedJSONException("user/profile", request.getServiceKey());
 			response.setServiceNotAllowedException(exception);
-			return response;
+			return Response.ok(response).build();
 		} catch (UserNotLoggedInException e) {
 			UserNotLoggedInJSONException exception = new UserNotLoggedInJSONException("user/profile");
 			response.setUserNotLoggedInException(exception);
-			return response;
+			return Response.ok(response).build();
+		}
+		
+		CacheControl cacheControl = new CacheControl();
+		cacheControl.setPrivate(true);
+		cacheControl.setNoCache(true);
+		
+		// The profile only changes if the profile version of the user changes 
+		// (the login time is fixed per session), if the client already has 
+		// this version of the profile nothing is loaded and nothing is returned
+		EntityTag entityTag = null;
+		Long profileVersion = userService.getProfileVersion(email);
+		if (profileVersion != null) {
+			entityTag = EntityTagUtil.getEntityTag(email.toLowerCase(), sessionKey, profileVersion);
+			ResponseBuilder notModified = httpRequest.evaluatePreconditions(entityTag);
+			if (notModified != null) {
+				return notModified.cacheControl(cacheControl).build();
+			}
 		}
 		
 		User user = userService.findUser(email);
+		Date loggedInSince = userService.getLogInTime(user, sessionKey);
 		
 		response.setFirstName(user.getFirstName());
 		response.setLastName(user.getLastName());
 		response.setEmail(user.getEmail());
 		response.setRegisteredSince(user.getRegistrationDate());
 		response.setRole(user.getRole());
-		response.setLoggedInSince(userService.getLogInTime(user, sessionKey));
+		response.setLoggedInSince(loggedInSince);
 		
-		return response;
+		ResponseBuilder ok = Response.ok(response).cacheControl(cacheControl);
+		if (entityTag != null) {
+			ok.tag(entityTag);
+		}
+		return ok.build();
 	}
 }
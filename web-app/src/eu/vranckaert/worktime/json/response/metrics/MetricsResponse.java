@@ -0,0 +1,29 @@
+package eu.vranckaert.worktime.json.response.metrics;
+
+import eu.vranckaert.worktime.json.base.response.WorkTimeResponse;
+import eu.vranckaert.worktime.metrics.MetricsSnapshot;
+
+public class MetricsResponse extends WorkTimeResponse {
+	private MetricsSnapshot current;
+	private MetricsSnapshot previous;
+
+	public MetricsSnapshot getCurrent() {
+		return current;
+	}
+
+	public void setCurrent(MetricsSnapshot current) {
+		this.current = current;
+	}
+
+	/**
+	 * @return The metrics of the previous period, null if the first period of
+	 * the instance is not over yet.
+	 */
+	public MetricsSnapshot getPrevious() {
+		return previous;
+	}
+
+	public void setPrevious(MetricsSnapshot previous) {
+		this.previous = previous;
+	}
+}
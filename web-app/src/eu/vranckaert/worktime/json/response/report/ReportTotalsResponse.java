@@ -0,0 +1,58 @@
+package eu.vranckaert.worktime.json.response.report;
+
+import java.util.List;
+
+import eu.vranckaert.worktime.json.base.response.WorkTimeResponse;
+import eu.vranckaert.worktime.model.report.ReportGrouping;
+import eu.vranckaert.worktime.model.report.ReportTotal;
+
+public class ReportTotalsResponse extends WorkTimeResponse {
+	private String from;
+	private String to;
+	private ReportGrouping grouping;
+	private List<ReportTotal> totals;
+	private long totalDuration;
+
+	public String getFrom() {
+		return from;
+	}
+
+	public void setFrom(String from) {
+		this.from = from;
+	}
+
+	public String getTo() {
+		return to;
+	}
+
+	public void setTo(String to) {
+		this.to = to;
+	}
+
+	public ReportGrouping getGrouping() {
+		return grouping;
+	}
+
+	public void setGrouping(ReportGrouping grouping) {
+		this.grouping = grouping;
+	}
+
+	public List<ReportTotal> getTotals() {
+		return totals;
+	}
+
+	public void setTotals(List<ReportTotal> totals) {
+		this.totals = totals;
+	}
+
+	/**
+	 * @return The sum of the durations of all totals, in milliseconds.
+	 */
+	public long getTotalDuration() {
+		return totalDuration;
+	}
+
+	public void setTotalDuration(long totalDuration) {
+		this.totalDuration = totalDuration;
+	}
+}
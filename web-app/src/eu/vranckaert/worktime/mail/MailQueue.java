@@ -0,0 +1,22 @@
+package eu.vranckaert.worktime.mail;
+
+/**
+ * Queue for all outgoing mails. Sending a mail can take a while (and can fail), so a request never sends a mail itself
+ * but adds it to this queue and returns immediately. The queue sends the mail in the background and retries it (with
+ * an increasing delay) if it fails.
+ * 
+ * @author Dirk Vranckaert
+ */
+public interface MailQueue {
+	/**
+	 * The maximum number of recipients of one mail. A mail with more recipients is split up in multiple mails which are
+	 * queued (and retried) separately.
+	 */
+	int MAX_RECIPIENTS_PER_MAIL = 50;
+	
+	/**
+	 * Adds a mail to the queue.
+	 * @param mail The mail to send.
+	 */
+	void enqueue(OutboundMail mail);
+}
@@ -0,0 +1,22 @@
+package eu.vranckaert.worktime.mail;
+
+import java.io.UnsupportedEncodingException;
+
+import javax.mail.MessagingException;
+
+/**
+ * Actually sends the mails taken from the {@link MailQueue}.
+ * 
+ * @author Dirk Vranckaert
+ */
+public interface MailSender {
+	/**
+	 * Sends a mail.
+	 * @param mail The mail to send.
+	 * @throws MessagingException If the mail could not be sent. An {@link javax.mail.internet.AddressException} means
+	 * the mail can never be sent, any other {@link MessagingException} can be retried.
+	 * @throws UnsupportedEncodingException If the name of the sender or one of the recipients cannot be encoded, the
+	 * mail can never be sent.
+	 */
+	void send(OutboundMail mail) throws MessagingException, UnsupportedEncodingException;
+}
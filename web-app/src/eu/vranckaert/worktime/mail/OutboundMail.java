@@ -0,0 +1,123 @@
+package eu.vranckaert.worktime.mail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.vranckaert.worktime.model.User;
+
+/**
+ * A mail that is waiting in the {@link MailQueue} to be sent. It only contains plain values (no entities) so it can be
+ * serialized to JSON as the payload of a task.
+ */
+public class OutboundMail {
+	private String subject;
+	private String body;
+	private String bodyType;
+	private Address from;
+	private List<Address> recipients = new ArrayList<Address>();
+	
+	public OutboundMail() {}
+	
+	public OutboundMail(String subject, String body, String bodyType, User from, List<User> recipients) {
+		this.subject = subject;
+		this.body = body;
+		this.bodyType = bodyType;
+		this.from = new Address(from);
+		for (User recipient : recipients) {
+			this.recipients.add(new Address(recipient));
+		}
+	}
+	
+	public String getSubject() {
+		return subject;
+	}
+	
+	public void setSubject(String subject) {
+		this.subject = subject;
+	}
+	
+	public String getBody() {
+		return body;
+	}
+	
+	public void setBody(String body) {
+		this.body = body;
+	}
+	
+	public String getBodyType() {
+		return bodyType;
+	}
+	
+	public void setBodyType(String bodyType) {
+		this.bodyType = bodyType;
+	}
+	
+	public Address getFrom() {
+		return from;
+	}
+	
+	public void setFrom(Address from) {
+		this.from = from;
+	}
+	
+	public List<Address> getRecipients() {
+		return recipients;
+	}
+	
+	public void setRecipients(List<Address> recipients) {
+		this.recipients = recipients;
+	}
+	
+	/**
+	 * Splits this mail in a number of mails with the same subject, body and sender, each with at most the specified
+	 * number of recipients.
+	 * @param maxRecipients The maximum number of recipients per mail.
+	 * @return The mails, this mail itself if it does not have more recipients than allowed.
+	 */
+	public List<OutboundMail> split(int maxRecipients) {
+		List<OutboundMail> batches = new ArrayList<OutboundMail>();
+		if (recipients.size() <= maxRecipients) {
+			batches.add(this);
+			return batches;
+		}
+		
+		for (int i = 0; i < recipients.size(); i += maxRecipients) {
+			OutboundMail batch = new OutboundMail();
+			batch.setSubject(subject);
+			batch.setBody(body);
+			batch.setBodyType(bodyType);
+			batch.setFrom(from);
+			batch.setRecipients(new ArrayList<Address>(recipients.subList(i, Math.min(i + maxRecipients, recipients.size()))));
+			batches.add(batch);
+		}
+		return batches;
+	}
+	
+	public static class Address {
+		private String email;
+		private String name;
+		
+		public Address() {}
+		
+		public Address(User user) {
+			this.email = user.getEmail();
+			this.name = user.getFirstName() + " " + user.getLastName();
+		}
+		
+		public String getEmail() {
+			return email;
+		}
+		
+		public void setEmail(String email) {
+			this.email = email;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+}
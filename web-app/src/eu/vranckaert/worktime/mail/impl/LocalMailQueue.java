@@ -0,0 +1,85 @@
+package eu.vranckaert.worktime.mail.impl;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.google.inject.Inject;
+
+import eu.vranckaert.worktime.mail.MailQueue;
+import eu.vranckaert.worktime.mail.MailSender;
+import eu.vranckaert.worktime.mail.OutboundMail;
+import eu.vranckaert.worktime.util.EmailUtil;
+
+/**
+ * In-process stand-in for the {@link TaskQueueMailQueue}, for tests and for running the services outside of App
+ * Engine (requests on App Engine cannot start threads of their own). The mails are sent on a background thread and a
+ * mail that fails is retried with an exponential backoff, just like the mail queue in queue.xml. Nothing is stored so
+ * the mails that are still in the queue are lost when the queue is shut down.
+ */
+public class LocalMailQueue implements MailQueue {
+	private static final Logger log = Logger.getLogger(LocalMailQueue.class.getName());
+	
+	public static final int MAX_ATTEMPTS = 5;
+	public static final long INITIAL_BACKOFF_MILLIS = 1000L;
+	public static final long MAX_BACKOFF_MILLIS = 60000L;
+	
+	private final MailSender sender;
+	private final ScheduledExecutorService executor;
+	private final long initialBackoffMillis;
+	
+	@Inject
+	public LocalMailQueue(MailSender sender) {
+		this(sender, Executors.newSingleThreadScheduledExecutor(), INITIAL_BACKOFF_MILLIS);
+	}
+	
+	public LocalMailQueue(MailSender sender, ScheduledExecutorService executor, long initialBackoffMillis) {
+		this.sender = sender;
+		this.executor = executor;
+		this.initialBackoffMillis = initialBackoffMillis;
+	}
+
+	@Override
+	public void enqueue(OutboundMail mail) {
+		for (OutboundMail batch : mail.split(MAX_RECIPIENTS_PER_MAIL)) {
+			schedule(batch, 1, 0L);
+		}
+	}
+	
+	/**
+	 * Stops the queue after all mails that are due have been sent, mails that are waiting for a retry are dropped.
+	 * @param timeoutMillis The maximum time to wait.
+	 * @return True if the queue has stopped.
+	 */
+	public boolean shutdown(long timeoutMillis) throws InterruptedException {
+		executor.shutdown();
+		return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	private void schedule(final OutboundMail mail, final int attempt, long delayMillis) {
+		executor.schedule(new Runnable() {
+			@Override
+			public void run() {
+				send(mail, attempt);
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	private void send(OutboundMail mail, int attempt) {
+		try {
+			sender.send(mail);
+		} catch (Exception e) {
+			if (EmailUtil.isPermanentFailure(e) || attempt >= MAX_ATTEMPTS) {
+				log.severe("Giving up on mail '" + mail.getSubject() + "' after " + attempt + " attempt(s): " + e.getMessage());
+				return;
+			}
+			
+			long backoffMillis = Math.min(initialBackoffMillis << (attempt - 1), MAX_BACKOFF_MILLIS);
+			log.warning("Could not send mail '" + mail.getSubject() + "' (attempt " + attempt + "), retrying in " + backoffMillis + "ms: " + e.getMessage());
+			if (!executor.isShutdown()) {
+				schedule(mail, attempt + 1, backoffMillis);
+			}
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package eu.vranckaert.worktime.mail.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueConstants;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.appengine.api.taskqueue.TaskOptions.Method;
+
+import eu.vranckaert.worktime.mail.MailQueue;
+import eu.vranckaert.worktime.mail.OutboundMail;
+
+/**
+ * Puts every mail as a task on the App Engine push queue {@link #QUEUE_NAME}. The task is handled by the
+ * {@link eu.vranckaert.worktime.task.mail.SendMailServlet}, the rate and the retries (with backoff) of the queue are
+ * configured in queue.xml. As the tasks are stored by App Engine no mail is lost if an instance goes down.
+ */
+public class TaskQueueMailQueue implements MailQueue {
+	private static final Logger log = Logger.getLogger(TaskQueueMailQueue.class.getName());
+	
+	public static final String QUEUE_NAME = "mail";
+	public static final String WORKER_URL = "/tasks/sendMail";
+	public static final String CONTENT_TYPE = "application/json";
+	
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Override
+	public void enqueue(OutboundMail mail) {
+		List<TaskOptions> tasks = new ArrayList<TaskOptions>();
+		for (OutboundMail batch : mail.split(MAX_RECIPIENTS_PER_MAIL)) {
+			try {
+				tasks.add(TaskOptions.Builder.withUrl(WORKER_URL).method(Method.POST).payload(mapper.writeValueAsBytes(batch), CONTENT_TYPE));
+			} catch (IOException e) {
+				// Only plain values in the mail, so this should never happen
+				throw new IllegalStateException("Could not serialize the mail '" + mail.getSubject() + "'", e);
+			}
+		}
+		
+		Queue queue = QueueFactory.getQueue(QUEUE_NAME);
+		int maxTasksPerAdd = QueueConstants.maxTasksPerAdd();
+		for (int i = 0; i < tasks.size(); i += maxTasksPerAdd) {
+			queue.add(tasks.subList(i, Math.min(i + maxTasksPerAdd, tasks.size())));
+		}
+		log.info("Queued mail '" + mail.getSubject() + "' for " + mail.getRecipients().size() + " recipient(s) in " + tasks.size() + " task(s)");
+	}
+}
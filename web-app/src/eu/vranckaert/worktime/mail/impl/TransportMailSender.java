@@ -0,0 +1,16 @@
+package eu.vranckaert.worktime.mail.impl;
+
+import java.io.UnsupportedEncodingException;
+
+import javax.mail.MessagingException;
+
+import eu.vranckaert.worktime.mail.MailSender;
+import eu.vranckaert.worktime.mail.OutboundMail;
+import eu.vranckaert.worktime.util.EmailUtil;
+
+public class TransportMailSender implements MailSender {
+	@Override
+	public void send(OutboundMail mail) throws MessagingException, UnsupportedEncodingException {
+		EmailUtil.send(mail);
+	}
+}
@@ -0,0 +1,84 @@
+package eu.vranckaert.worktime.metrics;
+
+import java.lang.reflect.Method;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.lang3.ClassUtils;
+
+import com.google.inject.Inject;
+import com.google.inject.matcher.AbstractMatcher;
+import com.google.inject.matcher.Matcher;
+
+import eu.vranckaert.worktime.dao.BaseDao;
+
+/**
+ * Counts the DAO calls of a request as datastore operations in the 
+ * {@link Metrics}. Only the methods that are part of a DAO interface are 
+ * intercepted, see {@link #DAO_METHODS}.
+ */
+public class DatastoreMetricsInterceptor implements MethodInterceptor {
+	/**
+	 * Matches the methods that are declared in an interface extending 
+	 * {@link BaseDao}, the helper methods of the DAO implementations are not
+	 * matched.
+	 */
+	public static final Matcher<Method> DAO_METHODS = new AbstractMatcher<Method>() {
+		@Override
+		public boolean matches(Method method) {
+			if (method.isSynthetic()) {
+				return false;
+			}
+			for (Class<?> type : ClassUtils.getAllInterfaces(method.getDeclaringClass())) {
+				if (!BaseDao.class.isAssignableFrom(type)) {
+					continue;
+				}
+				for (Method daoMethod : type.getMethods()) {
+					if (overrides(method, daoMethod)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * The parameters of the method in the implementation can be more 
+		 * specific than in the interface, as in {@link BaseDao#persist(Object)}.
+		 */
+		private boolean overrides(Method method, Method daoMethod) {
+			if (!method.getName().equals(daoMethod.getName())) {
+				return false;
+			}
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			Class<?>[] daoParameterTypes = daoMethod.getParameterTypes();
+			if (parameterTypes.length != daoParameterTypes.length) {
+				return false;
+			}
+			for (int i = 0; i < parameterTypes.length; i++) {
+				if (!daoParameterTypes[i].isAssignableFrom(parameterTypes[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	};
+	
+	@Inject
+	private Metrics metrics;
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		if (!metrics.startDatastoreOperation()) {
+			return invocation.proceed();
+		}
+		
+		long start = System.currentTimeMillis();
+		try {
+			return invocation.proceed();
+		} finally {
+			DatastoreOperation operation = DatastoreOperation.forDaoMethod(invocation.getMethod().getName());
+			metrics.endDatastoreOperation(operation, System.currentTimeMillis() - start);
+		}
+	}
+}
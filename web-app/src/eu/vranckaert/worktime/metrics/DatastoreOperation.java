@@ -0,0 +1,31 @@
+package eu.vranckaert.worktime.metrics;
+
+/**
+ * The kinds of datastore operations counted per request, based on the DAO 
+ * method that is called.
+ */
+public enum DatastoreOperation {
+	/**
+	 * A lookup by key.
+	 */
+	READ,
+	/**
+	 * A query, including counts.
+	 */
+	QUERY,
+	/**
+	 * A store, update or delete.
+	 */
+	WRITE;
+	
+	public static DatastoreOperation forDaoMethod(String methodName) {
+		if (methodName.equals("findById") || methodName.startsWith("load")) {
+			return READ;
+		}
+		if (methodName.startsWith("persist") || methodName.startsWith("update") || methodName.startsWith("remove")
+				|| methodName.equals("acquire") || methodName.equals("release")) {
+			return WRITE;
+		}
+		return QUERY;
+	}
+}
@@ -0,0 +1,143 @@
+package eu.vranckaert.worktime.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The aggregated metrics of the requests to one endpoint. The latency is 
+ * kept in a histogram with fixed buckets, the percentiles are the upper 
+ * bound of the bucket they fall in.
+ */
+public class EndpointMetrics {
+	/**
+	 * The upper bounds (in milliseconds) of the latency buckets, the last 
+	 * bucket has no upper bound.
+	 */
+	static final long[] LATENCY_BUCKETS = {10L, 25L, 50L, 100L, 250L, 500L, 1000L, 2500L, 5000L, 10000L, 30000L};
+	
+	private long requests;
+	private long errors;
+	private long totalLatency;
+	private long maxLatency;
+	private final long[] latencyHistogram = new long[LATENCY_BUCKETS.length + 1];
+	private long reads;
+	private long queries;
+	private long writes;
+	private long datastoreTime;
+	
+	void record(int status, long latency, RequestMetrics requestMetrics) {
+		requests++;
+		if (status >= 500) {
+			errors++;
+		}
+		totalLatency += latency;
+		maxLatency = Math.max(maxLatency, latency);
+		
+		int bucket = 0;
+		while (bucket < LATENCY_BUCKETS.length && latency > LATENCY_BUCKETS[bucket]) {
+			bucket++;
+		}
+		latencyHistogram[bucket]++;
+		
+		if (requestMetrics != null) {
+			reads += requestMetrics.getReads();
+			queries += requestMetrics.getQueries();
+			writes += requestMetrics.getWrites();
+			datastoreTime += requestMetrics.getDatastoreTime();
+		}
+	}
+	
+	EndpointMetrics copy() {
+		EndpointMetrics copy = new EndpointMetrics();
+		copy.requests = requests;
+		copy.errors = errors;
+		copy.totalLatency = totalLatency;
+		copy.maxLatency = maxLatency;
+		System.arraycopy(latencyHistogram, 0, copy.latencyHistogram, 0, latencyHistogram.length);
+		copy.reads = reads;
+		copy.queries = queries;
+		copy.writes = writes;
+		copy.datastoreTime = datastoreTime;
+		return copy;
+	}
+
+	public long getRequests() {
+		return requests;
+	}
+
+	/**
+	 * @return The number of requests that ended with a status code of 500 or
+	 * higher.
+	 */
+	public long getErrors() {
+		return errors;
+	}
+
+	public long getAverageLatency() {
+		return requests == 0 ? 0L : totalLatency / requests;
+	}
+
+	public long getMaxLatency() {
+		return maxLatency;
+	}
+	
+	public long getLatencyP50() {
+		return getPercentile(0.50);
+	}
+	
+	public long getLatencyP95() {
+		return getPercentile(0.95);
+	}
+	
+	public long getLatencyP99() {
+		return getPercentile(0.99);
+	}
+	
+	private long getPercentile(double percentile) {
+		long rank = (long) Math.ceil(percentile * requests);
+		long count = 0L;
+		for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+			count += latencyHistogram[i];
+			if (count >= rank) {
+				return LATENCY_BUCKETS[i];
+			}
+		}
+		return maxLatency;
+	}
+
+	/**
+	 * @return The number of requests per latency bucket, keyed by the upper 
+	 * bound of the bucket in milliseconds.
+	 */
+	public Map<String, Long> getLatencyHistogram() {
+		Map<String, Long> histogram = new LinkedHashMap<String, Long>();
+		for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+			histogram.put(String.valueOf(LATENCY_BUCKETS[i]), latencyHistogram[i]);
+		}
+		histogram.put("+Inf", latencyHistogram[LATENCY_BUCKETS.length]);
+		return histogram;
+	}
+
+	public long getReads() {
+		return reads;
+	}
+
+	public long getQueries() {
+		return queries;
+	}
+
+	public long getWrites() {
+		return writes;
+	}
+	
+	public double getDatastoreOperationsPerRequest() {
+		return requests == 0 ? 0d : (double) (reads + queries + writes) / requests;
+	}
+
+	/**
+	 * @return The total time spent in DAO's, in milliseconds.
+	 */
+	public long getDatastoreTime() {
+		return datastoreTime;
+	}
+}
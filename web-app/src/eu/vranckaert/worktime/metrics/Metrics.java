@@ -0,0 +1,163 @@
+package eu.vranckaert.worktime.metrics;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.google.inject.Singleton;
+
+/**
+ * Aggregates the metrics of the requests handled by this App Engine instance
+ * in memory. The metrics are kept per period of {@link #FLUSH_INTERVAL}, when
+ * a period is over it's summary is written to the log and it is kept as the 
+ * previous period until the next one is over. Metrics are never shared 
+ * between instances, every instance reports it's own numbers.<br/>
+ * The request latency is recorded by the {@link MetricsFilter}, the datastore 
+ * operations by the {@link DatastoreMetricsInterceptor}.
+ */
+@Singleton
+public class Metrics {
+	private static final Logger log = Logger.getLogger(Metrics.class.getName());
+	
+	/**
+	 * The length of a period, in milliseconds.
+	 */
+	public static final long FLUSH_INTERVAL = 5L * 60L * 1000L;
+	/**
+	 * The maximum number of endpoints for which metrics are kept separately,
+	 * the requests to all other endpoints are added to {@link #OTHER_ENDPOINT}.
+	 */
+	static final int MAX_ENDPOINTS = 100;
+	static final String OTHER_ENDPOINT = "other";
+	
+	private final ThreadLocal<RequestMetrics> requestMetrics = new ThreadLocal<RequestMetrics>();
+	
+	private MetricsSnapshot current = new MetricsSnapshot(new Date());
+	private MetricsSnapshot previous;
+	
+	/**
+	 * Starts recording the datastore operations of the request handled by the
+	 * current thread.
+	 */
+	public void startRequest() {
+		requestMetrics.set(new RequestMetrics());
+	}
+	
+	/**
+	 * Records a request that has been handled by the current thread.
+	 * @param endpoint The endpoint that handled the request.
+	 * @param status The HTTP status code of the response.
+	 * @param latency The time it took to handle the request, in milliseconds.
+	 */
+	public void endRequest(String endpoint, int status, long latency) {
+		RequestMetrics request = requestMetrics.get();
+		requestMetrics.remove();
+		
+		synchronized (this) {
+			flushIfNeeded();
+			current.getEndpoint(endpoint).record(status, latency, request);
+		}
+	}
+	
+	/**
+	 * Starts a DAO call for the request handled by the current thread.
+	 * @return False if no request is being recorded by the current thread (a
+	 * DAO used outside of the {@link MetricsFilter}).
+	 */
+	boolean startDatastoreOperation() {
+		RequestMetrics request = requestMetrics.get();
+		if (request == null) {
+			return false;
+		}
+		request.enter();
+		return true;
+	}
+	
+	/**
+	 * Ends a DAO call for the request handled by the current thread, should 
+	 * be called for every call to {@link #startDatastoreOperation()} that 
+	 * returned true. Only the outermost DAO call is counted.
+	 * @param operation The kind of datastore operation.
+	 * @param duration The time spent in the DAO, in milliseconds.
+	 */
+	void endDatastoreOperation(DatastoreOperation operation, long duration) {
+		RequestMetrics request = requestMetrics.get();
+		if (request != null) {
+			request.exit(operation, duration);
+		}
+	}
+	
+	/**
+	 * Records a transaction that failed because the entity group was modified
+	 * by another request at the same time.
+	 */
+	public synchronized void recordTransactionConflict() {
+		flushIfNeeded();
+		current.recordTransactionConflict();
+	}
+	
+	/**
+	 * Records a synchronisation.
+	 * @param interrupted True if the synchronisation has been interrupted 
+	 * before all changes could be applied.
+	 * @param failed True if the synchronisation has been rolled back.
+	 * @param projects The number of projects sent back to the client.
+	 * @param tasks The number of tasks sent back to the client.
+	 * @param timeRegistrations The number of time registrations sent back to 
+	 * the client.
+	 */
+	public synchronized void recordSync(boolean interrupted, boolean failed, int projects, int tasks, int timeRegistrations) {
+		flushIfNeeded();
+		current.recordSync(interrupted, failed, projects, tasks, timeRegistrations);
+	}
+	
+	/**
+	 * @return A copy of the metrics of the current period.
+	 */
+	public synchronized MetricsSnapshot getCurrent() {
+		flushIfNeeded();
+		return current.copy();
+	}
+	
+	/**
+	 * @return A copy of the metrics of the previous period or null if the 
+	 * first period is not over yet.
+	 */
+	public synchronized MetricsSnapshot getPrevious() {
+		flushIfNeeded();
+		return previous == null ? null : previous.copy();
+	}
+	
+	private void flushIfNeeded() {
+		Date now = new Date();
+		if (now.getTime() - current.getStart().getTime() < FLUSH_INTERVAL) {
+			return;
+		}
+		
+		current.end(now);
+		logSummary(current);
+		previous = current;
+		current = new MetricsSnapshot(now);
+	}
+	
+	private void logSummary(MetricsSnapshot snapshot) {
+		StringBuilder summary = new StringBuilder("Metrics from " + snapshot.getStart() + " until " + snapshot.getEnd() + ":");
+		for (Map.Entry<String, EndpointMetrics> entry : snapshot.getEndpoints().entrySet()) {
+			EndpointMetrics endpoint = entry.getValue();
+			summary.append("\n").append(entry.getKey())
+					.append(": requests=").append(endpoint.getRequests())
+					.append(", errors=").append(endpoint.getErrors())
+					.append(", avg=").append(endpoint.getAverageLatency()).append("ms")
+					.append(", p95=").append(endpoint.getLatencyP95()).append("ms")
+					.append(", max=").append(endpoint.getMaxLatency()).append("ms")
+					.append(", reads=").append(endpoint.getReads())
+					.append(", queries=").append(endpoint.getQueries())
+					.append(", writes=").append(endpoint.getWrites());
+		}
+		summary.append("\nsyncs=").append(snapshot.getSyncs())
+				.append(", interrupted=").append(snapshot.getInterruptedSyncs())
+				.append(", failed=").append(snapshot.getFailedSyncs())
+				.append(", transactionConflicts=").append(snapshot.getTransactionConflicts());
+		log.info(summary.toString());
+	}
+}
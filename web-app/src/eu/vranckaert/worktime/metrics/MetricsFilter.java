@@ -0,0 +1,109 @@
+package eu.vranckaert.worktime.metrics;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Records the latency and status of every request in the {@link Metrics}. 
+ * The endpoint of a request is it's HTTP method and path, without the query 
+ * string.
+ */
+@Singleton
+public class MetricsFilter implements Filter {
+	@Inject
+	private Metrics metrics;
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		
+		HttpServletRequest httpRequest = (HttpServletRequest) request;
+		StatusResponseWrapper httpResponse = new StatusResponseWrapper((HttpServletResponse) response);
+		
+		long start = System.currentTimeMillis();
+		metrics.startRequest();
+		try {
+			chain.doFilter(request, httpResponse);
+		} catch (IOException e) {
+			httpResponse.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			throw e;
+		} catch (ServletException e) {
+			httpResponse.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			throw e;
+		} catch (RuntimeException e) {
+			httpResponse.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			throw e;
+		} finally {
+			String endpoint = httpRequest.getMethod() + " " + httpRequest.getRequestURI();
+			metrics.endRequest(endpoint, httpResponse.getStatus(), System.currentTimeMillis() - start);
+		}
+	}
+
+	@Override
+	public void destroy() {}
+	
+	/**
+	 * Keeps track of the status code, the servlet API of App Engine has no
+	 * way to ask it from the response.
+	 */
+	private static class StatusResponseWrapper extends HttpServletResponseWrapper {
+		private int status = SC_OK;
+		
+		public StatusResponseWrapper(HttpServletResponse response) {
+			super(response);
+		}
+		
+		@Override
+		public void setStatus(int status) {
+			this.status = status;
+			super.setStatus(status);
+		}
+		
+		@Override
+		@SuppressWarnings("deprecation")
+		public void setStatus(int status, String message) {
+			this.status = status;
+			super.setStatus(status, message);
+		}
+		
+		@Override
+		public void sendError(int status) throws IOException {
+			this.status = status;
+			super.sendError(status);
+		}
+		
+		@Override
+		public void sendError(int status, String message) throws IOException {
+			this.status = status;
+			super.sendError(status, message);
+		}
+		
+		@Override
+		public void sendRedirect(String location) throws IOException {
+			this.status = SC_MOVED_TEMPORARILY;
+			super.sendRedirect(location);
+		}
+		
+		public int getStatus() {
+			return status;
+		}
+	}
+}
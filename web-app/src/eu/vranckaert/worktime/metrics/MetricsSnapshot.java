@@ -0,0 +1,121 @@
+package eu.vranckaert.worktime.metrics;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The metrics of one App Engine instance during a period of time.
+ */
+public class MetricsSnapshot {
+	private final Date start;
+	private Date end;
+	private final Map<String, EndpointMetrics> endpoints = new TreeMap<String, EndpointMetrics>();
+	private long transactionConflicts;
+	private long syncs;
+	private long interruptedSyncs;
+	private long failedSyncs;
+	private long syncedProjects;
+	private long syncedTasks;
+	private long syncedTimeRegistrations;
+	
+	MetricsSnapshot(Date start) {
+		this.start = start;
+	}
+	
+	EndpointMetrics getEndpoint(String endpoint) {
+		EndpointMetrics metrics = endpoints.get(endpoint);
+		if (metrics == null) {
+			if (endpoints.size() >= Metrics.MAX_ENDPOINTS) {
+				return getEndpoint(Metrics.OTHER_ENDPOINT);
+			}
+			metrics = new EndpointMetrics();
+			endpoints.put(endpoint, metrics);
+		}
+		return metrics;
+	}
+	
+	void end(Date end) {
+		this.end = end;
+	}
+	
+	void recordTransactionConflict() {
+		transactionConflicts++;
+	}
+	
+	void recordSync(boolean interrupted, boolean failed, int projects, int tasks, int timeRegistrations) {
+		syncs++;
+		if (interrupted) {
+			interruptedSyncs++;
+		}
+		if (failed) {
+			failedSyncs++;
+		}
+		syncedProjects += projects;
+		syncedTasks += tasks;
+		syncedTimeRegistrations += timeRegistrations;
+	}
+	
+	MetricsSnapshot copy() {
+		MetricsSnapshot copy = new MetricsSnapshot(start);
+		copy.end = end;
+		for (Map.Entry<String, EndpointMetrics> entry : endpoints.entrySet()) {
+			copy.endpoints.put(entry.getKey(), entry.getValue().copy());
+		}
+		copy.transactionConflicts = transactionConflicts;
+		copy.syncs = syncs;
+		copy.interruptedSyncs = interruptedSyncs;
+		copy.failedSyncs = failedSyncs;
+		copy.syncedProjects = syncedProjects;
+		copy.syncedTasks = syncedTasks;
+		copy.syncedTimeRegistrations = syncedTimeRegistrations;
+		return copy;
+	}
+
+	public Date getStart() {
+		return start;
+	}
+
+	/**
+	 * @return The end of the period or null if this is the current period.
+	 */
+	public Date getEnd() {
+		return end;
+	}
+
+	public Map<String, EndpointMetrics> getEndpoints() {
+		return endpoints;
+	}
+
+	/**
+	 * @return The number of transactions that failed because of concurrent
+	 * modifications of the same entity group.
+	 */
+	public long getTransactionConflicts() {
+		return transactionConflicts;
+	}
+
+	public long getSyncs() {
+		return syncs;
+	}
+
+	public long getInterruptedSyncs() {
+		return interruptedSyncs;
+	}
+
+	public long getFailedSyncs() {
+		return failedSyncs;
+	}
+
+	public long getSyncedProjects() {
+		return syncedProjects;
+	}
+
+	public long getSyncedTasks() {
+		return syncedTasks;
+	}
+
+	public long getSyncedTimeRegistrations() {
+		return syncedTimeRegistrations;
+	}
+}
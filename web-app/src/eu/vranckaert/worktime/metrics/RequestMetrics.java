@@ -0,0 +1,52 @@
+package eu.vranckaert.worktime.metrics;
+
+/**
+ * The datastore operations of the request that is handled by the current 
+ * thread. Only the outermost DAO call is counted, DAO's calling other DAO 
+ * methods are one operation.
+ */
+class RequestMetrics {
+	private int reads;
+	private int queries;
+	private int writes;
+	private long datastoreTime;
+	private int depth;
+	
+	void enter() {
+		depth++;
+	}
+	
+	void exit(DatastoreOperation operation, long duration) {
+		if (--depth > 0) {
+			return;
+		}
+		switch (operation) {
+			case READ:
+				reads++;
+				break;
+			case QUERY:
+				queries++;
+				break;
+			case WRITE:
+				writes++;
+				break;
+		}
+		datastoreTime += duration;
+	}
+
+	int getReads() {
+		return reads;
+	}
+
+	int getQueries() {
+		return queries;
+	}
+
+	int getWrites() {
+		return writes;
+	}
+
+	long getDatastoreTime() {
+		return datastoreTime;
+	}
+}
@@ -3,19 +3,42 @@ package eu.vranckaert.worktime.model;
 import java.util.Calendar;
 import java.util.Date;
 
-import com.google.appengine.api.datastore.Key;
 import com.google.code.twig.annotation.Entity;
-import com.google.code.twig.annotation.GaeKey;
-import com.google.code.twig.annotation.Parent;
+import com.google.code.twig.annotation.Id;
+import com.google.code.twig.annotation.Index;
 
-@Entity(kind="session")
+/**
+ * A session of a logged in user. The session key is the key of the entity, 
+ * so a session is validated with a single get by key. Sessions are root 
+ * entities, not children of the user: using a session writes it and that 
+ * should not conflict with a synchronisation writing the entity group of the
+ * user at the same time. The sessions of the old layouts are migrated by the
+ * expired sessions cron job, or when they are looked up before that, see 
+ * {@link #LEGACY_KINDS}.
+ */
+@Entity(kind=Session.KIND)
 public class Session {
-	@GaeKey private Key key;
-	@Parent private User user;
-	private String sessionKey;
+	public static final String KIND = "loginSession";
+	
+	/**
+	 * The kinds of the sessions stored in the old layouts, both children of
+	 * the user: with a generated key (<i>session</i>) or keyed by the session
+	 * key (<i>userSession</i>).
+	 */
+	public static final String[] LEGACY_KINDS = {"session", "userSession"};
+	
+	/**
+	 * The number of hours a {@link Platform#WEB} session stays valid after 
+	 * it has last been used.
+	 */
+	private static final int WEB_SESSION_HOURS = 24;
+	
+	@Id private String sessionKey;
+	@Index private String email;
 	private Date creationDate;
 	private int timesUsed;
 	private Date lastTimeUsed;
+	@Index private Date expirationTime;
 	private Platform platform;
 	
 	public Session() {}
@@ -23,18 +46,11 @@ public class Session {
 	public Session(String sessionKey, User user, Platform platform) {
 		this.creationDate = new Date();
 		this.sessionKey = sessionKey;
-		this.user = user;
+		this.email = user.getEmail();
 		this.timesUsed = 1;
 		this.lastTimeUsed = new Date();
 		this.platform = platform;
-	}
-
-	public Key getKey() {
-		return key;
-	}
-
-	public void setKey(Key key) {
-		this.key = key;
+		updateExpirationTime();
 	}
 
 	public String getSessionKey() {
@@ -53,12 +69,15 @@ public class Session {
 		this.creationDate = creationDate;
 	}
 
-	public User getUser() {
-		return user;
+	/**
+	 * @return The email of the user to which the session belongs.
+	 */
+	public String getEmail() {
+		return email;
 	}
 
-	public void setUser(User user) {
-		this.user = user;
+	public void setEmail(String email) {
+		this.email = email;
 	}
 	
 	public int getTimesUsed() {
@@ -77,6 +96,52 @@ public class Session {
 		this.lastTimeUsed = lastTimeUsed;
 	}
 
+	/**
+	 * @return The time after which the session is no longer valid, null if 
+	 * it never expires.
+	 */
+	public Date getExpirationTime() {
+		return expirationTime;
+	}
+
+	public void setExpirationTime(Date expirationTime) {
+		this.expirationTime = expirationTime;
+	}
+	
+	/**
+	 * Registers a usage of the session, which extends the session if it 
+	 * expires.
+	 */
+	public void markUsed() {
+		timesUsed++;
+		lastTimeUsed = new Date();
+		updateExpirationTime();
+	}
+	
+	private void updateExpirationTime() {
+		expirationTime = calculateExpirationTime(getPlatform(), creationDate, lastTimeUsed);
+	}
+	
+	/**
+	 * Calculates the time after which a session is no longer valid.
+	 * @param platform The platform of the session.
+	 * @param creationDate The time the session has been created.
+	 * @param lastTimeUsed The time the session has last been used, null if it
+	 * has never been used.
+	 * @return The expiration time, null if the session never expires.
+	 */
+	public static Date calculateExpirationTime(Platform platform, Date creationDate, Date lastTimeUsed) {
+		switch (platform) {
+		case WEB:
+			Calendar expiration = Calendar.getInstance();
+			expiration.setTime(lastTimeUsed != null ? lastTimeUsed : creationDate);
+			expiration.add(Calendar.HOUR_OF_DAY, WEB_SESSION_HOURS);
+			return expiration.getTime();
+		default:
+			return null;
+		}
+	}
+
 	public Platform getPlatform() {
 		if (platform == null) {
 			platform = Platform.OTHER;
@@ -97,7 +162,7 @@ public class Session {
 		int result = 1;
 		result = prime * result
 				+ ((sessionKey == null) ? 0 : sessionKey.hashCode());
-		result = prime * result + ((user == null) ? 0 : user.hashCode());
+		result = prime * result + ((email == null) ? 0 : email.hashCode());
 		return result;
 	}
 
@@ -115,10 +180,10 @@ public class Session {
 				return false;
 		} else if (!sessionKey.equals(other.sessionKey))
 			return false;
-		if (user == null) {
-			if (other.user != null)
+		if (email == null) {
+			if (other.email != null)
 				return false;
-		} else if (!user.equals(other.user))
+		} else if (!email.equals(other.email))
 			return false;
 		return true;
 	}
@@ -128,21 +193,6 @@ public class Session {
 	}
 
 	public boolean isExpired() {
-		switch (getPlatform()) {
-		case WEB:
-			Date now = new Date();
-			Calendar expirationDate = Calendar.getInstance();
-			if (lastTimeUsed != null)
-				expirationDate.setTime(lastTimeUsed);
-			else
-				expirationDate.setTime(creationDate);
-			expirationDate.add(Calendar.HOUR_OF_DAY, 24);
-			if (expirationDate.getTime().before(now)) {
-				return true;
-			}
-			break;
-		}
-		
-		return false;
+		return expirationTime != null && expirationTime.before(new Date());
 	}
 }
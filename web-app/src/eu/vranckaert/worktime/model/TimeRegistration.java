@@ -4,31 +4,35 @@ import java.util.Date;
 
 import org.codehaus.jackson.annotate.JsonIgnore;
 
-import com.google.appengine.api.datastore.Key;
 import com.google.code.twig.annotation.Activate;
 import com.google.code.twig.annotation.Entity;
-import com.google.code.twig.annotation.GaeKey;
+import com.google.code.twig.annotation.Id;
 import com.google.code.twig.annotation.Index;
-import com.google.code.twig.annotation.Parent;
 
-@Entity(kind="timeRegistration")
+/**
+ * A time registration is a root entity keyed by it's sync key, so the time
+ * registrations of a user are not written in the entity group of the user.
+ * They are found through the {@link TimeRegistrationIndex} of the user, none
+ * of the properties is queried so none of them is indexed.
+ */
+@Entity(kind=TimeRegistration.KIND)
+@Index(false)
 public class TimeRegistration {
-	@GaeKey private Key key;
-	@Index private Date startTime;
-	@Index private Date endTime;
+	public static final String KIND = "registration";
+	/**
+	 * The kind of the time registrations that are still stored as children
+	 * of their task, they are migrated when the user synchronises or by the
+	 * cron job.
+	 */
+	public static final String LEGACY_KIND = "timeRegistration";
+
+	private Date startTime;
+	private Date endTime;
 	private String comment;
 	private String flags;
-	@Activate @Parent private Task task;
-	@Index private Date lastUpdated;
-	@Index private String syncKey;
-
-	public Key getKey() {
-		return key;
-	}
-
-	public void setKey(Key key) {
-		this.key = key;
-	}
+	@Activate private Task task;
+	private Date lastUpdated;
+	@Id private String syncKey;
 
 	public Date getStartTime() {
 		return startTime;
@@ -0,0 +1,179 @@
+package eu.vranckaert.worktime.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.code.twig.annotation.Entity;
+import com.google.code.twig.annotation.Id;
+import com.google.code.twig.annotation.Index;
+import com.google.code.twig.annotation.Parent;
+import com.google.code.twig.annotation.Store;
+
+/**
+ * Lists the time registrations of a user. Time registrations are root
+ * entities keyed by their sync key, so a synchronisation writes them in
+ * parallel batches instead of in the entity group of the user. The index is
+ * a child of the user: it is read with an ancestor query and updated in the
+ * transaction of the synchronisation, so the time registrations of a user
+ * are found consistently with batch gets by key.<br/>
+ * Next to the sync key the index keeps the end time and the time of the last
+ * update of every time registration, which is all a synchronisation needs to
+ * select the time registrations to load. An index holds at most
+ * {@link #MAX_ENTRIES} time registrations, a user with more time
+ * registrations has more than one index (numbered from 1). The lists are not
+ * indexed, an entity can have at most 5000 indexed values.
+ */
+@Entity(kind=TimeRegistrationIndex.KIND)
+@Index(false)
+public class TimeRegistrationIndex {
+	public static final String KIND = "timeRegistrationIndex";
+	/**
+	 * Keeps an index well below the maximum size of an entity.
+	 */
+	public static final int MAX_ENTRIES = 2000;
+	/**
+	 * The end time of an ongoing time registration in the index.
+	 */
+	private static final long ONGOING = Long.MAX_VALUE;
+	
+	@Id private long number;
+	@Parent private User user;
+	private List<String> syncKeys = new ArrayList<String>();
+	private List<Long> endTimes = new ArrayList<Long>();
+	private List<Long> lastUpdates = new ArrayList<Long>();
+	/**
+	 * The position of every sync key in the lists, built when it's first
+	 * needed.
+	 */
+	@Store(false) private Map<String, Integer> positions;
+	
+	public TimeRegistrationIndex() {}
+	
+	public TimeRegistrationIndex(User user, long number) {
+		this.user = user;
+		this.number = number;
+	}
+	
+	public long getNumber() {
+		return number;
+	}
+	
+	public void setNumber(long number) {
+		this.number = number;
+	}
+	
+	public User getUser() {
+		return user;
+	}
+	
+	public void setUser(User user) {
+		this.user = user;
+	}
+	
+	/**
+	 * @return The sync keys of all time registrations in the index.
+	 */
+	public List<String> getSyncKeys() {
+		return new ArrayList<String>(syncKeys);
+	}
+	
+	public int size() {
+		return syncKeys.size();
+	}
+	
+	public boolean isFull() {
+		return syncKeys.size() >= MAX_ENTRIES;
+	}
+	
+	public boolean contains(String syncKey) {
+		return getPositions().containsKey(syncKey);
+	}
+	
+	/**
+	 * Adds a time registration to the index, or updates it's entry if it's
+	 * already in the index.
+	 */
+	public void put(TimeRegistration timeRegistration) {
+		long endTime = timeRegistration.getEndTime() == null ? ONGOING : timeRegistration.getEndTime().getTime();
+		long lastUpdated = timeRegistration.getLastUpdated() == null ? 0L : timeRegistration.getLastUpdated().getTime();
+		
+		Integer position = getPositions().get(timeRegistration.getSyncKey());
+		if (position == null) {
+			positions.put(timeRegistration.getSyncKey(), syncKeys.size());
+			syncKeys.add(timeRegistration.getSyncKey());
+			endTimes.add(endTime);
+			lastUpdates.add(lastUpdated);
+		} else {
+			endTimes.set(position, endTime);
+			lastUpdates.set(position, lastUpdated);
+		}
+	}
+	
+	/**
+	 * Removes a time registration from the index. The last entry takes it's
+	 * place, the order of the entries has no meaning.
+	 * @return True if the time registration was in the index.
+	 */
+	public boolean remove(String syncKey) {
+		Integer position = getPositions().remove(syncKey);
+		if (position == null) {
+			return false;
+		}
+		
+		int last = syncKeys.size() - 1;
+		if (position != last) {
+			syncKeys.set(position, syncKeys.get(last));
+			endTimes.set(position, endTimes.get(last));
+			lastUpdates.set(position, lastUpdates.get(last));
+			positions.put(syncKeys.get(position), position);
+		}
+		syncKeys.remove(last);
+		endTimes.remove(last);
+		lastUpdates.remove(last);
+		return true;
+	}
+	
+	/**
+	 * @param date The date on or after which the time registrations end.
+	 * @param includeOngoing True to include the ongoing time registrations.
+	 * @return The sync keys of the time registrations that end on or after a
+	 * date.
+	 */
+	public List<String> findEndingOnOrAfter(Date date, boolean includeOngoing) {
+		List<String> result = new ArrayList<String>();
+		for (int i = 0; i < syncKeys.size(); i++) {
+			long endTime = endTimes.get(i);
+			if (endTime == ONGOING ? includeOngoing : date != null && endTime >= date.getTime()) {
+				result.add(syncKeys.get(i));
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @return The sync keys of the time registrations that have been modified
+	 * on or after a date.
+	 */
+	public List<String> findModifiedOnOrAfter(Date date) {
+		List<String> result = new ArrayList<String>();
+		for (int i = 0; i < syncKeys.size(); i++) {
+			if (lastUpdates.get(i) >= date.getTime()) {
+				result.add(syncKeys.get(i));
+			}
+		}
+		return result;
+	}
+	
+	private Map<String, Integer> getPositions() {
+		if (positions == null) {
+			positions = new HashMap<String, Integer>();
+			for (int i = 0; i < syncKeys.size(); i++) {
+				positions.put(syncKeys.get(i), i);
+			}
+		}
+		return positions;
+	}
+}
@@ -1,16 +1,10 @@
 package eu.vranckaert.worktime.model;
 
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 
-import com.google.code.twig.annotation.Activate;
-import com.google.code.twig.annotation.Child;
 import com.google.code.twig.annotation.Entity;
 import com.google.code.twig.annotation.Id;
 
-import eu.vranckaert.worktime.model.Session.Platform;
-
 @Entity(kind="user")
 public class User implements Cloneable {
 	@Id private String email;
@@ -23,8 +17,6 @@ public class User implements Cloneable {
 	
 	private String profileImageUrl;
 	
-	@Activate @Child private List<Session> sessions;
-	
 	public String getEmail() {
 		return email;
 	}
@@ -89,51 +81,6 @@ public class User implements Cloneable {
 		this.profileImageUrl = profileImageUrl;
 	}
 	
-	public List<Session> getSessions() {
-		return sessions;
-	}
-
-	public void setSessions(List<Session> sessions) {
-		this.sessions = sessions;
-	}
-
-	/**
-	 * Add a {@link Session} object for this user based on the provided session
-	 * key. The session will be persisted when the user is persisted/updated. 
-	 * @param sessionKey The session key.
-	 */
-	public void addSessionKey(String sessionKey, Platform platform) {
-		if (sessions == null) {
-			sessions = new ArrayList<Session>();
-		}
-		
-		Session session = new Session(sessionKey, this, platform);
-		sessions.add(session);
-	}
-
-	/**
-	 * Removes a {@link Session} object from the list of sessions for this user
-	 * (only if a session with this key exists).<br/>
-	 * <b>CAUTION</b>: This does not remove the {@link Session} object from the
-	 * database.
-	 * @param sessionKey The session key.
-	 */
-	public void removeSessionKey(String sessionKey) {
-		Session sessionForRemoval = null;
-		if (sessions != null) {
-			for (Session session : sessions) {
-				if (session.getSessionKey().equals(sessionKey)) {
-					sessionForRemoval = session;
-					break;
-				}
-			}
-		}
-		
-		if (sessionForRemoval != null) {
-			sessions.remove(sessionForRemoval);
-		}
-	}
-	
 	public String getFullName() {
 		return firstName + " " + lastName;
 	}
@@ -0,0 +1,139 @@
+package eu.vranckaert.worktime.model.purge;
+
+import java.util.Date;
+
+import com.google.code.twig.annotation.Entity;
+import com.google.code.twig.annotation.Id;
+
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.TimeRegistrationIndex;
+import eu.vranckaert.worktime.model.report.DailyTotal;
+
+/**
+ * The progress of removing the data (projects, tasks, time registrations and
+ * daily totals) of one user. There is at most one purge per user, the email
+ * of the user is the key. The purge walks the entity group of the user one
+ * kind at a time and stores a checkpoint after every batch, so it can resume
+ * where it stopped when a request runs out of time.
+ */
+@Entity(kind="userDataPurge")
+public class UserDataPurge {
+	/**
+	 * The kinds in the entity group of a user that are removed, in order. The
+	 * children are removed before their parents so a purge that is
+	 * interrupted never leaves time registrations without task behind. The
+	 * time registrations are root entities that are removed together with
+	 * the indexes of the user, followed by those that are still stored in the
+	 * old layout.
+	 */
+	public static final String[] KINDS = {TimeRegistrationIndex.KIND, TimeRegistration.LEGACY_KIND, "task", "project", DailyTotal.KIND, "dailyTotalsState"};
+
+	@Id private String userEmail;
+	private int kindIndex;
+	private String cursor;
+	private int removedEntities;
+	private Date startTime;
+	private Date lastProgressTime;
+	private Date endTime;
+	private int taskNumber;
+
+	public UserDataPurge() {}
+
+	public UserDataPurge(String userEmail) {
+		this.userEmail = userEmail;
+	}
+
+	public String getUserEmail() {
+		return userEmail;
+	}
+
+	public void setUserEmail(String userEmail) {
+		this.userEmail = userEmail;
+	}
+
+	/**
+	 * @return The index in {@link #KINDS} of the kind that is being removed.
+	 */
+	public int getKindIndex() {
+		return kindIndex;
+	}
+
+	public void setKindIndex(int kindIndex) {
+		this.kindIndex = kindIndex;
+	}
+
+	/**
+	 * @return The web safe cursor of the keys query of the current kind, null
+	 * to start at the first key.
+	 */
+	public String getCursor() {
+		return cursor;
+	}
+
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
+
+	public int getRemovedEntities() {
+		return removedEntities;
+	}
+
+	public void setRemovedEntities(int removedEntities) {
+		this.removedEntities = removedEntities;
+	}
+
+	public Date getStartTime() {
+		return startTime;
+	}
+
+	public void setStartTime(Date startTime) {
+		this.startTime = startTime;
+	}
+
+	public Date getLastProgressTime() {
+		return lastProgressTime;
+	}
+
+	public void setLastProgressTime(Date lastProgressTime) {
+		this.lastProgressTime = lastProgressTime;
+	}
+
+	public Date getEndTime() {
+		return endTime;
+	}
+
+	public void setEndTime(Date endTime) {
+		this.endTime = endTime;
+	}
+
+	/**
+	 * @return The number of the last task queued for the purge. It is part
+	 * of the name of the task, so the same task can not be queued twice.
+	 */
+	public int getTaskNumber() {
+		return taskNumber;
+	}
+
+	public void setTaskNumber(int taskNumber) {
+		this.taskNumber = taskNumber;
+	}
+
+	public String getKind() {
+		return isDone() ? null : KINDS[kindIndex];
+	}
+
+	/**
+	 * Moves on to the next kind, from the first key.
+	 */
+	public void nextKind() {
+		kindIndex++;
+		cursor = null;
+	}
+
+	/**
+	 * @return True if all kinds have been removed.
+	 */
+	public boolean isDone() {
+		return kindIndex >= KINDS.length;
+	}
+}
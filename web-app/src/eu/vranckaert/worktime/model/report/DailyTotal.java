@@ -0,0 +1,190 @@
+package eu.vranckaert.worktime.model.report;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import com.google.code.twig.annotation.Entity;
+import com.google.code.twig.annotation.Id;
+import com.google.code.twig.annotation.Index;
+import com.google.code.twig.annotation.Parent;
+
+import eu.vranckaert.worktime.model.User;
+
+/**
+ * The time registered by one user on one task during one day in UTC, split
+ * into the quarters of an hour of the day. The totals are children of the
+ * user, in the same entity group as the index of the time registrations, so
+ * they are updated in the same transaction in which the time registrations
+ * are indexed. The key is composed of the day and the sync key of the task.
+ * <br/>
+ * The totals do not depend on the time zone of the user: every time zone is
+ * a whole number of quarters of an hour away from UTC, so the quarters are
+ * added up into the days of any time zone when a report is requested (see
+ * {@link ReportDay}). A day is stored as midnight UTC, formatted with
+ * {@link #getDayFormat()}.
+ */
+@Entity(kind=DailyTotal.KIND)
+public class DailyTotal {
+	public static final String KIND = "dailyTotal";
+	public static final String DAY_FORMAT = "yyyy-MM-dd";
+	/**
+	 * The time zone in which the days are stored.
+	 */
+	public static final TimeZone DAY_TIME_ZONE = TimeZone.getTimeZone("UTC");
+	public static final long DAY_MILLIS = 24L * 60L * 60L * 1000L;
+	public static final long QUARTER_MILLIS = 15L * 60L * 1000L;
+	public static final int QUARTERS_PER_DAY = (int) (DAY_MILLIS / QUARTER_MILLIS);
+	
+	@Id private String id;
+	@Parent private User user;
+	@Index private Date day;
+	private String taskSyncKey;
+	@Index(false) private List<Long> quarterDurations;
+	@Index(false) private List<Long> quarterTimeRegistrations;
+	
+	public DailyTotal() {}
+	
+	public DailyTotal(Date day, String taskSyncKey) {
+		this.id = getId(day, taskSyncKey);
+		this.day = day;
+		this.taskSyncKey = taskSyncKey;
+		this.quarterDurations = new ArrayList<Long>(QUARTERS_PER_DAY);
+		this.quarterTimeRegistrations = new ArrayList<Long>(QUARTERS_PER_DAY);
+		for (int i = 0; i < QUARTERS_PER_DAY; i++) {
+			quarterDurations.add(0L);
+			quarterTimeRegistrations.add(0L);
+		}
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public User getUser() {
+		return user;
+	}
+
+	public void setUser(User user) {
+		this.user = user;
+	}
+
+	public Date getDay() {
+		return day;
+	}
+
+	public void setDay(Date day) {
+		this.day = day;
+	}
+
+	public String getTaskSyncKey() {
+		return taskSyncKey;
+	}
+
+	public void setTaskSyncKey(String taskSyncKey) {
+		this.taskSyncKey = taskSyncKey;
+	}
+
+	/**
+	 * @param quarter The quarter of an hour of the day, from 0 until
+	 * {@link #QUARTERS_PER_DAY}.
+	 * @return The time registered during the quarter in milliseconds.
+	 */
+	public long getDuration(int quarter) {
+		return quarterDurations.get(quarter);
+	}
+	
+	/**
+	 * @param quarter The quarter of an hour of the day, from 0 until
+	 * {@link #QUARTERS_PER_DAY}.
+	 * @return The number of time registrations that started during the
+	 * quarter.
+	 */
+	public int getTimeRegistrations(int quarter) {
+		return quarterTimeRegistrations.get(quarter).intValue();
+	}
+	
+	/**
+	 * @return The time registered during the whole day in milliseconds.
+	 */
+	public long getDuration() {
+		long duration = 0L;
+		for (Long quarterDuration : quarterDurations) {
+			duration += quarterDuration;
+		}
+		return duration;
+	}
+	
+	/**
+	 * @return The number of time registrations that started on this day.
+	 */
+	public int getTimeRegistrations() {
+		int timeRegistrations = 0;
+		for (Long quarterTimeRegistrations : this.quarterTimeRegistrations) {
+			timeRegistrations += quarterTimeRegistrations.intValue();
+		}
+		return timeRegistrations;
+	}
+	
+	public boolean isEmpty() {
+		for (int i = 0; i < QUARTERS_PER_DAY; i++) {
+			if (quarterDurations.get(i) != 0L || quarterTimeRegistrations.get(i) != 0L) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Adds a duration and a number of time registrations to one quarter of an
+	 * hour of the day.
+	 */
+	public void add(int quarter, long duration, int timeRegistrations) {
+		quarterDurations.set(quarter, quarterDurations.get(quarter) + duration);
+		quarterTimeRegistrations.set(quarter, quarterTimeRegistrations.get(quarter) + timeRegistrations);
+	}
+	
+	/**
+	 * Adds the durations and numbers of time registrations of another total,
+	 * quarter by quarter.
+	 */
+	public void add(DailyTotal other) {
+		for (int i = 0; i < QUARTERS_PER_DAY; i++) {
+			add(i, other.getDuration(i), other.getTimeRegistrations(i));
+		}
+	}
+	
+	public static String getId(Date day, String taskSyncKey) {
+		return getDayFormat().format(day) + "|" + taskSyncKey;
+	}
+	
+	/**
+	 * @return The start of the day in UTC of a time, as it is stored.
+	 */
+	public static long getDay(long time) {
+		return time - getTimeOfDay(time);
+	}
+	
+	/**
+	 * @return The milliseconds since the start of the day in UTC of a time.
+	 */
+	public static long getTimeOfDay(long time) {
+		return (time % DAY_MILLIS + DAY_MILLIS) % DAY_MILLIS;
+	}
+	
+	/**
+	 * @return A format to parse and format days as they are stored,
+	 * {@link #DAY_FORMAT} in {@link #DAY_TIME_ZONE}.
+	 */
+	public static SimpleDateFormat getDayFormat() {
+		SimpleDateFormat dayFormat = new SimpleDateFormat(DAY_FORMAT);
+		dayFormat.setTimeZone(DAY_TIME_ZONE);
+		return dayFormat;
+	}
+}
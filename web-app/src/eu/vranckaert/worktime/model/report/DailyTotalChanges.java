@@ -0,0 +1,118 @@
+package eu.vranckaert.worktime.model.report;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import eu.vranckaert.worktime.model.TimeRegistration;
+
+/**
+ * Collects the changes to the {@link DailyTotal}s of one user while time 
+ * registrations are stored, updated or removed. The changes are kept as 
+ * differences per day and task so every total only has to be read and 
+ * written once when the changes are applied.<br/>
+ * A time registration is split over the quarters of an hour it covers, it 
+ * is counted as one time registration in the quarter in which it started.
+ * Ongoing time registrations and time registrations of a task without sync 
+ * key are not counted.<br/>
+ * The changes are calculated when a time registration is added or removed,
+ * so to change a time registration it should be removed before and added 
+ * again after the change. The times are kept and only split into the 
+ * quarters of an hour of the days in UTC in {@link #getChanges()}.
+ */
+public class DailyTotalChanges {
+	private final List<Change> changes = new ArrayList<Change>();
+	
+	public void add(TimeRegistration timeRegistration) {
+		record(timeRegistration, 1);
+	}
+	
+	public void remove(TimeRegistration timeRegistration) {
+		record(timeRegistration, -1);
+	}
+	
+	private void record(TimeRegistration timeRegistration, int sign) {
+		if (timeRegistration.isOngoingTimeRegistration() || timeRegistration.getTask() == null 
+				|| StringUtils.isBlank(timeRegistration.getTask().getSyncKey())) {
+			return;
+		}
+		
+		changes.add(new Change(timeRegistration.getTask().getSyncKey(), timeRegistration.getStartTime().getTime(),
+				timeRegistration.getEndTime().getTime(), sign));
+	}
+	
+	private void apply(Map<String, DailyTotal> totals, Change change) {
+		long quarter = change.start - DailyTotal.getTimeOfDay(change.start) % DailyTotal.QUARTER_MILLIS;
+		DailyTotal total = null;
+		boolean firstQuarter = true;
+		while (firstQuarter || quarter < change.end) {
+			long day = DailyTotal.getDay(quarter);
+			if (total == null || total.getDay().getTime() != day) {
+				total = getTotal(totals, new Date(day), change.taskSyncKey);
+			}
+			
+			long duration = Math.min(change.end, quarter + DailyTotal.QUARTER_MILLIS) - Math.max(change.start, quarter);
+			total.add((int) ((quarter - day) / DailyTotal.QUARTER_MILLIS), change.sign * Math.max(0L, duration), firstQuarter ? change.sign : 0);
+			firstQuarter = false;
+			
+			quarter += DailyTotal.QUARTER_MILLIS;
+		}
+	}
+	
+	private DailyTotal getTotal(Map<String, DailyTotal> totals, Date day, String taskSyncKey) {
+		String id = DailyTotal.getId(day, taskSyncKey);
+		DailyTotal total = totals.get(id);
+		if (total == null) {
+			total = new DailyTotal(day, taskSyncKey);
+			totals.put(id, total);
+		}
+		return total;
+	}
+	
+	/**
+	 * @return The differences per day in UTC and task, differences that 
+	 * cancel each other out are left out.
+	 */
+	public List<DailyTotal> getChanges() {
+		Map<String, DailyTotal> totals = new LinkedHashMap<String, DailyTotal>();
+		for (Change change : changes) {
+			apply(totals, change);
+		}
+		
+		List<DailyTotal> result = new ArrayList<DailyTotal>();
+		for (DailyTotal total : totals.values()) {
+			if (!total.isEmpty()) {
+				result.add(total);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @return True if no time registration has been added or removed.
+	 */
+	public boolean isEmpty() {
+		return changes.isEmpty();
+	}
+	
+	/**
+	 * A time registration that has been added (sign 1) or removed (sign -1).
+	 */
+	private static class Change {
+		private final String taskSyncKey;
+		private final long start;
+		private final long end;
+		private final int sign;
+		
+		private Change(String taskSyncKey, long start, long end, int sign) {
+			this.taskSyncKey = taskSyncKey;
+			this.start = start;
+			this.end = end;
+			this.sign = sign;
+		}
+	}
+}
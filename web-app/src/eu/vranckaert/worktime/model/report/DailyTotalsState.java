@@ -0,0 +1,98 @@
+package eu.vranckaert.worktime.model.report;
+
+import java.util.Date;
+
+import com.google.code.twig.annotation.Entity;
+import com.google.code.twig.annotation.Id;
+import com.google.code.twig.annotation.Parent;
+
+import eu.vranckaert.worktime.model.User;
+
+/**
+ * Marks that the {@link DailyTotal}s of a user have been built, also when the
+ * user has no time registrations and so no totals. There is one state per 
+ * user, a child of the user with {@link #ID} as key. Without a state, with a 
+ * state of an older {@link #LAYOUT} or with a state that is still 
+ * {@link #isBuilding()} the totals are built from the time registrations when
+ * the next report is requested.
+ */
+@Entity(kind="dailyTotalsState")
+public class DailyTotalsState {
+	public static final String ID = "state";
+	/**
+	 * The layout of the totals: 1 for the quarters of an hour in UTC. The 
+	 * states of the totals that were built in the time zone of the user have
+	 * no layout.
+	 */
+	public static final int LAYOUT = 1;
+	
+	@Id private String id = ID;
+	@Parent private User user;
+	private int layout;
+	private boolean building;
+	/**
+	 * Only set by the layout in which the totals were built in the time zone
+	 * of the user.
+	 */
+	@Deprecated
+	private String timeZone;
+	private Date buildTime;
+	
+	public DailyTotalsState() {}
+	
+	public DailyTotalsState(User user) {
+		this.user = user;
+	}
+	
+	public String getId() {
+		return id;
+	}
+	
+	public void setId(String id) {
+		this.id = id;
+	}
+	
+	public User getUser() {
+		return user;
+	}
+	
+	public void setUser(User user) {
+		this.user = user;
+	}
+	
+	public int getLayout() {
+		return layout;
+	}
+	
+	public void setLayout(int layout) {
+		this.layout = layout;
+	}
+	
+	/**
+	 * @return True while the totals are being built in batches, the totals 
+	 * are partial until the state is marked as built.
+	 */
+	public boolean isBuilding() {
+		return building;
+	}
+	
+	public void setBuilding(boolean building) {
+		this.building = building;
+	}
+	
+	/**
+	 * @return True if the totals have been built completely in the current
+	 * {@link #LAYOUT}.
+	 */
+	public boolean isBuilt() {
+		return layout == LAYOUT && !building;
+	}
+	
+	public Date getBuildTime() {
+		return buildTime;
+	}
+	
+	public void setBuildTime(Date buildTime) {
+		this.buildTime = buildTime;
+	}
+}
@@ -0,0 +1,91 @@
+package eu.vranckaert.worktime.model.report;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * The time registered by one user on one task during one day in the time
+ * zone of a report. The report days are added up from the quarters of an hour
+ * of the {@link DailyTotal}s when a report is requested, they are not stored.
+ * Like a {@link DailyTotal} a day is midnight UTC of the same date.
+ */
+public class ReportDay {
+	private final Date day;
+	private final String taskSyncKey;
+	private long duration;
+	private int timeRegistrations;
+	
+	public ReportDay(Date day, String taskSyncKey) {
+		this.day = day;
+		this.taskSyncKey = taskSyncKey;
+	}
+	
+	public Date getDay() {
+		return day;
+	}
+	
+	public String getTaskSyncKey() {
+		return taskSyncKey;
+	}
+	
+	/**
+	 * @return The registered time in milliseconds.
+	 */
+	public long getDuration() {
+		return duration;
+	}
+	
+	/**
+	 * @return The number of time registrations that started on this day.
+	 */
+	public int getTimeRegistrations() {
+		return timeRegistrations;
+	}
+	
+	/**
+	 * Adds up the quarters of an hour of the daily totals into the days of a
+	 * time zone. A quarter never runs over midnight in any time zone, the
+	 * offset of the time zone at the start of the quarter decides the day.
+	 * @param dailyTotals The daily totals in UTC.
+	 * @param timeZone The time zone in which the days start.
+	 * @return The days per task in the time zone, days without registered
+	 * time or time registrations are left out.
+	 */
+	public static List<ReportDay> inTimeZone(Collection<DailyTotal> dailyTotals, TimeZone timeZone) {
+		Map<String, ReportDay> days = new LinkedHashMap<String, ReportDay>();
+		for (DailyTotal dailyTotal : dailyTotals) {
+			long dayStart = dailyTotal.getDay().getTime();
+			for (int quarter = 0; quarter < DailyTotal.QUARTERS_PER_DAY; quarter++) {
+				long duration = dailyTotal.getDuration(quarter);
+				int timeRegistrations = dailyTotal.getTimeRegistrations(quarter);
+				if (duration == 0L && timeRegistrations == 0) {
+					continue;
+				}
+				
+				long time = dayStart + quarter * DailyTotal.QUARTER_MILLIS;
+				Date day = new Date(DailyTotal.getDay(time + timeZone.getOffset(time)));
+				String id = DailyTotal.getId(day, dailyTotal.getTaskSyncKey());
+				ReportDay reportDay = days.get(id);
+				if (reportDay == null) {
+					reportDay = new ReportDay(day, dailyTotal.getTaskSyncKey());
+					days.put(id, reportDay);
+				}
+				reportDay.duration += duration;
+				reportDay.timeRegistrations += timeRegistrations;
+			}
+		}
+		
+		List<ReportDay> result = new ArrayList<ReportDay>();
+		for (ReportDay day : days.values()) {
+			if (day.duration != 0L || day.timeRegistrations != 0) {
+				result.add(day);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,27 @@
+package eu.vranckaert.worktime.model.report;
+
+/**
+ * The ways in which the registered time can be totalled in a report.
+ */
+public enum ReportGrouping {
+	/**
+	 * One total per day, keyed as 2013-06-03.
+	 */
+	DAY,
+	/**
+	 * One total per ISO week (starting on Monday), keyed as 2013-W23.
+	 */
+	WEEK,
+	/**
+	 * One total per month, keyed as 2013-06.
+	 */
+	MONTH,
+	/**
+	 * One total per project, keyed by the sync key of the project.
+	 */
+	PROJECT,
+	/**
+	 * One total per task, keyed by the sync key of the task.
+	 */
+	TASK;
+}
@@ -0,0 +1,81 @@
+package eu.vranckaert.worktime.model.report;
+
+import java.io.Serializable;
+
+/**
+ * One total of a report, for a period (a day, week or month) or for a 
+ * project or task, depending on the {@link ReportGrouping}.
+ */
+public class ReportTotal implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	private String key;
+	private String projectName;
+	private String taskName;
+	private long duration;
+	private int timeRegistrations;
+	
+	public ReportTotal() {}
+	
+	public ReportTotal(String key) {
+		this.key = key;
+	}
+
+	/**
+	 * @return The period (2013-06-03, 2013-W23 or 2013-06) or the sync key of
+	 * the project or task.
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	public void setKey(String key) {
+		this.key = key;
+	}
+
+	/**
+	 * @return The name of the project, only when grouping by project or task.
+	 */
+	public String getProjectName() {
+		return projectName;
+	}
+
+	public void setProjectName(String projectName) {
+		this.projectName = projectName;
+	}
+
+	/**
+	 * @return The name of the task, only when grouping by task.
+	 */
+	public String getTaskName() {
+		return taskName;
+	}
+
+	public void setTaskName(String taskName) {
+		this.taskName = taskName;
+	}
+
+	/**
+	 * @return The registered time in milliseconds.
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	public void setDuration(long duration) {
+		this.duration = duration;
+	}
+
+	public int getTimeRegistrations() {
+		return timeRegistrations;
+	}
+
+	public void setTimeRegistrations(int timeRegistrations) {
+		this.timeRegistrations = timeRegistrations;
+	}
+	
+	public void add(ReportDay day) {
+		duration += day.getDuration();
+		timeRegistrations += day.getTimeRegistrations();
+	}
+}
@@ -0,0 +1,81 @@
+package eu.vranckaert.worktime.model.sync;
+
+import java.util.Date;
+
+import com.google.code.twig.annotation.Entity;
+import com.google.code.twig.annotation.Id;
+import com.google.code.twig.annotation.Store;
+
+/**
+ * A lease on the synchronisation of one user. There is at most one lock per
+ * user (the email of the user is the key) so acquiring or releasing the lock
+ * is a single keyed read and write in a transaction.
+ */
+@Entity(kind="syncLock")
+public class SyncLock {
+	@Id private String userEmail;
+	private String lockKey;
+	private Date acquiredTime;
+	private Date expirationTime;
+	/**
+	 * Only set on the lock that is returned when the lock is acquired after
+	 * the lease of another synchronisation expired, it is not stored.
+	 */
+	@Store(false) private boolean takenOver;
+	
+	public SyncLock() {}
+	
+	public SyncLock(String userEmail) {
+		this.userEmail = userEmail;
+	}
+
+	public String getUserEmail() {
+		return userEmail;
+	}
+
+	public void setUserEmail(String userEmail) {
+		this.userEmail = userEmail;
+	}
+
+	public String getLockKey() {
+		return lockKey;
+	}
+
+	public void setLockKey(String lockKey) {
+		this.lockKey = lockKey;
+	}
+
+	public Date getAcquiredTime() {
+		return acquiredTime;
+	}
+
+	public void setAcquiredTime(Date acquiredTime) {
+		this.acquiredTime = acquiredTime;
+	}
+
+	public Date getExpirationTime() {
+		return expirationTime;
+	}
+
+	public void setExpirationTime(Date expirationTime) {
+		this.expirationTime = expirationTime;
+	}
+	
+	public boolean isTakenOver() {
+		return takenOver;
+	}
+
+	public void setTakenOver(boolean takenOver) {
+		this.takenOver = takenOver;
+	}
+	
+	/**
+	 * Checks if the lock is currently held by a synchronisation.
+	 * @param now The current time.
+	 * @return True if the lock has been acquired and the lease did not yet 
+	 * expire, false if the lock is free.
+	 */
+	public boolean isHeld(Date now) {
+		return lockKey != null && expirationTime != null && expirationTime.after(now);
+	}
+}
@@ -0,0 +1,57 @@
+package eu.vranckaert.worktime.ratelimit;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.google.inject.Singleton;
+
+/**
+ * Keeps the buckets in the memory of this App Engine instance. The buckets
+ * are not shared between instances, so a client that is spread over
+ * multiple instances gets the limit once per instance. It is used where
+ * memcache is not available.
+ */
+@Singleton
+public class LocalTokenBucketStore implements TokenBucketStore {
+	/**
+	 * When this many buckets are kept the buckets that have been refilled
+	 * completely are dropped, a new bucket is full as well.
+	 */
+	static final int MAX_BUCKETS = 10000;
+
+	private final Map<String, Entry> buckets = new HashMap<String, Entry>();
+
+	@Override
+	public synchronized long take(String key, RateLimit limit, long now) {
+		Entry entry = buckets.get(key);
+		if (entry == null) {
+			if (buckets.size() >= MAX_BUCKETS) {
+				removeRefilledBuckets(now);
+			}
+			entry = new Entry(new TokenBucket(limit, now), limit);
+			buckets.put(key, entry);
+		}
+		entry.limit = limit;
+		return entry.bucket.take(limit, now);
+	}
+
+	private void removeRefilledBuckets(long now) {
+		for (Iterator<Entry> iterator = buckets.values().iterator(); iterator.hasNext();) {
+			Entry entry = iterator.next();
+			if (now - entry.bucket.getTime() >= entry.limit.getRefillMillis()) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static class Entry {
+		private final TokenBucket bucket;
+		private RateLimit limit;
+
+		private Entry(TokenBucket bucket, RateLimit limit) {
+			this.bucket = bucket;
+			this.limit = limit;
+		}
+	}
+}
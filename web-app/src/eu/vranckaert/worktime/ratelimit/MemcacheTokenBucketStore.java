@@ -0,0 +1,64 @@
+package eu.vranckaert.worktime.ratelimit;
+
+import java.util.logging.Logger;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheService.IdentifiableValue;
+import com.google.appengine.api.memcache.MemcacheService.SetPolicy;
+import com.google.appengine.api.memcache.MemcacheServiceException;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Keeps the buckets in memcache so they are shared by all App Engine
+ * instances. A bucket is updated with a compare-and-set, requests that take
+ * a token from the same bucket at the same time retry a few times. If
+ * memcache is not available or the bucket can not be updated, the token is
+ * taken from the {@link LocalTokenBucketStore} instead so the limits are
+ * still applied per instance.<br/>
+ * A bucket expires from memcache once it would have been refilled
+ * completely, a bucket that is evicted earlier starts full again.
+ */
+@Singleton
+public class MemcacheTokenBucketStore implements TokenBucketStore {
+	private static final Logger log = Logger.getLogger(MemcacheTokenBucketStore.class.getName());
+
+	private static final String CACHE_NAMESPACE = "rateLimit";
+	/**
+	 * The number of times the update of a bucket is tried.
+	 */
+	private static final int MAX_ATTEMPTS = 3;
+
+	@Inject private LocalTokenBucketStore localStore;
+
+	private final MemcacheService cache = MemcacheServiceFactory.getMemcacheService(CACHE_NAMESPACE);
+
+	@Override
+	public long take(String key, RateLimit limit, long now) {
+		Expiration expiration = Expiration.byDeltaSeconds((int) (limit.getRefillMillis() / 1000L) + 1);
+		try {
+			for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+				IdentifiableValue value = cache.getIdentifiable(key);
+				TokenBucket bucket = value == null ? null : (TokenBucket) value.getValue();
+				if (bucket == null) {
+					bucket = new TokenBucket(limit, now);
+					long wait = bucket.take(limit, now);
+					if (cache.put(key, bucket, expiration, SetPolicy.ADD_ONLY_IF_NOT_PRESENT)) {
+						return wait;
+					}
+				} else {
+					long wait = bucket.take(limit, now);
+					if (wait > 0L || cache.putIfUntouched(key, value, bucket, expiration)) {
+						return wait;
+					}
+				}
+			}
+			log.warning("Could not update rate limit bucket " + key + " in memcache, the local bucket is used");
+		} catch (MemcacheServiceException e) {
+			log.warning("Memcache is not available for rate limit bucket " + key + ", the local bucket is used: " + e.getMessage());
+		}
+		return localStore.take(key, limit, now);
+	}
+}
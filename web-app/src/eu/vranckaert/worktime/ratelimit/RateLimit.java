@@ -0,0 +1,68 @@
+package eu.vranckaert.worktime.ratelimit;
+
+/**
+ * The size and refill rate of a {@link TokenBucket}. A bucket holds at most
+ * {@link #getCapacity()} tokens, every request takes one and the bucket is
+ * refilled with {@link #getTokensPerMinute()} tokens per minute. The capacity
+ * is the burst a client can make after being idle for a while, the refill
+ * rate is the sustained number of requests per minute.
+ */
+public class RateLimit {
+	private final int capacity;
+	private final int tokensPerMinute;
+
+	public RateLimit(int capacity, int tokensPerMinute) {
+		if (capacity < 1 || tokensPerMinute < 1) {
+			throw new IllegalArgumentException("The capacity and the tokens per minute of a rate limit must be at least 1");
+		}
+		this.capacity = capacity;
+		this.tokensPerMinute = tokensPerMinute;
+	}
+
+	/**
+	 * Parses a rate limit written as <i>capacity/tokensPerMinute</i>, for
+	 * example <i>10/5</i>.
+	 * @param value The rate limit.
+	 * @return The rate limit.
+	 * @throws IllegalArgumentException If the value is not a valid rate limit.
+	 */
+	public static RateLimit parse(String value) {
+		String[] parts = value == null ? new String[0] : value.trim().split("/");
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Rate limit " + value + " is not of the form capacity/tokensPerMinute");
+		}
+		try {
+			return new RateLimit(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Rate limit " + value + " is not of the form capacity/tokensPerMinute");
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getTokensPerMinute() {
+		return tokensPerMinute;
+	}
+
+	/**
+	 * @return The number of tokens added to the bucket per millisecond.
+	 */
+	public double getTokensPerMilli() {
+		return tokensPerMinute / (60d * 1000d);
+	}
+
+	/**
+	 * @return The time it takes to refill an empty bucket, in milliseconds.
+	 * After this time an unused bucket is the same as a new one.
+	 */
+	public long getRefillMillis() {
+		return (long) Math.ceil(capacity / getTokensPerMilli());
+	}
+
+	@Override
+	public String toString() {
+		return capacity + "/" + tokensPerMinute;
+	}
+}
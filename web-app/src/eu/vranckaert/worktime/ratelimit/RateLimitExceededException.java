@@ -0,0 +1,27 @@
+package eu.vranckaert.worktime.ratelimit;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+/**
+ * Thrown when a request exceeds a rate limit. Jersey answers it with status
+ * 429 (Too Many Requests) and a Retry-After header with the number of
+ * seconds the client should wait, whatever the endpoint would have returned
+ * otherwise.
+ */
+public class RateLimitExceededException extends WebApplicationException {
+	private static final long serialVersionUID = 1L;
+
+	public static final int STATUS_TOO_MANY_REQUESTS = 429;
+
+	private final int retryAfterSeconds;
+
+	public RateLimitExceededException(int retryAfterSeconds) {
+		super(Response.status(STATUS_TOO_MANY_REQUESTS).header("Retry-After", String.valueOf(retryAfterSeconds)).build());
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public int getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
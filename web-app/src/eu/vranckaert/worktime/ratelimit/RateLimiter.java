@@ -0,0 +1,77 @@
+package eu.vranckaert.worktime.ratelimit;
+
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+import eu.vranckaert.worktime.ratelimit.RateLimits.Scope;
+
+/**
+ * Applies the {@link RateLimits} to the REST requests. Every endpoint has a
+ * token bucket per service key and client address and a token bucket per 
+ * user email, a request
+ * takes a token from the buckets it is checked against. The endpoint is
+ * taken from the path of the current request, for example <i>user/login</i>.
+ * The buckets are kept in the {@link TokenBucketStore}.
+ */
+@Singleton
+public class RateLimiter {
+	private static final Logger log = Logger.getLogger(RateLimiter.class.getName());
+
+	@Inject private RateLimits rateLimits;
+
+	@Inject private TokenBucketStore store;
+
+	@Inject private Provider<HttpServletRequest> requestProvider;
+
+	/**
+	 * Takes a token from the bucket of a service key and the address of the
+	 * client for the current endpoint. Only call this for a service key that
+	 * is allowed, a bucket must not be created for every key a client makes
+	 * up. Nothing is checked for a blank service key.
+	 * @param serviceKey The service key of the request.
+	 * @throws RateLimitExceededException If the bucket is empty.
+	 */
+	public void checkService(String serviceKey) throws RateLimitExceededException {
+		if (StringUtils.isNotBlank(serviceKey)) {
+			check(Scope.SERVICE, serviceKey + ":" + requestProvider.get().getRemoteAddr());
+		}
+	}
+
+	/**
+	 * Takes a token from the bucket of a user for the current endpoint. The
+	 * user does not need to exist, so guessing passwords or sending mails to
+	 * any email address is limited as well. Nothing is checked for a blank
+	 * email.
+	 * @param email The email of the user.
+	 * @throws RateLimitExceededException If the bucket is empty.
+	 */
+	public void checkUser(String email) throws RateLimitExceededException {
+		if (StringUtils.isNotBlank(email)) {
+			check(Scope.USER, email.trim().toLowerCase());
+		}
+	}
+
+	private void check(Scope scope, String id) {
+		String endpoint = getEndpoint();
+		RateLimit limit = rateLimits.getLimit(scope, endpoint);
+		long wait = store.take(scope.getName() + ":" + endpoint + ":" + id, limit, System.currentTimeMillis());
+		if (wait > 0L) {
+			int retryAfterSeconds = (int) Math.max(1L, (wait + 999L) / 1000L);
+			log.info("Rate limit " + limit + " of " + scope.getName() + " " + id + " on " + endpoint + " is exceeded, retry after " + retryAfterSeconds + " seconds");
+			throw new RateLimitExceededException(retryAfterSeconds);
+		}
+	}
+
+	private String getEndpoint() {
+		HttpServletRequest request = requestProvider.get();
+		String path = request.getPathInfo() != null ? request.getPathInfo() : request.getRequestURI();
+		return StringUtils.strip(path, "/");
+	}
+}
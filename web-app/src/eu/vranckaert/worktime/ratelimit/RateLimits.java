@@ -0,0 +1,108 @@
+package eu.vranckaert.worktime.ratelimit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+import com.google.inject.Singleton;
+
+/**
+ * The configuration of the rate limits. There is a limit per service key and
+ * client address and a limit per user, both can be set for every endpoint separately. The
+ * limits are read from the system properties (set in appengine-web.xml)
+ * named <i>worktime.rateLimit.service.&lt;endpoint&gt;</i> and
+ * <i>worktime.rateLimit.user.&lt;endpoint&gt;</i>, for example
+ * <i>worktime.rateLimit.user.user/login</i>. An endpoint without a property
+ * of it's own gets the limit of <i>worktime.rateLimit.service</i> or
+ * <i>worktime.rateLimit.user</i>. The values are written as
+ * <i>capacity/tokensPerMinute</i> (see {@link RateLimit#parse(String)}).
+ * When no property is set the defaults of this class apply.
+ */
+@Singleton
+public class RateLimits {
+	private static final Logger log = Logger.getLogger(RateLimits.class.getName());
+
+	public enum Scope {
+		/**
+		 * The requests made with one service key from one client address. The
+		 * service key is compiled into the apps, so it is the same for all of
+		 * their users and only limits a single client that floods an
+		 * endpoint, the limits per user keep the users apart.
+		 */
+		SERVICE("service", new RateLimit(600, 300)),
+		/**
+		 * The requests made for one user email.
+		 */
+		USER("user", new RateLimit(60, 30));
+
+		private final String name;
+		private final RateLimit defaultLimit;
+
+		private Scope(String name, RateLimit defaultLimit) {
+			this.name = name;
+			this.defaultLimit = defaultLimit;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	public static final String PROPERTY_PREFIX = "worktime.rateLimit.";
+
+	/**
+	 * The default limits of the endpoints that are more expensive than
+	 * others or that are abused more easily: logging in hashes the password,
+	 * registering and requesting a password reset send a mail.
+	 */
+	private static final Map<String, RateLimit> DEFAULT_USER_LIMITS = new HashMap<String, RateLimit>();
+	static {
+		DEFAULT_USER_LIMITS.put("user/login", new RateLimit(10, 5));
+		DEFAULT_USER_LIMITS.put("user/register", new RateLimit(3, 1));
+		DEFAULT_USER_LIMITS.put("user/resetPasswordRequest", new RateLimit(3, 1));
+	}
+
+	private final ConcurrentMap<String, RateLimit> limits = new ConcurrentHashMap<String, RateLimit>();
+
+	/**
+	 * @param scope The scope of the limit.
+	 * @param endpoint The endpoint, for example <i>user/login</i>.
+	 * @return The rate limit of the endpoint in the scope.
+	 */
+	public RateLimit getLimit(Scope scope, String endpoint) {
+		String key = scope.getName() + "." + endpoint;
+		RateLimit limit = limits.get(key);
+		if (limit == null) {
+			limit = readLimit(scope, endpoint);
+			limits.putIfAbsent(key, limit);
+		}
+		return limit;
+	}
+
+	private RateLimit readLimit(Scope scope, String endpoint) {
+		RateLimit limit = readProperty(PROPERTY_PREFIX + scope.getName() + "." + endpoint);
+		if (limit != null) {
+			return limit;
+		}
+		if (scope == Scope.USER && DEFAULT_USER_LIMITS.containsKey(endpoint)) {
+			return DEFAULT_USER_LIMITS.get(endpoint);
+		}
+		limit = readProperty(PROPERTY_PREFIX + scope.getName());
+		return limit != null ? limit : scope.defaultLimit;
+	}
+
+	private RateLimit readProperty(String property) {
+		String value = System.getProperty(property);
+		if (value == null) {
+			return null;
+		}
+		try {
+			return RateLimit.parse(value);
+		} catch (IllegalArgumentException e) {
+			log.warning("Ignoring system property " + property + ": " + e.getMessage());
+			return null;
+		}
+	}
+}
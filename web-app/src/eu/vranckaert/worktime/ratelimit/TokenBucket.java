@@ -0,0 +1,54 @@
+package eu.vranckaert.worktime.ratelimit;
+
+import java.io.Serializable;
+
+/**
+ * The state of one token bucket: the tokens left and the time they were
+ * counted. The bucket is refilled lazily, when a token is taken the tokens
+ * that were added since the last time are added first. The bucket does not
+ * know it's {@link RateLimit}, so it can be stored in memcache as is.
+ */
+public class TokenBucket implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private double tokens;
+	private long time;
+
+	/**
+	 * Creates a full bucket.
+	 * @param limit The rate limit of the bucket.
+	 * @param now The current time.
+	 */
+	public TokenBucket(RateLimit limit, long now) {
+		this.tokens = limit.getCapacity();
+		this.time = now;
+	}
+
+	/**
+	 * Takes one token from the bucket.
+	 * @param limit The rate limit of the bucket.
+	 * @param now The current time.
+	 * @return Zero if a token has been taken, otherwise the number of
+	 * milliseconds until the next token is available.
+	 */
+	public long take(RateLimit limit, long now) {
+		if (now > time) {
+			tokens = Math.min(limit.getCapacity(), tokens + (now - time) * limit.getTokensPerMilli());
+			time = now;
+		}
+
+		if (tokens >= 1d) {
+			tokens -= 1d;
+			return 0L;
+		}
+		return Math.max(1L, (long) Math.ceil((1d - tokens) / limit.getTokensPerMilli()));
+	}
+
+	public double getTokens() {
+		return tokens;
+	}
+
+	public long getTime() {
+		return time;
+	}
+}
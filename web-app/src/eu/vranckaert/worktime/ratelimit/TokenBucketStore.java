@@ -0,0 +1,17 @@
+package eu.vranckaert.worktime.ratelimit;
+
+/**
+ * Keeps the {@link TokenBucket}s of the {@link RateLimiter}.
+ */
+public interface TokenBucketStore {
+	/**
+	 * Takes one token from a bucket, a bucket that does not exist yet is
+	 * created full.
+	 * @param key The key of the bucket.
+	 * @param limit The rate limit of the bucket.
+	 * @param now The current time.
+	 * @return Zero if a token has been taken, otherwise the number of
+	 * milliseconds until the next token is available.
+	 */
+	long take(String key, RateLimit limit, long now);
+}
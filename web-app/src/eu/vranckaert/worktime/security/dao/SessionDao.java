@@ -1,10 +1,25 @@
 package eu.vranckaert.worktime.security.dao;
 
+import java.util.Date;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.QueryResultIterator;
+
 import eu.vranckaert.worktime.dao.BaseDao;
 import eu.vranckaert.worktime.model.Session;
 import eu.vranckaert.worktime.model.User;
 
 public interface SessionDao extends BaseDao<Session> {
+	/**
+	 * Loads a {@link Session} of a user by it's key. If the session is not 
+	 * found the sessions of the user that are still stored in one of the old
+	 * layouts are migrated first.
+	 * @param user The user.
+	 * @param sessionKey The session key.
+	 * @return The session or null if the user has no session with this key.
+	 */
+	Session loadSession(User user, String sessionKey);
+	
 	/**
 	 * Removes all the sessions for a specific user. Meaning that the user will
 	 * be logged out on all platforms/browsers/apps/...
@@ -19,4 +34,26 @@ public interface SessionDao extends BaseDao<Session> {
 	 * @param sessionKey The session key.
 	 */
 	void removeSession(User user, String sessionKey);
+	
+	/**
+	 * Finds the sessions of all users that have expired.
+	 * @param expiredBefore The sessions that expired before this time are 
+	 * returned.
+	 * @param cursor The cursor of the previous batch, null for the first 
+	 * batch.
+	 * @param batchSize The maximum number of sessions returned.
+	 * @return An iterator over the sessions, that has the cursor for the next
+	 * batch when it is iterated completely.
+	 */
+	QueryResultIterator<Session> findExpired(Date expiredBefore, Cursor cursor, int batchSize);
+	
+	/**
+	 * Migrates a batch of sessions stored in one of the old layouts, as
+	 * children of the user, to root sessions keyed by their session key. 
+	 * Sessions of the old layouts that have expired are removed instead.
+	 * @param batchSize The maximum number of sessions to migrate.
+	 * @return The number of sessions of the old layouts that have been 
+	 * migrated or removed.
+	 */
+	int migrateLegacySessions(int batchSize);
 }
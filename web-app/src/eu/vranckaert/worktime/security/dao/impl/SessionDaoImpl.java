@@ -1,12 +1,24 @@
 package eu.vranckaert.worktime.security.dao.impl;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query;
 import com.google.appengine.api.datastore.Query.FilterOperator;
-import com.google.common.collect.Lists;
+import com.google.appengine.api.datastore.QueryResultIterator;
+import com.google.code.twig.FindCommand.RootFindCommand;
 
 import eu.vranckaert.worktime.dao.impl.BaseDaoImpl;
 import eu.vranckaert.worktime.model.Session;
+import eu.vranckaert.worktime.model.Session.Platform;
 import eu.vranckaert.worktime.model.User;
 import eu.vranckaert.worktime.security.dao.SessionDao;
 
@@ -14,41 +26,158 @@ public class SessionDaoImpl extends BaseDaoImpl<Session> implements SessionDao {
 	public SessionDaoImpl() {
 		super(Session.class);
 	}
-
+	
+	@Override
+	public Session loadSession(User user, String sessionKey) {
+		Session session = findById(sessionKey);
+		if (session == null && migrateLegacySessions(user) > 0) {
+			session = findById(sessionKey);
+		}
+		if (session == null || !user.getEmail().equals(session.getEmail())) {
+			return null;
+		}
+		return session;
+	}
+	
 	@Override
 	public void removeAllSessions(User user) {
-		if (user.getSessions() != null) {
-			for (Session session : user.getSessions()) {
-				List<Session> sessionKeys = getDataStore().find().type(Session.class).addFilter("sessionKey", FilterOperator.EQUAL, session.getSessionKey()).returnAll().now();
-				for (Session sessionKey : sessionKeys) {
-					if (sessionKey.equals(session)) {
-						remove(sessionKey);
-					}
-				}
-			}
+		// The query on the email is eventually consistent, a session created
+		// just before can still be missed
+		List<Session> sessions = getDataStore().find().type(Session.class).addFilter("email", FilterOperator.EQUAL, user.getEmail()).returnAll().now();
+		removeAll(sessions);
+		
+		// Otherwise they would be migrated by the next lookup
+		List<Key> legacyKeys = new ArrayList<Key>();
+		for (Entity entity : findLegacySessions(user, true)) {
+			legacyKeys.add(entity.getKey());
+		}
+		if (!legacyKeys.isEmpty()) {
+			getDataStore().deleteKeys(legacyKeys);
 		}
 	}
-
+	
 	@Override
 	public void removeSession(User user, String sessionKey) {
-		Session userSession = null;
-		if (user.getSessions() != null) {
-			for (Session session : user.getSessions()) {
-				if (session.getSessionKey().equals(sessionKey)) {
-					userSession = session;
-					break;
+		Session session = loadSession(user, sessionKey);
+		if (session != null) {
+			remove(session);
+		}
+	}
+	
+	@Override
+	public QueryResultIterator<Session> findExpired(Date expiredBefore, Cursor cursor, int batchSize) {
+		// Sessions that never expire have no expiration time, null is sorted
+		// before all dates so it is excluded with a lower bound
+		RootFindCommand<Session> command = getDataStore().find().type(Session.class)
+				.addFilter("expirationTime", FilterOperator.GREATER_THAN, new Date(0L))
+				.addFilter("expirationTime", FilterOperator.LESS_THAN, expiredBefore)
+				.fetchMaximum(batchSize);
+		if (cursor != null) {
+			command = command.continueFrom(cursor);
+		}
+		return command.now();
+	}
+	
+	@Override
+	public int migrateLegacySessions(int batchSize) {
+		List<Entity> legacySessions = new ArrayList<Entity>();
+		for (String kind : Session.LEGACY_KINDS) {
+			if (legacySessions.size() == batchSize) {
+				break;
+			}
+			Query query = new Query(kind);
+			for (Entity entity : getDataStore().getDefaultService().prepare(query).asIterable(FetchOptions.Builder.withLimit(batchSize - legacySessions.size()))) {
+				legacySessions.add(entity);
+			}
+		}
+		migrate(legacySessions);
+		return legacySessions.size();
+	}
+	
+	/**
+	 * Migrates the sessions of a user that are still stored in one of the old
+	 * layouts. They are all in the entity group of the user so they are found
+	 * with an ancestor query per kind.
+	 * @return The number of sessions of the old layouts that have been
+	 * migrated or removed.
+	 */
+	private int migrateLegacySessions(User user) {
+		List<Entity> legacySessions = findLegacySessions(user, false);
+		migrate(legacySessions);
+		return legacySessions.size();
+	}
+	
+	private List<Entity> findLegacySessions(User user, boolean keysOnly) {
+		Key userKey = getDataStore().associatedKey(user);
+		List<Entity> legacySessions = new ArrayList<Entity>();
+		for (String kind : Session.LEGACY_KINDS) {
+			Query query = new Query(kind, userKey);
+			if (keysOnly) {
+				query.setKeysOnly();
+			}
+			legacySessions.addAll(getDataStore().getDefaultService().prepare(query).asList(FetchOptions.Builder.withDefaults()));
+		}
+		return legacySessions;
+	}
+	
+	/**
+	 * Stores the sessions of the old layouts as root entities keyed by their
+	 * session key, with the email of the user (the name of the parent key),
+	 * and removes them from the old layouts. The properties that are not
+	 * queried are copied as they are. Sessions without a session key or that
+	 * have expired are only removed. A session that already has been migrated
+	 * by an interrupted run is not overwritten, it could have been used since.
+	 */
+	private void migrate(List<Entity> legacySessions) {
+		if (legacySessions.isEmpty()) {
+			return;
+		}
+		
+		List<Entity> sessions = new ArrayList<Entity>();
+		List<Key> legacyKeys = new ArrayList<Key>();
+		for (Entity legacySession : legacySessions) {
+			legacyKeys.add(legacySession.getKey());
+			
+			// Only the oldest layout has the session key as a property
+			String sessionKey = legacySession.getKey().getName();
+			if (sessionKey == null) {
+				sessionKey = (String) legacySession.getProperty("sessionKey");
+			}
+			if (StringUtils.isBlank(sessionKey)) {
+				continue;
+			}
+			String platformName = (String) legacySession.getProperty("platform");
+			Platform platform = platformName != null ? Platform.valueOf(platformName) : Platform.OTHER;
+			Date expirationTime = Session.calculateExpirationTime(platform, (Date) legacySession.getProperty("creationDate"), (Date) legacySession.getProperty("lastTimeUsed"));
+			if (expirationTime != null && expirationTime.before(new Date())) {
+				continue;
+			}
+			
+			Entity session = new Entity(Session.KIND, sessionKey);
+			for (Map.Entry<String, Object> property : legacySession.getProperties().entrySet()) {
+				if (!"sessionKey".equals(property.getKey())) {
+					session.setUnindexedProperty(property.getKey(), property.getValue());
 				}
 			}
+			session.setProperty("email", legacySession.getKey().getParent().getName());
+			session.setProperty("expirationTime", expirationTime);
+			sessions.add(session);
 		}
 		
-		if (userSession != null) {
-			List<Session> sessionKeys = Lists.newArrayList(getDataStore().find().type(Session.class).addFilter("sessionKey", FilterOperator.EQUAL, userSession.getSessionKey()).returnAll().now());
-			for (Session s : sessionKeys) {
-				if (s.equals(userSession)) {
-					remove(s);
-					break;
+		if (!sessions.isEmpty()) {
+			List<Key> keys = new ArrayList<Key>();
+			for (Entity session : sessions) {
+				keys.add(session.getKey());
+			}
+			Map<Key, Entity> migrated = getDataStore().getDefaultService().get(keys);
+			List<Entity> toMigrate = new ArrayList<Entity>();
+			for (Entity session : sessions) {
+				if (!migrated.containsKey(session.getKey())) {
+					toMigrate.add(session);
 				}
 			}
+			getDataStore().getDefaultService().put(toMigrate);
 		}
+		getDataStore().deleteKeys(legacyKeys);
 	}
 }
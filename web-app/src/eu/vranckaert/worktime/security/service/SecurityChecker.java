@@ -2,23 +2,29 @@ package eu.vranckaert.worktime.security.service;
 
 import eu.vranckaert.worktime.json.base.request.AuthenticatedUserRequest;
 import eu.vranckaert.worktime.json.base.request.RegisteredServiceRequest;
+import eu.vranckaert.worktime.ratelimit.RateLimitExceededException;
 import eu.vranckaert.worktime.security.exception.ServiceNotAllowedException;
 import eu.vranckaert.worktime.security.exception.UserNotAdminException;
 import eu.vranckaert.worktime.security.exception.UserNotLoggedInException;
 
 public interface SecurityChecker {
 	/**
-	 * Checks if a service is allowed to access the application data.
+	 * Checks if a service is allowed to access the application data. If it 
+	 * is, the request also counts for the rate limit of the service key and
+	 * the client address.
 	 * @param request The request containing the service key that is requesting
 	 * access.
 	 * @throws ServiceNotAllowedException Thrown if access is not allowed.
+	 * @throws RateLimitExceededException Thrown if the client made too many
+	 * requests to the endpoint with the service key.
 	 */
 	void checkService(RegisteredServiceRequest request) throws ServiceNotAllowedException;
 	
 	/**
 	 * Checks if the provided user is logged in. This method also checks for the
 	 * service to be allowed. If the user is logged in the session-usage count
-	 * is increased with one.
+	 * is increased with one. The request also counts for the rate limits of
+	 * the service key and the user.
 	 * @param request The request containing the email and the session key of
 	 * the user. It also contains the the service-key of the service that wants
 	 * access.
@@ -27,6 +33,8 @@ public interface SecurityChecker {
 	 * @throws UserNotLoggedInException Thrown if the user is not logged in
 	 * (means that email is not found, the session key is not found or the
 	 * provided session key does not match with the user).
+	 * @throws RateLimitExceededException Thrown if the client or the user 
+	 * made too many requests to the endpoint.
 	 */
 	void checkUserLoggedIn(AuthenticatedUserRequest request) throws ServiceNotAllowedException, UserNotLoggedInException;
 	
@@ -135,6 +135,17 @@ public interface UserService {
 	 * @return The date and time the user logged in with this key.
 	 */
 	Date getLogInTime(User user, String sessionKey);
+	
+	/**
+	 * The version of the profile of a user, changes each time one of the 
+	 * profile fields of the user (including the last login date) changes. The
+	 * version is kept in memcache, so it can be checked without loading the 
+	 * user.
+	 * @param email The email to identify the user.
+	 * @return The version or null if it cannot be determined, in which case 
+	 * nothing should be cached based on the version.
+	 */
+	Long getProfileVersion(String email);
 
 	/**
 	 * Logs the specified user out for the specified session.
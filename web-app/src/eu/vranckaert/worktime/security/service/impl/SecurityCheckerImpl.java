@@ -8,6 +8,7 @@ import eu.vranckaert.worktime.json.base.request.AuthenticatedUserRequest;
 import eu.vranckaert.worktime.json.base.request.RegisteredServiceRequest;
 import eu.vranckaert.worktime.model.Role;
 import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.ratelimit.RateLimiter;
 import eu.vranckaert.worktime.security.exception.ServiceNotAllowedException;
 import eu.vranckaert.worktime.security.exception.UserNotAdminException;
 import eu.vranckaert.worktime.security.exception.UserNotLoggedInException;
@@ -18,11 +19,14 @@ import eu.vranckaert.worktime.security.service.UserService;
 public class SecurityCheckerImpl implements SecurityChecker {
 	@Inject ServiceService serviceService;
 	@Inject UserService userService;
+	@Inject RateLimiter rateLimiter;
 	
 	public void checkService(RegisteredServiceRequest request) throws ServiceNotAllowedException {
 		if (!serviceService.isServiceAllowed(request.getServiceKey())) {
 			throw new ServiceNotAllowedException();
 		}
+		
+		rateLimiter.checkService(request.getServiceKey());
 	}
 	
 	public void checkUserLoggedIn(AuthenticatedUserRequest request) throws ServiceNotAllowedException, UserNotLoggedInException {
@@ -34,9 +38,13 @@ public class SecurityCheckerImpl implements SecurityChecker {
 		
 		if (!userService.isLoggedIn(request.getEmail(), request.getSessionKey())) {
 			throw new UserNotLoggedInException();
-		} else {
-			userService.markSessionUsed(request.getEmail(), request.getSessionKey());
 		}
+		
+		// Only requests with a valid session are charged to the user, so 
+		// nobody can empty the bucket of another user with invalid sessions 
+		// (those are limited per service key and client address)
+		rateLimiter.checkUser(request.getEmail());
+		userService.markSessionUsed(request.getEmail(), request.getSessionKey());
 	}
 	
 	public void checkUserIsAdmin(AuthenticatedUserRequest request) throws ServiceNotAllowedException, UserNotLoggedInException, UserNotAdminException {
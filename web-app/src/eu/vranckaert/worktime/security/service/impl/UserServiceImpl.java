@@ -20,10 +20,15 @@ import javax.mail.internet.MimeMultipart;
 import org.apache.commons.lang3.StringUtils;
 
 import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheService.SetPolicy;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
 import com.google.code.twig.ObjectDatastore;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 
+import eu.vranckaert.worktime.mail.MailQueue;
+import eu.vranckaert.worktime.mail.OutboundMail;
 import eu.vranckaert.worktime.model.PasswordResetRequest;
 import eu.vranckaert.worktime.model.Role;
 import eu.vranckaert.worktime.model.Session;
@@ -42,11 +47,12 @@ import eu.vranckaert.worktime.security.exception.UserNotFoundException;
 import eu.vranckaert.worktime.security.service.UserService;
 import eu.vranckaert.worktime.security.utils.KeyGenerator;
 import eu.vranckaert.worktime.security.utils.Password;
-import eu.vranckaert.worktime.util.EmailUtil;
 
 public class UserServiceImpl implements UserService {
 	private static final Logger log = Logger.getLogger(UserService.class.getName());
 	
+	private static final String CACHE_NAMESPACE = "profile";
+	
 	@Inject
 	private UserDao userDao;
 	@Inject
@@ -55,6 +61,10 @@ public class UserServiceImpl implements UserService {
 	private PasswordResetRequestDao passwordResetRequestDao;
 	@Inject
 	private Provider<ObjectDatastore> datastores;
+	@Inject
+	private MailQueue mailQueue;
+	
+	private final MemcacheService cache = MemcacheServiceFactory.getMemcacheService(CACHE_NAMESPACE);
 
 	@Override
 	public String register(User user, String password, Platform platform) throws EmailAlreadyInUseException, PasswordLenghtInvalidException {
@@ -70,10 +80,6 @@ public class UserServiceImpl implements UserService {
 		// Hash password
 		user.setPasswordHash(Password.getSaltedHash(password));
 		
-		// Generate a session key (for immediate login)
-		String sessionKey = KeyGenerator.getNewKey();
-		user.addSessionKey(sessionKey, platform);
-		
 		// Set date fields
 		user.setRegistrationDate(new Date());
 		user.setLastLoginDate(new Date());
@@ -81,6 +87,10 @@ public class UserServiceImpl implements UserService {
 		// Persist user
 		userDao.persist(user);
 		
+		// Generate a session key (for immediate login)
+		String sessionKey = KeyGenerator.getNewKey();
+		sessionDao.persist(new Session(sessionKey, user, platform));
+		
 		return sessionKey;
 	}
 
@@ -102,12 +112,13 @@ public class UserServiceImpl implements UserService {
 			throw new PasswordIncorrectException();
 		} else {
 			String sessionKey = KeyGenerator.getNewKey();
-			user.addSessionKey(sessionKey, platform);
+			sessionDao.persist(new Session(sessionKey, user, platform));
 			
 			// Update last login date
 			user.setLastLoginDate(new Date());
 			
 			userDao.update(user);
+			invalidateProfile(email);
 			
 			return sessionKey;
 		}
@@ -132,9 +143,8 @@ public class UserServiceImpl implements UserService {
 			String sessionKey = KeyGenerator.getNewKey();
 			
 			sessionDao.removeAllSessions(user);
-			user.getSessions().clear();
+			sessionDao.persist(new Session(sessionKey, user, platform));
 			
-			user.addSessionKey(sessionKey, platform);
 			userDao.update(user);
 			
 			return sessionKey;
@@ -156,19 +166,10 @@ public class UserServiceImpl implements UserService {
 			return false;
 		}
 		
-		Session session = null;
-		if (user.getSessions() != null) {
-			for (Session userSession : user.getSessions()) {
-				if (userSession.getSessionKey().equals(sessionKey)) {
-					session = userSession;
-					break;
-				}
-			}
-		}
-		
+		Session session = sessionDao.loadSession(user, sessionKey);
 		if (session != null) {
 			if (session.isExpired()) {
-				logout(email,  sessionKey);
+				sessionDao.remove(session);
 				return false;
 			}
 			
@@ -183,18 +184,9 @@ public class UserServiceImpl implements UserService {
 		User user = userDao.findById(email);
 		if (user == null)
 			return;
-		Session session = null;
-		if (user.getSessions() != null) {
-			for (Session userSession : user.getSessions()) {
-				if (userSession.getSessionKey().equals(sessionKey)) {
-					session = userSession;
-					break;
-				}
-			}
-		}
+		Session session = sessionDao.loadSession(user, sessionKey);
 		if (session != null) {
-			session.setTimesUsed(session.getTimesUsed() + 1);
-			session.setLastTimeUsed(new Date());
+			session.markUsed();
 			sessionDao.update(session);
 		}
 	}
@@ -216,6 +208,7 @@ public class UserServiceImpl implements UserService {
 		
 		user.setRole(newRole);
 		userDao.update(user);
+		invalidateProfile(email);
 	}
 
 	@Override
@@ -231,7 +224,7 @@ public class UserServiceImpl implements UserService {
 				String resetUrl = "https://worktime-web.appspot.com/resetPassword/" + resetRequestKey;			
 				String htmlBody = "<html><body><p>Dear WorkTime user,</p><p>You have requested a password reset for your online account.<br/>To reset your password follow this link: <a href=\"" + resetUrl + "\">" + resetUrl + "</a></p><p>If you cannot open the previous link then manually copy and paste the following url in your favorite browser:<br/>" + resetUrl + "</p><p>This password reset email is only valid for the next 24 hours. Afterwards this email will be unusable!</p>Kind Regards,<br/><br/>The WorkTime team!</body></html>";
 				
-				EmailUtil.sendEmail("WorkTime Password Reset", htmlBody, "text/html", Arrays.asList(new User[] {user}));
+				mailQueue.enqueue(new OutboundMail("WorkTime Password Reset", htmlBody, "text/html", User.getTechnicalUser(), Arrays.asList(new User[] {user})));
 			} finally {
 				if (tx != null && tx.isActive()) {
 					tx.rollback();
@@ -276,10 +269,9 @@ public class UserServiceImpl implements UserService {
 
 	@Override
 	public Date getLogInTime(User user, String sessionKey) {
-		for (Session session : user.getSessions()) {
-			if (session.getSessionKey().equals(sessionKey)) {
-				return session.getCreationDate();
-			}
+		Session session = sessionDao.loadSession(user, sessionKey);
+		if (session != null) {
+			return session.getCreationDate();
 		}
 		
 		return null;
@@ -291,8 +283,6 @@ public class UserServiceImpl implements UserService {
 		
 		if (user != null) {
 			sessionDao.removeSession(user, sessionKey);
-			user.removeSessionKey(sessionKey);
-			userDao.update(user);
 		}
 	}
 
@@ -309,5 +299,27 @@ public class UserServiceImpl implements UserService {
 		originalUser.setLastName(user.getLastName());
 		originalUser.setProfileImageUrl(user.getProfileImageUrl());
 		userDao.update(originalUser);
+		invalidateProfile(originalUser.getEmail());
+	}
+
+	@Override
+	public Long getProfileVersion(String email) {
+		String versionKey = getProfileVersionKey(email);
+		Long version = (Long) cache.get(versionKey);
+		if (version == null) {
+			// Start from the current time, so a version that has been evicted
+			// from the cache is never used again
+			cache.put(versionKey, System.currentTimeMillis(), null, SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+			version = (Long) cache.get(versionKey);
+		}
+		return version;
+	}
+	
+	private void invalidateProfile(String email) {
+		cache.increment(getProfileVersionKey(email), 1L);
+	}
+	
+	private String getProfileVersionKey(String email) {
+		return "version|" + email.toLowerCase();
 	}
 }
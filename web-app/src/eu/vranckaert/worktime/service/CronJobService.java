@@ -30,4 +30,26 @@ public interface CronJobService {
 	int countAllUsedPasswordRequestsForDay(Date time);
 
 	int countAllOpenPasswordRequests();
+
+	/**
+	 * Removes the sessions of all users that have expired, in batches. When
+	 * there are too many expired sessions to remove them within one request 
+	 * the remaining sessions are removed by the next run. The sessions that 
+	 * are still stored in one of the old layouts are migrated in batches as
+	 * well.
+	 * @return The number of sessions removed.
+	 */
+	int removeExpiredSessions();
+
+	/**
+	 * Migrates the time registrations that are still stored as children of
+	 * their task, one user at a time while holding the synchronisation lock
+	 * of the user. Users that are synchronising are skipped, their time 
+	 * registrations are migrated by the synchronisation. When there are too 
+	 * many time registrations to migrate them within one request the 
+	 * remaining ones are migrated by the next run.
+	 * @return The number of time registrations of the old layout that have
+	 * been migrated or removed.
+	 */
+	int migrateTimeRegistrations();
 }
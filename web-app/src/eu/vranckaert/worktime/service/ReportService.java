@@ -0,0 +1,75 @@
+package eu.vranckaert.worktime.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.report.DailyTotal;
+import eu.vranckaert.worktime.model.report.DailyTotalChanges;
+import eu.vranckaert.worktime.model.report.ReportGrouping;
+import eu.vranckaert.worktime.model.report.ReportTotal;
+
+/**
+ * Reports on the registered time of a user. The reports are calculated from 
+ * {@link DailyTotal}s, which are kept up to date when time registrations are
+ * synchronised, instead of from the time registrations themselves.
+ */
+public interface ReportService {
+	/**
+	 * The maximum number of days in the range of a report.
+	 */
+	int MAX_REPORT_DAYS = 731;
+	
+	/**
+	 * Applies the changes to the daily totals of a user. Should be called in 
+	 * the transaction in which the time registrations are changed, so the 
+	 * totals are only changed if the time registrations are.
+	 * @param user The user to which the changes belong.
+	 * @param changes The changes.
+	 */
+	void applyChanges(User user, DailyTotalChanges changes);
+	
+	/**
+	 * Invalidates the cached reports of a user, should be called after the
+	 * transaction in which the daily totals were changed is committed.
+	 * @param user The user.
+	 */
+	void invalidateTotals(User user);
+	
+	/**
+	 * Removes all daily totals and cached reports of a user. The totals are
+	 * built again when the next report is requested.
+	 * @param user The user.
+	 */
+	void removeTotals(User user);
+	
+	/**
+	 * The version of the totals of a user, changes each time the totals are 
+	 * invalidated.
+	 * @param user The user.
+	 * @return The version or null if it cannot be determined, in which case 
+	 * nothing should be cached based on the version.
+	 */
+	Long getTotalsVersion(User user);
+	
+	/**
+	 * Calculates the totals of the time registered by a user in a range of 
+	 * days. Days start at midnight in the time zone of the user, the daily 
+	 * totals are stored in UTC and converted to the time zone of the user. 
+	 * If the daily totals of the user have not been built yet (the time 
+	 * registrations are synchronised before the totals existed), were built
+	 * in an older layout or were not built completely, the totals are built
+	 * first.
+	 * @param user The user.
+	 * @param firstDay The first day of the range (included), as stored in a
+	 * {@link DailyTotal} (midnight UTC).
+	 * @param lastDay The last day of the range (included), as stored in a
+	 * {@link DailyTotal} (midnight UTC).
+	 * @param grouping How to group the totals.
+	 * @param timeZone The time zone of the user.
+	 * @return The totals, sorted by period or by name of the project or task.
+	 * Projects and tasks that have been removed are not part of the totals.
+	 */
+	List<ReportTotal> getTotals(User user, Date firstDay, Date lastDay, ReportGrouping grouping, TimeZone timeZone);
+}
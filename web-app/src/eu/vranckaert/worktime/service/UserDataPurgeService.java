@@ -0,0 +1,36 @@
+package eu.vranckaert.worktime.service;
+
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.purge.UserDataPurge;
+
+/**
+ * Removes all the projects, tasks, time registrations and daily totals of a 
+ * user in the background. The user itself, the sessions and the 
+ * synchronisation history are kept.
+ */
+public interface UserDataPurgeService {
+	/**
+	 * Schedules the removal of the data of a user. If a purge of the user is 
+	 * still making progress that purge is returned, a purge that stopped 
+	 * making progress is resumed and a finished purge is started over.
+	 * @param user The user for which to remove the data.
+	 * @return The scheduled purge.
+	 */
+	UserDataPurge schedulePurge(User user);
+	
+	/**
+	 * Continues the purge of a user for a limited time, in batches. The 
+	 * progress is stored after every batch. If the purge is not finished in
+	 * time a new task is queued to continue it.
+	 * @param userEmail The email of the user.
+	 * @return The purge, or null if no purge is scheduled for the user.
+	 */
+	UserDataPurge continuePurge(String userEmail);
+	
+	/**
+	 * @param userEmail The email of the user.
+	 * @return The last purge of the user or null if the data of the user has 
+	 * never been purged.
+	 */
+	UserDataPurge findPurge(String userEmail);
+}
@@ -1,28 +1,65 @@
 package eu.vranckaert.worktime.service.impl;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
 
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.QueryResultIterator;
 import com.google.inject.Inject;
 
 import eu.vranckaert.worktime.dao.ProjectDao;
 import eu.vranckaert.worktime.dao.SyncHistoryDao;
+import eu.vranckaert.worktime.dao.SyncLockDao;
 import eu.vranckaert.worktime.dao.TaskDao;
 import eu.vranckaert.worktime.dao.TimeRegistrationDao;
+import eu.vranckaert.worktime.model.Session;
 import eu.vranckaert.worktime.model.User;
 import eu.vranckaert.worktime.model.sync.SyncHistory;
+import eu.vranckaert.worktime.model.sync.SyncLock;
 import eu.vranckaert.worktime.security.dao.PasswordResetRequestDao;
+import eu.vranckaert.worktime.security.dao.SessionDao;
 import eu.vranckaert.worktime.security.dao.UserDao;
 import eu.vranckaert.worktime.service.CronJobService;
 import eu.vranckaert.worktime.util.DateUtil;
 
 public class CronJobServiceImpl implements CronJobService {
+	private static final Logger log = Logger.getLogger(CronJobService.class.getName());
+	
+	/**
+	 * The number of sessions removed at once.
+	 */
+	private static final int SESSION_BATCH_SIZE = 200;
+	/**
+	 * The time after which no new batch of sessions is started, a cron job 
+	 * can run for at most ten minutes.
+	 */
+	private static final long SESSION_SWEEP_MILLIS = 5L * 60L * 1000L;
+	/**
+	 * The number of time registrations migrated at once.
+	 */
+	private static final int MIGRATION_BATCH_SIZE = 500;
+	/**
+	 * The time after which no new batch of time registrations is migrated.
+	 */
+	private static final long MIGRATION_MILLIS = 5L * 60L * 1000L;
+	/**
+	 * The lease of the synchronisation lock of a user whose time 
+	 * registrations are migrated, longer than the migration can take.
+	 */
+	private static final long MIGRATION_LOCK_LEASE = 6L * 60L * 1000L;
+	
 	@Inject private UserDao userDao;
 	@Inject private SyncHistoryDao syncHistoryDao;
 	@Inject private TimeRegistrationDao timeRegistrationDao;
 	@Inject private ProjectDao projectDao;
 	@Inject private TaskDao taskDao;
 	@Inject private PasswordResetRequestDao passwordResetRequestDao;
+	@Inject private SessionDao sessionDao;
+	@Inject private SyncLockDao syncLockDao;
 
 	@Override
 	public List<User> findUsersRegisteredOnDay(Date date) {
@@ -82,4 +119,75 @@ public class CronJobServiceImpl implements CronJobService {
 		return passwordResetRequestDao.countAllOpenPasswordRequests();
 	}
 
+	@Override
+	public int removeExpiredSessions() {
+		long start = System.currentTimeMillis();
+		Date now = new Date();
+		int removed = 0;
+		
+		Cursor cursor = null;
+		do {
+			QueryResultIterator<Session> expiredSessions = sessionDao.findExpired(now, cursor, SESSION_BATCH_SIZE);
+			List<Session> batch = new ArrayList<Session>();
+			while (expiredSessions.hasNext()) {
+				batch.add(expiredSessions.next());
+			}
+			
+			sessionDao.removeAll(batch);
+			removed += batch.size();
+			cursor = batch.size() < SESSION_BATCH_SIZE ? null : expiredSessions.getCursor();
+		} while (cursor != null && System.currentTimeMillis() - start < SESSION_SWEEP_MILLIS);
+		
+		int legacyMigrated = 0;
+		int legacyBatch;
+		do {
+			legacyBatch = sessionDao.migrateLegacySessions(SESSION_BATCH_SIZE);
+			legacyMigrated += legacyBatch;
+		} while (legacyBatch == SESSION_BATCH_SIZE && System.currentTimeMillis() - start < SESSION_SWEEP_MILLIS);
+		if (legacyMigrated > 0) {
+			log.info(legacyMigrated + " sessions of the old layouts have been migrated or removed");
+		}
+		
+		if (cursor != null || legacyBatch == SESSION_BATCH_SIZE) {
+			log.info("Not all expired sessions could be removed, the others will be removed by the next run");
+		}
+		return removed;
+	}
+
+	@Override
+	public int migrateTimeRegistrations() {
+		long start = System.currentTimeMillis();
+		int migrated = 0;
+		
+		Set<String> visitedUsers = new HashSet<String>();
+		String email;
+		while (System.currentTimeMillis() - start < MIGRATION_MILLIS && (email = timeRegistrationDao.findUserWithLegacyTimeRegistrations()) != null) {
+			// The query is eventually consistent and users that are skipped
+			// are found again, they are left for the next run
+			if (!visitedUsers.add(email)) {
+				break;
+			}
+			
+			User user = userDao.findById(email);
+			if (user == null) {
+				log.warning("The time registrations of user " + email + " can not be migrated, the user does not exist");
+				continue;
+			}
+			SyncLock lock = syncLockDao.acquire(user, MIGRATION_LOCK_LEASE);
+			if (lock == null) {
+				log.info("User " + email + " is synchronising, the synchronisation migrates it's time registrations");
+				continue;
+			}
+			try {
+				int batch;
+				do {
+					batch = timeRegistrationDao.migrateLegacyTimeRegistrations(user, MIGRATION_BATCH_SIZE);
+					migrated += batch;
+				} while (batch == MIGRATION_BATCH_SIZE && System.currentTimeMillis() - start < MIGRATION_MILLIS);
+			} finally {
+				syncLockDao.release(user, lock.getLockKey());
+			}
+		}
+		return migrated;
+	}
 }
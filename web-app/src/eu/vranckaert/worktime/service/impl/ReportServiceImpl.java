@@ -0,0 +1,360 @@
+package eu.vranckaert.worktime.service.impl;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheService.SetPolicy;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.inject.Inject;
+
+import eu.vranckaert.worktime.dao.DailyTotalDao;
+import eu.vranckaert.worktime.dao.DailyTotalsStateDao;
+import eu.vranckaert.worktime.dao.SyncLockDao;
+import eu.vranckaert.worktime.dao.TaskDao;
+import eu.vranckaert.worktime.dao.TimeRegistrationDao;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.report.DailyTotal;
+import eu.vranckaert.worktime.model.report.DailyTotalChanges;
+import eu.vranckaert.worktime.model.report.DailyTotalsState;
+import eu.vranckaert.worktime.model.report.ReportDay;
+import eu.vranckaert.worktime.model.report.ReportGrouping;
+import eu.vranckaert.worktime.model.report.ReportTotal;
+import eu.vranckaert.worktime.model.sync.SyncLock;
+import eu.vranckaert.worktime.service.ReportService;
+
+public class ReportServiceImpl implements ReportService {
+	private static final Logger log = Logger.getLogger(ReportService.class.getName());
+	
+	private static final String CACHE_NAMESPACE = "report";
+	/**
+	 * Cached reports of older versions are never read again, they expire 
+	 * after one day.
+	 */
+	private static final int CACHE_EXPIRATION_SECONDS = 24 * 60 * 60;
+	/**
+	 * The lease of the synchronisation lock while the daily totals of a user 
+	 * are built (1 minute).
+	 */
+	private static final long BUILD_LOCK_LEASE = 60000L;
+	/**
+	 * The number of time registrations of the old layout migrated at once.
+	 */
+	private static final int MIGRATION_BATCH_SIZE = 500;
+	/**
+	 * The number of daily totals removed or stored at once while the totals
+	 * are built.
+	 */
+	private static final int BUILD_BATCH_SIZE = 500;
+	
+	@Inject private DailyTotalDao dailyTotalDao;
+	
+	@Inject private DailyTotalsStateDao dailyTotalsStateDao;
+	
+	@Inject private TaskDao taskDao;
+	
+	@Inject private TimeRegistrationDao timeRegistrationDao;
+	
+	@Inject private SyncLockDao syncLockDao;
+	
+	private final MemcacheService cache = MemcacheServiceFactory.getMemcacheService(CACHE_NAMESPACE);
+
+	@Override
+	public void applyChanges(User user, DailyTotalChanges changes) {
+		if (changes.isEmpty()) {
+			return;
+		}
+		
+		// Until the totals are built from scratch, the next time a report is
+		// requested, there are no totals to change
+		DailyTotalsState state = dailyTotalsStateDao.find(user);
+		if (state == null || !state.isBuilt()) {
+			log.info("The daily totals of user " + user.getEmail() + " have not been built yet, the changes are not applied");
+			return;
+		}
+		
+		List<DailyTotal> dailyTotals = changes.getChanges();
+		List<String> ids = new ArrayList<String>();
+		for (DailyTotal change : dailyTotals) {
+			ids.add(change.getId());
+		}
+		Map<String, DailyTotal> existingDailyTotals = dailyTotalDao.find(user, ids);
+		
+		List<DailyTotal> storedDailyTotals = new ArrayList<DailyTotal>();
+		List<DailyTotal> updatedDailyTotals = new ArrayList<DailyTotal>();
+		List<DailyTotal> removedDailyTotals = new ArrayList<DailyTotal>();
+		for (DailyTotal change : dailyTotals) {
+			DailyTotal dailyTotal = existingDailyTotals.get(change.getId());
+			if (dailyTotal == null) {
+				change.setUser(user);
+				storedDailyTotals.add(change);
+			} else {
+				dailyTotal.add(change);
+				if (dailyTotal.isEmpty()) {
+					removedDailyTotals.add(dailyTotal);
+				} else {
+					updatedDailyTotals.add(dailyTotal);
+				}
+			}
+		}
+		dailyTotalDao.persistAll(storedDailyTotals);
+		dailyTotalDao.updateAll(updatedDailyTotals);
+		dailyTotalDao.removeAll(removedDailyTotals);
+		log.info(dailyTotals.size() + " daily totals have been changed for user " + user.getEmail());
+	}
+
+	@Override
+	public void invalidateTotals(User user) {
+		cache.increment(getVersionKey(user), 1L);
+	}
+	
+	@Override
+	public void removeTotals(User user) {
+		removeDailyTotals(user);
+		DailyTotalsState state = dailyTotalsStateDao.find(user);
+		if (state != null) {
+			dailyTotalsStateDao.remove(state);
+		}
+		invalidateTotals(user);
+	}
+
+	@Override
+	public Long getTotalsVersion(User user) {
+		String versionKey = getVersionKey(user);
+		Long version = (Long) cache.get(versionKey);
+		if (version == null) {
+			// Start from the current time, so a version that has been evicted
+			// from the cache is never used again
+			cache.put(versionKey, System.currentTimeMillis(), null, SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+			version = (Long) cache.get(versionKey);
+		}
+		return version;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<ReportTotal> getTotals(User user, Date firstDay, Date lastDay, ReportGrouping grouping, TimeZone timeZone) {
+		Long version = getTotalsVersion(user);
+		String cacheKey = null;
+		if (version != null) {
+			SimpleDateFormat dayFormat = DailyTotal.getDayFormat();
+			cacheKey = user.getEmail() + "|" + version + "|" + grouping + "|" + dayFormat.format(firstDay) + "|" + dayFormat.format(lastDay) + "|" + timeZone.getID();
+			List<ReportTotal> totals = (List<ReportTotal>) cache.get(cacheKey);
+			if (totals != null) {
+				return totals;
+			}
+		}
+		
+		// The totals are stored in UTC, a day in the time zone of the user
+		// overlaps with the day before or the day after in UTC
+		Date firstUtcDay = new Date(firstDay.getTime() - DailyTotal.DAY_MILLIS);
+		Date lastUtcDay = new Date(lastDay.getTime() + DailyTotal.DAY_MILLIS);
+		List<DailyTotal> dailyTotals;
+		DailyTotalsState state = dailyTotalsStateDao.find(user);
+		if (state == null || !state.isBuilt()) {
+			dailyTotals = buildTotals(user, state, firstUtcDay, lastUtcDay);
+		} else {
+			dailyTotals = dailyTotalDao.findBetween(user, firstUtcDay, lastUtcDay);
+		}
+		
+		List<ReportDay> days = new ArrayList<ReportDay>();
+		for (ReportDay day : ReportDay.inTimeZone(dailyTotals, timeZone)) {
+			if (!day.getDay().before(firstDay) && !day.getDay().after(lastDay)) {
+				days.add(day);
+			}
+		}
+		
+		ArrayList<ReportTotal> totals = groupTotals(user, days, grouping);
+		if (cacheKey != null) {
+			cache.put(cacheKey, totals, Expiration.byDeltaSeconds(CACHE_EXPIRATION_SECONDS));
+		}
+		return totals;
+	}
+	
+	/**
+	 * Builds the daily totals of a user from all it's time registrations. The
+	 * totals are only stored if no synchronisation is ongoing for the user, 
+	 * otherwise they will be built again the next time. The totals that were
+	 * stored before, in an older layout or by a build that was cut off, are 
+	 * replaced. The totals are removed and stored in batches, the 
+	 * {@link DailyTotalsState} is marked as building before and as built 
+	 * after, also when there are no totals, so partial totals are never used
+	 * and the totals are not built again for every report.
+	 * @param state The current state of the totals, null if they have not 
+	 * been built yet.
+	 * @return The daily totals in the range of days in UTC.
+	 */
+	private List<DailyTotal> buildTotals(User user, DailyTotalsState state, Date firstDay, Date lastDay) {
+		SyncLock lock = syncLockDao.acquire(user, BUILD_LOCK_LEASE);
+		List<DailyTotal> dailyTotals = null;
+		try {
+			if (lock != null) {
+				// Migrating requires the lock, without it the time
+				// registrations of the old layout are left out until the
+				// synchronisation has migrated them
+				int migrated;
+				do {
+					migrated = timeRegistrationDao.migrateLegacyTimeRegistrations(user, MIGRATION_BATCH_SIZE);
+				} while (migrated == MIGRATION_BATCH_SIZE);
+			}
+			
+			DailyTotalChanges changes = new DailyTotalChanges();
+			for (TimeRegistration timeRegistration : timeRegistrationDao.findAll(user)) {
+				changes.add(timeRegistration);
+			}
+			dailyTotals = changes.getChanges();
+			
+			if (lock == null) {
+				log.info("A synchronisation is ongoing for user " + user.getEmail() + ", the daily totals will be built later");
+			} else {
+				if (state == null) {
+					state = new DailyTotalsState(user);
+					state.setLayout(DailyTotalsState.LAYOUT);
+					state.setBuilding(true);
+					dailyTotalsStateDao.persist(state);
+				} else {
+					state.setLayout(DailyTotalsState.LAYOUT);
+					state.setBuilding(true);
+					dailyTotalsStateDao.update(state);
+				}
+				
+				removeDailyTotals(user);
+				for (DailyTotal dailyTotal : dailyTotals) {
+					dailyTotal.setUser(user);
+				}
+				for (int i = 0; i < dailyTotals.size(); i += BUILD_BATCH_SIZE) {
+					dailyTotalDao.persistAll(dailyTotals.subList(i, Math.min(dailyTotals.size(), i + BUILD_BATCH_SIZE)));
+				}
+				
+				state.setBuilding(false);
+				state.setBuildTime(new Date());
+				dailyTotalsStateDao.update(state);
+				log.info(dailyTotals.size() + " daily totals have been built for user " + user.getEmail());
+			}
+		} finally {
+			if (lock != null) {
+				syncLockDao.release(user, lock.getLockKey());
+			}
+		}
+		
+		List<DailyTotal> result = new ArrayList<DailyTotal>();
+		for (DailyTotal dailyTotal : dailyTotals) {
+			if (!dailyTotal.getDay().before(firstDay) && !dailyTotal.getDay().after(lastDay)) {
+				result.add(dailyTotal);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Removes all daily totals of a user in batches.
+	 */
+	private void removeDailyTotals(User user) {
+		int removed;
+		do {
+			removed = dailyTotalDao.removeBatch(user, BUILD_BATCH_SIZE);
+		} while (removed == BUILD_BATCH_SIZE);
+	}
+	
+	private ArrayList<ReportTotal> groupTotals(User user, List<ReportDay> days, final ReportGrouping grouping) {
+		Map<String, Task> tasks = new HashMap<String, Task>();
+		for (Task task : taskDao.findAll(user)) {
+			if (StringUtils.isNotBlank(task.getSyncKey())) {
+				tasks.put(task.getSyncKey(), task);
+			}
+		}
+		
+		SimpleDateFormat dayFormat = DailyTotal.getDayFormat();
+		SimpleDateFormat monthFormat = new SimpleDateFormat("yyyy-MM");
+		monthFormat.setTimeZone(DailyTotal.DAY_TIME_ZONE);
+		
+		Map<String, ReportTotal> totals = new HashMap<String, ReportTotal>();
+		for (ReportDay day : days) {
+			Task task = tasks.get(day.getTaskSyncKey());
+			if (task == null) {
+				// The task has been removed
+				continue;
+			}
+			
+			String key = null;
+			switch (grouping) {
+				case DAY:
+					key = dayFormat.format(day.getDay());
+					break;
+				case WEEK:
+					key = getIsoWeek(day.getDay());
+					break;
+				case MONTH:
+					key = monthFormat.format(day.getDay());
+					break;
+				case PROJECT:
+					key = StringUtils.defaultIfBlank(task.getProject().getSyncKey(), task.getProject().getName());
+					break;
+				case TASK:
+					key = task.getSyncKey();
+					break;
+			}
+			
+			ReportTotal total = totals.get(key);
+			if (total == null) {
+				total = new ReportTotal(key);
+				if (grouping == ReportGrouping.PROJECT || grouping == ReportGrouping.TASK) {
+					total.setProjectName(task.getProject().getName());
+				}
+				if (grouping == ReportGrouping.TASK) {
+					total.setTaskName(task.getName());
+				}
+				totals.put(key, total);
+			}
+			total.add(day);
+		}
+		
+		ArrayList<ReportTotal> result = new ArrayList<ReportTotal>(totals.values());
+		Collections.sort(result, new Comparator<ReportTotal>() {
+			@Override
+			public int compare(ReportTotal total1, ReportTotal total2) {
+				int result = 0;
+				if (grouping == ReportGrouping.PROJECT || grouping == ReportGrouping.TASK) {
+					result = StringUtils.defaultString(total1.getProjectName()).compareToIgnoreCase(StringUtils.defaultString(total2.getProjectName()));
+					if (result == 0) {
+						result = StringUtils.defaultString(total1.getTaskName()).compareToIgnoreCase(StringUtils.defaultString(total2.getTaskName()));
+					}
+				}
+				return result != 0 ? result : total1.getKey().compareTo(total2.getKey());
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * @return The ISO week of a day, as 2013-W23. Weeks start on Monday and 
+	 * the first week of the year is the week with the first Thursday.
+	 */
+	private String getIsoWeek(Date day) {
+		Calendar calendar = Calendar.getInstance(DailyTotal.DAY_TIME_ZONE);
+		calendar.setTime(day);
+		// The Thursday of the same week determines the year of the week
+		int daysFromMonday = (calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+		calendar.add(Calendar.DAY_OF_MONTH, 3 - daysFromMonday);
+		int week = (calendar.get(Calendar.DAY_OF_YEAR) - 1) / 7 + 1;
+		return calendar.get(Calendar.YEAR) + "-W" + (week < 10 ? "0" : "") + week;
+	}
+	
+	private String getVersionKey(User user) {
+		return "version|" + user.getEmail();
+	}
+}
@@ -2,10 +2,13 @@ package eu.vranckaert.worktime.service.impl;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.ConcurrentModificationException;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang3.StringUtils;
@@ -18,30 +21,45 @@ import com.google.inject.Provider;
 
 import eu.vranckaert.worktime.dao.ProjectDao;
 import eu.vranckaert.worktime.dao.SyncHistoryDao;
+import eu.vranckaert.worktime.dao.SyncLockDao;
 import eu.vranckaert.worktime.dao.TaskDao;
 import eu.vranckaert.worktime.dao.TimeRegistrationDao;
 import eu.vranckaert.worktime.exception.CorruptDataException;
-import eu.vranckaert.worktime.exception.NumberOfEntitiesSyncedExceededException;
 import eu.vranckaert.worktime.exception.SynchronisationLockedException;
 import eu.vranckaert.worktime.exception.SyncronisationFailedException;
+import eu.vranckaert.worktime.metrics.Metrics;
 import eu.vranckaert.worktime.model.Project;
 import eu.vranckaert.worktime.model.Task;
 import eu.vranckaert.worktime.model.TimeRegistration;
 import eu.vranckaert.worktime.model.User;
-import eu.vranckaert.worktime.model.sync.EntitySyncResolution;
 import eu.vranckaert.worktime.model.sync.EntitySyncResult;
 import eu.vranckaert.worktime.model.sync.ProjectSyncResult;
 import eu.vranckaert.worktime.model.sync.SyncConflictConfiguration;
 import eu.vranckaert.worktime.model.sync.SyncHistory;
+import eu.vranckaert.worktime.model.sync.SyncLock;
 import eu.vranckaert.worktime.model.sync.SyncResult;
 import eu.vranckaert.worktime.model.sync.TaskSyncResult;
 import eu.vranckaert.worktime.model.sync.TimeRegistrationSyncResult;
 import eu.vranckaert.worktime.security.service.UserService;
 import eu.vranckaert.worktime.security.utils.KeyGenerator;
+import eu.vranckaert.worktime.service.ReportService;
 import eu.vranckaert.worktime.service.SyncService;
+import eu.vranckaert.worktime.sync.SyncPlan;
+import eu.vranckaert.worktime.sync.SyncReconciler;
+import eu.vranckaert.worktime.sync.SyncSnapshot;
 
 public class SyncServiceImpl implements SyncService {
 	private static final Logger log = Logger.getLogger(SyncService.class.getName());
+	
+	/**
+	 * The lease of the synchronisation lock (5 minutes). If a synchronisation
+	 * did not release it's lock after that time it's considered as timed out.
+	 */
+	private static final long SYNC_LOCK_LEASE = 300000L;
+	/**
+	 * The number of time registrations of the old layout migrated at once.
+	 */
+	private static final int MIGRATION_BATCH_SIZE = 500;
 
 	@Inject private UserService userService;
 	
@@ -53,6 +71,12 @@ public class SyncServiceImpl implements SyncService {
 	
 	@Inject private SyncHistoryDao syncHistoryDao;
 	
+	@Inject private SyncLockDao syncLockDao;
+	
+	@Inject private ReportService reportService;
+	
+	@Inject private Metrics metrics;
+	
 	@Inject private Provider<ObjectDatastore> dataStore;
 	
 	private boolean syncInterrupted = false;
@@ -107,19 +131,10 @@ public class SyncServiceImpl implements SyncService {
 	
 	private void checkSyncDuration(long startTime) {
 		if (isSyncingTooLong(startTime)) {
-			syncInterrupted = true;
 			throw new DeadlineExceededException("The custom deadline of 20 seconds has been exceeded!");
 		}
 	}
 	
-	private void checkNumberOfEntitiesSynced(int projectsSynced, int tasksSynced, int timeRegistrationsSynced) throws NumberOfEntitiesSyncedExceededException {
-		int limit = 50;
-		if (projectsSynced + tasksSynced + timeRegistrationsSynced > limit) {
-			syncInterrupted = true;
-			throw new NumberOfEntitiesSyncedExceededException("The maximum of " + limit + " entities at a time to be synced is reached!");
-		}
-	}
-	
 	@Override
 	public EntitySyncResult sync(String userEmail, SyncConflictConfiguration conflictConfiguration, List<Project> incomingProjects, List<Task> incomingTasks, List<TimeRegistration> incomingTimeRegistrations, Map<String, String> syncRemovalMap, Date lastSuccessfulSyncDate) throws SyncronisationFailedException, SynchronisationLockedException, CorruptDataException {
 		long syncStartTime = new Date().getTime();
@@ -152,21 +167,32 @@ public class SyncServiceImpl implements SyncService {
 		boolean isFirstTimeSync = !syncHistoryDao.hasSyncHistory(user);
 		log.info("Is user " + user.getEmail() + " syncing for the first time? " + (isFirstTimeSync ? "Yes" : "No"));
 		
-		SyncHistory ongoingSync = syncHistoryDao.getOngoingSyncHistory(user);
-		if (ongoingSync != null) {
-			log.warning("Another syncronisation is already in progress. Will chekc if the timeout has been reached or not for user " + user.getEmail());
-			long syncDuration = new Date().getTime() - ongoingSync.getStartTime().getTime();
-			if (syncDuration > 300000) { // A 5 minute timeout
-				log.warning("The previous synchronisation is going on for more than five minutes, this is not usual, will mark as timeout and continue with current synchronisation request for user " + user.getEmail());
-				ongoingSync.setSyncResult(SyncResult.TIME_OUT);
-				ongoingSync.setEndTime(new Date());
-				syncHistoryDao.update(ongoingSync);
-			} else {
-				log.warning("The previous synchronisation is ongoing and did not yet reach it's timeout, this synchronisation will end now for user " + user.getEmail());
-				throw new SynchronisationLockedException();
-			}
+		SyncLock lock = syncLockDao.acquire(user, SYNC_LOCK_LEASE);
+		if (lock == null) {
+			log.warning("Another synchronisation is ongoing and did not yet reach it's timeout, this synchronisation will end now for user " + user.getEmail());
+			throw new SynchronisationLockedException();
 		}
 		
+		try {
+			if (lock.isTakenOver()) {
+				// The synchronisation that held the lock before did not end, 
+				// it's history would otherwise stay busy forever
+				SyncHistory ongoingSync = syncHistoryDao.getOngoingSyncHistory(user);
+				if (ongoingSync != null) {
+					log.warning("The previous synchronisation started at " + ongoingSync.getStartTime() + " did not end before it's lock expired, it is marked as timeout for user " + user.getEmail());
+					ongoingSync.setSyncResult(SyncResult.TIME_OUT);
+					ongoingSync.setEndTime(new Date());
+					syncHistoryDao.update(ongoingSync);
+				}
+			}
+			
+			return sync(user, conflictConfiguration, incomingProjects, incomingTasks, incomingTimeRegistrations, syncRemovalMap, lastSuccessfulSyncDate, syncStartTime);
+		} finally {
+			syncLockDao.release(user, lock.getLockKey());
+		}
+	}
+	
+	private EntitySyncResult sync(User user, SyncConflictConfiguration conflictConfiguration, List<Project> incomingProjects, List<Task> incomingTasks, List<TimeRegistration> incomingTimeRegistrations, Map<String, String> syncRemovalMap, Date lastSuccessfulSyncDate, long syncStartTime) throws SyncronisationFailedException {
 		// Create a new sync history object to indicate that the user started syncing!
 		log.info("Creating a new synchronisation history object for user " + user.getEmail());
 		SyncHistory syncHistory = new SyncHistory();
@@ -179,196 +205,78 @@ public class SyncServiceImpl implements SyncService {
 		syncHistory.setConflictConfiguration(conflictConfiguration);
 		syncHistoryDao.persist(syncHistory);
 		
-		// Prepare lists of projects and tasks before syncing...
-		List<Project> projects = new ArrayList<Project>();
-		List<Task> tasks = new ArrayList<Task>();
-		
-		for (TimeRegistration timeRegistration : incomingTimeRegistrations) {
-			Task task = timeRegistration.getTask();
-			Project project = task.getProject();
-			
-			project.setUser(user);
-
-			tasks.add(task);
-			projects.add(project);
-		}
-		
-		// Check the projects if they are already appearing in a time 
-		// registration or not. If not add them to the list of projects to be 
-		// synced, otherwise they are already in there.
-		for (Project incomingProject : incomingProjects) {
-			String projectName = incomingProject.getName();
-			boolean projectFound = false;
-			for (Project project : projects) {
-				if (project.getName().equals(projectName)) {
-					projectFound = true;
-					break;
-				}
-			}
-			
-			if (!projectFound) {
-				incomingProject.setUser(user);
-				projects.add(incomingProject);
-			}
-		}
-		
-		// Check the tasks if they are already appearing in a time registration 
-		// or not. If not add them to the list of tasks to be synced, otherwise 
-		// they are already in there.
-		for (Task incomingTask : incomingTasks) {
-			String taskName = incomingTask.getName();
-			String projectName = incomingTask.getProject().getName();
-			boolean taskFound = false;
-			for (Task task : tasks) {
-				if (task.getName().equals(taskName) && task.getProject().getName().equals(projectName)) {
-					taskFound = true;
-					break;
-				}
-			}
-			
-			if (!taskFound) {
-				tasks.add(incomingTask);
-			}
-		}
-		
-		List<ProjectSyncResult> projectResults = new ArrayList<ProjectSyncResult>();
-		List<TaskSyncResult> taskResults = new ArrayList<TaskSyncResult>();
-		List<TimeRegistrationSyncResult> timeRegistrationResults = new ArrayList<TimeRegistrationSyncResult>();
-		
-		int projectsSynced = 0;
-		int tasksSynced = 0;
-		int timeRegistrationsSynced = 0;
+		SyncPlan plan = null;
 		
-		Transaction tx = dataStore.get().beginTransaction();
+		Transaction tx = null;
+		boolean committed = false;
+		boolean applied = false;
 		try {
-			// Check to remove projects, tasks and time registrations in the from the syncRemovalMap
-			removeEntities(user, syncRemovalMap, lastSuccessfulSyncDate, conflictConfiguration);
-			
-			// Sync all projects
-			log.info("Starting to synchronize projects for user " + user.getEmail());
-			for (Project project : projects) {
-				checkSyncDuration(syncStartTime);
-				checkNumberOfEntitiesSynced(projectsSynced, tasksSynced, timeRegistrationsSynced);
-				
-				ProjectSyncResult result = syncProject(project, user, conflictConfiguration);
-				if (result.getResolution() != EntitySyncResolution.NO_ACTION)
-					projectsSynced++;
-				projectResults.add(result);
-			}
-			log.info(projectsSynced + " projects have been synced for user " + user.getEmail());
-			
-			// Sync all tasks
-			log.info("Starting to synchronize tasks for user " + user.getEmail());
-			for (Task task : tasks) {
-				checkSyncDuration(syncStartTime);
-				checkNumberOfEntitiesSynced(projectsSynced, tasksSynced, timeRegistrationsSynced);
-				
-				Project projectForTask = projectDao.find(task.getProject().getName(), user);
-				TaskSyncResult result = syncTask(task, projectForTask, user, conflictConfiguration);
-				if (result.getResolution() != EntitySyncResolution.NO_ACTION)
-					tasksSynced++;
-				taskResults.add(result);
-			}
-			log.info(tasksSynced + " tasks have been synced for user " + user.getEmail());
+			int migrated;
+			do {
+				migrated = timeRegistrationDao.migrateLegacyTimeRegistrations(user, MIGRATION_BATCH_SIZE);
+			} while (migrated == MIGRATION_BATCH_SIZE);
 			
+			// The time registrations are root entities that can not be read in
+			// the transaction of the entity group of the user, the snapshot is
+			// loaded before it. The synchronisation lock keeps it up to date.
+			log.info("Loading the projects, tasks and time registrations of user " + user.getEmail());
+			SyncSnapshot snapshot = new SyncSnapshot(user, projectDao.findAll(user), taskDao.findAll(user), findTimeRegistrationsToSync(user, incomingTimeRegistrations, syncRemovalMap));
 			checkSyncDuration(syncStartTime);
-			checkNumberOfEntitiesSynced(projectsSynced, tasksSynced, timeRegistrationsSynced);
 			
-			// First check if an ongoing time registration can be found on the server and sync the according incoming entity
-			log.info("Starting to synchronize ongoing time registration (if any) for user " + user.getEmail());
-			TimeRegistration ongoingTimeRegistration = timeRegistrationDao.findOngoingTimeRegistration(user);
-			if (ongoingTimeRegistration != null) {
-				log.info("An ongoing time registration is found, checking if it's it has been removed");
-				for (Entry<String, String> entry : syncRemovalMap.entrySet()) {
-					log.info("Check if ongoing time registration's sync key matches a sync key in the removal map");
-					if (ongoingTimeRegistration.getSyncKey().equals(entry.getKey())) {
-						log.info("Time registration is in the removal map, setting to null now");
-						ongoingTimeRegistration = null;
-						break;
-					}
-				}
-			}
-			if (ongoingTimeRegistration != null && StringUtils.isNotBlank(ongoingTimeRegistration.getSyncKey())) {
-				log.info("An ongoing TR that has been synced before is found...");
-				TimeRegistration ongoingSyncedTimeRegistration = null;
-				if (incomingTimeRegistrations != null && incomingTimeRegistrations.size() > 0) {
-					for (TimeRegistration timeRegistration : incomingTimeRegistrations) {
-						if (StringUtils.isNotBlank(timeRegistration.getSyncKey()) && timeRegistration.getSyncKey().equals(ongoingTimeRegistration.getSyncKey())) {
-							log.info("Found the incoming TR that matches the ongoing TR... Syncing this TR first...");
-							ongoingSyncedTimeRegistration = timeRegistration;
-							
-							Project projectForTr = projectDao.find(timeRegistration.getTask().getProject().getName(), user);
-							Task taskForTr = taskDao.find(timeRegistration.getTask().getName(), projectForTr);
-							TimeRegistrationSyncResult result = syncTimeRegistration(timeRegistration, taskForTr, user, conflictConfiguration);
-							if (result.getResolution() != EntitySyncResolution.NO_ACTION)
-								timeRegistrationsSynced++;
-							timeRegistrationResults.add(result);
-							break;
-						}
-					}
-				}
-				
-				// Issue 190 - Make sure that if an ongoing TR is already synced, that it's not synced twice!
-				if (ongoingSyncedTimeRegistration != null) {
-					log.info("Preventing the synced TR to be synced twice, remove from list now...");
-					incomingTimeRegistrations.remove(ongoingSyncedTimeRegistration);
-				}
-			}
-
-			checkSyncDuration(syncStartTime);
-			checkNumberOfEntitiesSynced(projectsSynced, tasksSynced, timeRegistrationsSynced);
+			log.info("Starting to synchronize projects, tasks and time registrations for user " + user.getEmail());
+			SyncReconciler reconciler = new SyncReconciler(conflictConfiguration, lastSuccessfulSyncDate, new Date(syncStartTime));
+			plan = reconciler.reconcile(snapshot, incomingProjects, incomingTasks, incomingTimeRegistrations, syncRemovalMap);
+			syncInterrupted = plan.isInterrupted();
 			
-			// Sync all time registrations
-			log.info("Starting to synchronize time registrations for user " + user.getEmail());
-			for (TimeRegistration timeRegistration : incomingTimeRegistrations) {
-				log.info("Tyring to sync time registration with task " + timeRegistration.getTask().getName());
-				log.info("Trying to sync time registration with project " + timeRegistration.getTask().getProject().getName());
-				
-				checkSyncDuration(syncStartTime);
-				checkNumberOfEntitiesSynced(projectsSynced, tasksSynced, timeRegistrationsSynced);
-				
-				Project projectForTr = projectDao.find(timeRegistration.getTask().getProject().getName(), user);
-				if (projectForTr==null)
-					log.warning("No project found in database for this time registration!");
-				Task taskForTr = taskDao.find(timeRegistration.getTask().getName(), projectForTr);
-				if (taskForTr==null)
-					log.warning("No task found in database for this time registration!");
-				TimeRegistrationSyncResult result = syncTimeRegistration(timeRegistration, taskForTr, user, conflictConfiguration);
-				if (result.getResolution() != EntitySyncResolution.NO_ACTION)
-					timeRegistrationsSynced++;
-				timeRegistrationResults.add(result);
-			}
-			log.info(timeRegistrationsSynced + " time registrations have been synced for user " + user.getEmail());
+			tx = dataStore.get().beginTransaction();
+			applyPlan(user, plan);
+			reportService.applyChanges(user, plan.getDailyTotalChanges());
+			tx.commit();
+			committed = true;
 			
-			if (tx != null)
-				tx.commit();
+			applyTimeRegistrations(plan);
+			applied = true;
 		} catch (DeadlineExceededException e) {
-			log.info("Timeout occured... Comitting transaction and returning result. Message is: " + e.getMessage());
-			if (tx != null && tx.isActive()) {
-				tx.commit();
-			}
-		} catch (NumberOfEntitiesSyncedExceededException e) {
-			log.info("Number of entities exceeded. Message is: " + e.getMessage());
-			if (tx != null && tx.isActive()) {
-				tx.commit();
-			}
+			log.info("Timeout occured... Message is: " + e.getMessage());
+			// The transaction is rolled back and the synchronisation fails, as
+			// an interrupted synchronisation that did not synchronise anything
+			// would be retried by the client without ever making progress
 		} catch (Exception e) {
+			if (e instanceof ConcurrentModificationException) {
+				metrics.recordTransactionConflict();
+			}
 			e.printStackTrace();
 			log.info("Exception occured during sycnhronisation for user " + user.getEmail() + ". Exception " + e.getClass().getName() + " message is: " + e.getMessage());
 			log.throwing(SyncServiceImpl.class.getSimpleName(), "sync", e);
 		} finally {
 			if (tx != null && tx.isActive()) {
 				tx.rollback();
-				
+			}
+			if (!applied) {
 				syncHistory.setEndTime(new Date());
 				syncHistory.setSyncResult(SyncResult.FAILURE);
 				syncHistoryDao.update(syncHistory);
+				metrics.recordSync(false, true, 0, 0, 0);
 				
-				log.info("Something went wrong during synchronisation, transaction has been rolled back and nothing has been saved!");
+				if (committed) {
+					reportService.invalidateTotals(user);
+					log.info("Something went wrong while writing the time registrations after the synchronisation has been committed, the client has to synchronise again");
+				} else {
+					log.info("Something went wrong during synchronisation, transaction has been rolled back and nothing has been saved!");
+				}
 				throw new SyncronisationFailedException();
 			}
 		}
 		
+		reportService.invalidateTotals(user);
+		
+		int projectsSynced = plan.getProjectsSynced();
+		int tasksSynced = plan.getTasksSynced();
+		int timeRegistrationsSynced = plan.getTimeRegistrationsSynced();
+		List<ProjectSyncResult> projectResults = plan.getProjectResults();
+		List<TaskSyncResult> taskResults = plan.getTaskResults();
+		List<TimeRegistrationSyncResult> timeRegistrationResults = plan.getTimeRegistrationResults();
+		
 		log.info("Marking the synchronisation history successfull for user " + user.getEmail());
 		syncHistory.setEndTime(new Date());
 		if (syncInterrupted) {
@@ -380,6 +288,7 @@ public class SyncServiceImpl implements SyncService {
 		syncHistory.setSyncedTasks(tasksSynced);
 		syncHistory.setSyncedTimeRegistrations(timeRegistrationsSynced);
 		syncHistoryDao.update(syncHistory);
+		metrics.recordSync(syncInterrupted, false, projectsSynced, tasksSynced, timeRegistrationsSynced);
 		
 		EntitySyncResult syncResult = new EntitySyncResult();
 		syncResult.setProjectSyncResults(projectResults);
@@ -404,153 +313,69 @@ public class SyncServiceImpl implements SyncService {
 		log.info("Synchronisation completed for user " + user.getEmail());
 		return syncResult;
 	}
-
-	private void removeEntities(User user, Map<String, String> syncRemovalMap, Date lastSuccessfulSyncDate, SyncConflictConfiguration conflictConfiguration) {
-		if (syncRemovalMap == null || syncRemovalMap.size() == 0)
-			return;
-		
-		List<String> projectSyncKeys = new ArrayList<String>();
-		List<String> taskSyncKeys = new ArrayList<String>();
-		List<String> timeRegistrationSyncKeys = new ArrayList<String>();
-		
-		for (Map.Entry<String, String> entry : syncRemovalMap.entrySet()) {
-			String syncKey = entry.getKey();
-			String entityName = entry.getValue();
-			
-			if (entityName.equals("Project")) {
-				projectSyncKeys.add(syncKey);
-			} else if (entityName.equals("Task")) {
-				taskSyncKeys.add(syncKey);
-			} else if (entityName.equals("TimeRegistration")) {
-				timeRegistrationSyncKeys.add(syncKey);
+	
+	/**
+	 * Loads the time registrations of a user that the incoming time 
+	 * registrations and removals can refer to instead of all of them: the ones
+	 * that end on or after the earliest incoming time registration starts, 
+	 * which includes every time registration that can match or interfere with
+	 * an incoming one, the ongoing time registration and the ones that are 
+	 * referred to by their sync key.
+	 */
+	private List<TimeRegistration> findTimeRegistrationsToSync(User user, List<TimeRegistration> incomingTimeRegistrations, Map<String, String> syncRemovalMap) {
+		Date earliestStartTime = null;
+		Set<String> syncKeys = new HashSet<String>();
+		for (TimeRegistration timeRegistration : incomingTimeRegistrations) {
+			if (earliestStartTime == null || timeRegistration.getStartTime().before(earliestStartTime)) {
+				earliestStartTime = timeRegistration.getStartTime();
 			}
-		}
-		
-		for (String syncKey : timeRegistrationSyncKeys) {
-			TimeRegistration entity = timeRegistrationDao.findBySyncKey(syncKey, user);
-			if (entity != null) {
-				if (entity.isModifiedAfter(lastSuccessfulSyncDate)) {
-					switch (conflictConfiguration) {
-						case CLIENT: {
-							timeRegistrationDao.remove(entity);
-							break;
-						}
-						case SERVER: {
-							// Server wins so entity will not be removed
-							break;
-						}
-					}
-				} else {
-					timeRegistrationDao.remove(entity);
-				}
+			if (StringUtils.isNotBlank(timeRegistration.getSyncKey())) {
+				syncKeys.add(timeRegistration.getSyncKey());
 			}
 		}
-		
-		for (String syncKey : taskSyncKeys) {
-			Task entity = taskDao.findBySyncKey(syncKey, user);
-			if (entity != null) {
-				if (entity.isModifiedAfter(lastSuccessfulSyncDate)) {
-					switch (conflictConfiguration) {
-						case CLIENT: {
-							taskDao.remove(entity);
-							break;
-						}
-						case SERVER: {
-							// Server wins so entity will not be removed
-							break;
-						}
-					}
-				} else {
-					taskDao.remove(entity);
-				}
-			}
-		}
-		
-		for (String syncKey : projectSyncKeys) {
-			Project entity = projectDao.findBySyncKey(syncKey, user);
-			if (entity != null) {
-				if (entity.isModifiedAfter(lastSuccessfulSyncDate)) {
-					switch (conflictConfiguration) {
-						case CLIENT: {
-							projectDao.remove(entity);
-							break;
-						}
-						case SERVER: {
-							// Server wins so entity will not be removed
-							break;
-						}
-					}
-				} else {
-					projectDao.remove(entity);
+		if (syncRemovalMap != null) {
+			for (Map.Entry<String, String> entry : syncRemovalMap.entrySet()) {
+				if ("TimeRegistration".equals(entry.getValue())) {
+					syncKeys.add(entry.getKey());
 				}
 			}
 		}
-	}
-
-	private ProjectSyncResult syncProject(Project project, User user, SyncConflictConfiguration conflictConfiguration) {
-		ProjectSyncResult result = new ProjectSyncResult(project);
-		result.setProject(project);
 		
-		log.info("Starting to synchronize incoming project with name " + project.getName() + " for user " + user.getEmail());
-		Project localProject = null;
-		if (StringUtils.isBlank(project.getSyncKey())) {
-			localProject = projectDao.find(project.getName(), user);
-		} else {
-			localProject = projectDao.findBySyncKey(project.getSyncKey(), user);
-			if (localProject == null) {
-				result.setResolution(EntitySyncResolution.NOT_ACCEPTED);
-				result.setSyncedProject(null);
-				return result;
-			}
-		}
+		List<TimeRegistration> timeRegistrations = timeRegistrationDao.findForSync(user, earliestStartTime, syncKeys);
+		log.info(timeRegistrations.size() + " time registrations of user " + user.getEmail() + " are loaded for the synchronisation");
 		
-		if (localProject == null) { // No matching project is found so persist project
-			log.info("No matching project is found for project with name " + project.getName() + " for user " + user.getEmail());
-			project.setSyncKey(generateSyncKeyForProject(user));
-			projectDao.persist(project);
-			
-			result.setResolution(EntitySyncResolution.ACCEPTED);
-			result.setSyncedProject(project);
-		} else { // A matching project is found so compare the contents
-			log.info("A mathcing project is found for project with name " + project.getName() + ". The matching project has name " + localProject.getName() + " for user " + user.getEmail());
-			if (localProject.getSyncKey() == null) {
-				localProject.setSyncKey(generateSyncKeyForProject(user));
-			}
-			if (project.getSyncKey() == null || !project.getSyncKey().equals(localProject.getSyncKey())) {
-				project.setSyncKey(localProject.getSyncKey());
-			}
-			log.info("Synchronisation key set to " + project.getSyncKey() + " for user " + user.getEmail());
-			
-			if (!project.equalsContent(localProject)) {
-				log.info("Project contents are not equal, will start to merge now for user " + user.getEmail());
-				if (localProject.isModifiedAfter(project.getLastUpdated())) {
-					copyProjectContents(localProject, project);
-					log.info("The server project is more recent than the incoming one, using the server project for user " + user.getEmail());
-				} else if (project.isModifiedAfter(localProject.getLastUpdated())) {
-					copyProjectContents(project, localProject);
-					log.info("The incoming project is more recent than the server one, using the incoming project for user " + user.getEmail());
-				} else { // Last modification date-time is the same but contents are different so resolve conflict...
-					log.info("Both projects are conflicting, will use the conflict configuration to keep either the incoming or the server project for user " + user.getEmail());
-					switch (conflictConfiguration) {
-					case CLIENT:
-						copyProjectContents(project, localProject);
-						break;
-					case SERVER:
-						copyProjectContents(localProject, project);
-						break;
-					}
-				}
-				
-				result.setResolution(EntitySyncResolution.MERGED);
-				result.setSyncedProject(localProject);
-			} else {
-				result.setResolution(EntitySyncResolution.NO_ACTION);
-				result.setSyncedProject(localProject);
-			}
-			log.info("About to update project " + localProject.getName() + " in database for user " + user.getEmail());
-			projectDao.update(localProject);
-		}
-		return result;
+		return timeRegistrations;
+	}
+	
+	/**
+	 * Writes the outcome of the reconciliation to the entity group of the 
+	 * user, in it's transaction, with one batch per entity type and 
+	 * operation. The removals are written first, then the parents before 
+	 * their children. The time registrations are only indexed.
+	 */
+	private void applyPlan(User user, SyncPlan plan) {
+		taskDao.removeAll(plan.getTasks().getToRemove());
+		projectDao.removeAll(plan.getProjects().getToRemove());
+		
+		projectDao.persistAll(plan.getProjects().getToStore());
+		projectDao.updateAll(plan.getProjects().getToUpdate());
+		taskDao.persistAll(plan.getTasks().getToStore());
+		taskDao.updateAll(plan.getTasks().getToUpdate());
+		timeRegistrationDao.index(user, plan.getTimeRegistrations().getToStore(), plan.getTimeRegistrations().getToUpdate(), plan.getTimeRegistrations().getToRemove());
+	}
+	
+	/**
+	 * Writes the time registrations of the plan once the transaction has 
+	 * been committed, they are root entities outside the entity group of the
+	 * user. The batches are written in parallel.
+	 */
+	private void applyTimeRegistrations(SyncPlan plan) {
+		timeRegistrationDao.removeAll(plan.getTimeRegistrations().getToRemove());
+		timeRegistrationDao.persistAll(plan.getTimeRegistrations().getToStore());
+		timeRegistrationDao.updateAll(plan.getTimeRegistrations().getToUpdate());
+		
+		log.info(plan.getProjects().getToStore().size() + " projects, " + plan.getTasks().getToStore().size() + " tasks and " 
+				+ plan.getTimeRegistrations().getToStore().size() + " time registrations have been stored");
 	}
 	
 	private String generateSyncKeyForProject(User user) {
@@ -562,85 +387,7 @@ public class SyncServiceImpl implements SyncService {
 		}
 		return syncKey;
 	}
-	
-	private void copyProjectContents(Project source, Project destination) {
-		destination.setName(source.getName());
-		destination.setComment(source.getComment());
-		destination.setDefaultValue(source.isDefaultValue());
-		destination.setFinished(source.isFinished());
-		destination.setFlags(source.getFlags());
-		destination.setOrder(source.getOrder());
-		destination.setLastUpdated(source.getLastUpdated());
-	}
-	
-	private TaskSyncResult syncTask(Task task, Project project, User user, SyncConflictConfiguration conflictConfiguration) {
-		TaskSyncResult result = new TaskSyncResult(task);
-		result.setTask(task);
-		
-		log.info("Starting to synchronize incoming task with name " + task.getName() + " for user " + user.getEmail());
-		Task localTask = null;
-		if (StringUtils.isBlank(task.getSyncKey())) {
-			localTask = taskDao.find(task.getName(), project);
-		} else {
-			localTask = taskDao.findBySyncKey(task.getSyncKey(), user);
-			if (localTask == null) {
-				result.setResolution(EntitySyncResolution.NOT_ACCEPTED);
-				result.setSyncedTask(null);
-				return result;
-			}
-		}
-		
-		if (localTask == null) { // No matching task is found so persist project
-			log.info("No matching task is found for task with name " + task.getName() + " for user " + user.getEmail());
-			task.setProject(project);
-			task.setSyncKey(generateSyncKeyForTask(user));
-			taskDao.persist(task);
-			
-			result.setResolution(EntitySyncResolution.ACCEPTED);
-			result.setSyncedTask(task);
-		} else { // A matching task is found so compare the contents
-			log.info("A mathcing task is found for task with name " + task.getName() + ". The matching task has name " + localTask.getName() + " for user " + user.getEmail());
-			if (localTask.getSyncKey() == null) {
-				localTask.setSyncKey(generateSyncKeyForTask(user));
-			}
-			if (task.getSyncKey() == null || task.getSyncKey().equals(localTask.getSyncKey())) {
-				task.setSyncKey(localTask.getSyncKey());
-			}
-			log.info("Synchronisation key set to " + task.getSyncKey() + " for user " + user.getEmail());
-			
-			if (!task.equalsContent(localTask)) {
-				log.info("Task contents are not equal, will start to merge now for user " + user.getEmail());
-				if (localTask.isModifiedAfter(task.getLastUpdated())) {
-					copyTaskContents(localTask, task, project);
-					log.info("The server task is more recent than the incoming one, using the server task for user " + user.getEmail());
-				} else if (task.isModifiedAfter(localTask.getLastUpdated())) {
-					copyTaskContents(task, localTask, project);
-					log.info("The incoming task is more recent than the server one, using the incoming task for user " + user.getEmail());
-				} else { // Last modification date-time is the same but contents are different so resolve conflict...
-					log.info("Both tasks are conflicting, will use the conflict configuration to keep either the incoming or the server task for user " + user.getEmail());
-					switch (conflictConfiguration) {
-					case CLIENT:
-						copyTaskContents(task, localTask, project);
-						break;
-					case SERVER:
-						copyTaskContents(localTask, task, project);
-						break;
-					}
-				}
-				
 
-				result.setResolution(EntitySyncResolution.MERGED);
-				result.setSyncedTask(localTask);
-			} else {
-				result.setResolution(EntitySyncResolution.NO_ACTION);
-				result.setSyncedTask(localTask);
-			}
-			log.info("About to update task " + localTask.getName() + " in database for user " + user.getEmail());
-			taskDao.update(localTask);
-		}
-		return result;
-	}
-	
 	private String generateSyncKeyForTask(User user) {
 		String syncKey = KeyGenerator.getNewKey();
 		log.info("Generated task sync-key '" + syncKey + "' for user " + user.getEmail());
@@ -650,160 +397,6 @@ public class SyncServiceImpl implements SyncService {
 		}
 		return syncKey;
 	}
-	
-	private void copyTaskContents(Task source, Task destination, Project project) {
-		destination.setName(source.getName());
-		destination.setComment(source.getComment());
-		destination.setFinished(source.isFinished());
-		destination.setFlags(source.getFlags());
-		destination.setOrder(source.getOrder());
-		destination.setLastUpdated(source.getLastUpdated());
-		destination.setProject(project);
-	}
-	
-	private TimeRegistrationSyncResult syncTimeRegistration(TimeRegistration timeRegistration, Task task, User user, SyncConflictConfiguration conflictConfiguration) {
-		TimeRegistrationSyncResult result = new TimeRegistrationSyncResult(timeRegistration);
-		result.setTimeRegistration(timeRegistration);
-		
-		// Logging
-		log.info("Starting to synchronize incoming time registration for user " + user.getEmail());
-		log.info("Incoming time registration started at: " + timeRegistration.getStartTime());
-		if (timeRegistration.isOngoingTimeRegistration()) {
-			log.info("Incoming time registration is ongoing...");
-		} else {
-			log.info("Incoming time registration ended at " + timeRegistration.getEndTime());
-		}
-		log.info("Incoming time registration has task: " + timeRegistration.getTask().getName());
-		log.info("Incoming time registration has project: " + timeRegistration.getTask().getProject().getName());
-		log.info("Incoming time registration has comment: " + timeRegistration.getComment());
-		
-		TimeRegistration localTimeRegistration = null;
-		log.info("Checking the time registration sync key...");
-		if (StringUtils.isBlank(timeRegistration.getSyncKey())) {
-			log.info("No sync key found, looking for time registration on start and end time");
-			localTimeRegistration = timeRegistrationDao.find(timeRegistration.getStartTime(), timeRegistration.getEndTime(), user);
-		} else {
-			log.info("Sync key found, looking for time registration based on that sync key");
-			localTimeRegistration = timeRegistrationDao.findBySyncKey(timeRegistration.getSyncKey(), user);
-			if (localTimeRegistration == null) {
-				log.info("Time registration based on sync key not found... Meaning that the time registration is already removed on the server and thus will not be accepted");
-				result.setResolution(EntitySyncResolution.NOT_ACCEPTED);
-				result.setSyncedTimeRegistration(null);
-				result.setSyncedTimeRegistrations(null);
-				return result;
-			}
-		}
-		
-		log.info("Checking if a local time registration is found...");
-		if (localTimeRegistration == null) { // No matching time registration is found so persist time registration after interference check
-			log.info("No matching time registration is found for user " + user.getEmail());
-			List<TimeRegistration> interferingTimeRegistrations = timeRegistrationDao.findInterferingTimeRegistrations(timeRegistration, user);
-			if (interferingTimeRegistrations.isEmpty()) {
-				log.info("No interfering time registrations found, can safely persist time registration for user " + user.getEmail());
-				timeRegistration.setTask(task);
-				timeRegistration.setSyncKey(generateSyncKeyForTimeRegistration(user));
-				timeRegistrationDao.persist(timeRegistration);
-				
-				result.setResolution(EntitySyncResolution.ACCEPTED);
-				result.setSyncedTimeRegistration(timeRegistration);
-			} else {
-				log.info("Conflicting time registrations have been found, using the conflict configuration to handle this safely for user " + user.getEmail());
-				switch (conflictConfiguration) {
-					case CLIENT: {
-						// Remove all interfering time registrations and persist the incoming time registration
-						log.info("Client wins, about to remove all conflicting time registrations from server and persist incoming time registration for user " + user.getEmail());
-						for (TimeRegistration interferingTimeRegistration : interferingTimeRegistrations) {
-							timeRegistrationDao.remove(interferingTimeRegistration);
-						}
-						timeRegistration.setTask(task);
-						timeRegistration.setSyncKey(generateSyncKeyForTimeRegistration(user));
-						timeRegistrationDao.persist(timeRegistration);
-						
-						result.setResolution(EntitySyncResolution.ACCEPTED);
-						result.setSyncedTimeRegistration(timeRegistration);
-						
-						break;
-					}
-					case SERVER: {
-						// Server wins so incoming time registration is not kept!
-						log.info("Server wins, will not remove conflicting time registrations and not persist the incoming one for user " + user.getEmail());
-						
-						// Check if all the time registrations have a sync-key set, if not update with sync key
-						for (TimeRegistration intereferingTimeRegistration : interferingTimeRegistrations) {
-							if (StringUtils.isEmpty(intereferingTimeRegistration.getSyncKey())) {
-								intereferingTimeRegistration.setSyncKey(generateSyncKeyForTimeRegistration(user));
-								timeRegistrationDao.persist(intereferingTimeRegistration);
-							}
-						}
-						
-						result.setResolution(EntitySyncResolution.NOT_ACCEPTED);
-						result.setSyncedTimeRegistrations(interferingTimeRegistrations);
-						
-						break;
-					}
-				}
-			}
-		} else { // A matching time registration is found so compare the contents
-			log.info("A matching time registration is found for user " + user.getEmail());
-			if (localTimeRegistration.getSyncKey() == null) {
-				localTimeRegistration.setSyncKey(generateSyncKeyForTimeRegistration(user));
-			}
-			if (timeRegistration.getSyncKey() == null || !timeRegistration.getSyncKey().equals(localTimeRegistration.getSyncKey())) {
-				timeRegistration.setSyncKey(localTimeRegistration.getSyncKey());
-			}
-			log.info("Synchronisation key set to " + timeRegistration.getSyncKey() + " for user " + user.getEmail());
-			
-			if (!timeRegistration.equalsContent(localTimeRegistration) || !timeRegistration.equals(localTimeRegistration)) {
-				// The first check only checks for the non-id content, the second checks for the id-content, in this case being the start and end time...
-				log.info("Time registration contents are not equal, will start to merge now for user " + user.getEmail());
-				if (localTimeRegistration.isModifiedAfter(timeRegistration.getLastUpdated())) {
-					copyTimeRegistrationContents(localTimeRegistration, timeRegistration, task);
-					log.info("The server time registration is more recent than the incoming one, using the server time registration for user " + user.getEmail());
-				} else if (timeRegistration.isModifiedAfter(localTimeRegistration.getLastUpdated())) {
-					copyTimeRegistrationContents(timeRegistration, localTimeRegistration, task);
-					log.info("The incoming time registration is more recent than the server one, using the incoming time registration for user " + user.getEmail());
-				} else { // Last modification date-time is the same but contents are different so resolve conflict...
-					log.info("Both time registrations are conflicting, will use the conflict configuration to keep either the incoming or the server time registration for user " + user.getEmail());
-					switch (conflictConfiguration) {
-					case CLIENT:
-						copyTimeRegistrationContents(timeRegistration, localTimeRegistration, task);
-						break;
-					case SERVER:
-						copyTimeRegistrationContents(localTimeRegistration, timeRegistration, task);
-						break;
-					}
-				}
-				
-				result.setResolution(EntitySyncResolution.MERGED);
-				result.setSyncedTimeRegistration(localTimeRegistration);
-			} else {
-				result.setResolution(EntitySyncResolution.NO_ACTION);
-				result.setSyncedTimeRegistration(localTimeRegistration);
-			}
-			log.info("About to update time registration in database for user " + user.getEmail());
-			timeRegistrationDao.update(localTimeRegistration);
-		}
-		return result;
-	}
-	
-	private String generateSyncKeyForTimeRegistration(User user) {
-		String syncKey = KeyGenerator.getNewKey();
-		log.info("Generated time registration sync-key '" + syncKey + "' for user " + user.getEmail());
-		while(!timeRegistrationDao.isUniqueSynKey(syncKey, user)) {
-			syncKey = KeyGenerator.getNewKey();
-			log.info("Generted sync-key was already in use, generated new sync-key '" + syncKey + "' for user " + user.getEmail());
-		}
-		return syncKey;
-	}
-	
-	private void copyTimeRegistrationContents(TimeRegistration source, TimeRegistration destination, Task task) {
-		destination.setStartTime(source.getStartTime());
-		destination.setEndTime(source.getEndTime());
-		destination.setComment(source.getComment());
-		destination.setFlags(source.getFlags());
-		destination.setTask(task);
-		destination.setLastUpdated(source.getLastUpdated());
-	}
 
 	@Override
 	public List<Project> getSyncedProjects(String userEmail,
@@ -862,21 +455,14 @@ public class SyncServiceImpl implements SyncService {
 			timeRegistrations = timeRegistrationDao.findAllModifiedAfter(user, lastSuccessfulSyncDate);
 		}
 		
-		for (TimeRegistration timeRegistration : timeRegistrations) {
+		// Every time registration has a sync key since it's the key of the
+		// entity, but the task it refers to can be removed in the meantime
+		Iterator<TimeRegistration> iterator = timeRegistrations.iterator();
+		while (iterator.hasNext()) {
+			TimeRegistration timeRegistration = iterator.next();
 			if (timeRegistration.getTask() == null || timeRegistration.getTask().getProject() == null) {
-				if (timeRegistration.getSyncKey() != null) {
-					log.info("Trying to recover time registation with id " + timeRegistration.getKey() + " by sync key " + timeRegistration.getSyncKey());
-					timeRegistration = timeRegistrationDao.findBySyncKey(timeRegistration.getSyncKey(), user);
-					log.info("Time registration recovered...");
-					log.info("Found time registation with task " + timeRegistration.getTask().getName());
-				} else {
-					log.info("Cannot recover time registration because sync key is missing");
-				}
-			}
-			
-			if (timeRegistration.getSyncKey() == null) {
-				timeRegistration.setSyncKey(generateSyncKeyForTimeRegistration(user));
-				timeRegistrationDao.update(timeRegistration);
+				log.info("The time registration with sync key " + timeRegistration.getSyncKey() + " has no task and is not returned");
+				iterator.remove();
 			}
 		}
 		
@@ -978,14 +564,12 @@ public class SyncServiceImpl implements SyncService {
 				timeRegistrationResult.getSyncedTimeRegistration().getTask().getProject().setUser(null);
 				timeRegistrationResult.getSyncedTimeRegistration().getTask().getProject().setKey(null);
 				timeRegistrationResult.getSyncedTimeRegistration().getTask().setKey(null);
-				timeRegistrationResult.getSyncedTimeRegistration().setKey(null);
 			}
 			if (timeRegistrationResult.getSyncedTimeRegistrations() != null) {
 				for (TimeRegistration syncedTimeRegistration : timeRegistrationResult.getSyncedTimeRegistrations()) {
 					syncedTimeRegistration.getTask().getProject().setUser(null);
 					syncedTimeRegistration.getTask().getProject().setKey(null);
 					syncedTimeRegistration.getTask().setKey(null);
-					syncedTimeRegistration.setKey(null);
 				}
 			}
 		}
@@ -1018,7 +602,6 @@ public class SyncServiceImpl implements SyncService {
 		timeRegistration.getTask().getProject().setUser(null);
 		timeRegistration.getTask().getProject().setKey(null);
 		timeRegistration.getTask().setKey(null);
-		timeRegistration.setKey(null);
 	}
 	
 	private void obscureData(Project project) {
@@ -0,0 +1,217 @@
+package eu.vranckaert.worktime.service.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.QueryResultIterator;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.appengine.api.taskqueue.TaskOptions.Method;
+import com.google.inject.Inject;
+
+import eu.vranckaert.worktime.dao.SyncLockDao;
+import eu.vranckaert.worktime.dao.TimeRegistrationDao;
+import eu.vranckaert.worktime.dao.UserDataPurgeDao;
+import eu.vranckaert.worktime.model.TimeRegistrationIndex;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.purge.UserDataPurge;
+import eu.vranckaert.worktime.model.sync.SyncLock;
+import eu.vranckaert.worktime.security.dao.UserDao;
+import eu.vranckaert.worktime.service.ReportService;
+import eu.vranckaert.worktime.service.UserDataPurgeService;
+
+/**
+ * Runs the purges as a chain of tasks on the App Engine push queue
+ * {@link #QUEUE_NAME}, handled by the
+ * {@link eu.vranckaert.worktime.task.purge.PurgeUserDataServlet}. Every task
+ * removes batches of {@link #BATCH_SIZE} entities for at most
+ * {@link #PURGE_MILLIS} and queues the next task. A task that fails is
+ * retried by App Engine and resumes from the last stored batch. The tasks are
+ * named after the user and a number stored in the purge, so there is only one
+ * chain of tasks per purge. Every batch is removed while holding the
+ * synchronisation lock of the user, a synchronisation never sees a half
+ * removed batch.
+ */
+public class UserDataPurgeServiceImpl implements UserDataPurgeService {
+	private static final Logger log = Logger.getLogger(UserDataPurgeServiceImpl.class.getName());
+
+	public static final String QUEUE_NAME = "purge";
+	public static final String WORKER_URL = "/tasks/purgeUserData";
+	public static final String PARAM_EMAIL = "email";
+
+	/**
+	 * The number of entities removed at once, the maximum of one datastore
+	 * delete.
+	 */
+	private static final int BATCH_SIZE = 500;
+	/**
+	 * The time one task keeps removing batches, well within the deadline of
+	 * 10 minutes of a task.
+	 */
+	private static final long PURGE_MILLIS = 60L * 1000L;
+	/**
+	 * A purge that did not make progress for this long is considered to be
+	 * stopped (the task retries are exhausted) and is resumed when it's
+	 * scheduled again. The retries of the purge queue in queue.xml take about
+	 * 4 hours, with up to an hour between two retries, so a purge that is 
+	 * still retrying is never resumed a second time.
+	 */
+	private static final long STALE_MILLIS = 6L * 60L * 60L * 1000L;
+	/**
+	 * The lease of the synchronisation lock taken for one batch.
+	 */
+	private static final long BATCH_LOCK_LEASE = 60L * 1000L;
+	/**
+	 * The delay of the next task when the synchronisation lock is held by a
+	 * synchronisation.
+	 */
+	private static final long LOCK_RETRY_MILLIS = 30L * 1000L;
+
+	@Inject private UserDataPurgeDao userDataPurgeDao;
+
+	@Inject private UserDao userDao;
+
+	@Inject private SyncLockDao syncLockDao;
+
+	@Inject private TimeRegistrationDao timeRegistrationDao;
+
+	@Inject private ReportService reportService;
+
+	@Override
+	public UserDataPurge schedulePurge(User user) {
+		Date now = new Date();
+		UserDataPurge purge = userDataPurgeDao.findById(user.getEmail());
+		if (purge != null && !purge.isDone()) {
+			if (now.getTime() - purge.getLastProgressTime().getTime() < STALE_MILLIS) {
+				log.info("The data of user " + user.getEmail() + " is already being removed");
+				return purge;
+			}
+			log.info("Resuming the removal of the data of user " + user.getEmail() + ", it did not make progress since " + purge.getLastProgressTime());
+			purge.setLastProgressTime(now);
+		} else {
+			purge = new UserDataPurge(user.getEmail());
+			purge.setStartTime(now);
+			purge.setLastProgressTime(now);
+			userDataPurgeDao.persist(purge);
+			log.info("Scheduled the removal of the data of user " + user.getEmail());
+		}
+
+		enqueue(purge, 0L);
+		return purge;
+	}
+
+	@Override
+	public UserDataPurge continuePurge(String userEmail) {
+		long start = System.currentTimeMillis();
+
+		UserDataPurge purge = userDataPurgeDao.findById(userEmail);
+		if (purge == null || purge.isDone()) {
+			return purge;
+		}
+
+		User user = userDao.findById(userEmail);
+		if (user == null) {
+			log.warning("User " + userEmail + " does not exist anymore, the removal of it's data is stopped");
+			purge.setKindIndex(UserDataPurge.KINDS.length);
+			purge.setEndTime(new Date());
+			userDataPurgeDao.update(purge);
+			return purge;
+		}
+
+		do {
+			SyncLock lock = syncLockDao.acquire(user, BATCH_LOCK_LEASE);
+			if (lock == null) {
+				log.info("User " + userEmail + " is synchronising, the removal of it's data continues in " + (LOCK_RETRY_MILLIS / 1000L) + " seconds");
+				enqueue(purge, LOCK_RETRY_MILLIS);
+				return purge;
+			}
+			try {
+				removeBatch(user, purge);
+			} finally {
+				syncLockDao.release(user, lock.getLockKey());
+			}
+		} while (!purge.isDone() && System.currentTimeMillis() - start < PURGE_MILLIS);
+
+		if (purge.isDone()) {
+			reportService.invalidateTotals(user);
+			log.info("All data of user " + userEmail + " has been removed, " + purge.getRemovedEntities() + " entities in total");
+		} else {
+			log.info(purge.getRemovedEntities() + " entities of user " + userEmail + " have been removed so far, continuing with the " + purge.getKind() + " entities in a new task");
+			enqueue(purge, 0L);
+		}
+		return purge;
+	}
+
+	private void removeBatch(User user, UserDataPurge purge) {
+		if (TimeRegistrationIndex.KIND.equals(purge.getKind())) {
+			// Removing the time registrations empties the index, there is no
+			// cursor to keep
+			int removed = timeRegistrationDao.removeBatch(user, BATCH_SIZE);
+			purge.setRemovedEntities(purge.getRemovedEntities() + removed);
+			if (removed < BATCH_SIZE) {
+				purge.nextKind();
+			}
+			updateProgress(purge);
+			return;
+		}
+
+		Cursor cursor = purge.getCursor() == null ? null : Cursor.fromWebSafeString(purge.getCursor());
+		QueryResultIterator<Entity> entities = userDataPurgeDao.findKeys(user, purge.getKind(), cursor, BATCH_SIZE);
+		List<Key> keys = new ArrayList<Key>();
+		while (entities.hasNext()) {
+			keys.add(entities.next().getKey());
+		}
+		userDataPurgeDao.removeKeys(keys);
+
+		purge.setRemovedEntities(purge.getRemovedEntities() + keys.size());
+		if (keys.size() < BATCH_SIZE) {
+			purge.nextKind();
+		} else {
+			purge.setCursor(entities.getCursor().toWebSafeString());
+		}
+		updateProgress(purge);
+	}
+
+	private void updateProgress(UserDataPurge purge) {
+		purge.setLastProgressTime(new Date());
+		if (purge.isDone()) {
+			purge.setEndTime(purge.getLastProgressTime());
+		}
+		userDataPurgeDao.update(purge);
+	}
+
+	@Override
+	public UserDataPurge findPurge(String userEmail) {
+		return userDataPurgeDao.findById(userEmail);
+	}
+
+	/**
+	 * Queues the next task of a purge. The task number is stored before the
+	 * task is queued: if storing fails the current task is retried and 
+	 * queues the task again, if queueing fails a retry takes the next number.
+	 * @param purge The purge.
+	 * @param countdownMillis The delay before the task runs.
+	 */
+	private void enqueue(UserDataPurge purge, long countdownMillis) {
+		purge.setTaskNumber(purge.getTaskNumber() + 1);
+		userDataPurgeDao.update(purge);
+
+		// Task names only allow letters, digits, '-' and '_', the email is 
+		// hashed. The start time tells apart purges of the same user.
+		String taskName = "purge-" + DigestUtils.md5Hex(purge.getUserEmail()) + "-" + purge.getStartTime().getTime() + "-" + purge.getTaskNumber();
+		try {
+			QueueFactory.getQueue(QUEUE_NAME).add(TaskOptions.Builder.withUrl(WORKER_URL).method(Method.POST).param(PARAM_EMAIL, purge.getUserEmail())
+					.taskName(taskName).countdownMillis(countdownMillis));
+		} catch (TaskAlreadyExistsException e) {
+			log.info("Task " + taskName + " of the removal of the data of user " + purge.getUserEmail() + " is already queued");
+		}
+	}
+}
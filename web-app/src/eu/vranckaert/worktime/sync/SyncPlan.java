@@ -0,0 +1,175 @@
+package eu.vranckaert.worktime.sync;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.report.DailyTotalChanges;
+import eu.vranckaert.worktime.model.sync.EntitySyncResolution;
+import eu.vranckaert.worktime.model.sync.ProjectSyncResult;
+import eu.vranckaert.worktime.model.sync.TaskSyncResult;
+import eu.vranckaert.worktime.model.sync.TimeRegistrationSyncResult;
+
+/**
+ * The outcome of the {@link SyncReconciler}: the result for every incoming
+ * entity that has been synchronised and the writes needed to bring the
+ * datastore in line with those results. Nothing is written while the plan is
+ * built, it's applied afterwards with one batch per entity type and
+ * operation. The removals should be applied first, the projects should be
+ * stored before the tasks and the tasks before the time registrations.
+ */
+public class SyncPlan {
+	/**
+	 * The writes of one entity type. Every entity is part of one list only: an
+	 * entity that is stored and changed again in the same synchronisation is
+	 * only stored, an entity that is removed is not updated and an entity that
+	 * is stored and removed again is not written at all.
+	 */
+	public static class Writes<T> {
+		private final List<T> toStore = new ArrayList<T>();
+		private final List<T> toUpdate = new ArrayList<T>();
+		private final List<T> toRemove = new ArrayList<T>();
+		private final Map<T, List<T>> lists = new IdentityHashMap<T, List<T>>();
+
+		void store(T entity) {
+			if (!lists.containsKey(entity)) {
+				toStore.add(entity);
+				lists.put(entity, toStore);
+			}
+		}
+
+		void update(T entity) {
+			if (!lists.containsKey(entity)) {
+				toUpdate.add(entity);
+				lists.put(entity, toUpdate);
+			}
+		}
+
+		void remove(T entity) {
+			List<T> list = lists.get(entity);
+			if (list == toStore) {
+				SyncSnapshot.removeInstance(toStore, entity);
+				lists.remove(entity);
+			} else if (list != toRemove) {
+				if (list == toUpdate) {
+					SyncSnapshot.removeInstance(toUpdate, entity);
+				}
+				toRemove.add(entity);
+				lists.put(entity, toRemove);
+			}
+		}
+
+		public List<T> getToStore() {
+			return toStore;
+		}
+
+		public List<T> getToUpdate() {
+			return toUpdate;
+		}
+
+		public List<T> getToRemove() {
+			return toRemove;
+		}
+	}
+
+	private final Writes<Project> projects = new Writes<Project>();
+	private final Writes<Task> tasks = new Writes<Task>();
+	private final Writes<TimeRegistration> timeRegistrations = new Writes<TimeRegistration>();
+
+	private final List<ProjectSyncResult> projectResults = new ArrayList<ProjectSyncResult>();
+	private final List<TaskSyncResult> taskResults = new ArrayList<TaskSyncResult>();
+	private final List<TimeRegistrationSyncResult> timeRegistrationResults = new ArrayList<TimeRegistrationSyncResult>();
+
+	private int projectsSynced = 0;
+	private int tasksSynced = 0;
+	private int timeRegistrationsSynced = 0;
+	private boolean interrupted = false;
+
+	/**
+	 * The changes to the daily totals of the user caused by the time
+	 * registrations that are stored, updated or removed.
+	 */
+	private final DailyTotalChanges dailyTotalChanges = new DailyTotalChanges();
+
+	public Writes<Project> getProjects() {
+		return projects;
+	}
+
+	public Writes<Task> getTasks() {
+		return tasks;
+	}
+
+	public Writes<TimeRegistration> getTimeRegistrations() {
+		return timeRegistrations;
+	}
+
+	public List<ProjectSyncResult> getProjectResults() {
+		return projectResults;
+	}
+
+	public List<TaskSyncResult> getTaskResults() {
+		return taskResults;
+	}
+
+	public List<TimeRegistrationSyncResult> getTimeRegistrationResults() {
+		return timeRegistrationResults;
+	}
+
+	/**
+	 * @return The number of projects that have been accepted, merged or not
+	 * accepted.
+	 */
+	public int getProjectsSynced() {
+		return projectsSynced;
+	}
+
+	public int getTasksSynced() {
+		return tasksSynced;
+	}
+
+	public int getTimeRegistrationsSynced() {
+		return timeRegistrationsSynced;
+	}
+
+	public int getEntitiesSynced() {
+		return projectsSynced + tasksSynced + timeRegistrationsSynced;
+	}
+
+	/**
+	 * @return True if not all incoming entities have been synchronised
+	 * because the maximum number of entities per synchronisation is reached.
+	 */
+	public boolean isInterrupted() {
+		return interrupted;
+	}
+
+	void setInterrupted(boolean interrupted) {
+		this.interrupted = interrupted;
+	}
+
+	public DailyTotalChanges getDailyTotalChanges() {
+		return dailyTotalChanges;
+	}
+
+	void addResult(ProjectSyncResult result) {
+		projectResults.add(result);
+		if (result.getResolution() != EntitySyncResolution.NO_ACTION)
+			projectsSynced++;
+	}
+
+	void addResult(TaskSyncResult result) {
+		taskResults.add(result);
+		if (result.getResolution() != EntitySyncResolution.NO_ACTION)
+			tasksSynced++;
+	}
+
+	void addResult(TimeRegistrationSyncResult result) {
+		timeRegistrationResults.add(result);
+		if (result.getResolution() != EntitySyncResolution.NO_ACTION)
+			timeRegistrationsSynced++;
+	}
+}
@@ -0,0 +1,501 @@
+package eu.vranckaert.worktime.sync;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang3.StringUtils;
+
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.sync.EntitySyncResolution;
+import eu.vranckaert.worktime.model.sync.ProjectSyncResult;
+import eu.vranckaert.worktime.model.sync.SyncConflictConfiguration;
+import eu.vranckaert.worktime.model.sync.TaskSyncResult;
+import eu.vranckaert.worktime.model.sync.TimeRegistrationSyncResult;
+import eu.vranckaert.worktime.security.utils.KeyGenerator;
+
+/**
+ * Resolves the entities a client sends in for synchronisation against the
+ * server state of the user. The reconciler does not touch the datastore: it
+ * works on a {@link SyncSnapshot} and returns a {@link SyncPlan} with the
+ * results and the writes, so the merge rules can be tested without a
+ * datastore and the writes can be applied in batches afterwards.<br/>
+ * The incoming entities are updated with the synchronised state (sync key,
+ * merged contents), as the results refer to them.<br/>
+ * The entities are resolved one after the other, in the order projects,
+ * tasks and time registrations. Whether a time registration is accepted
+ * depends on all other time registrations of the user, no matter what
+ * project they belong to, so the resolution can not be split per project.
+ */
+public class SyncReconciler {
+	private static final Logger log = Logger.getLogger(SyncReconciler.class.getName());
+
+	/**
+	 * The maximum number of entities that can be accepted, merged or not
+	 * accepted in one synchronisation.
+	 */
+	public static final int MAX_ENTITIES_SYNCED = 50;
+
+	private final SyncConflictConfiguration conflictConfiguration;
+	private final Date lastSuccessfulSyncDate;
+	private final Date now;
+
+	/**
+	 * @param conflictConfiguration Decides which side wins a conflict.
+	 * @param lastSuccessfulSyncDate The last successful synchronisation of
+	 * the client, null if the client never synchronised.
+	 * @param now The time of the synchronisation.
+	 */
+	public SyncReconciler(SyncConflictConfiguration conflictConfiguration, Date lastSuccessfulSyncDate, Date now) {
+		this.conflictConfiguration = conflictConfiguration;
+		this.lastSuccessfulSyncDate = lastSuccessfulSyncDate;
+		this.now = now;
+	}
+
+	/**
+	 * Resolves the incoming entities. The snapshot is updated with the
+	 * outcome. An incoming time registration that matches the ongoing time
+	 * registration on the server is resolved first and removed from the
+	 * incoming time registrations.
+	 * @param snapshot The server state of the user.
+	 * @param incomingProjects The projects of the client.
+	 * @param incomingTasks The tasks of the client.
+	 * @param incomingTimeRegistrations The time registrations of the client.
+	 * @param syncRemovalMap The sync keys of the entities removed by the
+	 * client, mapped on the entity name.
+	 * @return The plan with the results and the writes.
+	 */
+	public SyncPlan reconcile(SyncSnapshot snapshot, List<Project> incomingProjects, List<Task> incomingTasks, List<TimeRegistration> incomingTimeRegistrations, Map<String, String> syncRemovalMap) {
+		SyncPlan plan = new SyncPlan();
+		User user = snapshot.getUser();
+
+		List<Project> projects = getProjectsToSync(user, incomingProjects, incomingTimeRegistrations);
+		List<Task> tasks = getTasksToSync(incomingTasks, incomingTimeRegistrations);
+
+		removeEntities(snapshot, plan, syncRemovalMap);
+
+		for (Project project : projects) {
+			if (isLimitReached(plan)) {
+				return plan;
+			}
+			plan.addResult(syncProject(snapshot, plan, project));
+		}
+		log.info(plan.getProjectsSynced() + " projects have been synced for user " + user.getEmail());
+
+		for (Task task : tasks) {
+			if (isLimitReached(plan)) {
+				return plan;
+			}
+			Project projectForTask = snapshot.findProject(task.getProject().getName());
+			plan.addResult(syncTask(snapshot, plan, task, projectForTask));
+		}
+		log.info(plan.getTasksSynced() + " tasks have been synced for user " + user.getEmail());
+
+		if (isLimitReached(plan)) {
+			return plan;
+		}
+
+		// Issue 190 - The incoming time registration that matches the ongoing
+		// time registration on the server is synced first and only once
+		TimeRegistration ongoingTimeRegistration = snapshot.findOngoingTimeRegistration();
+		if (ongoingTimeRegistration != null && StringUtils.isNotBlank(ongoingTimeRegistration.getSyncKey())
+				&& (syncRemovalMap == null || !syncRemovalMap.containsKey(ongoingTimeRegistration.getSyncKey()))) {
+			for (TimeRegistration timeRegistration : incomingTimeRegistrations) {
+				if (ongoingTimeRegistration.getSyncKey().equals(timeRegistration.getSyncKey())) {
+					log.info("Found the incoming time registration that matches the ongoing time registration, syncing it first");
+					plan.addResult(syncTimeRegistration(snapshot, plan, timeRegistration));
+					incomingTimeRegistrations.remove(timeRegistration);
+					break;
+				}
+			}
+		}
+
+		for (TimeRegistration timeRegistration : incomingTimeRegistrations) {
+			if (isLimitReached(plan)) {
+				return plan;
+			}
+			plan.addResult(syncTimeRegistration(snapshot, plan, timeRegistration));
+		}
+		log.info(plan.getTimeRegistrationsSynced() + " time registrations have been synced for user " + user.getEmail());
+
+		return plan;
+	}
+
+	private boolean isLimitReached(SyncPlan plan) {
+		if (plan.getEntitiesSynced() > MAX_ENTITIES_SYNCED) {
+			log.info("The maximum of " + MAX_ENTITIES_SYNCED + " entities at a time to be synced is reached");
+			plan.setInterrupted(true);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * The projects to sync: the project of every time registration and every
+	 * incoming project that does not appear in a time registration.
+	 */
+	private List<Project> getProjectsToSync(User user, List<Project> incomingProjects, List<TimeRegistration> incomingTimeRegistrations) {
+		List<Project> projects = new ArrayList<Project>();
+		for (TimeRegistration timeRegistration : incomingTimeRegistrations) {
+			Project project = timeRegistration.getTask().getProject();
+			project.setUser(user);
+			projects.add(project);
+		}
+
+		for (Project incomingProject : incomingProjects) {
+			boolean projectFound = false;
+			for (Project project : projects) {
+				if (project.getName().equals(incomingProject.getName())) {
+					projectFound = true;
+					break;
+				}
+			}
+
+			if (!projectFound) {
+				incomingProject.setUser(user);
+				projects.add(incomingProject);
+			}
+		}
+		return projects;
+	}
+
+	/**
+	 * The tasks to sync: the task of every time registration and every
+	 * incoming task that does not appear in a time registration.
+	 */
+	private List<Task> getTasksToSync(List<Task> incomingTasks, List<TimeRegistration> incomingTimeRegistrations) {
+		List<Task> tasks = new ArrayList<Task>();
+		for (TimeRegistration timeRegistration : incomingTimeRegistrations) {
+			tasks.add(timeRegistration.getTask());
+		}
+
+		for (Task incomingTask : incomingTasks) {
+			boolean taskFound = false;
+			for (Task task : tasks) {
+				if (task.getName().equals(incomingTask.getName()) && task.getProject().getName().equals(incomingTask.getProject().getName())) {
+					taskFound = true;
+					break;
+				}
+			}
+
+			if (!taskFound) {
+				tasks.add(incomingTask);
+			}
+		}
+		return tasks;
+	}
+
+	private void removeEntities(SyncSnapshot snapshot, SyncPlan plan, Map<String, String> syncRemovalMap) {
+		if (syncRemovalMap == null || syncRemovalMap.isEmpty())
+			return;
+
+		List<String> projectSyncKeys = new ArrayList<String>();
+		List<String> taskSyncKeys = new ArrayList<String>();
+		List<String> timeRegistrationSyncKeys = new ArrayList<String>();
+
+		for (Map.Entry<String, String> entry : syncRemovalMap.entrySet()) {
+			String entityName = entry.getValue();
+			if ("Project".equals(entityName)) {
+				projectSyncKeys.add(entry.getKey());
+			} else if ("Task".equals(entityName)) {
+				taskSyncKeys.add(entry.getKey());
+			} else if ("TimeRegistration".equals(entityName)) {
+				timeRegistrationSyncKeys.add(entry.getKey());
+			}
+		}
+
+		for (String syncKey : timeRegistrationSyncKeys) {
+			TimeRegistration entity = snapshot.findTimeRegistrationBySyncKey(syncKey);
+			if (entity != null && isRemovable(entity.isModifiedAfter(lastSuccessfulSyncDate))) {
+				plan.getDailyTotalChanges().remove(entity);
+				snapshot.removeTimeRegistration(entity);
+				plan.getTimeRegistrations().remove(entity);
+			}
+		}
+
+		for (String syncKey : taskSyncKeys) {
+			Task entity = snapshot.findTaskBySyncKey(syncKey);
+			if (entity != null && isRemovable(entity.isModifiedAfter(lastSuccessfulSyncDate))) {
+				snapshot.removeTask(entity);
+				plan.getTasks().remove(entity);
+			}
+		}
+
+		for (String syncKey : projectSyncKeys) {
+			Project entity = snapshot.findProjectBySyncKey(syncKey);
+			if (entity != null && isRemovable(entity.isModifiedAfter(lastSuccessfulSyncDate))) {
+				snapshot.removeProject(entity);
+				plan.getProjects().remove(entity);
+			}
+		}
+	}
+
+	/**
+	 * An entity removed by the client is removed on the server unless it has
+	 * been modified on the server since the last synchronisation and the
+	 * server wins conflicts.
+	 */
+	private boolean isRemovable(boolean modifiedAfterLastSync) {
+		return !modifiedAfterLastSync || conflictConfiguration == SyncConflictConfiguration.CLIENT;
+	}
+
+	private ProjectSyncResult syncProject(SyncSnapshot snapshot, SyncPlan plan, Project project) {
+		ProjectSyncResult result = new ProjectSyncResult(project);
+		result.setProject(project);
+
+		Project localProject = null;
+		if (StringUtils.isBlank(project.getSyncKey())) {
+			localProject = snapshot.findProject(project.getName());
+		} else {
+			localProject = snapshot.findProjectBySyncKey(project.getSyncKey());
+			if (localProject == null) {
+				result.setResolution(EntitySyncResolution.NOT_ACCEPTED);
+				result.setSyncedProject(null);
+				return result;
+			}
+		}
+
+		if (localProject == null) { // No matching project is found so persist project
+			project.setSyncKey(generateSyncKey(snapshot));
+			snapshot.addProject(project);
+			plan.getProjects().store(project);
+
+			result.setResolution(EntitySyncResolution.ACCEPTED);
+			result.setSyncedProject(project);
+		} else { // A matching project is found so compare the contents
+			if (localProject.getSyncKey() == null) {
+				localProject.setSyncKey(generateSyncKey(snapshot));
+				snapshot.updateProject(localProject);
+			}
+			if (project.getSyncKey() == null || !project.getSyncKey().equals(localProject.getSyncKey())) {
+				project.setSyncKey(localProject.getSyncKey());
+			}
+
+			if (!project.equalsContent(localProject)) {
+				if (isIncomingWinning(localProject.isModifiedAfter(project.getLastUpdated()), project.isModifiedAfter(localProject.getLastUpdated()))) {
+					copyProjectContents(project, localProject);
+					snapshot.updateProject(localProject);
+				} else {
+					copyProjectContents(localProject, project);
+				}
+
+				result.setResolution(EntitySyncResolution.MERGED);
+			} else {
+				result.setResolution(EntitySyncResolution.NO_ACTION);
+			}
+			result.setSyncedProject(localProject);
+			plan.getProjects().update(localProject);
+		}
+		return result;
+	}
+
+	private void copyProjectContents(Project source, Project destination) {
+		destination.setName(source.getName());
+		destination.setComment(source.getComment());
+		destination.setDefaultValue(source.isDefaultValue());
+		destination.setFinished(source.isFinished());
+		destination.setFlags(source.getFlags());
+		destination.setOrder(source.getOrder());
+		destination.setLastUpdated(source.getLastUpdated());
+	}
+
+	private TaskSyncResult syncTask(SyncSnapshot snapshot, SyncPlan plan, Task task, Project project) {
+		TaskSyncResult result = new TaskSyncResult(task);
+		result.setTask(task);
+
+		if (project == null) {
+			log.warning("No project found for task " + task.getName() + ", the task is not accepted");
+			result.setResolution(EntitySyncResolution.NOT_ACCEPTED);
+			result.setSyncedTask(null);
+			return result;
+		}
+
+		Task localTask = null;
+		if (StringUtils.isBlank(task.getSyncKey())) {
+			localTask = snapshot.findTask(task.getName(), project);
+		} else {
+			localTask = snapshot.findTaskBySyncKey(task.getSyncKey());
+			if (localTask == null) {
+				result.setResolution(EntitySyncResolution.NOT_ACCEPTED);
+				result.setSyncedTask(null);
+				return result;
+			}
+		}
+
+		if (localTask == null) { // No matching task is found so persist task
+			task.setProject(project);
+			task.setSyncKey(generateSyncKey(snapshot));
+			snapshot.addTask(task);
+			plan.getTasks().store(task);
+
+			result.setResolution(EntitySyncResolution.ACCEPTED);
+			result.setSyncedTask(task);
+		} else { // A matching task is found so compare the contents
+			if (localTask.getSyncKey() == null) {
+				localTask.setSyncKey(generateSyncKey(snapshot));
+				snapshot.updateTask(localTask);
+			}
+			if (task.getSyncKey() == null || !task.getSyncKey().equals(localTask.getSyncKey())) {
+				task.setSyncKey(localTask.getSyncKey());
+			}
+
+			if (!task.equalsContent(localTask)) {
+				if (isIncomingWinning(localTask.isModifiedAfter(task.getLastUpdated()), task.isModifiedAfter(localTask.getLastUpdated()))) {
+					copyTaskContents(task, localTask, project);
+					snapshot.updateTask(localTask);
+				} else {
+					copyTaskContents(localTask, task, project);
+				}
+
+				result.setResolution(EntitySyncResolution.MERGED);
+			} else {
+				result.setResolution(EntitySyncResolution.NO_ACTION);
+			}
+			result.setSyncedTask(localTask);
+			plan.getTasks().update(localTask);
+		}
+		return result;
+	}
+
+	private void copyTaskContents(Task source, Task destination, Project project) {
+		destination.setName(source.getName());
+		destination.setComment(source.getComment());
+		destination.setFinished(source.isFinished());
+		destination.setFlags(source.getFlags());
+		destination.setOrder(source.getOrder());
+		destination.setLastUpdated(source.getLastUpdated());
+		destination.setProject(project);
+	}
+
+	private TimeRegistrationSyncResult syncTimeRegistration(SyncSnapshot snapshot, SyncPlan plan, TimeRegistration timeRegistration) {
+		TimeRegistrationSyncResult result = new TimeRegistrationSyncResult(timeRegistration);
+		result.setTimeRegistration(timeRegistration);
+
+		Task task = null;
+		Project project = snapshot.findProject(timeRegistration.getTask().getProject().getName());
+		if (project != null) {
+			task = snapshot.findTask(timeRegistration.getTask().getName(), project);
+		}
+		if (task == null) {
+			log.warning("No task found for the time registration that started at " + timeRegistration.getStartTime() + ", the time registration is not accepted");
+			result.setResolution(EntitySyncResolution.NOT_ACCEPTED);
+			result.setSyncedTimeRegistration(null);
+			result.setSyncedTimeRegistrations(null);
+			return result;
+		}
+
+		TimeRegistration localTimeRegistration = null;
+		if (StringUtils.isBlank(timeRegistration.getSyncKey())) {
+			localTimeRegistration = snapshot.findTimeRegistration(timeRegistration.getStartTime(), timeRegistration.getEndTime());
+		} else {
+			localTimeRegistration = snapshot.findTimeRegistrationBySyncKey(timeRegistration.getSyncKey());
+			if (localTimeRegistration == null) {
+				// The time registration is already removed on the server
+				result.setResolution(EntitySyncResolution.NOT_ACCEPTED);
+				result.setSyncedTimeRegistration(null);
+				result.setSyncedTimeRegistrations(null);
+				return result;
+			}
+		}
+
+		if (localTimeRegistration == null) { // No matching time registration is found so persist time registration after interference check
+			List<TimeRegistration> interferingTimeRegistrations = snapshot.findInterferingTimeRegistrations(timeRegistration, now);
+			if (!interferingTimeRegistrations.isEmpty() && conflictConfiguration == SyncConflictConfiguration.SERVER) {
+				// Server wins so the incoming time registration is not kept,
+				// the interfering ones are returned with a sync key
+				for (TimeRegistration interferingTimeRegistration : interferingTimeRegistrations) {
+					if (StringUtils.isEmpty(interferingTimeRegistration.getSyncKey())) {
+						interferingTimeRegistration.setSyncKey(generateSyncKey(snapshot));
+						snapshot.updateTimeRegistration(interferingTimeRegistration);
+						plan.getTimeRegistrations().update(interferingTimeRegistration);
+					}
+				}
+
+				result.setResolution(EntitySyncResolution.NOT_ACCEPTED);
+				result.setSyncedTimeRegistrations(interferingTimeRegistrations);
+				return result;
+			}
+
+			// Client wins so all interfering time registrations are removed
+			for (TimeRegistration interferingTimeRegistration : interferingTimeRegistrations) {
+				plan.getDailyTotalChanges().remove(interferingTimeRegistration);
+				snapshot.removeTimeRegistration(interferingTimeRegistration);
+				plan.getTimeRegistrations().remove(interferingTimeRegistration);
+			}
+			timeRegistration.setTask(task);
+			timeRegistration.setSyncKey(generateSyncKey(snapshot));
+			snapshot.addTimeRegistration(timeRegistration);
+			plan.getTimeRegistrations().store(timeRegistration);
+			plan.getDailyTotalChanges().add(timeRegistration);
+
+			result.setResolution(EntitySyncResolution.ACCEPTED);
+			result.setSyncedTimeRegistration(timeRegistration);
+		} else { // A matching time registration is found so compare the contents
+			if (localTimeRegistration.getSyncKey() == null) {
+				localTimeRegistration.setSyncKey(generateSyncKey(snapshot));
+				snapshot.updateTimeRegistration(localTimeRegistration);
+			}
+			if (timeRegistration.getSyncKey() == null || !timeRegistration.getSyncKey().equals(localTimeRegistration.getSyncKey())) {
+				timeRegistration.setSyncKey(localTimeRegistration.getSyncKey());
+			}
+
+			// The contents of the local time registration can change, so it's
+			// removed from the daily totals and added again when updated
+			plan.getDailyTotalChanges().remove(localTimeRegistration);
+			// The first check only checks for the non-id content, the second
+			// checks for the id-content, in this case being the start and end time
+			if (!timeRegistration.equalsContent(localTimeRegistration) || !timeRegistration.equals(localTimeRegistration)) {
+				if (isIncomingWinning(localTimeRegistration.isModifiedAfter(timeRegistration.getLastUpdated()), timeRegistration.isModifiedAfter(localTimeRegistration.getLastUpdated()))) {
+					copyTimeRegistrationContents(timeRegistration, localTimeRegistration, task);
+					snapshot.updateTimeRegistration(localTimeRegistration);
+				} else {
+					copyTimeRegistrationContents(localTimeRegistration, timeRegistration, task);
+				}
+
+				result.setResolution(EntitySyncResolution.MERGED);
+			} else {
+				result.setResolution(EntitySyncResolution.NO_ACTION);
+			}
+			result.setSyncedTimeRegistration(localTimeRegistration);
+			plan.getTimeRegistrations().update(localTimeRegistration);
+			plan.getDailyTotalChanges().add(localTimeRegistration);
+		}
+		return result;
+	}
+
+	private void copyTimeRegistrationContents(TimeRegistration source, TimeRegistration destination, Task task) {
+		destination.setStartTime(source.getStartTime());
+		destination.setEndTime(source.getEndTime());
+		destination.setComment(source.getComment());
+		destination.setFlags(source.getFlags());
+		destination.setTask(task);
+		destination.setLastUpdated(source.getLastUpdated());
+	}
+
+	/**
+	 * Decides which side wins when the contents of an incoming and a server
+	 * entity differ: the most recently modified one, or the side of the
+	 * conflict configuration if both are modified at the same time.
+	 */
+	private boolean isIncomingWinning(boolean localModifiedAfterIncoming, boolean incomingModifiedAfterLocal) {
+		if (localModifiedAfterIncoming) {
+			return false;
+		} else if (incomingModifiedAfterLocal) {
+			return true;
+		}
+		return conflictConfiguration == SyncConflictConfiguration.CLIENT;
+	}
+
+	private String generateSyncKey(SyncSnapshot snapshot) {
+		String syncKey = KeyGenerator.getNewKey();
+		while (!snapshot.reserveSyncKey(syncKey)) {
+			syncKey = KeyGenerator.getNewKey();
+		}
+		return syncKey;
+	}
+}
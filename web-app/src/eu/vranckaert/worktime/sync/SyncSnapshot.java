@@ -0,0 +1,356 @@
+package eu.vranckaert.worktime.sync;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.User;
+
+/**
+ * The server state of one user as seen by the {@link SyncReconciler}: all the
+ * projects and tasks of the user and the time registrations the incoming
+ * entities can refer to. The snapshot is loaded once at the start of a
+ * synchronisation and answers the lookups that used to be a datastore query
+ * per incoming entity. Every lookup is a map lookup, the time registrations
+ * are sorted by start time for the overlap check.<br/>
+ * The reconciler keeps the snapshot up to date while it resolves the incoming
+ * entities: an entity that is accepted can be found by the entities that
+ * follow, an entity that is removed can not, and an entity of which a looked
+ * up property changes is indexed again.
+ */
+public class SyncSnapshot {
+	/**
+	 * Entities by a key, more than one entity can have the same key. The key
+	 * under which an entity is indexed is kept, so the entity can be removed
+	 * after the property the key is made of has changed.
+	 */
+	private static class EntityIndex<K, E> {
+		private final Map<K, List<E>> entities;
+		private final Map<E, K> keys = new IdentityHashMap<E, K>();
+
+		EntityIndex(Map<K, List<E>> entities) {
+			this.entities = entities;
+		}
+
+		void put(K key, E entity) {
+			List<E> list = entities.get(key);
+			if (list == null) {
+				list = new ArrayList<E>(1);
+				entities.put(key, list);
+			}
+			list.add(entity);
+			keys.put(entity, key);
+		}
+
+		void remove(E entity) {
+			if (!keys.containsKey(entity)) {
+				return;
+			}
+			K key = keys.remove(entity);
+			List<E> list = entities.get(key);
+			removeInstance(list, entity);
+			if (list.isEmpty()) {
+				entities.remove(key);
+			}
+		}
+
+		/**
+		 * @return The first entity indexed under the key or null if there is
+		 * none.
+		 */
+		E findFirst(K key) {
+			List<E> list = entities.get(key);
+			return list == null ? null : list.get(0);
+		}
+
+		/**
+		 * @return The entity indexed under the key or null if none or more
+		 * than one entity qualifies.
+		 */
+		E findUnique(K key) {
+			List<E> list = entities.get(key);
+			return list == null || list.size() > 1 ? null : list.get(0);
+		}
+
+		/**
+		 * @return The entities with a key in the range, only for an index
+		 * with sorted keys.
+		 */
+		@SuppressWarnings("unchecked")
+		List<E> findBetween(K fromInclusive, K toExclusive) {
+			List<E> result = new ArrayList<E>();
+			for (List<E> list : ((SortedMap<K, List<E>>) entities).subMap(fromInclusive, toExclusive).values()) {
+				result.addAll(list);
+			}
+			return result;
+		}
+
+		Collection<E> getAll() {
+			return keys.keySet();
+		}
+	}
+
+	private static final Comparator<TimeRegistration> START_TIME_ORDER = new Comparator<TimeRegistration>() {
+		@Override
+		public int compare(TimeRegistration first, TimeRegistration second) {
+			return first.getStartTime().compareTo(second.getStartTime());
+		}
+	};
+
+	private final User user;
+	private final EntityIndex<String, Project> projectsByName = new EntityIndex<String, Project>(new HashMap<String, List<Project>>());
+	private final EntityIndex<String, Project> projectsBySyncKey = new EntityIndex<String, Project>(new HashMap<String, List<Project>>());
+	private final EntityIndex<List<String>, Task> tasksByNameAndProject = new EntityIndex<List<String>, Task>(new HashMap<List<String>, List<Task>>());
+	private final EntityIndex<String, Task> tasksBySyncKey = new EntityIndex<String, Task>(new HashMap<String, List<Task>>());
+	private final EntityIndex<List<Date>, TimeRegistration> timeRegistrationsByTime = new EntityIndex<List<Date>, TimeRegistration>(new HashMap<List<Date>, List<TimeRegistration>>());
+	private final EntityIndex<String, TimeRegistration> timeRegistrationsBySyncKey = new EntityIndex<String, TimeRegistration>(new HashMap<String, List<TimeRegistration>>());
+	/**
+	 * The time registrations that have ended, by start time.
+	 */
+	private final EntityIndex<Long, TimeRegistration> endedTimeRegistrations = new EntityIndex<Long, TimeRegistration>(new TreeMap<Long, List<TimeRegistration>>());
+	/**
+	 * The ongoing time registrations, by start time.
+	 */
+	private final EntityIndex<Long, TimeRegistration> ongoingTimeRegistrations = new EntityIndex<Long, TimeRegistration>(new TreeMap<Long, List<TimeRegistration>>());
+	/**
+	 * The longest duration of the time registrations that have ended, a time
+	 * registration that ends within a period starts at most this long before
+	 * it.
+	 */
+	private long longestDuration = 0L;
+	/**
+	 * The sync keys in use by any of the entities in the snapshot. Sync keys
+	 * are random UUID's, so the keys of the time registrations that are not
+	 * loaded are not checked.
+	 */
+	private final Set<String> syncKeys = new HashSet<String>();
+
+	public SyncSnapshot(User user, List<Project> projects, List<Task> tasks, List<TimeRegistration> timeRegistrations) {
+		this.user = user;
+
+		for (Project project : projects) {
+			addProject(project);
+		}
+		for (Task task : tasks) {
+			addTask(task);
+		}
+		for (TimeRegistration timeRegistration : timeRegistrations) {
+			addTimeRegistration(timeRegistration);
+		}
+	}
+
+	public User getUser() {
+		return user;
+	}
+
+	/**
+	 * Find a project based on it's name.
+	 * @param name The name of the project.
+	 * @return The project or null if none or more than one project qualifies.
+	 */
+	public Project findProject(String name) {
+		return projectsByName.findUnique(name);
+	}
+
+	public Project findProjectBySyncKey(String syncKey) {
+		return projectsBySyncKey.findFirst(syncKey);
+	}
+
+	/**
+	 * Find a task based on it's name and project.
+	 * @param name The name of the task.
+	 * @param project The project of the task.
+	 * @return The task or null if none or more than one task qualifies.
+	 */
+	public Task findTask(String name, Project project) {
+		return tasksByNameAndProject.findUnique(Arrays.asList(name, project.getName()));
+	}
+
+	public Task findTaskBySyncKey(String syncKey) {
+		return tasksBySyncKey.findFirst(syncKey);
+	}
+
+	/**
+	 * Find a time registration based on it's start and end time.
+	 * @param startTime The start time.
+	 * @param endTime The end time, null for an ongoing time registration.
+	 * @return The time registration or null if none or more than one time
+	 * registration qualifies.
+	 */
+	public TimeRegistration findTimeRegistration(Date startTime, Date endTime) {
+		return timeRegistrationsByTime.findUnique(Arrays.asList(startTime, endTime));
+	}
+
+	public TimeRegistration findTimeRegistrationBySyncKey(String syncKey) {
+		return timeRegistrationsBySyncKey.findFirst(syncKey);
+	}
+
+	public TimeRegistration findOngoingTimeRegistration() {
+		List<TimeRegistration> ongoing = ongoingTimeRegistrations.findBetween(Long.MIN_VALUE, Long.MAX_VALUE);
+		return ongoing.isEmpty() ? null : ongoing.get(0);
+	}
+
+	/**
+	 * Find all time registrations that overlap with a certain time
+	 * registration. An ongoing time registration interferes if the time
+	 * registration starts after it.
+	 * @param timeRegistration The time registration to check.
+	 * @param now The end time used for an ongoing time registration to check.
+	 * @return The interfering time registrations, sorted by start time.
+	 */
+	public List<TimeRegistration> findInterferingTimeRegistrations(TimeRegistration timeRegistration, Date now) {
+		long start = timeRegistration.getStartTime().getTime();
+		long end = timeRegistration.getEndTime() == null ? now.getTime() : timeRegistration.getEndTime().getTime();
+
+		List<TimeRegistration> interferingTimeRegistrations = new ArrayList<TimeRegistration>();
+		if (start != Long.MAX_VALUE) {
+			interferingTimeRegistrations.addAll(ongoingTimeRegistrations.findBetween(Long.MIN_VALUE, start + 1L));
+		}
+		// Only the time registrations that start at most the longest
+		// duration before the start can end within the period
+		if (end > start) {
+			for (TimeRegistration tr : endedTimeRegistrations.findBetween(start - longestDuration, end + 1L)) {
+				long trStart = tr.getStartTime().getTime();
+				long trEnd = tr.getEndTime().getTime();
+				if ((trStart >= start && trStart < end) || (trEnd > start && trEnd <= end)) {
+					interferingTimeRegistrations.add(tr);
+				}
+			}
+		}
+		Collections.sort(interferingTimeRegistrations, START_TIME_ORDER);
+		return interferingTimeRegistrations;
+	}
+
+	/**
+	 * Reserves a sync key for an entity of the user.
+	 * @param syncKey The sync key.
+	 * @return True if the key was not in use yet and is now reserved, false
+	 * if it's already in use.
+	 */
+	boolean reserveSyncKey(String syncKey) {
+		return syncKeys.add(syncKey);
+	}
+
+	void addProject(Project project) {
+		projectsByName.put(project.getName(), project);
+		if (StringUtils.isNotBlank(project.getSyncKey())) {
+			projectsBySyncKey.put(project.getSyncKey(), project);
+		}
+		addSyncKey(project.getSyncKey());
+	}
+
+	void removeProject(Project project) {
+		projectsByName.remove(project);
+		projectsBySyncKey.remove(project);
+	}
+
+	/**
+	 * Indexes a project again after it's name or sync key has changed, with
+	 * the tasks of the project as they are found by the name of their project.
+	 */
+	void updateProject(Project project) {
+		removeProject(project);
+		addProject(project);
+
+		List<Task> tasks = new ArrayList<Task>();
+		for (Task task : tasksByNameAndProject.getAll()) {
+			if (task.getProject() == project) {
+				tasks.add(task);
+			}
+		}
+		for (Task task : tasks) {
+			updateTask(task);
+		}
+	}
+
+	void addTask(Task task) {
+		if (task.getProject() != null) {
+			tasksByNameAndProject.put(Arrays.asList(task.getName(), task.getProject().getName()), task);
+		}
+		if (StringUtils.isNotBlank(task.getSyncKey())) {
+			tasksBySyncKey.put(task.getSyncKey(), task);
+		}
+		addSyncKey(task.getSyncKey());
+	}
+
+	void removeTask(Task task) {
+		tasksByNameAndProject.remove(task);
+		tasksBySyncKey.remove(task);
+	}
+
+	/**
+	 * Indexes a task again after it's name, project or sync key has changed.
+	 */
+	void updateTask(Task task) {
+		removeTask(task);
+		addTask(task);
+	}
+
+	void addTimeRegistration(TimeRegistration timeRegistration) {
+		timeRegistrationsByTime.put(Arrays.asList(timeRegistration.getStartTime(), timeRegistration.getEndTime()), timeRegistration);
+		if (StringUtils.isNotBlank(timeRegistration.getSyncKey())) {
+			timeRegistrationsBySyncKey.put(timeRegistration.getSyncKey(), timeRegistration);
+		}
+		long startTime = timeRegistration.getStartTime().getTime();
+		if (timeRegistration.isOngoingTimeRegistration()) {
+			ongoingTimeRegistrations.put(startTime, timeRegistration);
+		} else {
+			endedTimeRegistrations.put(startTime, timeRegistration);
+			longestDuration = Math.max(longestDuration, timeRegistration.getEndTime().getTime() - startTime);
+		}
+		addSyncKey(timeRegistration.getSyncKey());
+	}
+
+	void removeTimeRegistration(TimeRegistration timeRegistration) {
+		timeRegistrationsByTime.remove(timeRegistration);
+		timeRegistrationsBySyncKey.remove(timeRegistration);
+		ongoingTimeRegistrations.remove(timeRegistration);
+		endedTimeRegistrations.remove(timeRegistration);
+	}
+
+	/**
+	 * Indexes a time registration again after it's start time, end time or
+	 * sync key has changed.
+	 */
+	void updateTimeRegistration(TimeRegistration timeRegistration) {
+		removeTimeRegistration(timeRegistration);
+		addTimeRegistration(timeRegistration);
+	}
+
+	private void addSyncKey(String syncKey) {
+		if (StringUtils.isNotBlank(syncKey)) {
+			syncKeys.add(syncKey);
+		}
+	}
+
+	/**
+	 * Removes an entity from a list by identity, the equals methods of the
+	 * entities compare their contents.
+	 */
+	static <T> boolean removeInstance(List<T> entities, T entity) {
+		for (Iterator<T> iterator = entities.iterator(); iterator.hasNext();) {
+			if (iterator.next() == entity) {
+				iterator.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+}
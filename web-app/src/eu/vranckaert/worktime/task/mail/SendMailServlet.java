@@ -0,0 +1,59 @@
+package eu.vranckaert.worktime.task.mail;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.codehaus.jackson.JsonProcessingException;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import com.google.inject.Inject;
+
+import eu.vranckaert.worktime.mail.MailSender;
+import eu.vranckaert.worktime.mail.OutboundMail;
+import eu.vranckaert.worktime.util.EmailUtil;
+
+/**
+ * Worker of the mail queue: sends one mail queued by the {@link eu.vranckaert.worktime.mail.impl.TaskQueueMailQueue}.
+ * A response with an error status makes App Engine retry the task later on, so that's only returned if retrying might
+ * help. Mails that can never be sent are logged and dropped.
+ */
+public class SendMailServlet extends HttpServlet {
+	private static final Logger log = Logger.getLogger(SendMailServlet.class.getName());
+	
+	private static final String HEADER_RETRY_COUNT = "X-AppEngine-TaskRetryCount";
+	
+	@Inject private MailSender mailSender;
+	
+	private final ObjectMapper mapper = new ObjectMapper();
+	
+	@Override
+	protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+			throws ServletException, IOException {
+		OutboundMail mail;
+		try {
+			mail = mapper.readValue(req.getInputStream(), OutboundMail.class);
+		} catch (JsonProcessingException e) {
+			log.severe("Dropping a mail task with an invalid payload: " + e.getMessage());
+			return;
+		}
+		
+		String retryCount = req.getHeader(HEADER_RETRY_COUNT);
+		try {
+			mailSender.send(mail);
+			log.info("Mail '" + mail.getSubject() + "' sent to " + mail.getRecipients().size() + " recipient(s)");
+		} catch (Exception e) {
+			if (EmailUtil.isPermanentFailure(e)) {
+				log.severe("Dropping mail '" + mail.getSubject() + "', it can never be sent: " + e.getMessage());
+				return;
+			}
+			
+			log.warning("Could not send mail '" + mail.getSubject() + "' (retry " + retryCount + "), the task will be retried: " + e.getMessage());
+			resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		}
+	}
+}
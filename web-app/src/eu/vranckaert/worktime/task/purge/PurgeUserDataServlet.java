@@ -0,0 +1,45 @@
+package eu.vranckaert.worktime.task.purge;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.inject.Inject;
+
+import eu.vranckaert.worktime.service.UserDataPurgeService;
+import eu.vranckaert.worktime.service.impl.UserDataPurgeServiceImpl;
+
+/**
+ * Worker of the purge queue: continues the removal of the data of one user,
+ * scheduled by the {@link UserDataPurgeService}. A response with an error 
+ * status makes App Engine retry the task later on, the retry continues from
+ * the last batch that has been removed.
+ */
+public class PurgeUserDataServlet extends HttpServlet {
+	private static final Logger log = Logger.getLogger(PurgeUserDataServlet.class.getName());
+	
+	@Inject private UserDataPurgeService userDataPurgeService;
+	
+	@Override
+	protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+			throws ServletException, IOException {
+		String email = req.getParameter(UserDataPurgeServiceImpl.PARAM_EMAIL);
+		if (StringUtils.isBlank(email)) {
+			log.severe("Dropping a purge task without email");
+			return;
+		}
+		
+		try {
+			userDataPurgeService.continuePurge(email);
+		} catch (Exception e) {
+			log.warning("Could not continue the removal of the data of user " + email + ", the task will be retried: " + e.getMessage());
+			resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package eu.vranckaert.worktime.test.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Collects the latencies and outcomes of the calls done by the {@link SyncLoadTest}. All methods are thread-safe.
+ */
+public class LoadStatistics {
+	private final Map<String, List<Long>> latencies = new TreeMap<String, List<Long>>();
+	private final Map<String, Integer> outcomes = new TreeMap<String, Integer>();
+	private long startTime;
+	private long endTime;
+	
+	public synchronized void start() {
+		startTime = System.currentTimeMillis();
+	}
+	
+	public synchronized void stop() {
+		endTime = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Records one call.
+	 * @param operation The operation (login, sync,...).
+	 * @param latencyMillis The time it took for the server to answer.
+	 * @param outcome The outcome of the call, for a sync this is the {@link eu.vranckaert.worktime.model.sync.SyncResult}.
+	 */
+	public synchronized void record(String operation, long latencyMillis, String outcome) {
+		List<Long> operationLatencies = latencies.get(operation);
+		if (operationLatencies == null) {
+			operationLatencies = new ArrayList<Long>();
+			latencies.put(operation, operationLatencies);
+		}
+		operationLatencies.add(latencyMillis);
+		
+		String key = operation + " " + outcome;
+		Integer count = outcomes.get(key);
+		outcomes.put(key, count == null ? 1 : count + 1);
+	}
+	
+	public synchronized int getCount(String operation) {
+		List<Long> operationLatencies = latencies.get(operation);
+		return operationLatencies == null ? 0 : operationLatencies.size();
+	}
+	
+	/**
+	 * @param operation The operation.
+	 * @param percentile The percentile, between 0 (exclusive) and 100 (inclusive).
+	 * @return The latency (nearest-rank) in milliseconds, -1 if nothing is recorded for the operation.
+	 */
+	public synchronized long getPercentile(String operation, double percentile) {
+		List<Long> operationLatencies = latencies.get(operation);
+		if (operationLatencies == null || operationLatencies.isEmpty()) {
+			return -1L;
+		}
+		
+		List<Long> sorted = new ArrayList<Long>(operationLatencies);
+		Collections.sort(sorted);
+		int rank = (int) Math.ceil(percentile / 100d * sorted.size());
+		return sorted.get(Math.max(0, Math.min(rank, sorted.size()) - 1));
+	}
+	
+	public synchronized String report() {
+		double seconds = Math.max(1L, endTime - startTime) / 1000d;
+		int total = 0;
+		
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-10s %8s %10s %8s %8s %8s %8s%n", "Operation", "Calls", "Calls/s", "p50", "p95", "p99", "Max"));
+		for (String operation : latencies.keySet()) {
+			int count = getCount(operation);
+			total += count;
+			report.append(String.format("%-10s %8d %10.2f %8d %8d %8d %8d%n", operation, count, count / seconds,
+					getPercentile(operation, 50), getPercentile(operation, 95), getPercentile(operation, 99), getPercentile(operation, 100)));
+		}
+		report.append(String.format("%-10s %8d %10.2f%n", "Total", total, total / seconds));
+		report.append(String.format("Duration: %.1f s (latencies in ms)%n", seconds));
+		
+		report.append(String.format("%nOutcomes:%n"));
+		for (Entry<String, Integer> outcome : outcomes.entrySet()) {
+			report.append(String.format("  %-30s %8d%n", outcome.getKey(), outcome.getValue()));
+		}
+		return report.toString();
+	}
+}
@@ -0,0 +1,281 @@
+package eu.vranckaert.worktime.test.load;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.MediaType;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+
+import eu.vranckaert.worktime.json.base.response.WorkTimeResponse;
+import eu.vranckaert.worktime.json.request.sync.WorkTimeSyncRequest;
+import eu.vranckaert.worktime.json.request.user.UserLoginRequest;
+import eu.vranckaert.worktime.json.request.user.UserRegistrationRequest;
+import eu.vranckaert.worktime.json.response.sync.WorkTimeSyncResponse;
+import eu.vranckaert.worktime.json.response.user.AuthenticationResponse;
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.sync.SyncConflictConfiguration;
+import eu.vranckaert.worktime.model.sync.SyncResult;
+
+/**
+ * Load test for the synchronisation, to be run against the local development server before each deploy. A number of
+ * {@link SyntheticUser}s is spread over a pool of threads, each user:
+ * <li>registers (or logs in if the user already exists, when re-using a run id)</li>
+ * <li>synchronises its complete history, replaying the entities that are left un-synced as long as the server
+ * interrupts the synchronisation</li>
+ * <li>re-synchronises a number of times with a few new time registrations since the last successful sync</li>
+ * <li>logs out</li>
+ * Afterwards the throughput, the p50/p95/p99 latencies per operation and the distribution of the outcomes (the
+ * {@link SyncResult} for a synchronisation) are printed.<br/>
+ * All settings are passed as key=value arguments, see {@link #DEFAULTS}. For example:<br/>
+ * <i>users=50 threads=10 timeRegistrations=200</i>
+ */
+public class SyncLoadTest {
+	private static final String OPERATION_REGISTER = "register";
+	private static final String OPERATION_LOGIN = "login";
+	private static final String OPERATION_SYNC = "sync";
+	private static final String OPERATION_RESYNC = "resync";
+	private static final String OPERATION_LOGOUT = "logout";
+	
+	/**
+	 * Safety net for a server that keeps interrupting the synchronisation.
+	 */
+	private static final int MAX_SYNC_ROUNDS = 100;
+	
+	private static final Properties DEFAULTS = new Properties();
+	static {
+		DEFAULTS.setProperty("baseUrl", "http://localhost:8888/rest/");
+		DEFAULTS.setProperty("serviceKey", "9939d741-0468-4605-820a-e13cc74886ff");
+		DEFAULTS.setProperty("runId", String.valueOf(System.currentTimeMillis()));
+		DEFAULTS.setProperty("users", "20");
+		DEFAULTS.setProperty("threads", "5");
+		DEFAULTS.setProperty("projects", "3");
+		DEFAULTS.setProperty("tasksPerProject", "4");
+		DEFAULTS.setProperty("timeRegistrations", "100");
+		DEFAULTS.setProperty("resyncs", "3");
+		DEFAULTS.setProperty("timeRegistrationsPerResync", "2");
+		DEFAULTS.setProperty("timeoutMillis", "60000");
+	}
+	
+	private final Properties config;
+	private final String baseUrl;
+	private final String serviceKey;
+	private final Client client;
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final LoadStatistics statistics = new LoadStatistics();
+	
+	public SyncLoadTest(Properties config) {
+		this.config = config;
+		this.baseUrl = config.getProperty("baseUrl");
+		this.serviceKey = config.getProperty("serviceKey");
+		
+		client = Client.create();
+		client.setConnectTimeout(getInt("timeoutMillis"));
+		client.setReadTimeout(getInt("timeoutMillis"));
+	}
+	
+	public static void main(String[] args) throws InterruptedException {
+		Properties config = new Properties(DEFAULTS);
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (separator <= 0) {
+				throw new IllegalArgumentException("Arguments should be passed as key=value, found: " + arg);
+			}
+			config.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+		
+		SyncLoadTest loadTest = new SyncLoadTest(config);
+		System.out.println(loadTest.run());
+	}
+	
+	/**
+	 * Runs the load test.
+	 * @return The report.
+	 */
+	public String run() throws InterruptedException {
+		String runId = config.getProperty("runId");
+		int userCount = getInt("users");
+		System.out.println("Generating " + userCount + " users for run " + runId + "...");
+		
+		List<SyntheticUser> users = new ArrayList<SyntheticUser>();
+		for (int i = 0; i < userCount; i++) {
+			users.add(new SyntheticUser(runId, i, getInt("projects"), getInt("tasksPerProject"), getInt("timeRegistrations")));
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(getInt("threads"));
+		statistics.start();
+		for (final SyntheticUser user : users) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						runUser(user);
+					} catch (LoadTestException e) {
+						System.out.println("Stopped user " + user.getEmail() + ": " + e.getMessage());
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		statistics.stop();
+		
+		return statistics.report();
+	}
+	
+	private void runUser(SyntheticUser user) throws LoadTestException {
+		authenticate(user);
+		sync(user, OPERATION_SYNC, user.getProjects(), user.getTasks(), user.getTimeRegistrations());
+		for (int i = 0; i < getInt("resyncs"); i++) {
+			sync(user, OPERATION_RESYNC, new ArrayList<Project>(), new ArrayList<Task>(), user.createTimeRegistrations(getInt("timeRegistrationsPerResync")));
+		}
+		get(OPERATION_LOGOUT, "user/logout?serviceKey=" + serviceKey + "&email=" + user.getEmail() + "&sessionKey=" + user.getSessionKey());
+	}
+	
+	private void authenticate(SyntheticUser user) throws LoadTestException {
+		UserRegistrationRequest registrationRequest = new UserRegistrationRequest();
+		registrationRequest.setServiceKey(serviceKey);
+		registrationRequest.setEmail(user.getEmail());
+		registrationRequest.setPassword(SyntheticUser.PASSWORD);
+		registrationRequest.setFirstName("Load");
+		registrationRequest.setLastName("Test");
+		AuthenticationResponse response = post(OPERATION_REGISTER, "user/register", registrationRequest, AuthenticationResponse.class);
+		
+		if (response.getRegisterEmailAlreadyInUseJSONException() != null) {
+			UserLoginRequest loginRequest = new UserLoginRequest();
+			loginRequest.setServiceKey(serviceKey);
+			loginRequest.setEmail(user.getEmail());
+			loginRequest.setPassword(SyntheticUser.PASSWORD);
+			response = post(OPERATION_LOGIN, "user/login", loginRequest, AuthenticationResponse.class);
+		}
+		
+		if (response.getSessionKey() == null) {
+			throw new LoadTestException("Could not register or log in");
+		}
+		user.setSessionKey(response.getSessionKey());
+	}
+	
+	private void sync(SyntheticUser user, String operation, List<Project> projects, List<Task> tasks, List<TimeRegistration> timeRegistrations) throws LoadTestException {
+		for (int round = 1; round <= MAX_SYNC_ROUNDS; round++) {
+			WorkTimeSyncRequest request = new WorkTimeSyncRequest();
+			request.setServiceKey(serviceKey);
+			request.setEmail(user.getEmail());
+			request.setSessionKey(user.getSessionKey());
+			request.setConflictConfiguration(SyncConflictConfiguration.CLIENT);
+			request.setLastSuccessfulSyncDate(user.getLastSuccessfulSyncDate());
+			request.setProjects(projects);
+			request.setTasks(tasks);
+			request.setTimeRegistrations(timeRegistrations);
+			request.setSyncRemovalMap(new HashMap<String, String>());
+			
+			Date syncDate = new Date();
+			WorkTimeSyncResponse response = post(operation, "sync/all", request, WorkTimeSyncResponse.class);
+			if (response.getSyncResult() == null) {
+				return;
+			}
+			
+			SyncResult result = response.getSyncResult().getSyncResult();
+			if (result == SyncResult.SUCCESS) {
+				user.setLastSuccessfulSyncDate(syncDate);
+				return;
+			} else if (result != SyncResult.INTERRUPTED) {
+				return;
+			}
+			
+			// Replay what the server did not get to, like the app does
+			projects = response.getSyncResult().getNonSyncedProjects();
+			tasks = response.getSyncResult().getNonSyncedTasks();
+			timeRegistrations = response.getSyncResult().getNonSyncedTimeRegistrations();
+		}
+	}
+	
+	private <T extends WorkTimeResponse> T post(String operation, String path, Object request, Class<T> responseType) throws LoadTestException {
+		long start = System.nanoTime();
+		try {
+			ClientResponse response = client.resource(baseUrl + path)
+					.type(MediaType.APPLICATION_JSON)
+					.accept(MediaType.APPLICATION_JSON)
+					.post(ClientResponse.class, mapper.writeValueAsString(request));
+			String output = response.getEntity(String.class);
+			long latency = getLatency(start);
+			
+			if (response.getStatus() != 200) {
+				statistics.record(operation, latency, "HTTP_" + response.getStatus());
+				throw new LoadTestException(path + " returned HTTP " + response.getStatus());
+			}
+			
+			T result = mapper.readValue(output, responseType);
+			statistics.record(operation, latency, getOutcome(result));
+			return result;
+		} catch (LoadTestException e) {
+			throw e;
+		} catch (Exception e) {
+			statistics.record(operation, getLatency(start), "ERROR");
+			throw new LoadTestException(path + " failed: " + e.getMessage());
+		}
+	}
+	
+	private void get(String operation, String path) throws LoadTestException {
+		long start = System.nanoTime();
+		try {
+			ClientResponse response = client.resource(baseUrl + path).get(ClientResponse.class);
+			response.getEntity(String.class);
+			statistics.record(operation, getLatency(start), response.getStatus() == 200 ? "OK" : "HTTP_" + response.getStatus());
+		} catch (Exception e) {
+			statistics.record(operation, getLatency(start), "ERROR");
+			throw new LoadTestException(path + " failed: " + e.getMessage());
+		}
+	}
+	
+	private String getOutcome(WorkTimeResponse response) {
+		if (response.getServiceNotAllowedException() != null) {
+			return "SERVICE_NOT_ALLOWED";
+		} else if (response.getUserNotLoggedInException() != null) {
+			return "NOT_LOGGED_IN";
+		}
+		
+		if (response instanceof WorkTimeSyncResponse) {
+			WorkTimeSyncResponse syncResponse = (WorkTimeSyncResponse) response;
+			if (syncResponse.getSynchronisationLockedJSONException() != null) {
+				return SyncResult.BUSY.name();
+			} else if (syncResponse.getSyncronisationFailedJSONException() != null) {
+				return SyncResult.FAILURE.name();
+			} else if (syncResponse.getCorruptDataJSONException() != null) {
+				return "CORRUPT_DATA";
+			} else if (syncResponse.getSyncResult() != null && syncResponse.getSyncResult().getSyncResult() != null) {
+				return syncResponse.getSyncResult().getSyncResult().name();
+			}
+		} else if (response instanceof AuthenticationResponse) {
+			if (((AuthenticationResponse) response).getRegisterEmailAlreadyInUseJSONException() != null) {
+				return "EMAIL_IN_USE";
+			}
+		}
+		
+		return response.isResultOk() ? "OK" : "NOT_OK";
+	}
+	
+	private long getLatency(long startNanos) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+	
+	private int getInt(String key) {
+		return Integer.parseInt(config.getProperty(key));
+	}
+	
+	private static class LoadTestException extends Exception {
+		LoadTestException(String message) {
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package eu.vranckaert.worktime.test.load;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+
+/**
+ * A user of the {@link SyncLoadTest} with a generated history: a number of projects, each with a number of tasks, and
+ * one time registration per day (on a random task) going back in time from today.
+ */
+public class SyntheticUser {
+	public static final String PASSWORD = "LOADTEST";
+	
+	private final String email;
+	private final Random random;
+	private final List<Project> projects = new ArrayList<Project>();
+	private final List<Task> tasks = new ArrayList<Task>();
+	private final List<TimeRegistration> timeRegistrations = new ArrayList<TimeRegistration>();
+	
+	private String sessionKey;
+	private Date lastSuccessfulSyncDate;
+	private Calendar nextDay;
+	
+	public SyntheticUser(String runId, int number, int projectCount, int tasksPerProject, int timeRegistrationCount) {
+		this.email = "loadtest-" + runId + "-" + number + "@vranckaert.eu";
+		this.random = new Random(number);
+		
+		Date now = new Date();
+		for (int i = 1; i <= projectCount; i++) {
+			Project project = new Project();
+			project.setName("Load test project " + i);
+			project.setComment("Generated by the load test");
+			project.setFinished(false);
+			project.setLastUpdated(now);
+			projects.add(project);
+			
+			for (int j = 1; j <= tasksPerProject; j++) {
+				Task task = new Task();
+				task.setName("Load test task " + i + "." + j);
+				task.setFinished(false);
+				task.setProject(project);
+				task.setLastUpdated(now);
+				tasks.add(task);
+			}
+		}
+		
+		nextDay = Calendar.getInstance();
+		nextDay.add(Calendar.DAY_OF_MONTH, -timeRegistrationCount);
+		timeRegistrations.addAll(createTimeRegistrations(timeRegistrationCount));
+	}
+	
+	/**
+	 * Creates new time registrations on the days following the last generated time registration.
+	 * @param count The number of time registrations.
+	 * @return The time registrations, not added to the history of the user.
+	 */
+	public List<TimeRegistration> createTimeRegistrations(int count) {
+		List<TimeRegistration> result = new ArrayList<TimeRegistration>();
+		if (tasks.isEmpty()) {
+			return result;
+		}
+		
+		for (int i = 0; i < count; i++) {
+			Calendar start = (Calendar) nextDay.clone();
+			start.set(Calendar.HOUR_OF_DAY, 8);
+			start.set(Calendar.MINUTE, random.nextInt(60));
+			start.set(Calendar.SECOND, 0);
+			start.set(Calendar.MILLISECOND, 0);
+			Calendar end = (Calendar) start.clone();
+			end.add(Calendar.MINUTE, 60 + random.nextInt(8 * 60));
+			
+			TimeRegistration timeRegistration = new TimeRegistration();
+			timeRegistration.setStartTime(start.getTime());
+			timeRegistration.setEndTime(end.getTime());
+			timeRegistration.setComment(random.nextBoolean() ? "Load test comment " + random.nextInt(100) : null);
+			timeRegistration.setTask(tasks.get(random.nextInt(tasks.size())));
+			timeRegistration.setLastUpdated(new Date());
+			result.add(timeRegistration);
+			
+			nextDay.add(Calendar.DAY_OF_MONTH, 1);
+		}
+		return result;
+	}
+	
+	public String getEmail() {
+		return email;
+	}
+	
+	public List<Project> getProjects() {
+		return projects;
+	}
+	
+	public List<Task> getTasks() {
+		return tasks;
+	}
+	
+	public List<TimeRegistration> getTimeRegistrations() {
+		return timeRegistrations;
+	}
+	
+	public String getSessionKey() {
+		return sessionKey;
+	}
+	
+	public void setSessionKey(String sessionKey) {
+		this.sessionKey = sessionKey;
+	}
+	
+	public Date getLastSuccessfulSyncDate() {
+		return lastSuccessfulSyncDate;
+	}
+	
+	public void setLastSuccessfulSyncDate(Date lastSuccessfulSyncDate) {
+		this.lastSuccessfulSyncDate = lastSuccessfulSyncDate;
+	}
+}
@@ -1,9 +1,7 @@
 package eu.vranckaert.worktime.util;
 
 import java.io.UnsupportedEncodingException;
-import java.util.List;
 import java.util.Properties;
-import java.util.logging.Logger;
 
 import javax.mail.Message;
 import javax.mail.MessagingException;
@@ -15,38 +13,35 @@ import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
 
-import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.mail.OutboundMail;
 
 public class EmailUtil {
-	private static final Logger log = Logger.getLogger(EmailUtil.class.getName());
-	
-	public static final void sendEmail(String subject, Object body, String bodyType, List<User> recipients) {		
-		sendEmail(subject, body, bodyType, User.getTechnicalUser(), recipients);
+	/**
+	 * Sends a mail right away, in the current thread. Requests should never call this method but put their mails on
+	 * the {@link eu.vranckaert.worktime.mail.MailQueue}.
+	 */
+	public static final void send(OutboundMail mail) throws MessagingException, UnsupportedEncodingException {
+		Multipart mp = new MimeMultipart();
+		MimeBodyPart htmlPart = new MimeBodyPart();
+		htmlPart.setContent(mail.getBody(), mail.getBodyType());
+		mp.addBodyPart(htmlPart);
+		
+		Properties props = new Properties();
+		javax.mail.Session session = javax.mail.Session.getDefaultInstance(props, null);
+		Message msg = new MimeMessage(session);
+		msg.setContent(mp);
+		msg.setFrom(new InternetAddress(mail.getFrom().getEmail(), mail.getFrom().getName()));
+		for (OutboundMail.Address recipient : mail.getRecipients()) {
+			msg.addRecipient(Message.RecipientType.TO, new InternetAddress(recipient.getEmail(), recipient.getName()));
+		}
+		msg.setSubject(mail.getSubject());
+		Transport.send(msg);
 	}
 	
-	public static final void sendEmail(String subject, Object body, String bodyType, User from, List<User> recipients) {
-		try {
-			Multipart mp = new MimeMultipart();
-			MimeBodyPart htmlPart = new MimeBodyPart();
-			htmlPart.setContent(body, bodyType);
-			mp.addBodyPart(htmlPart);
-			
-			Properties props = new Properties();
-			javax.mail.Session session = javax.mail.Session.getDefaultInstance(props, null);
-			Message msg = new MimeMessage(session);
-			msg.setContent(mp);
-			msg.setFrom(new InternetAddress(from.getEmail(), from.getFirstName() + " " + from.getLastName()));
-			for (User recipient : recipients) {
-				msg.addRecipient(Message.RecipientType.TO, new InternetAddress(recipient.getEmail(), recipient.getFirstName() + " " + recipient.getLastName()));
-			}
-            msg.setSubject(subject);
-            Transport.send(msg);
-		} catch (AddressException e) {
-			log.warning("Could not sent email because of an address exception...");
-		} catch (MessagingException e) {
-			log.warning("Could not sent email because of a messaging exception...");
-		} catch (UnsupportedEncodingException e) {
-			log.warning("Could not sent email because of an unsupported encoding exception...");
-		}
+	/**
+	 * @return True if the mail that failed with this exception will never be sent, so there is no use in retrying.
+	 */
+	public static final boolean isPermanentFailure(Exception e) {
+		return e instanceof AddressException || e instanceof UnsupportedEncodingException;
 	}
 }
@@ -0,0 +1,30 @@
+package eu.vranckaert.worktime.util;
+
+import java.util.Date;
+
+import javax.ws.rs.core.EntityTag;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+public class EntityTagUtil {
+	/**
+	 * Calculates a (strong) entity tag based on the provided values. The 
+	 * values should be all values that determine the content of the response.
+	 * If one of them changes the entity tag changes as well.
+	 * @param values The values that determine the content of the response.
+	 * Null values are allowed.
+	 * @return The {@link EntityTag}.
+	 */
+	public static final EntityTag getEntityTag(Object... values) {
+		StringBuilder sb = new StringBuilder();
+		for (Object value : values) {
+			if (value instanceof Date) {
+				sb.append(((Date) value).getTime());
+			} else if (value != null) {
+				sb.append(value);
+			}
+			sb.append('|');
+		}
+		return new EntityTag(DigestUtils.md5Hex(sb.toString()));
+	}
+}
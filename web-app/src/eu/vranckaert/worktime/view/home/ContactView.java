@@ -7,15 +7,17 @@ import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.validator.routines.EmailValidator;
 
+import com.google.inject.Inject;
 import com.google.sitebricks.At;
 import com.google.sitebricks.Show;
 import com.google.sitebricks.headless.Request;
 import com.google.sitebricks.http.Get;
 import com.google.sitebricks.http.Post;
 
+import eu.vranckaert.worktime.mail.MailQueue;
+import eu.vranckaert.worktime.mail.OutboundMail;
 import eu.vranckaert.worktime.model.User;
 import eu.vranckaert.worktime.ui.SelectOption;
-import eu.vranckaert.worktime.util.EmailUtil;
 import eu.vranckaert.worktime.view.BaseView;
 
 @At(ContactView.PAGE_URL)
@@ -24,6 +26,9 @@ import eu.vranckaert.worktime.view.BaseView;
 public class ContactView extends BaseView {
 	public static final String PAGE_URL = "/contact";
 	
+	@Inject
+	private MailQueue mailQueue;
+	
 	private String firstName;
 	private String lastName;
 	private String email;
@@ -97,7 +102,7 @@ public class ContactView extends BaseView {
 		to.setFirstName("Work Time");
 		to.setLastName("");
 		to.setEmail("info@vranckaert.eu");
-		EmailUtil.sendEmail("WorkTime Contact Form (" + reason + ")", body, "text/html", from, Arrays.asList(new User[] {User.getTechnicalUser()}));
+		mailQueue.enqueue(new OutboundMail("WorkTime Contact Form (" + reason + ")", body, "text/html", from, Arrays.asList(new User[] {User.getTechnicalUser()})));
 		
 		return addMessageToSelf(MessageType.INFO, getMessage("contact.emailSent"));
 	}
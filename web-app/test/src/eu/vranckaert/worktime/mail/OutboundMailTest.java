@@ -0,0 +1,56 @@
+package eu.vranckaert.worktime.mail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import eu.vranckaert.worktime.model.User;
+
+public class OutboundMailTest extends TestCase {
+	public void testMailWithinTheLimitIsNotSplit() {
+		OutboundMail mail = mail(MailQueue.MAX_RECIPIENTS_PER_MAIL);
+		
+		List<OutboundMail> batches = mail.split(MailQueue.MAX_RECIPIENTS_PER_MAIL);
+		
+		assertEquals(1, batches.size());
+		assertSame(mail, batches.get(0));
+	}
+	
+	public void testMailIsSplitPerMaximumRecipients() {
+		OutboundMail mail = mail(120);
+		
+		List<OutboundMail> batches = mail.split(50);
+		
+		assertEquals(3, batches.size());
+		assertEquals(50, batches.get(0).getRecipients().size());
+		assertEquals(50, batches.get(1).getRecipients().size());
+		assertEquals(20, batches.get(2).getRecipients().size());
+		assertEquals("user0@vranckaert.eu", batches.get(0).getRecipients().get(0).getEmail());
+		assertEquals("user50@vranckaert.eu", batches.get(1).getRecipients().get(0).getEmail());
+		assertEquals("user119@vranckaert.eu", batches.get(2).getRecipients().get(19).getEmail());
+		for (OutboundMail batch : batches) {
+			assertEquals(mail.getSubject(), batch.getSubject());
+			assertEquals(mail.getBody(), batch.getBody());
+			assertEquals(mail.getBodyType(), batch.getBodyType());
+			assertSame(mail.getFrom(), batch.getFrom());
+		}
+		assertEquals(120, mail.getRecipients().size());
+	}
+	
+	private static OutboundMail mail(int recipients) {
+		List<User> users = new ArrayList<User>();
+		for (int i = 0; i < recipients; i++) {
+			users.add(user("user" + i + "@vranckaert.eu"));
+		}
+		return new OutboundMail("Subject", "Body", "text/plain", user("worktime@vranckaert.eu"), users);
+	}
+	
+	private static User user(String email) {
+		User user = new User();
+		user.setEmail(email);
+		user.setFirstName("First");
+		user.setLastName("Last");
+		return user;
+	}
+}
@@ -0,0 +1,138 @@
+package eu.vranckaert.worktime.mail.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.AddressException;
+
+import junit.framework.TestCase;
+
+import eu.vranckaert.worktime.mail.MailQueue;
+import eu.vranckaert.worktime.mail.MailSender;
+import eu.vranckaert.worktime.mail.OutboundMail;
+import eu.vranckaert.worktime.model.User;
+
+public class LocalMailQueueTest extends TestCase {
+	private static final long TIMEOUT_MILLIS = 5000L;
+	
+	/**
+	 * The time to wait for an attempt that should not happen, the backoff of
+	 * the queue is one millisecond.
+	 */
+	private static final long QUIET_MILLIS = 200L;
+	
+	private FailingMailSender sender;
+	private LocalMailQueue queue;
+	
+	@Override
+	protected void setUp() throws Exception {
+		sender = new FailingMailSender();
+		queue = new LocalMailQueue(sender, Executors.newSingleThreadScheduledExecutor(), 1L);
+	}
+	
+	public void testMailIsSplitAndSent() throws Exception {
+		queue.enqueue(mail("Split", MailQueue.MAX_RECIPIENTS_PER_MAIL * 2 + 1));
+		
+		assertEquals(3, sender.awaitAttempts(3, TIMEOUT_MILLIS));
+		assertEquals(3, sender.getSent().size());
+		assertEquals(1, sender.getSent().get(2).getRecipients().size());
+	}
+	
+	public void testFailedMailIsRetried() throws Exception {
+		sender.fail("Retried", new MessagingException("Unavailable"), new MessagingException("Unavailable"));
+		
+		queue.enqueue(mail("Retried", 1));
+		
+		assertEquals(3, sender.awaitAttempts(3, TIMEOUT_MILLIS));
+		assertEquals(1, sender.getSent().size());
+	}
+	
+	public void testPermanentFailureIsDropped() throws Exception {
+		sender.fail("Invalid", new AddressException("Invalid address"), new AddressException("Invalid address"));
+		
+		queue.enqueue(mail("Invalid", 1));
+		
+		assertEquals(1, sender.awaitAttempts(2, QUIET_MILLIS));
+		assertTrue(sender.getSent().isEmpty());
+	}
+	
+	public void testMailIsDroppedAfterTheMaximumAttempts() throws Exception {
+		MessagingException[] failures = new MessagingException[LocalMailQueue.MAX_ATTEMPTS + 1];
+		for (int i = 0; i < failures.length; i++) {
+			failures[i] = new MessagingException("Unavailable");
+		}
+		sender.fail("Unavailable", failures);
+		
+		queue.enqueue(mail("Unavailable", 1));
+		
+		assertEquals(LocalMailQueue.MAX_ATTEMPTS, sender.awaitAttempts(LocalMailQueue.MAX_ATTEMPTS, TIMEOUT_MILLIS));
+		assertEquals(LocalMailQueue.MAX_ATTEMPTS, sender.awaitAttempts(LocalMailQueue.MAX_ATTEMPTS + 1, QUIET_MILLIS));
+		assertTrue(sender.getSent().isEmpty());
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		queue.shutdown(TIMEOUT_MILLIS);
+	}
+	
+	private OutboundMail mail(String subject, int recipients) {
+		User from = new User();
+		from.setEmail("worktime@vranckaert.eu");
+		List<User> users = new ArrayList<User>();
+		for (int i = 0; i < recipients; i++) {
+			User user = new User();
+			user.setEmail("user" + i + "@vranckaert.eu");
+			users.add(user);
+		}
+		return new OutboundMail(subject, "Body", "text/plain", from, users);
+	}
+	
+	/**
+	 * Fails the first attempts to send a mail with a certain subject and
+	 * sends it after that.
+	 */
+	private static class FailingMailSender implements MailSender {
+		private final Map<String, List<MessagingException>> failures = new HashMap<String, List<MessagingException>>();
+		private final List<OutboundMail> sent = new ArrayList<OutboundMail>();
+		private int attempts = 0;
+		
+		private synchronized void fail(String subject, MessagingException... exceptions) {
+			List<MessagingException> list = new ArrayList<MessagingException>();
+			Collections.addAll(list, exceptions);
+			failures.put(subject, list);
+		}
+		
+		@Override
+		public synchronized void send(OutboundMail mail) throws MessagingException {
+			attempts++;
+			notifyAll();
+			
+			List<MessagingException> list = failures.get(mail.getSubject());
+			if (list != null && !list.isEmpty()) {
+				throw list.remove(0);
+			}
+			sent.add(mail);
+		}
+		
+		/**
+		 * @return The number of attempts, once it's reached or the timeout
+		 * has passed.
+		 */
+		private synchronized int awaitAttempts(int expected, long timeoutMillis) throws InterruptedException {
+			long end = System.currentTimeMillis() + timeoutMillis;
+			while (attempts < expected && System.currentTimeMillis() < end) {
+				wait(Math.max(1L, end - System.currentTimeMillis()));
+			}
+			return attempts;
+		}
+		
+		private synchronized List<OutboundMail> getSent() {
+			return new ArrayList<OutboundMail>(sent);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package eu.vranckaert.worktime.model.report;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import junit.framework.TestCase;
+
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+
+public class DailyTotalChangesTest extends TestCase {
+	private static final long MINUTE = 60L * 1000L;
+	private static final long HOUR = 60L * MINUTE;
+	
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+	private static final TimeZone BRUSSELS = TimeZone.getTimeZone("Europe/Brussels");
+	private static final TimeZone KOLKATA = TimeZone.getTimeZone("Asia/Kolkata");
+	
+	private Task task;
+	
+	@Override
+	protected void setUp() throws Exception {
+		task = new Task();
+		task.setSyncKey("task");
+	}
+	
+	public void testQuartersInUtc() {
+		// 09:10 until 09:40 UTC
+		DailyTotalChanges changes = new DailyTotalChanges();
+		changes.add(timeRegistration(time(UTC, 2013, Calendar.JUNE, 3, 9, 10), 30L * MINUTE));
+		
+		List<DailyTotal> totals = changes.getChanges();
+		assertEquals(1, totals.size());
+		DailyTotal total = totals.get(0);
+		assertEquals("2013-06-03", DailyTotal.getDayFormat().format(total.getDay()));
+		assertEquals(30L * MINUTE, total.getDuration());
+		assertEquals(1, total.getTimeRegistrations());
+		assertEquals(5L * MINUTE, total.getDuration(36));
+		assertEquals(1, total.getTimeRegistrations(36));
+		assertEquals(15L * MINUTE, total.getDuration(37));
+		assertEquals(10L * MINUTE, total.getDuration(38));
+		assertEquals(0, total.getTimeRegistrations(38));
+	}
+	
+	public void testDaysOfTheTimeZone() {
+		// 2013-06-03 23:30 until 2013-06-04 01:30 in Brussels (UTC+2)
+		DailyTotalChanges changes = new DailyTotalChanges();
+		changes.add(timeRegistration(time(BRUSSELS, 2013, Calendar.JUNE, 3, 23, 30), 2L * HOUR));
+		
+		// 21:30 until 23:30 UTC
+		List<DailyTotal> totals = changes.getChanges();
+		assertEquals(1, totals.size());
+		
+		List<ReportDay> inBrussels = ReportDay.inTimeZone(totals, BRUSSELS);
+		assertEquals(2, inBrussels.size());
+		assertDay(inBrussels.get(0), "2013-06-03", HOUR / 2L, 1);
+		assertDay(inBrussels.get(1), "2013-06-04", 3L * HOUR / 2L, 0);
+		
+		List<ReportDay> inUtc = ReportDay.inTimeZone(totals, UTC);
+		assertEquals(1, inUtc.size());
+		assertDay(inUtc.get(0), "2013-06-03", 2L * HOUR, 1);
+	}
+	
+	public void testTimeZoneWithHalfAnHourOffset() {
+		// 2013-06-03 23:45 until 2013-06-04 00:15 in Kolkata (UTC+5:30)
+		DailyTotalChanges changes = new DailyTotalChanges();
+		changes.add(timeRegistration(time(KOLKATA, 2013, Calendar.JUNE, 3, 23, 45), HOUR / 2L));
+		
+		List<ReportDay> inKolkata = ReportDay.inTimeZone(changes.getChanges(), KOLKATA);
+		assertEquals(2, inKolkata.size());
+		assertDay(inKolkata.get(0), "2013-06-03", HOUR / 4L, 1);
+		assertDay(inKolkata.get(1), "2013-06-04", HOUR / 4L, 0);
+	}
+	
+	public void testDaylightSavingTime() {
+		// The night of 2013-10-27 has 25 hours in Brussels
+		DailyTotalChanges changes = new DailyTotalChanges();
+		changes.add(timeRegistration(time(BRUSSELS, 2013, Calendar.OCTOBER, 27, 0, 0), 25L * HOUR));
+		
+		List<ReportDay> days = ReportDay.inTimeZone(changes.getChanges(), BRUSSELS);
+		assertEquals(1, days.size());
+		assertDay(days.get(0), "2013-10-27", 25L * HOUR, 1);
+	}
+	
+	public void testRemovedTimeRegistrationCancelsOut() {
+		TimeRegistration timeRegistration = timeRegistration(time(BRUSSELS, 2013, Calendar.JUNE, 3, 9, 0), HOUR);
+		DailyTotalChanges changes = new DailyTotalChanges();
+		changes.add(timeRegistration);
+		changes.remove(timeRegistration);
+		
+		assertFalse(changes.isEmpty());
+		assertTrue(changes.getChanges().isEmpty());
+	}
+	
+	public void testOngoingTimeRegistrationIsNotCounted() {
+		TimeRegistration timeRegistration = timeRegistration(time(BRUSSELS, 2013, Calendar.JUNE, 3, 9, 0), HOUR);
+		timeRegistration.setEndTime(null);
+		DailyTotalChanges changes = new DailyTotalChanges();
+		changes.add(timeRegistration);
+		
+		assertTrue(changes.isEmpty());
+	}
+	
+	private void assertDay(ReportDay reportDay, String day, long duration, int timeRegistrations) {
+		assertEquals(day, DailyTotal.getDayFormat().format(reportDay.getDay()));
+		assertEquals("task", reportDay.getTaskSyncKey());
+		assertEquals(duration, reportDay.getDuration());
+		assertEquals(timeRegistrations, reportDay.getTimeRegistrations());
+	}
+	
+	private TimeRegistration timeRegistration(Date start, long duration) {
+		TimeRegistration timeRegistration = new TimeRegistration();
+		timeRegistration.setTask(task);
+		timeRegistration.setStartTime(start);
+		timeRegistration.setEndTime(new Date(start.getTime() + duration));
+		return timeRegistration;
+	}
+	
+	private Date time(TimeZone timeZone, int year, int month, int day, int hour, int minute) {
+		Calendar calendar = Calendar.getInstance(timeZone);
+		calendar.clear();
+		calendar.set(year, month, day, hour, minute);
+		return calendar.getTime();
+	}
+}
@@ -0,0 +1,40 @@
+package eu.vranckaert.worktime.ratelimit;
+
+import junit.framework.TestCase;
+
+public class RateLimitTest extends TestCase {
+	public void testParse() {
+		RateLimit limit = RateLimit.parse("10/5");
+		assertEquals(10, limit.getCapacity());
+		assertEquals(5, limit.getTokensPerMinute());
+	}
+	
+	public void testParseTrimsWhitespace() {
+		RateLimit limit = RateLimit.parse(" 600 / 300 ");
+		assertEquals(600, limit.getCapacity());
+		assertEquals(300, limit.getTokensPerMinute());
+	}
+	
+	public void testParseInvalid() {
+		String[] values = {null, "", "10", "10/", "/5", "10/5/1", "ten/5", "10/5.5", "0/5", "10/0", "-1/5"};
+		for (String value : values) {
+			try {
+				RateLimit.parse(value);
+				fail("Rate limit " + value + " should not be parsed");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+	
+	public void testToStringCanBeParsed() {
+		RateLimit limit = RateLimit.parse(new RateLimit(3, 1).toString());
+		assertEquals(3, limit.getCapacity());
+		assertEquals(1, limit.getTokensPerMinute());
+	}
+	
+	public void testRefillMillis() {
+		assertEquals(60000L, new RateLimit(30, 30).getRefillMillis());
+		assertEquals(120000L, new RateLimit(10, 5).getRefillMillis());
+	}
+}
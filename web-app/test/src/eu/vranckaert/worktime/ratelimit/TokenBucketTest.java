@@ -0,0 +1,68 @@
+package eu.vranckaert.worktime.ratelimit;
+
+import junit.framework.TestCase;
+
+public class TokenBucketTest extends TestCase {
+	private static final long NOW = 1000000L;
+	
+	/**
+	 * A bucket of 3 tokens that gets a token every 2 seconds.
+	 */
+	private final RateLimit limit = new RateLimit(3, 30);
+	
+	public void testNewBucketIsFull() {
+		TokenBucket bucket = new TokenBucket(limit, NOW);
+		assertEquals(3d, bucket.getTokens(), 0d);
+		assertEquals(NOW, bucket.getTime());
+	}
+	
+	public void testTakeUntilEmpty() {
+		TokenBucket bucket = new TokenBucket(limit, NOW);
+		assertEquals(0L, bucket.take(limit, NOW));
+		assertEquals(0L, bucket.take(limit, NOW));
+		assertEquals(0L, bucket.take(limit, NOW));
+		assertEquals(2000L, bucket.take(limit, NOW));
+	}
+	
+	public void testWaitDecreasesWhileRefilling() {
+		TokenBucket bucket = emptyBucket();
+		assertEquals(1500L, bucket.take(limit, NOW + 500L));
+		assertEquals(1L, bucket.take(limit, NOW + 1999L));
+	}
+	
+	public void testRejectedTakeDoesNotConsumeTokens() {
+		TokenBucket bucket = emptyBucket();
+		assertEquals(2000L, bucket.take(limit, NOW));
+		assertEquals(2000L, bucket.take(limit, NOW));
+		assertEquals(0L, bucket.take(limit, NOW + 2000L));
+	}
+	
+	public void testRefill() {
+		TokenBucket bucket = emptyBucket();
+		assertEquals(0L, bucket.take(limit, NOW + 5000L));
+		assertEquals(1.5d, bucket.getTokens(), 0.0001d);
+		assertEquals(NOW + 5000L, bucket.getTime());
+		assertEquals(0L, bucket.take(limit, NOW + 5000L));
+		assertEquals(1000L, bucket.take(limit, NOW + 5000L));
+	}
+	
+	public void testRefillStopsAtCapacity() {
+		TokenBucket bucket = emptyBucket();
+		assertEquals(0L, bucket.take(limit, NOW + limit.getRefillMillis() * 10L));
+		assertEquals(2d, bucket.getTokens(), 0.0001d);
+	}
+	
+	public void testTimeGoingBackDoesNotRefill() {
+		TokenBucket bucket = emptyBucket();
+		assertEquals(2000L, bucket.take(limit, NOW - 60000L));
+		assertEquals(NOW, bucket.getTime());
+	}
+	
+	private TokenBucket emptyBucket() {
+		TokenBucket bucket = new TokenBucket(limit, NOW);
+		for (int i = 0; i < limit.getCapacity(); i++) {
+			assertEquals(0L, bucket.take(limit, NOW));
+		}
+		return bucket;
+	}
+}
@@ -0,0 +1,349 @@
+package eu.vranckaert.worktime.sync;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import eu.vranckaert.worktime.model.Project;
+import eu.vranckaert.worktime.model.Task;
+import eu.vranckaert.worktime.model.TimeRegistration;
+import eu.vranckaert.worktime.model.User;
+import eu.vranckaert.worktime.model.sync.EntitySyncResolution;
+import eu.vranckaert.worktime.model.sync.ProjectSyncResult;
+import eu.vranckaert.worktime.model.sync.SyncConflictConfiguration;
+import eu.vranckaert.worktime.model.sync.TaskSyncResult;
+import eu.vranckaert.worktime.model.sync.TimeRegistrationSyncResult;
+
+public class SyncReconcilerTest extends TestCase {
+	private static final long HOUR = 60L * 60L * 1000L;
+	
+	/**
+	 * 2013-06-03 00:00 UTC
+	 */
+	private static final long DAY = 1370217600000L;
+	
+	private static final Date LAST_SYNC = new Date(DAY - 24L * HOUR);
+	private static final Date BEFORE_LAST_SYNC = new Date(LAST_SYNC.getTime() - HOUR);
+	private static final Date AFTER_LAST_SYNC = new Date(LAST_SYNC.getTime() + HOUR);
+	private static final Date NOW = new Date(DAY + 23L * HOUR);
+	
+	private User user;
+	private Project serverProject;
+	private Task serverTask;
+	private List<Project> serverProjects;
+	private List<Task> serverTasks;
+	private List<TimeRegistration> serverTimeRegistrations;
+	
+	@Override
+	protected void setUp() throws Exception {
+		user = new User();
+		user.setEmail("user@vranckaert.eu");
+		
+		serverProject = project("Project", "project-key", BEFORE_LAST_SYNC);
+		serverProject.setUser(user);
+		serverTask = task(serverProject, "Task", "task-key", BEFORE_LAST_SYNC);
+		
+		serverProjects = new ArrayList<Project>(Arrays.asList(serverProject));
+		serverTasks = new ArrayList<Task>(Arrays.asList(serverTask));
+		serverTimeRegistrations = new ArrayList<TimeRegistration>();
+	}
+	
+	public void testNewEntitiesAreAccepted() {
+		Task task = task(project("New project", null, null), "New task", null, null);
+		TimeRegistration timeRegistration = timeRegistration(task, 9, 10, null, null);
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.CLIENT, list(task.getProject()), list(task), list(timeRegistration), null);
+		
+		assertEquals(EntitySyncResolution.ACCEPTED, plan.getProjectResults().get(0).getResolution());
+		assertEquals(EntitySyncResolution.ACCEPTED, plan.getTaskResults().get(0).getResolution());
+		assertEquals(EntitySyncResolution.ACCEPTED, plan.getTimeRegistrationResults().get(0).getResolution());
+		assertNotNull(task.getProject().getSyncKey());
+		assertNotNull(task.getSyncKey());
+		assertNotNull(timeRegistration.getSyncKey());
+		assertSame(user, task.getProject().getUser());
+		assertEquals(list(task.getProject()), plan.getProjects().getToStore());
+		assertEquals(1, plan.getTasks().getToStore().size());
+		assertEquals(list(timeRegistration), plan.getTimeRegistrations().getToStore());
+		assertFalse(plan.getDailyTotalChanges().isEmpty());
+		assertFalse(plan.isInterrupted());
+	}
+	
+	/**
+	 * Incoming entities without a sync key are matched by name and get the
+	 * sync key of the server. Before the reconciler the sync key comparison
+	 * of tasks missed a negation.
+	 */
+	public void testMatchingEntitiesGetTheSyncKeyOfTheServer() {
+		Project project = project("Project", null, null);
+		Task task = task(project, "Task", null, null);
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.CLIENT, list(project), list(task), null, null);
+		
+		assertEquals(EntitySyncResolution.NO_ACTION, plan.getProjectResults().get(0).getResolution());
+		assertEquals(EntitySyncResolution.NO_ACTION, plan.getTaskResults().get(0).getResolution());
+		assertEquals("project-key", project.getSyncKey());
+		assertEquals("task-key", task.getSyncKey());
+		assertSame(serverTask, plan.getTaskResults().get(0).getSyncedTask());
+		assertEquals(0, plan.getEntitiesSynced());
+	}
+	
+	public void testConflictServerWins() {
+		Project project = project("Project", "project-key", BEFORE_LAST_SYNC);
+		project.setComment("Client");
+		serverProject.setComment("Server");
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.SERVER, list(project), null, null, null);
+		
+		ProjectSyncResult result = plan.getProjectResults().get(0);
+		assertEquals(EntitySyncResolution.MERGED, result.getResolution());
+		assertEquals("Server", serverProject.getComment());
+		assertEquals("Server", project.getComment());
+		assertEquals(list(serverProject), plan.getProjects().getToUpdate());
+	}
+	
+	public void testConflictClientWins() {
+		Project project = project("Project", "project-key", BEFORE_LAST_SYNC);
+		project.setComment("Client");
+		serverProject.setComment("Server");
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.CLIENT, list(project), null, null, null);
+		
+		assertEquals(EntitySyncResolution.MERGED, plan.getProjectResults().get(0).getResolution());
+		assertEquals("Client", serverProject.getComment());
+		assertEquals(list(serverProject), plan.getProjects().getToUpdate());
+	}
+	
+	/**
+	 * The conflict configuration only decides when both sides are modified
+	 * at the same time, otherwise the most recent modification wins.
+	 */
+	public void testMostRecentModificationWins() {
+		Task task = task(project("Project", "project-key", BEFORE_LAST_SYNC), "Task", "task-key", AFTER_LAST_SYNC);
+		task.setComment("Client");
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.SERVER, null, list(task), null, null);
+		
+		TaskSyncResult result = plan.getTaskResults().get(0);
+		assertEquals(EntitySyncResolution.MERGED, result.getResolution());
+		assertEquals("Client", serverTask.getComment());
+		assertSame(serverProject, serverTask.getProject());
+	}
+	
+	public void testRemovalOfAnEntityNotModifiedSinceTheLastSync() {
+		TimeRegistration serverTimeRegistration = timeRegistration(serverTask, 9, 10, "tr-key", BEFORE_LAST_SYNC);
+		serverTimeRegistrations.add(serverTimeRegistration);
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.SERVER, null, null, null, removal("tr-key", "TimeRegistration"));
+		
+		assertEquals(list(serverTimeRegistration), plan.getTimeRegistrations().getToRemove());
+		assertTrue(plan.getTimeRegistrationResults().isEmpty());
+		assertFalse(plan.getDailyTotalChanges().isEmpty());
+	}
+	
+	public void testRemovalOfAnEntityModifiedOnTheServerServerWins() {
+		serverTask.setLastUpdated(AFTER_LAST_SYNC);
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.SERVER, null, null, null, removal("task-key", "Task"));
+		
+		assertTrue(plan.getTasks().getToRemove().isEmpty());
+	}
+	
+	public void testRemovalOfAnEntityModifiedOnTheServerClientWins() {
+		serverTask.setLastUpdated(AFTER_LAST_SYNC);
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.CLIENT, null, null, null, removal("task-key", "Task"));
+		
+		assertEquals(list(serverTask), plan.getTasks().getToRemove());
+	}
+	
+	public void testInterferingTimeRegistrationServerWins() {
+		TimeRegistration serverTimeRegistration = timeRegistration(serverTask, 9, 11, null, BEFORE_LAST_SYNC);
+		serverTimeRegistrations.add(serverTimeRegistration);
+		TimeRegistration timeRegistration = timeRegistration(incomingTask(), 10, 12, null, null);
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.SERVER, null, null, list(timeRegistration), null);
+		
+		TimeRegistrationSyncResult result = plan.getTimeRegistrationResults().get(0);
+		assertEquals(EntitySyncResolution.NOT_ACCEPTED, result.getResolution());
+		assertEquals(list(serverTimeRegistration), result.getSyncedTimeRegistrations());
+		assertNotNull(serverTimeRegistration.getSyncKey());
+		assertEquals(list(serverTimeRegistration), plan.getTimeRegistrations().getToUpdate());
+		assertTrue(plan.getTimeRegistrations().getToStore().isEmpty());
+		assertTrue(plan.getTimeRegistrations().getToRemove().isEmpty());
+	}
+	
+	public void testInterferingTimeRegistrationClientWins() {
+		TimeRegistration serverTimeRegistration = timeRegistration(serverTask, 9, 11, null, BEFORE_LAST_SYNC);
+		serverTimeRegistrations.add(serverTimeRegistration);
+		TimeRegistration timeRegistration = timeRegistration(incomingTask(), 10, 12, null, null);
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.CLIENT, null, null, list(timeRegistration), null);
+		
+		assertEquals(EntitySyncResolution.ACCEPTED, plan.getTimeRegistrationResults().get(0).getResolution());
+		assertSame(serverTask, timeRegistration.getTask());
+		assertEquals(list(serverTimeRegistration), plan.getTimeRegistrations().getToRemove());
+		assertEquals(list(timeRegistration), plan.getTimeRegistrations().getToStore());
+	}
+	
+	/**
+	 * A time registration removed by the client earlier in the same
+	 * synchronisation no longer interferes.
+	 */
+	public void testRemovedTimeRegistrationDoesNotInterfere() {
+		serverTimeRegistrations.add(timeRegistration(serverTask, 9, 11, "tr-key", BEFORE_LAST_SYNC));
+		TimeRegistration timeRegistration = timeRegistration(incomingTask(), 10, 12, null, null);
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.SERVER, null, null, list(timeRegistration), removal("tr-key", "TimeRegistration"));
+		
+		assertEquals(EntitySyncResolution.ACCEPTED, plan.getTimeRegistrationResults().get(0).getResolution());
+	}
+	
+	/**
+	 * Issue 190 - The incoming time registration that ends the ongoing time
+	 * registration on the server is synced first, so the time registrations
+	 * that follow it do not interfere with the ongoing time registration.
+	 */
+	public void testOngoingTimeRegistrationIsSyncedFirst() {
+		TimeRegistration ongoingTimeRegistration = timeRegistration(serverTask, 9, 10, "ongoing-key", BEFORE_LAST_SYNC);
+		ongoingTimeRegistration.setEndTime(null);
+		serverTimeRegistrations.add(ongoingTimeRegistration);
+		
+		TimeRegistration next = timeRegistration(incomingTask(), 11, 12, null, null);
+		TimeRegistration ended = timeRegistration(incomingTask(), 9, 10, "ongoing-key", AFTER_LAST_SYNC);
+		List<TimeRegistration> incoming = list(next, ended);
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.SERVER, null, null, incoming, null);
+		
+		List<TimeRegistrationSyncResult> results = plan.getTimeRegistrationResults();
+		assertEquals(2, results.size());
+		// The results hold a copy of the incoming time registration
+		assertEquals("ongoing-key", results.get(0).getTimeRegistration().getSyncKey());
+		assertEquals(EntitySyncResolution.MERGED, results.get(0).getResolution());
+		assertEquals(new Date(DAY + 10L * HOUR), ongoingTimeRegistration.getEndTime());
+		assertEquals(next.getStartTime(), results.get(1).getTimeRegistration().getStartTime());
+		assertEquals(EntitySyncResolution.ACCEPTED, results.get(1).getResolution());
+		assertEquals(list(next), incoming);
+	}
+	
+	public void testOngoingTimeRegistrationInterferes() {
+		TimeRegistration ongoingTimeRegistration = timeRegistration(serverTask, 9, 10, "ongoing-key", BEFORE_LAST_SYNC);
+		ongoingTimeRegistration.setEndTime(null);
+		serverTimeRegistrations.add(ongoingTimeRegistration);
+		TimeRegistration timeRegistration = timeRegistration(incomingTask(), 11, 12, null, null);
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.SERVER, null, null, list(timeRegistration), null);
+		
+		assertEquals(EntitySyncResolution.NOT_ACCEPTED, plan.getTimeRegistrationResults().get(0).getResolution());
+	}
+	
+	/**
+	 * The limit is checked before every entity, like before the reconciler
+	 * existed, so the entity that passes it is still synchronised.
+	 */
+	public void testSynchronisationIsInterruptedAfterTheLimit() {
+		List<Project> projects = new ArrayList<Project>();
+		for (int i = 0; i < 2 * SyncReconciler.MAX_ENTITIES_SYNCED; i++) {
+			projects.add(project("Project " + i, null, null));
+		}
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.CLIENT, projects, null, null, null);
+		
+		assertTrue(plan.isInterrupted());
+		assertEquals(SyncReconciler.MAX_ENTITIES_SYNCED + 1, plan.getProjectResults().size());
+		assertEquals(SyncReconciler.MAX_ENTITIES_SYNCED + 1, plan.getProjects().getToStore().size());
+	}
+	
+	public void testUnchangedEntitiesDoNotCountForTheLimit() {
+		List<Project> projects = new ArrayList<Project>();
+		for (int i = 0; i < 2 * SyncReconciler.MAX_ENTITIES_SYNCED; i++) {
+			Project serverProject = project("Project " + i, "project-key-" + i, BEFORE_LAST_SYNC);
+			serverProject.setUser(user);
+			serverProjects.add(serverProject);
+			projects.add(project("Project " + i, "project-key-" + i, BEFORE_LAST_SYNC));
+		}
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.CLIENT, projects, null, null, null);
+		
+		assertFalse(plan.isInterrupted());
+		assertEquals(projects.size(), plan.getProjectResults().size());
+		assertEquals(0, plan.getEntitiesSynced());
+	}
+	
+	public void testTaskOfAnUnknownProjectIsNotAccepted() {
+		Task task = task(project("Unknown", "unknown-key", null), "Task", null, null);
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.CLIENT, null, list(task), null, null);
+		
+		assertEquals(EntitySyncResolution.NOT_ACCEPTED, plan.getTaskResults().get(0).getResolution());
+		assertTrue(plan.getTasks().getToStore().isEmpty());
+	}
+	
+	public void testTimeRegistrationOfAnUnknownTaskIsNotAccepted() {
+		Task task = task(project("Project", "project-key", BEFORE_LAST_SYNC), "Removed", "removed-key", null);
+		TimeRegistration timeRegistration = timeRegistration(task, 9, 10, null, null);
+		
+		SyncPlan plan = reconcile(SyncConflictConfiguration.CLIENT, null, null, list(timeRegistration), null);
+		
+		assertEquals(EntitySyncResolution.NOT_ACCEPTED, plan.getTaskResults().get(0).getResolution());
+		assertEquals(EntitySyncResolution.NOT_ACCEPTED, plan.getTimeRegistrationResults().get(0).getResolution());
+		assertTrue(plan.getTimeRegistrations().getToStore().isEmpty());
+		assertTrue(plan.getDailyTotalChanges().isEmpty());
+	}
+	
+	private SyncPlan reconcile(SyncConflictConfiguration conflictConfiguration, List<Project> projects, List<Task> tasks, List<TimeRegistration> timeRegistrations, Map<String, String> removals) {
+		SyncSnapshot snapshot = new SyncSnapshot(user, serverProjects, serverTasks, serverTimeRegistrations);
+		SyncReconciler reconciler = new SyncReconciler(conflictConfiguration, LAST_SYNC, NOW);
+		return reconciler.reconcile(snapshot, projects != null ? projects : new ArrayList<Project>(),
+				tasks != null ? tasks : new ArrayList<Task>(),
+				timeRegistrations != null ? timeRegistrations : new ArrayList<TimeRegistration>(), removals);
+	}
+	
+	/**
+	 * @return A copy of the server task as the client sends it.
+	 */
+	private Task incomingTask() {
+		return task(project("Project", "project-key", BEFORE_LAST_SYNC), "Task", "task-key", BEFORE_LAST_SYNC);
+	}
+	
+	private Project project(String name, String syncKey, Date lastUpdated) {
+		Project project = new Project();
+		project.setName(name);
+		project.setSyncKey(syncKey);
+		project.setLastUpdated(lastUpdated);
+		return project;
+	}
+	
+	private Task task(Project project, String name, String syncKey, Date lastUpdated) {
+		Task task = new Task();
+		task.setProject(project);
+		task.setName(name);
+		task.setSyncKey(syncKey);
+		task.setLastUpdated(lastUpdated);
+		return task;
+	}
+	
+	private TimeRegistration timeRegistration(Task task, int startHour, int endHour, String syncKey, Date lastUpdated) {
+		TimeRegistration timeRegistration = new TimeRegistration();
+		timeRegistration.setTask(task);
+		timeRegistration.setStartTime(new Date(DAY + startHour * HOUR));
+		timeRegistration.setEndTime(new Date(DAY + endHour * HOUR));
+		timeRegistration.setSyncKey(syncKey);
+		timeRegistration.setLastUpdated(lastUpdated);
+		return timeRegistration;
+	}
+	
+	private Map<String, String> removal(String syncKey, String entityName) {
+		Map<String, String> removals = new HashMap<String, String>();
+		removals.put(syncKey, entityName);
+		return removals;
+	}
+	
+	private static <T> List<T> list(T... entities) {
+		return new ArrayList<T>(Arrays.asList(entities));
+	}
+}
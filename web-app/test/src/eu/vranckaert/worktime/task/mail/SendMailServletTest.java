@@ -0,0 +1,131 @@
+package eu.vranckaert.worktime.task.mail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.AddressException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.TestCase;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+import eu.vranckaert.worktime.mail.MailSender;
+import eu.vranckaert.worktime.mail.OutboundMail;
+import eu.vranckaert.worktime.model.User;
+
+public class SendMailServletTest extends TestCase {
+	private MessagingException failure;
+	private List<OutboundMail> sent;
+	private SendMailServlet servlet;
+	private Integer status;
+	
+	@Override
+	protected void setUp() throws Exception {
+		sent = new ArrayList<OutboundMail>();
+		servlet = Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(MailSender.class).toInstance(new MailSender() {
+					@Override
+					public void send(OutboundMail mail) throws MessagingException {
+						if (failure != null) {
+							throw failure;
+						}
+						sent.add(mail);
+					}
+				});
+			}
+		}).getInstance(SendMailServlet.class);
+	}
+	
+	public void testMailIsSent() throws Exception {
+		servlet.doPost(request(payload()), response());
+		
+		assertNull(status);
+		assertEquals(1, sent.size());
+		assertEquals("Subject", sent.get(0).getSubject());
+		assertEquals("user@vranckaert.eu", sent.get(0).getRecipients().get(0).getEmail());
+	}
+	
+	/**
+	 * An error status makes the task queue retry the mail.
+	 */
+	public void testFailedMailIsRetried() throws Exception {
+		failure = new MessagingException("Unavailable");
+		
+		servlet.doPost(request(payload()), response());
+		
+		assertEquals(Integer.valueOf(HttpServletResponse.SC_SERVICE_UNAVAILABLE), status);
+	}
+	
+	public void testPermanentFailureIsDropped() throws Exception {
+		failure = new AddressException("Invalid address");
+		
+		servlet.doPost(request(payload()), response());
+		
+		assertNull(status);
+		assertTrue(sent.isEmpty());
+	}
+	
+	public void testInvalidPayloadIsDropped() throws Exception {
+		servlet.doPost(request("{".getBytes("UTF-8")), response());
+		
+		assertNull(status);
+		assertTrue(sent.isEmpty());
+	}
+	
+	private byte[] payload() throws IOException {
+		User from = new User();
+		from.setEmail("worktime@vranckaert.eu");
+		User recipient = new User();
+		recipient.setEmail("user@vranckaert.eu");
+		List<User> recipients = new ArrayList<User>();
+		recipients.add(recipient);
+		return new ObjectMapper().writeValueAsBytes(new OutboundMail("Subject", "Body", "text/plain", from, recipients));
+	}
+	
+	private HttpServletRequest request(byte[] payload) {
+		final InputStream in = new ByteArrayInputStream(payload);
+		return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if ("getInputStream".equals(method.getName())) {
+					return new ServletInputStream() {
+						@Override
+						public int read() throws IOException {
+							return in.read();
+						}
+					};
+				} else if ("getHeader".equals(method.getName())) {
+					return "0";
+				}
+				return null;
+			}
+		});
+	}
+	
+	private HttpServletResponse response() {
+		return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { HttpServletResponse.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if ("sendError".equals(method.getName()) || "setStatus".equals(method.getName())) {
+					status = (Integer) args[0];
+				}
+				return null;
+			}
+		});
+	}
+}